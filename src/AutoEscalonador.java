@@ -0,0 +1,194 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Representa a thread que ajusta o número de barbeiros em tempo de execução (Caso D).
+ * A cada intervalo ela lê os mesmos sinais que o Tenente Escovinha observa (cadeiras
+ * ocupadas e a espera do cliente mais antigo) e contrata ou aposenta barbeiros dentro
+ * dos limites mínimo e máximo. Para evitar oscilação, um sinal precisa se repetir por
+ * vários intervalos seguidos (histerese) antes de mudar a equipe.
+ * Barbeiros aposentados terminam o cliente que estão atendendo antes de sair.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class AutoEscalonador implements Runnable {
+    private static final String[] NOMES = {"Recruta Zero", "Dentinho", "Otto", "Cuca", "Quindim", "Platão"};
+
+    private Barbearia barbearia;
+    private int minBarbeiros;
+    private int maxBarbeiros;
+    private long esperaSlaMs; // Espera máxima aceitável para um cliente (meta de SLA)
+
+    private final long INTERVALO_MS = 1000;     // Período entre duas leituras dos sinais
+    private final int TICKS_HISTERESE = 3;      // Leituras seguidas necessárias para mudar a equipe
+    private final int limiarSubida;             // Cadeiras ocupadas a partir das quais contrata
+    private final int limiarDescida;            // Cadeiras ocupadas até as quais aposenta
+
+    private volatile boolean encerrar = false;
+
+    // Barbeiros ativos em ordem de contratação; o último contratado é o primeiro aposentado
+    private List<Barbeiro> ativos = new ArrayList<>();
+    private List<Thread> threadsAtivas = new ArrayList<>();
+    // Todos os barbeiros já iniciados, inclusive os aposentados, para o join final e o custo
+    private List<Barbeiro> todosBarbeiros = new ArrayList<>();
+    private List<Thread> todasThreads = new ArrayList<>();
+
+    private int contratados = 0;
+    private int contratacoes = 0;
+    private int aposentadorias = 0;
+    private int picoBarbeiros = 0;
+    private double barbeiroSegundos = 0.0;
+
+    /**
+     * Constrói o auto-escalonador.
+     *
+     * @param barbearia A instância compartilhada da Barbearia.
+     * @param minBarbeiros O número mínimo de barbeiros em serviço.
+     * @param maxBarbeiros O número máximo de barbeiros em serviço.
+     * @param esperaSlaMs A meta de espera máxima por cliente, em milissegundos.
+     */
+    public AutoEscalonador(Barbearia barbearia, int minBarbeiros, int maxBarbeiros, long esperaSlaMs) {
+        this.barbearia = barbearia;
+        this.minBarbeiros = Math.max(1, minBarbeiros);
+        this.maxBarbeiros = Math.max(this.minBarbeiros, maxBarbeiros);
+        this.esperaSlaMs = esperaSlaMs;
+        // Contrata com metade das cadeiras ocupadas e aposenta com no máximo duas;
+        // a faixa entre os dois limiares é a zona morta da histerese.
+        this.limiarSubida = barbearia.getCapacidadeTotal() / 2;
+        this.limiarDescida = 2;
+    }
+
+    /**
+     * O ciclo de vida principal do auto-escalonador.
+     * Inicia a equipe mínima e, a cada intervalo, decide se contrata, aposenta ou mantém.
+     * Ao ser encerrado, espera todos os barbeiros terminarem e imprime o relatório de custo.
+     */
+    @Override
+    public void run() {
+        System.out.println("Auto-escalonador iniciou com " + minBarbeiros + " a " + maxBarbeiros + " barbeiros.");
+        for (int i = 0; i < minBarbeiros; i++) {
+            contratar();
+        }
+
+        int ticksAlto = 0;
+        int ticksBaixo = 0;
+
+        while (!encerrar) {
+            try {
+                Thread.sleep(INTERVALO_MS);
+
+                int ocupadas = barbearia.getCadeirasOcupadas();
+                long esperaMaisAntiga = barbearia.getEsperaMaisAntiga();
+
+                boolean sinalAlto = ocupadas >= limiarSubida || esperaMaisAntiga > esperaSlaMs;
+                boolean sinalBaixo = ocupadas <= limiarDescida && esperaMaisAntiga < esperaSlaMs / 2;
+
+                ticksAlto = sinalAlto ? ticksAlto + 1 : 0;
+                ticksBaixo = sinalBaixo ? ticksBaixo + 1 : 0;
+
+                if (ticksAlto >= TICKS_HISTERESE && ativos.size() < maxBarbeiros) {
+                    contratar();
+                    ticksAlto = 0;
+                } else if (ticksBaixo >= TICKS_HISTERESE && ativos.size() > minBarbeiros) {
+                    aposentarUltimo();
+                    ticksBaixo = 0;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.out.println("Auto-escalonador interrompido.");
+                break;
+            }
+        }
+
+        encerrarBarbeiros();
+        // Cada barbeiro conta do início ao fim do próprio turno, inclusive o esvaziamento
+        for (Barbeiro barbeiro : todosBarbeiros) {
+            barbeiroSegundos += barbeiro.getSegundosTrabalhados();
+        }
+
+        try {
+            imprimirRelatorio();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        barbearia.registrarUsoThread(UsoThread.medirThreadAtual("Auto-escalonador"));
+    }
+
+    /**
+     * Sinaliza para o auto-escalonador parar de ajustar a equipe e encerrar os barbeiros.
+     */
+    public void encerrar() {
+        this.encerrar = true;
+    }
+
+    private void contratar() {
+        String nome = contratados < NOMES.length ? NOMES[contratados] : "Reforço " + (contratados + 1);
+        contratados++;
+        Barbeiro barbeiro = new Barbeiro(nome, barbearia, "D");
+        Thread thread = new Thread(barbeiro, nome.replace(" ", ""));
+        ativos.add(barbeiro);
+        threadsAtivas.add(thread);
+        todosBarbeiros.add(barbeiro);
+        todasThreads.add(thread);
+        thread.start();
+        contratacoes++;
+        picoBarbeiros = Math.max(picoBarbeiros, ativos.size());
+        System.out.println("Auto-escalonador contratou " + nome + ". Barbeiros ativos: " + ativos.size());
+    }
+
+    private void aposentarUltimo() {
+        Barbeiro barbeiro = ativos.remove(ativos.size() - 1);
+        threadsAtivas.remove(threadsAtivas.size() - 1);
+        // Se ele estiver parado esperando cliente, aposentar() acorda a thread dele
+        barbeiro.aposentar();
+        aposentadorias++;
+        System.out.println("Auto-escalonador aposentou " + barbeiro.getNome() + ". Barbeiros ativos: " + ativos.size());
+    }
+
+    private void encerrarBarbeiros() {
+        for (Barbeiro barbeiro : ativos) {
+            barbeiro.encerrar();
+        }
+        // Garante que todos os barbeiros dormindo acordem para verificar o encerramento
+        barbearia.acordarBarbeiros(todasThreads.size());
+        for (Thread thread : todasThreads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Elabora e exibe o relatório de custo (barbeiro-segundos) contra o cumprimento do SLA.
+     */
+    private void imprimirRelatorio() throws InterruptedException {
+        System.out.println("\n*** Relatório do Auto-Escalonador ***");
+        System.out.printf("Barbeiro-segundos consumidos: %.2f\n", barbeiroSegundos);
+        System.out.printf("Contratações: %d, Aposentadorias: %d, Pico de barbeiros: %d\n",
+                contratacoes, aposentadorias, picoBarbeiros);
+        System.out.printf("Cumprimento do SLA (espera <= %.1fs):\n", esperaSlaMs / 1000.0);
+
+        int dentroTotal = 0;
+        int atendidosTotal = 0;
+        Categorias categorias = barbearia.getCategorias();
+        for (int nivel = 0; nivel < categorias.getQuantidade(); nivel++) {
+            int dentro = barbearia.contarEsperasAte(nivel, esperaSlaMs);
+            int atendidos = barbearia.getTotalAtendimentos(nivel);
+            dentroTotal += dentro;
+            atendidosTotal += atendidos;
+            System.out.printf("   %s: %.2f%% (%d de %d)\n", categorias.getNome(nivel),
+                    atendidos == 0 ? 100.0 : 100.0 * dentro / atendidos, dentro, atendidos);
+        }
+        double cumprimento = atendidosTotal == 0 ? 100.0 : 100.0 * dentroTotal / atendidosTotal;
+        System.out.printf("   Geral: %.2f%%\n", cumprimento);
+        if (dentroTotal > 0) {
+            System.out.printf("Custo por atendimento dentro do SLA: %.2f barbeiro-segundos\n", barbeiroSegundos / dentroTotal);
+        }
+        System.out.println("*************************************");
+    }
+}
@@ -1,7 +1,15 @@
+import java.nio.ByteBuffer;
 import java.util.LinkedList; // Para implementar as filas FIFO [cite: 14]
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Semaphore; // Para controle de acesso concorrente [cite: 8]
 import java.util.concurrent.atomic.AtomicInteger; // Para contadores atômicos (seguro para threads)
+import java.util.concurrent.atomic.AtomicIntegerArray; // Contadores atômicos indexados por nível
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import java.util.ArrayList; // Para armazenar os tempos para cálculo de médias
 import java.util.List;
 
@@ -11,6 +19,10 @@ import java.util.List;
  * utilizando semáforos e é responsável por coletar todas as estatísticas da simulação.
  * É o núcleo de sincronização do projeto.
  *
+ * Há uma fila FIFO por nível de prioridade configurado em {@link Categorias}; filas e
+ * estatísticas são arrays indexados pelo nível. Um mapa de bits marca os níveis com
+ * clientes esperando, então achar o cliente de maior prioridade é uma única busca de bit.
+ *
  * @author Matheus Rocha
  * @author Guilherme Sahdo
  * @version 1.0
@@ -18,100 +30,229 @@ import java.util.List;
 public class Barbearia {
     private final int CAPACIDADE_TOTAL = 20; // Total de cadeiras na barbearia [cite: 14]
 
+    // Janelas deslizantes de métricas recentes: últimos 10 s, 1 min e 5 min
+    private static final long[] DURACOES_JANELAS_MS = {10_000, 60_000, 300_000};
+    private static final int BALDES_POR_JANELA = 10;
+
+    // Roda de temporização das desistências: ticks de 100 ms, 512 baldes (51,2 s por volta)
+    private static final long TICK_DESISTENCIA_MS = 100;
+    private static final int BALDES_DESISTENCIA = 512;
+
+    private final Categorias categorias;
+    private final int niveis; // Quantidade de níveis de prioridade
+
     /**
-     * Retorna o tamanho da fila de uma categoria específica.
-     * @param categoria A categoria da fila.
-     * @return O número de clientes na fila daquela categoria.
+     * Retorna o tamanho da fila de um nível específico.
+     * @param nivel O nível da fila.
+     * @return O número de clientes na fila daquele nível.
      */
-    public int getTamanhoFila(Cliente.Categoria categoria) {
+    public int getTamanhoFila(int nivel) {
         // Não precisamos de mutex aqui porque os métodos size() de LinkedList são thread-safe para leitura,
         // mas se houvesse risco de uma operação de escrita acontecer ao mesmo tempo que a leitura
         // do Tenente Escovinha, seria bom usar o mutex. Para simples leitura de tamanho, geralmente é ok.
         // Se ocorrerem inconsistências no relatório, pode-se adicionar mutex.
-        switch (categoria) {
-            case OFICIAL:
-                return filaOficiais.size();
-            case SARGENTO:
-                return filaSargentos.size();
-            case CABO:
-                return filaCabos.size();
-            default:
-                return 0; // Para categoria PAUSA ou desconhecida
-        }
-    }
-    
+        if (nivel < 0 || nivel >= niveis) return 0; // Para PAUSA ou nível desconhecido
+        return filas[nivel].size() - desistentesNaFila[nivel]; // Desistentes ainda na fila não contam
+    }
+
     private volatile boolean sargentoDispensado = false;
-    
-    // Filas FIFO para cada categoria de cliente [cite: 14]
-    private Queue<Cliente> filaOficiais = new LinkedList<>();
-    private Queue<Cliente> filaSargentos = new LinkedList<>();
-    private Queue<Cliente> filaCabos = new LinkedList<>();
-    
+
+    // Filas FIFO para cada nível de cliente [cite: 14]
+    private Queue<Cliente>[] filas;
+    // Bit i ligado se e somente se filas[i] não está vazia. Protegido pelo mutex.
+    private long[] mapaNaoVazias;
 
     private Semaphore cadeirasLivres = new Semaphore(CAPACIDADE_TOTAL);
     private Semaphore cadeirasOcupadas = new Semaphore(0);
-    private Semaphore mutex = new Semaphore(1);          // Garante exclusão mútua ao acessar as filas compartilhadas [cite: 8] 
+    private Semaphore mutex = new Semaphore(1);          // Garante exclusão mútua ao acessar as filas compartilhadas [cite: 8]
+    private Semaphore mutexEstatisticas = new Semaphore(1); // Protege as listas de tempos, separado das filas
 
     // Variáveis para coleta de estatísticas (para o relatório do Tenente Escovinha) [cite: 21, 22, 23, 24, 25, 29, 30]
-    private AtomicInteger totalAtendimentosOficiais = new AtomicInteger(0);
-    private AtomicInteger totalAtendimentosSargentos = new AtomicInteger(0);
-    private AtomicInteger totalAtendimentosCabos = new AtomicInteger(0);
-
-    private AtomicInteger totalClientesOficiaisGerados = new AtomicInteger(0);
-    private AtomicInteger totalClientesSargentosGerados = new AtomicInteger(0);
-    private AtomicInteger totalClientesCabosGerados = new AtomicInteger(0);
+    private AtomicIntegerArray totalAtendimentos;
+    private AtomicIntegerArray totalClientesGerados;
     private AtomicInteger totalClientesPausaGerados = new AtomicInteger(0);
 
-    // Listas para armazenar tempos e comprimentos de fila para cálculo de médias
-    private List<Long> temposEsperaOficiais;
-    private List<Long> temposEsperaSargentos;
-    private List<Long> temposEsperaCabos;
+    // Listas para armazenar tempos para cálculo de médias, uma por nível
+    private List<List<Long>> temposEspera;
+    private List<List<Long>> temposAtendimento;
 
-    private List<Long> temposAtendimentoOficiais;
-    private List<Long> temposAtendimentoSargentos;
-    private List<Long> temposAtendimentoCabos;
+    // Integral exata do comprimento de cada fila no tempo. Como cada cliente contribui com
+    // (saída - entrada), a integral até t é somaSaidas - somaEntradas + (entradas - saidas) * t,
+    // com instantes em ns desde inicioNs. Atômicos para servir também às filas com travas próprias das subclasses.
+    private long inicioNs = System.nanoTime();
+    private AtomicLongArray somaEntradasNs;
+    private AtomicLongArray somaSaidasNs;
+    private AtomicLongArray entradas;
+    private AtomicLongArray saidas;
+    private JanelaDeslizante[] janelas; // Protegidas pelo mutexEstatisticas, como as listas
 
-    private List<Integer> comprimentosMediosFilaOficiais;
-    private List<Integer> comprimentosMediosFilaSargentos;
-    private List<Integer> comprimentosMediosFilaCabos;
+    // Detecção do fim do aquecimento (MSER-5) sobre as esperas, na ordem em que são registradas.
+    // A cada lote fechado guarda-se um marco com o instante, o tamanho das listas de espera e
+    // as integrais das filas, para separar as métricas no ponto de corte. Protegidos pelo
+    // mutexEstatisticas.
+    private final DetectorAquecimento aquecimento = new DetectorAquecimento();
+    private final List<Marco> marcos = new ArrayList<>();
+    private Marco marcoOrigem;
+    private volatile double precisaoRegime = 0;      // 0: sem encerramento antecipado
+    private volatile boolean regimeConvergido = false;
+
+    // Desistência (reneging): cada cliente na fila tem um prazo na roda de temporização. Quem
+    // desiste fica marcado na fila até chegar à frente (sem varrer a fila) e não conta no tamanho.
+    // A roda, desistentesNaFila e permitsDevidos são protegidos pelo mutex. As subclasses com
+    // filas próprias guardam os prazos nas suas rodas (ver prepararDesistencia).
+    private RodaTemporizacao<Cliente> prazosDesistencia; // null se a desistência estiver desligada
+    private long[] pacienciasMs;
+    private int[] desistentesNaFila;
+    private int permitsDevidos = 0; // Permits de cadeirasOcupadas de desistentes já pegos por barbeiros
+    private AtomicIntegerArray totalDesistencias;
+    private AtomicLongArray somaEsperaDesistentesMs;
+
+    // Entrega direta: barbeiros parados em pegarProximoCliente à espera de um cliente. Quem chega
+    // com um barbeiro parado e nenhum cliente esperando sem barbeiro vai direto para ele, como
+    // em uma SynchronousQueue, sem cadeira, mutex, fila nem semáforo. Os sinais abaixo nunca
+    // são entregues como clientes.
+    private static final Cliente SEM_CLIENTE = new Cliente(Cliente.PAUSA, 0); // Acordado sem cliente: retorna null
+    private static final Cliente REVER = new Cliente(Cliente.PAUSA, 0);       // Há cliente na fila: volta ao semáforo
+    private final Queue<EsperaEntrega> barbeirosParados = new ConcurrentLinkedQueue<>();
+    private volatile boolean entregaDireta = true;
+    private AtomicIntegerArray totalEntregasDiretas;
+
+    // Clientes já retirados das filas e ainda não atendidos por completo. Um cliente entra aqui
+    // no mesmo lock das filas em que sai delas e sai no mesmo mutexEstatisticas em que o tempo
+    // de atendimento é registrado, para que o checkpoint (que segura os dois) nunca o perca
+    // nem o conte duas vezes. Só é mantido depois que um Barbeiro começa a trabalhar: os
+    // consumidores dos benchmarks não concluem atendimentos.
+    private final Map<Cliente, Atendimento> emAtendimento = new ConcurrentHashMap<>();
+    private volatile boolean acompanharAtendimentos = false;
+    // Atendimentos em andamento restaurados de um checkpoint, retomados antes de novos clientes
+    private final Queue<Cliente> retomados = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger barbeirosTrabalhando = new AtomicInteger(0); // Para a previsão
+
+    // Uso de recursos de cada thread, registrado por ela mesma ao terminar
+    private final Queue<UsoThread> usosThreads = new ConcurrentLinkedQueue<>();
+    // Tempo que cada barbeiro passou esperando pelos locks da barbearia, somado pela própria thread
+    private final ThreadLocal<long[]> bloqueioDaThread = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final long inicioMs = System.currentTimeMillis();
+    private long duracaoAnteriorMs = 0; // Tempo simulado antes de um checkpoint restaurado
+
+    /**
+     * Constrói e inicializa a Barbearia com as três categorias do trabalho prático.
+     */
+    public Barbearia() {
+        this(Categorias.padrao());
+    }
 
-    
     /**
      * Constrói e inicializa a Barbearia.
      * Configura as filas, os semáforos para controle de capacidade e
-     * as estruturas de dados para coleta de estatísticas.
+     * as estruturas de dados para coleta de estatísticas, uma para cada nível.
+     *
+     * @param categorias A configuração dos níveis de prioridade.
      */
-    public Barbearia() {
-        filaOficiais = new LinkedList<>();
-        filaSargentos = new LinkedList<>();
-        filaCabos = new LinkedList<>();
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Barbearia(Categorias categorias) {
+        this.categorias = categorias;
+        this.niveis = categorias.getQuantidade();
+
+        filas = new Queue[niveis];
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            filas[nivel] = new LinkedList<>();
+        }
+        mapaNaoVazias = new long[(niveis + 63) / 64];
 
         // Inicialização dos semáforos
         cadeirasLivres = new Semaphore(CAPACIDADE_TOTAL); // Todas as cadeiras estão livres inicialmente
         cadeirasOcupadas = new Semaphore(0);              // Nenhuma cadeira está ocupada inicialmente
         mutex = new Semaphore(1);                         // Apenas 1 thread pode acessar as filas por vez
+        mutexEstatisticas = new Semaphore(1);             // Registrar tempos não disputa o lock das filas
 
         // Inicialização das variáveis de estatísticas
-        totalAtendimentosOficiais = new AtomicInteger(0);
-        totalAtendimentosSargentos = new AtomicInteger(0);
-        totalAtendimentosCabos = new AtomicInteger(0);
-
-        totalClientesOficiaisGerados = new AtomicInteger(0);
-        totalClientesSargentosGerados = new AtomicInteger(0);
-        totalClientesCabosGerados = new AtomicInteger(0);
+        totalAtendimentos = new AtomicIntegerArray(niveis);
+        totalClientesGerados = new AtomicIntegerArray(niveis);
         totalClientesPausaGerados = new AtomicInteger(0);
+        totalEntregasDiretas = new AtomicIntegerArray(niveis);
+        desistentesNaFila = new int[niveis];
+        totalDesistencias = new AtomicIntegerArray(niveis);
+        somaEsperaDesistentesMs = new AtomicLongArray(niveis);
+
+        temposEspera = new ArrayList<>();
+        temposAtendimento = new ArrayList<>();
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            temposEspera.add(new ArrayList<>());
+            temposAtendimento.add(new ArrayList<>());
+        }
+        somaEntradasNs = new AtomicLongArray(niveis);
+        somaSaidasNs = new AtomicLongArray(niveis);
+        entradas = new AtomicLongArray(niveis);
+        saidas = new AtomicLongArray(niveis);
+
+        long agora = System.currentTimeMillis();
+        janelas = new JanelaDeslizante[DURACOES_JANELAS_MS.length];
+        for (int i = 0; i < janelas.length; i++) {
+            janelas[i] = new JanelaDeslizante(DURACOES_JANELAS_MS[i], BALDES_POR_JANELA, niveis, agora);
+        }
+        marcoOrigem = criarMarco();
+    }
+
+    /**
+     * Um barbeiro parado à espera de uma entrega direta. O primeiro compareAndSet em
+     * {@code recebido} decide: um cliente, um sinal, ou a desistência do próprio barbeiro.
+     */
+    private static final class EsperaEntrega {
+        final Thread barbeiro;
+        final AtomicReference<Cliente> recebido = new AtomicReference<>();
+
+        EsperaEntrega(Thread barbeiro) {
+            this.barbeiro = barbeiro;
+        }
+    }
+
+    /**
+     * Um atendimento em andamento. Os campos, exceto na criação, são protegidos pelo mutexEstatisticas.
+     */
+    private static final class Atendimento {
+        boolean esperaRegistrada = false;
+        long duracaoMs = -1;  // Duração total; -1 enquanto o atendimento não começou
+        long restanteMs = -1; // Quanto faltava quando começou (menor que a duração se foi retomado)
+        long inicioMs = 0;    // 0 enquanto não começou
+    }
+
+    /**
+     * Fotografia das estatísticas no fim de um lote do detector de aquecimento.
+     */
+    private static final class Marco {
+        final long instanteNs; // Desde inicioNs
+        final int[] esperasRegistradas;
+        final double[] integrais;
 
-        temposEsperaOficiais = new ArrayList<>();
-        temposEsperaSargentos = new ArrayList<>();
-        temposEsperaCabos = new ArrayList<>();
+        Marco(long instanteNs, int[] esperasRegistradas, double[] integrais) {
+            this.instanteNs = instanteNs;
+            this.esperasRegistradas = esperasRegistradas;
+            this.integrais = integrais;
+        }
+    }
 
-        temposAtendimentoOficiais = new ArrayList<>();
-        temposAtendimentoSargentos = new ArrayList<>();
-        temposAtendimentoCabos = new ArrayList<>();
+    /**
+     * Fotografa as estatísticas agora. Deve ser chamado com o mutexEstatisticas adquirido
+     * (ou antes de as threads começarem).
+     */
+    private Marco criarMarco() {
+        long agoraNs = System.nanoTime() - inicioNs;
+        int[] esperasRegistradas = new int[niveis];
+        double[] integrais = new double[niveis];
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            esperasRegistradas[nivel] = temposEspera.get(nivel).size();
+            integrais[nivel] = integralFila(nivel, agoraNs);
+        }
+        return new Marco(agoraNs, esperasRegistradas, integrais);
+    }
 
-        comprimentosMediosFilaOficiais = new ArrayList<>();
-        comprimentosMediosFilaSargentos = new ArrayList<>();
-        comprimentosMediosFilaCabos = new ArrayList<>();
+    /**
+     * Retorna a configuração de níveis de prioridade desta barbearia.
+     */
+    public Categorias getCategorias() {
+        return categorias;
     }
 
     /**
@@ -123,9 +264,10 @@ public class Barbearia {
      * @return true se o cliente conseguiu um lugar na fila, false caso contrário.
      * @throws InterruptedException se a thread for interrompida.
      */
- 
+
     public boolean adicionarCliente(Cliente cliente) throws InterruptedException {
-        // ... (contagem de clientes gerados por categoria, antes do acquire)
+        if (cliente.isPausa()) return false; // Uma pausa não ocupa cadeira
+        if (entregaDireta && entregarDiretamente(cliente)) return true;
 
         // Tenta adquirir uma cadeira livre imediatamente. Se não conseguir, retorna false (manda embora).
         if (!cadeirasLivres.tryAcquire()) { // ATENÇÃO AQUI: tryAcquire() em vez de acquire()
@@ -134,30 +276,178 @@ public class Barbearia {
 
         mutex.acquire(); // Entra na seção crítica
 
-        // Adiciona o cliente à fila apropriada
-        switch (cliente.getCategoria()) {
-            case OFICIAL:
-                filaOficiais.add(cliente);
-                break;
-            case SARGENTO:
-                filaSargentos.add(cliente);
-                break;
-            case CABO:
-                filaCabos.add(cliente);
-                break;
-            default:
-                break;
-        }
+        enfileirar(cliente);
 
         mutex.release(); // Sai da seção crítica
 
         cadeirasOcupadas.release(); // Sinaliza que há um cliente esperando para ser atendido
+
+        // Um barbeiro pode ter parado depois de não achar permit e antes deste release
+        if (entregaDireta && !barbeirosParados.isEmpty()) sinalizarParado(REVER);
+        return true;
+    }
+
+    /**
+     * Tenta adicionar um lote de clientes que chegaram agora, na ordem do lote.
+     * Usado pelo {@link GatewayChegadas}: as cadeiras são reservadas uma a uma sem bloquear,
+     * mas o mutex das filas e o semáforo dos barbeiros são tocados uma vez só por lote.
+     * Se faltarem cadeiras, os primeiros do lote são aceitos e os demais rejeitados.
+     * Um lote de um cliente só segue o caminho de {@link #adicionarCliente(Cliente)}.
+     *
+     * @param niveis O nível de cada cliente (todos válidos).
+     * @param temposServico O tempo de serviço de cada cliente, em segundos.
+     * @param quantidade Quantos clientes do começo dos arrays formam o lote.
+     * @param aceitos Recebe, para cada cliente, se ele conseguiu um lugar.
+     * @return Quantos clientes foram aceitos.
+     * @throws InterruptedException se a thread for interrompida.
+     */
+    public int adicionarLote(int[] niveis, int[] temposServico, int quantidade, boolean[] aceitos) throws InterruptedException {
+        if (quantidade == 1) {
+            aceitos[0] = adicionarCliente(new Cliente(niveis[0], temposServico[0]));
+            return aceitos[0] ? 1 : 0;
+        }
+        int reservadas = 0;
+        while (reservadas < quantidade && cadeirasLivres.tryAcquire()) reservadas++;
+        for (int i = 0; i < quantidade; i++) aceitos[i] = i < reservadas;
+        if (reservadas == 0) return 0;
+
+        long agora = System.currentTimeMillis();
+        mutex.acquire();
+        for (int i = 0; i < reservadas; i++) enfileirar(new Cliente(niveis[i], temposServico[i], agora));
+        mutex.release();
+        cadeirasOcupadas.release(reservadas);
+
+        if (entregaDireta) {
+            for (int i = 0; i < reservadas && !barbeirosParados.isEmpty(); i++) sinalizarParado(REVER);
+        }
+        return reservadas;
+    }
+
+    /**
+     * Entrega o cliente a um barbeiro parado, se houver um e se nenhuma cadeira estiver ocupada:
+     * assim ninguém de prioridade maior, nem do mesmo nível que chegou antes, é ultrapassado.
+     * Não basta faltar permit em cadeirasOcupadas: o permit pego por um barbeiro não é de um
+     * cliente específico, e um cliente mais prioritário que chegue depois levaria o barbeiro,
+     * deixando para trás um cliente mais antigo que o entregue. O cliente não passa pelas
+     * filas; nas integrais entra e sai no mesmo instante.
+     *
+     * As cadeiras livres são conferidas e a entrega é feita com o mutex adquirido. Todo produtor
+     * (inclusive o lote do gateway) reserva a cadeira antes de adquirir o mutex para enfileirar,
+     * então com todas as cadeiras livres nenhum cliente anterior está na fila nem a caminho
+     * dela, e quem reservar depois só entra na fila depois desta entrega. Reservar todas as
+     * cadeiras com tryAcquire faria o mesmo, mas rejeitaria quem chegasse durante a entrega.
+     * A contabilidade também é feita com o mutex, como a de uma retirada da fila, para que um
+     * checkpoint veja o cliente entregue nos contadores e em atendimento ao mesmo tempo.
+     *
+     * @return true se o cliente foi entregue.
+     */
+    private boolean entregarDiretamente(Cliente cliente) {
+        if (barbeirosParados.isEmpty() || cadeirasLivres.availablePermits() < CAPACIDADE_TOTAL) return false; // Atalho sem o mutex
+        EsperaEntrega espera = null;
+        mutex.acquireUninterruptibly();
+        try {
+            if (cadeirasLivres.availablePermits() < CAPACIDADE_TOTAL) return false;
+            // Em atendimento antes do compareAndSet: o barbeiro pode acordar sozinho e começar já
+            marcarRetirado(cliente);
+            while ((espera = barbeirosParados.poll()) != null && !espera.recebido.compareAndSet(null, cliente)) {
+                // Quem já recebeu um sinal ou desistiu de esperar só é descartado
+            }
+            if (espera == null) {
+                emAtendimento.remove(cliente);
+                return false;
+            }
+            int nivel = cliente.getNivel();
+            marcarEntrada(nivel);
+            marcarSaida(nivel);
+            totalAtendimentos.incrementAndGet(nivel);
+            totalEntregasDiretas.incrementAndGet(nivel);
+        } finally {
+            mutex.release();
+        }
+        LockSupport.unpark(espera.barbeiro);
         return true;
     }
 
+    /**
+     * Entrega um sinal ao barbeiro parado há mais tempo.
+     *
+     * @return true se havia um barbeiro parado.
+     */
+    private boolean sinalizarParado(Cliente sinal) {
+        EsperaEntrega espera;
+        while ((espera = barbeirosParados.poll()) != null) {
+            if (espera.recebido.compareAndSet(null, sinal)) {
+                LockSupport.unpark(espera.barbeiro);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Para o barbeiro até receber uma entrega direta ou um sinal. Chamado depois de um
+     * tryAcquire sem sucesso em cadeirasOcupadas.
+     *
+     * @return O cliente entregue, {@link #SEM_CLIENTE} ou {@link #REVER} (o barbeiro deve voltar
+     *         a esperar no semáforo).
+     * @throws InterruptedException se a thread for interrompida antes de receber algo.
+     */
+    private Cliente esperarEntrega() throws InterruptedException {
+        EsperaEntrega espera = new EsperaEntrega(Thread.currentThread());
+        barbeirosParados.add(espera);
+
+        // Um cliente pode ter entrado na fila entre o tryAcquire e o registro, e o Sargento pode ter
+        // ido embora (depois disso ninguém mais acorda barbeiros parados). O permit não é pego aqui:
+        // pegar e devolver abriria uma janela em que um produtor entregaria um cliente novo
+        // na frente do que está na fila
+        if (cadeirasOcupadas.availablePermits() > 0 || isSargentoDispensado()) {
+            if (espera.recebido.compareAndSet(null, REVER)) {
+                barbeirosParados.remove(espera);
+                return REVER;
+            }
+            return espera.recebido.get(); // Um produtor chegou antes
+        }
+
+        while (espera.recebido.get() == null) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                if (espera.recebido.compareAndSet(null, SEM_CLIENTE)) throw new InterruptedException();
+                Thread.currentThread().interrupt(); // Já recebeu: atende e deixa a interrupção para depois
+            }
+        }
+        return espera.recebido.get();
+    }
+
+    /**
+     * Liga ou desliga a entrega direta (ligada por padrão). Usado para medir o ganho dela.
+     */
+    public void setEntregaDireta(boolean entregaDireta) {
+        this.entregaDireta = entregaDireta;
+    }
+
+    /**
+     * Retorna quantos clientes de um nível foram entregues diretamente a um barbeiro parado.
+     */
+    public int getTotalEntregasDiretas(int nivel) {
+        if (nivel < 0 || nivel >= niveis) return 0;
+        return totalEntregasDiretas.get(nivel);
+    }
+
+    /**
+     * Adiciona o cliente à fila do seu nível, marca o nível como não vazio e, se a desistência
+     * estiver ligada, agenda o prazo da paciência. Deve ser chamado com o mutex adquirido.
+     */
+    private void enfileirar(Cliente cliente) {
+        int nivel = cliente.getNivel();
+        filas[nivel].add(cliente);
+        mapaNaoVazias[nivel >>> 6] |= 1L << nivel;
+        marcarEntrada(nivel);
+        if (prazosDesistencia != null) agendarDesistencia(prazosDesistencia, cliente);
+    }
+
     /**
      * Retira o próximo cliente da fila para ser atendido, respeitando a ordem de prioridade
-     * global (Oficiais > Sargentos > Cabos)[cite: 18].
+     * global (nível 0 primeiro)[cite: 18].
      * Este método é bloqueante: se não houver clientes, a thread do barbeiro esperará.
      * Usado nos Casos A e B. [cite: 44, 46]
      *
@@ -165,31 +455,39 @@ public class Barbearia {
      * @throws InterruptedException se a thread for interrompida.
      */
     public Cliente pegarProximoCliente() throws InterruptedException {
-        cadeirasOcupadas.acquire();
-        
+        if (!entregaDireta || isSargentoDispensado()) {
+            cadeirasOcupadas.acquire();
+        } else if (!cadeirasOcupadas.tryAcquire()) {
+            // Sem cliente esperando: para até uma entrega direta ou um sinal
+            Cliente recebido = esperarEntrega();
+            if (recebido == SEM_CLIENTE) return null;
+            if (recebido != REVER) return recebido; // Entrega direta: não ocupou cadeira
+            cadeirasOcupadas.acquire();
+        }
+
         if (isSargentoDispensado() && isBarbeariaVazia()) {
             cadeirasOcupadas.release(); // Devolve o permit para outro barbeiro poder sair também
             return null;
         }
 
-        mutex.acquire();            // Entra na seção crítica para acessar as filas
+        // Entra na seção crítica para acessar as filas. Sem interrupção: o permit já foi pego e,
+        // se a espera pelo mutex fosse interrompida (a aposentadoria interrompe o barbeiro que
+        // está esperando cliente), o cliente ficaria na fila sem permit
+        adquirirMedindoSemInterrupcao(mutex);
 
-        Cliente cliente = null;
-        // Atende por prioridade: Oficiais > Sargentos > Cabos [cite: 18]
-        if (!filaOficiais.isEmpty()) {
-            cliente = filaOficiais.poll();
-            totalAtendimentosOficiais.incrementAndGet();
-        } else if (!filaSargentos.isEmpty()) {
-            cliente = filaSargentos.poll();
-            totalAtendimentosSargentos.incrementAndGet();
-        } else if (!filaCabos.isEmpty()) {
-            cliente = filaCabos.poll();
-            totalAtendimentosCabos.incrementAndGet();
+        // Atende por prioridade: o nível mais alto com alguém esperando [cite: 18]
+        Cliente cliente = retirarDoNivel(nivelMaisPrioritario());
+        if (cliente == null && permitsDevidos > 0) {
+            permitsDevidos--; // O permit era de um cliente que desistiu
         }
 
         mutex.release();            // Sai da seção crítica
 
-        cadeirasLivres.release(); // Libera uma cadeira, pois o cliente está saindo da fila para ser atendido
+        // Só libera uma cadeira se um cliente realmente saiu da fila. Um permit "extra"
+        // (por exemplo, de acordarBarbeiros) não corresponde a nenhuma cadeira ocupada.
+        if (cliente != null) {
+            cadeirasLivres.release(); // Libera uma cadeira, pois o cliente está saindo da fila para ser atendido
+        }
         return cliente;
     }
 
@@ -198,11 +496,11 @@ public class Barbearia {
      * O barbeiro tenta primeiro pegar um cliente de sua fila preferida. Se estiver vazia,
      * [cite_start]ele atende outras filas, respeitando a prioridade global. [cite: 48]
      *
-     * @param categoriaPreferida A categoria que o barbeiro tem preferência em atender.
+     * @param nivelPreferido O nível que o barbeiro tem preferência em atender.
      * @return O cliente a ser atendido, ou null se não houver clientes.
      * @throws InterruptedException se a thread for interrompida.
      */
-    public Cliente pegarCliente(Cliente.Categoria categoriaPreferida) throws InterruptedException {
+    public Cliente pegarCliente(int nivelPreferido) throws InterruptedException {
         // NOTA: Para o Caso C, a aquisição/liberação dos semáforos é mais complexa aqui.
         // O barbeiro deve primeiro tentar sua fila preferida SEM bloquear o semáforo 'cadeirasOcupadas'
         // para evitar deadlocks se sua fila estiver vazia mas outras tiverem clientes.
@@ -215,54 +513,22 @@ public class Barbearia {
         // um permit que outra thread poderia usar.
         cadeirasOcupadas.acquire();
 
-        mutex.acquire(); // Entra na seção crítica
-
-        Cliente cliente = null;
+        adquirirMedindo(mutex); // Entra na seção crítica
 
-        // Tenta a categoria preferida primeiro
-        switch (categoriaPreferida) {
-            case OFICIAL:
-                if (!filaOficiais.isEmpty()) {
-                    cliente = filaOficiais.poll();
-                    totalAtendimentosOficiais.incrementAndGet();
-                }
-                break;
-            case SARGENTO:
-                if (!filaSargentos.isEmpty()) {
-                    cliente = filaSargentos.poll();
-                    totalAtendimentosSargentos.incrementAndGet();
-                }
-                break;
-            case CABO:
-                if (!filaCabos.isEmpty()) {
-                    cliente = filaCabos.poll();
-                    totalAtendimentosCabos.incrementAndGet();
-                }
-                break;
-            default:
-                break; // Não deveria acontecer
-        }
-
-        // Se a categoria preferida estava vazia, tenta outras categorias por prioridade global
+        // Tenta o nível preferido primeiro; se estiver vazio, o mais prioritário com alguém esperando
+        Cliente cliente = retirarDoNivel(nivelPreferido);
         if (cliente == null) {
-            if (!filaOficiais.isEmpty()) {
-                cliente = filaOficiais.poll();
-                totalAtendimentosOficiais.incrementAndGet();
-            } else if (!filaSargentos.isEmpty()) {
-                cliente = filaSargentos.poll();
-                totalAtendimentosSargentos.incrementAndGet();
-            } else if (!filaCabos.isEmpty()) {
-                cliente = filaCabos.poll();
-                totalAtendimentosCabos.incrementAndGet();
-            }
+            cliente = retirarDoNivel(nivelMaisPrioritario());
         }
+        boolean permitDeDesistente = cliente == null && permitsDevidos > 0;
+        if (permitDeDesistente) permitsDevidos--;
 
         mutex.release(); // Sai da seção crítica
 
         // Se um cliente foi encontrado, libera uma cadeira para o próximo cliente entrar
         if (cliente != null) {
             cadeirasLivres.release();
-        } else {
+        } else if (!permitDeDesistente) { // O permit de um desistente não volta: não há cliente para ele
             // Isso não deve acontecer se cadeirasOcupadas.acquire() foi bem-sucedido e as filas foram verificadas corretamente,
             // mas é um fallback para garantir que o permit é liberado se nenhum cliente for encontrado.
             // Poderia indicar um problema lógico ou de timing.
@@ -272,292 +538,1240 @@ public class Barbearia {
         return cliente;
     }
 
+    /**
+     * Retorna o nível de maior prioridade com clientes esperando, ou -1 se todas as filas
+     * estiverem vazias. Deve ser chamado com o mutex adquirido.
+     */
+    private int nivelMaisPrioritario() {
+        for (int palavra = 0; palavra < mapaNaoVazias.length; palavra++) {
+            if (mapaNaoVazias[palavra] != 0) {
+                return (palavra << 6) + Long.numberOfTrailingZeros(mapaNaoVazias[palavra]);
+            }
+        }
+        return -1;
+    }
 
-    // Métodos para o Tenente Escovinha coletar dados para o relatório [cite: 21]
+    /**
+     * Retira o primeiro cliente de um nível, mantendo o mapa de bits e o contador de atendimentos.
+     * Deve ser chamado com o mutex adquirido.
+     *
+     * @return O cliente retirado, ou null se o nível for inválido ou estiver vazio.
+     */
+    private Cliente retirarDoNivel(int nivel) {
+        if (nivel < 0 || nivel >= niveis) return null;
+        Cliente cliente = filas[nivel].poll(); // Nunca é um desistente: eles não ficam na frente
+        if (cliente == null) return null;
+        if (prazosDesistencia != null) {
+            cancelarDesistencia(prazosDesistencia, cliente);
+            descartarDesistentesDaFrente(nivel);
+        }
+        if (filas[nivel].isEmpty()) {
+            mapaNaoVazias[nivel >>> 6] &= ~(1L << nivel);
+        }
+        totalAtendimentos.incrementAndGet(nivel);
+        marcarSaida(nivel);
+        marcarRetirado(cliente);
+        return cliente;
+    }
 
     /**
-     * Retorna o número atual de cadeiras ocupadas por clientes na barbearia.
+     * Remove os desistentes da frente da fila de um nível, mantendo a regra de que a frente
+     * de uma fila nunca é um desistente (e, portanto, uma fila só com desistentes fica vazia).
+     * Cada desistente é removido uma vez só, então o custo é O(1) amortizado.
+     * Deve ser chamado com o mutex adquirido.
      */
-    public int getCadeirasOcupadas() {
-        // A soma dos tamanhos das filas representa os clientes esperando nas cadeiras
-        return filaOficiais.size() + filaSargentos.size() + filaCabos.size();
+    private void descartarDesistentesDaFrente(int nivel) {
+        Cliente frente;
+        while ((frente = filas[nivel].peek()) != null && frente.isDesistiu()) {
+            filas[nivel].poll();
+            desistentesNaFila[nivel]--;
+        }
     }
 
     /**
-     * Retorna o número atual de cadeiras livres.
+     * Liga a desistência: um cliente que espera mais que a paciência do seu nível sai da fila
+     * sem ser atendido e libera a cadeira. Os prazos ficam em uma {@link RodaTemporizacao}
+     * (agendar e cancelar em O(1)) avançada por uma única thread, a cada
+     * {@value #TICK_DESISTENCIA_MS} ms, até o Sargento ir embora e a barbearia esvaziar.
+     * Todos os despachos usam a mesma remoção preguiçosa: o desistente é marcado com a trava
+     * da fila em que está e descartado quando chega à frente.
+     * Deve ser chamado antes de iniciar as threads da simulação.
+     *
+     * @param pacienciasMs A paciência de cada nível, em milissegundos.
      */
-    public int getCadeirasLivres() {
-        return CAPACIDADE_TOTAL - getCadeirasOcupadas();
+    public void configurarDesistencia(long[] pacienciasMs) {
+        if (pacienciasMs.length != niveis) throw new IllegalArgumentException("É preciso uma paciência para cada nível.");
+        for (long paciencia : pacienciasMs) {
+            if (paciencia <= 0) throw new IllegalArgumentException("A paciência deve ser positiva.");
+        }
+        this.pacienciasMs = pacienciasMs.clone();
+        prepararDesistencia();
+
+        Thread relogio = new Thread(() -> {
+            try {
+                while (!(isSargentoDispensado() && isBarbeariaVazia())) {
+                    Thread.sleep(TICK_DESISTENCIA_MS);
+                    expirarPrazosDesistencia();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "RelogioDesistencias");
+        relogio.setDaemon(true);
+        relogio.start();
     }
 
     /**
-     * Retorna verdadeiro se todas as filas estiverem vazias. Usado pelos barbeiros para saber quando parar.
+     * Cria as estruturas de prazo do despacho, com as paciências já gravadas e antes de a
+     * thread do relógio começar. As subclasses que têm filas próprias sobrescrevem junto
+     * com {@link #expirarPrazosDesistencia()}.
      */
-    public boolean isBarbeariaVazia() {
-        // Verifica se todas as filas estão vazias
-        return filaOficiais.isEmpty() && filaSargentos.isEmpty() && filaCabos.isEmpty();
+    void prepararDesistencia() {
+        prazosDesistencia = novaRodaDesistencia();
     }
 
     /**
-     * Registra o comprimento atual das filas para cálculo de média.
-     * Chamado periodicamente pelo Tenente Escovinha.
+     * Cria uma roda de temporização com a resolução usada pelas desistências.
      */
-    public void registrarComprimentosFila() throws InterruptedException {
-        mutex.acquire(); // Garante acesso exclusivo às filas para leitura dos tamanhos
-        comprimentosMediosFilaOficiais.add(filaOficiais.size());
-        comprimentosMediosFilaSargentos.add(filaSargentos.size());
-        comprimentosMediosFilaCabos.add(filaCabos.size());
-        mutex.release();
+    RodaTemporizacao<Cliente> novaRodaDesistencia() {
+        return new RodaTemporizacao<>(TICK_DESISTENCIA_MS, BALDES_DESISTENCIA, System.currentTimeMillis());
     }
 
     /**
-     * Registra o tempo de espera de um cliente para o cálculo da média no relatório final. [cite: 25]
-     * Este método é thread-safe.
+     * Agenda na roda o prazo do cliente: a chegada mais a paciência do seu nível.
+     * Deve ser chamado com a trava que protege a roda adquirida.
+     */
+    void agendarDesistencia(RodaTemporizacao<Cliente> roda, Cliente cliente) {
+        cliente.setPrazoDesistencia(roda.agendar(cliente, cliente.getTempoChegada() + pacienciasMs[cliente.getNivel()]));
+    }
+
+    /**
+     * Cancela o prazo de um cliente que saiu da fila para ser atendido.
+     * Deve ser chamado com a trava que protege a roda adquirida.
+     */
+    void cancelarDesistencia(RodaTemporizacao<Cliente> roda, Cliente cliente) {
+        roda.cancelar(cliente.getPrazoDesistencia());
+        cliente.setPrazoDesistencia(null);
+    }
+
+    /**
+     * Agenda o prazo de um cliente restaurado de um checkpoint, substituindo o prazo que ele
+     * tenha recebido ao entrar na fila: vence quando vencia no checkpoint ou, se ele não tinha
+     * prazo (a desistência estava desligada), na chegada mais a paciência do nível.
+     * Deve ser chamado com a trava que protege a roda adquirida.
+     *
+     * @param restanteDesistenciaMs O que faltava do prazo no checkpoint, ou -1 se não havia prazo.
+     * @param agora O instante da restauração.
+     */
+    void agendarDesistenciaRestaurada(RodaTemporizacao<Cliente> roda, Cliente cliente, long restanteDesistenciaMs, long agora) {
+        roda.cancelar(cliente.getPrazoDesistencia());
+        long prazo = restanteDesistenciaMs >= 0 ? agora + restanteDesistenciaMs
+                : cliente.getTempoChegada() + pacienciasMs[cliente.getNivel()];
+        cliente.setPrazoDesistencia(roda.agendar(cliente, prazo));
+    }
+
+    /**
+     * Avança a roda de temporização e tira das filas os clientes cuja paciência acabou.
      *
-     * @param categoria A categoria do cliente atendido.
-     * @param tempo O tempo de espera em milissegundos.
      * @throws InterruptedException se a thread for interrompida ao adquirir o lock.
      */
-    public void registrarTempoEspera(Cliente.Categoria categoria, long tempo) throws InterruptedException {
-        mutex.acquire(); // Garante acesso exclusivo à lista
+    void expirarPrazosDesistencia() throws InterruptedException {
+        int desistentes;
+        mutex.acquire();
         try {
-            switch (categoria) {
-                case OFICIAL:
-                    temposEsperaOficiais.add(tempo);
-                    break;
-                case SARGENTO:
-                    temposEsperaSargentos.add(tempo);
-                    break;
-                case CABO:
-                    temposEsperaCabos.add(tempo);
-                    break;
-                default:
-                    break;
-            }
+            desistentes = prazosDesistencia.avancar(System.currentTimeMillis(), this::desistir);
         } finally {
-            mutex.release(); // Libera o acesso
+            mutex.release();
         }
+        if (desistentes > 0) cadeirasLivres.release(desistentes); // As cadeiras dos desistentes ficam livres
     }
 
     /**
-     * Registra o tempo de atendimento de um cliente.
+     * Marca um cliente como desistente. Ele sai da contagem da fila e das integrais agora,
+     * mas só é removido da lista quando chegar à frente. Deve ser chamado com o mutex adquirido.
      */
-    public void registrarTempoAtendimento(Cliente.Categoria categoria, long tempo) throws InterruptedException {
-        mutex.acquire(); // Garante acesso exclusivo à lista
-        try {
-            switch (categoria) {
-                case OFICIAL:
-                    temposAtendimentoOficiais.add(tempo);
-
-                    break;
-                case SARGENTO:
-                    temposAtendimentoSargentos.add(tempo);
-                    break;
-                case CABO:
-                    temposAtendimentoCabos.add(tempo);
-                    break;
-                default:
-                    break;
-            }
-        } finally {
-            mutex.release(); // Libera o acesso
+    private void desistir(Cliente cliente) {
+        int nivel = cliente.getNivel();
+        registrarDesistencia(cliente);
+        desistentesNaFila[nivel]++;
+        descartarDesistentesDaFrente(nivel); // Com paciência fixa por nível, o desistente é sempre o da frente
+        if (filas[nivel].isEmpty()) {
+            mapaNaoVazias[nivel >>> 6] &= ~(1L << nivel);
         }
+
+        // Retira o permit de cadeirasOcupadas do desistente. Se um barbeiro já o pegou e espera
+        // pelo mutex, ele não vai achar cliente: o permit fica devido e não é devolvido
+        if (!cadeirasOcupadas.tryAcquire()) permitsDevidos++;
     }
 
-    
     /**
-     * Métodos para calcular as médias para o relatório final
+     * Marca o cliente como desistente e o conta nas desistências e nas integrais das filas.
+     * Deve ser chamado com a trava da fila em que o cliente está.
      */
-    public double getOcupacaoPercentual() {
-        return (double) getCadeirasOcupadas() / CAPACIDADE_TOTAL * 100;
+    void registrarDesistencia(Cliente cliente) {
+        cliente.marcarDesistencia();
+        cliente.setPrazoDesistencia(null);
+        registrarDesistencia(cliente.getNivel(), System.currentTimeMillis() - cliente.getTempoChegada());
     }
-    
-  
 
     /**
-     * Calcula o percentual de ocupação de uma categoria específica em relação à capacidade TOTAL da barbearia.
-     *
-     * @param categoria A categoria de cliente a ser medida.
-     * @return A porcentagem de ocupação (de 0.0 a 100.0) que esta categoria representa do total de cadeiras.
+     * Conta uma desistência do nível, com a espera do desistente, sem objeto Cliente
+     * (para a {@link BarbeariaCompacta}).
      */
-    public double getOcupacaoPercentualPorCategoria(Cliente.Categoria categoria) {
-        int clientesNestaCategoria = 0;
-        switch (categoria) {
-            case OFICIAL:
-                clientesNestaCategoria = filaOficiais.size();
-                break;
-            case SARGENTO:
-                clientesNestaCategoria = filaSargentos.size();
-                break;
-            case CABO:
-                clientesNestaCategoria = filaCabos.size();
-                break;
-            default:
-                return 0;
-        }
-        return (double) clientesNestaCategoria / CAPACIDADE_TOTAL * 100;
+    void registrarDesistencia(int nivel, long esperaMs) {
+        marcarSaida(nivel);
+        totalDesistencias.incrementAndGet(nivel);
+        somaEsperaDesistentesMs.addAndGet(nivel, esperaMs);
     }
 
     /**
-     * Calcula o comprimento médio de uma fila específica ao longo de toda a simulação.
-     * Utiliza os registros coletados periodicamente pelo Tenente Escovinha.
-     *
-     * @param categoria A categoria da fila para o cálculo da média.
-     * @return O comprimento médio da fila como um valor double.
+     * Retorna a paciência de um nível em milissegundos. Só faz sentido com a desistência ligada.
      */
-    public double getComprimentoMedioFila(Cliente.Categoria categoria) {
-        List<Integer> listaParaMedia = null;
-        switch (categoria) {
-            case OFICIAL:
-                listaParaMedia = comprimentosMediosFilaOficiais;
-                break;
-            case SARGENTO:
-                listaParaMedia = comprimentosMediosFilaSargentos;
-                break;
-            case CABO:
-                listaParaMedia = comprimentosMediosFilaCabos;
-                break;
-            default:
-                return 0;
-        }
+    long getPacienciaMs(int nivel) {
+        return pacienciasMs[nivel];
+    }
 
-        if (listaParaMedia.isEmpty()) return 0.0;
-        return listaParaMedia.stream().mapToInt(Integer::intValue).average().orElse(0.0);
+    /**
+     * Verifica se a desistência foi ligada por {@link #configurarDesistencia(long[])}.
+     */
+    public boolean isDesistenciaConfigurada() {
+        return pacienciasMs != null;
     }
 
     /**
-     * Calcula o tempo médio de atendimento (corte de cabelo) para uma categoria de cliente.
-     *
-     * @param categoria A categoria de cliente para o cálculo.
-     * @return O tempo médio de atendimento em segundos.
+     * Retorna a paciência configurada de um nível, em segundos (0 se a desistência estiver desligada).
      */
-    public double getTempoMedioAtendimento(Cliente.Categoria categoria) {
-        List<Long> listaParaMedia = null;
-        switch (categoria) {
-            case OFICIAL:
-                listaParaMedia = temposAtendimentoOficiais;
-                break;
-            case SARGENTO:
-                listaParaMedia = temposAtendimentoSargentos;
-                break;
-                case CABO:
-                listaParaMedia = temposAtendimentoCabos;
-                break;
-            default:
-                return 0;
-        }
+    public double getPacienciaSegundos(int nivel) {
+        if (pacienciasMs == null || nivel < 0 || nivel >= niveis) return 0;
+        return pacienciasMs[nivel] / 1000.0;
+    }
 
-        if (listaParaMedia.isEmpty()) return 0.0;
-        return listaParaMedia.stream().mapToLong(Long::longValue).average().orElse(0.0) / 1000.0; // Em segundos
+    /**
+     * Retorna quantos clientes de um nível desistiram de esperar.
+     */
+    public int getTotalDesistencias(int nivel) {
+        if (nivel < 0 || nivel >= niveis) return 0;
+        return totalDesistencias.get(nivel);
     }
 
     /**
-     * Calcula o tempo médio de espera na fila para uma categoria de cliente.
-     *
-     * @param categoria A categoria de cliente para o cálculo.
-     * @return O tempo médio de espera em segundos.
+     * Retorna o tempo total, em segundos, que os desistentes de um nível passaram na fila.
      */
-    public double getTempoMedioEspera(Cliente.Categoria categoria) {
-        List<Long> listaParaMedia = null;
-        switch (categoria) {
-            case OFICIAL:
-               listaParaMedia = temposEsperaOficiais;
-                break;
-            case SARGENTO:
-                listaParaMedia = temposEsperaSargentos;
-                break;
-            case CABO:
-               listaParaMedia = temposEsperaCabos;
-                break;
-            default:
-                return 0;
-        }
+    public double getSegundosEsperaDesistentes(int nivel) {
+        if (nivel < 0 || nivel >= niveis) return 0;
+        return somaEsperaDesistentesMs.get(nivel) / 1000.0;
+    }
 
-        if (listaParaMedia.isEmpty()) return 0.0;
-        return listaParaMedia.stream().mapToLong(Long::longValue).average().orElse(0.0) / 1000.0; // Em segundos
+    /**
+     * Registra a entrada de um cliente na fila do nível para as integrais de comprimento.
+     * Chamado em toda inserção, inclusive pelas filas locais da {@link BarbeariaDedicada}.
+     */
+    void marcarEntrada(int nivel) {
+        somaEntradasNs.addAndGet(nivel, System.nanoTime() - inicioNs);
+        entradas.incrementAndGet(nivel);
+    }
+
+    /**
+     * Registra a saída de um cliente da fila do nível para as integrais de comprimento.
+     */
+    void marcarSaida(int nivel) {
+        somaSaidasNs.addAndGet(nivel, System.nanoTime() - inicioNs);
+        saidas.incrementAndGet(nivel);
+    }
+
+    /**
+     * Retorna a integral do comprimento da fila de um nível de 0 até {@code agoraNs}
+     * (clientes x nanossegundos).
+     */
+    private double integralFila(int nivel, long agoraNs) {
+        long presentes = entradas.get(nivel) - saidas.get(nivel);
+        return (double) (somaSaidasNs.get(nivel) - somaEntradasNs.get(nivel)) + (double) presentes * agoraNs;
+    }
+
+    /**
+     * Retorna há quantos segundos as integrais de comprimento das filas estão sendo acumuladas
+     * (incluindo o tempo antes de um checkpoint restaurado).
+     */
+    public double getSegundosObservados() {
+        return (System.nanoTime() - inicioNs) / 1e9;
+    }
+
+
+    // Métodos para o Tenente Escovinha coletar dados para o relatório [cite: 21]
+
+    /**
+     * Retorna o número atual de cadeiras ocupadas por clientes na barbearia.
+     * Vem dos permits de cadeirasLivres, uma única leitura consistente: somar os tamanhos
+     * das filas sem o mutex podia passar da capacidade (o EstresseInvariantes leu 22 de 20).
+     * Uma cadeira conta como ocupada desde a reserva pelo Sargento até a saída do cliente.
+     */
+    public int getCadeirasOcupadas() {
+        return CAPACIDADE_TOTAL - cadeirasLivres.availablePermits();
+    }
+
+    /**
+     * Retorna o número atual de cadeiras livres.
+     */
+    public int getCadeirasLivres() {
+        return CAPACIDADE_TOTAL - getCadeirasOcupadas();
     }
 
     /**
-     * Retorna o número total de atendimentos concluídos para uma categoria específica.
+     * Confere a consistência interna das estruturas de despacho.
+     * Só é válido com a barbearia parada (nenhuma thread produzindo ou retirando),
+     * como no fim de uma rodada do {@link EstresseInvariantes}.
      *
-     * @param categoria A categoria cujos atendimentos serão contados.
-     * @return O número total de atendimentos.
+     * @return Uma descrição da inconsistência encontrada, ou null se estiver tudo certo.
      */
-    public int getTotalAtendimentos(Cliente.Categoria categoria) {
-        switch (categoria) {
-            case OFICIAL:
-                return totalAtendimentosOficiais.get();
-            case SARGENTO:
-                return totalAtendimentosSargentos.get();
-            case CABO:
-                return totalAtendimentosCabos.get();
-            default:
-                return 0;
+    String conferirEstadoQuiescente() {
+        int naFila = 0;
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            boolean marcado = (mapaNaoVazias[nivel >>> 6] & (1L << nivel)) != 0;
+            if (marcado == filas[nivel].isEmpty()) {
+                return "mapa de bits do nível " + nivel + " não confere com a fila";
+            }
+            naFila += filas[nivel].size() - desistentesNaFila[nivel];
+        }
+        // Cada permit de compensação (pegarCliente, sargentoFoiEmbora) deve ter sido devolvido
+        if (cadeirasLivres.availablePermits() + naFila != CAPACIDADE_TOTAL) {
+            return "cadeirasLivres tem " + cadeirasLivres.availablePermits() + " permits com " + naFila
+                    + " clientes na fila (capacidade " + CAPACIDADE_TOTAL + ")";
         }
+        return null;
     }
 
     /**
-     * Registra cada cliente GERADO pelo Sargento Tainha para fins de relatório.
-     * Este método é chamado ANTES da tentativa de adicionar o cliente às filas,
-     * garantindo a contagem de todas as tentativas, incluindo as que foram rejeitadas.
-     *
-     * @param cliente O cliente que acabou de ser gerado pelo Sargento Tainha.
+     * Retorna verdadeiro se todas as filas estiverem vazias. Usado pelos barbeiros para saber quando parar.
      */
-    public void registrarGeracaoCliente(Cliente cliente) {
-        if (cliente == null) return;
-        switch (cliente.getCategoria()) {
-        case OFICIAL:
-            totalClientesOficiaisGerados.incrementAndGet();
-            break;
-        case SARGENTO:
-            totalClientesSargentosGerados.incrementAndGet();
-            break;
-        case CABO:
-            totalClientesCabosGerados.incrementAndGet();
-            break;
-        case PAUSA:
-            totalClientesPausaGerados.incrementAndGet();
-            break;
+    public boolean isBarbeariaVazia() {
+        // Verifica se todas as filas estão vazias
+        for (Queue<Cliente> fila : filas) {
+            if (!fila.isEmpty()) return false;
         }
+        return true;
     }
-    
+
     /**
-     * Retorna o número total de clientes GERADOS de uma certa categoria,
-     * incluindo pausas e clientes que foram mandados embora por falta de espaço.
+     * Retorna há quanto tempo o cliente mais antigo da barbearia está esperando.
+     * Como as filas são FIFO, basta olhar a cabeça de cada uma.
      *
-     * @param categoria A categoria a ser contada.
-     * @return O número total de clientes gerados.
+     * @return A maior espera atual em milissegundos, ou 0 se as filas estiverem vazias.
+     * @throws InterruptedException se a thread for interrompida ao adquirir o lock.
      */
-    public int getTotalClientesGerados(Cliente.Categoria categoria) {
-        if (categoria == null) return 0;
-
-        switch (categoria) {
-            case OFICIAL:
-                return totalClientesOficiaisGerados.get();
-            case SARGENTO:
-                return totalClientesSargentosGerados.get();
-            case CABO:
-                return totalClientesCabosGerados.get();
-            case PAUSA:
-                return totalClientesPausaGerados.get();
-            default:
-                return 0;
+    public long getEsperaMaisAntiga() throws InterruptedException {
+        long agora = System.currentTimeMillis();
+        long maisAntigo = agora;
+        mutex.acquire();
+        try {
+            for (Queue<Cliente> fila : filas) {
+                Cliente cabeca = fila.peek();
+                if (cabeca != null) maisAntigo = Math.min(maisAntigo, cabeca.getTempoChegada());
+            }
+        } finally {
+            mutex.release();
         }
+        return agora - maisAntigo;
     }
-    
+
     /**
-     * Sinaliza que o Sargento Tainha encerrou suas atividades e não adicionará mais clientes.
-     * Este método é crucial para o encerramento gracioso da simulação, pois "acorda"
-     * quaisquer barbeiros que estejam dormindo para que possam finalizar seus ciclos.
+     * Acorda até {@code quantidade} barbeiros que estejam dormindo em cadeirasOcupadas.
+     * Usado pelo AutoEscalonador para que um barbeiro aposentado perceba o sinal e saia.
+     * Um barbeiro acordado sem cliente na fila recebe null e volta a dormir.
+     *
+     * @param quantidade O número de permits extras a liberar.
      */
-    public void sargentoFoiEmbora() {
-        this.sargentoDispensado = true;
+    public void acordarBarbeiros(int quantidade) {
+        int acordados = 0;
+        while (acordados < quantidade && sinalizarParado(SEM_CLIENTE)) acordados++;
+        cadeirasOcupadas.release(quantidade - acordados);
+    }
+
+    /**
+     * Conta quantos atendimentos de um nível esperaram no máximo {@code limiteMs}.
+     * Usado para medir o cumprimento do SLA de espera.
+     *
+     * @param nivel O nível de cliente.
+     * @param limiteMs O limite de espera em milissegundos.
+     * @return O número de esperas registradas dentro do limite.
+     * @throws InterruptedException se a thread for interrompida ao adquirir o lock.
+     */
+    public int contarEsperasAte(int nivel, long limiteMs) throws InterruptedException {
+        if (nivel < 0 || nivel >= niveis) return 0;
+        List<Long> lista = temposEspera.get(nivel);
+        mutexEstatisticas.acquire();
+        try {
+            int dentro = 0;
+            for (long espera : lista) {
+                if (espera <= limiteMs) dentro++;
+            }
+            return dentro;
+        } finally {
+            mutexEstatisticas.release();
+        }
+    }
+
+    /**
+     * Registra o tempo de espera de um cliente para o cálculo da média no relatório final. [cite: 25]
+     * Este método é thread-safe.
+     *
+     * @param nivel O nível do cliente atendido.
+     * @param tempo O tempo de espera em milissegundos.
+     * @throws InterruptedException se a thread for interrompida ao adquirir o lock.
+     */
+    public void registrarTempoEspera(int nivel, long tempo) throws InterruptedException {
+        if (nivel < 0 || nivel >= niveis) return;
+        mutexEstatisticas.acquire(); // Garante acesso exclusivo à lista
+        try {
+            anotarEspera(nivel, tempo, System.currentTimeMillis());
+        } finally {
+            mutexEstatisticas.release(); // Libera o acesso
+        }
+    }
+
+    /**
+     * Registra o tempo de atendimento de um cliente.
+     */
+    public void registrarTempoAtendimento(int nivel, long tempo) throws InterruptedException {
+        if (nivel < 0 || nivel >= niveis) return;
+        mutexEstatisticas.acquire(); // Garante acesso exclusivo à lista
+        try {
+            anotarAtendimento(nivel, tempo, System.currentTimeMillis());
+        } finally {
+            mutexEstatisticas.release(); // Libera o acesso
+        }
+    }
+
+    /**
+     * Guarda uma espera nas listas, nas janelas e no detector de aquecimento.
+     * Deve ser chamado com o mutexEstatisticas adquirido.
+     */
+    private void anotarEspera(int nivel, long tempo, long agora) {
+        temposEspera.get(nivel).add(tempo);
+        for (JanelaDeslizante janela : janelas) janela.registrarEspera(nivel, tempo, agora);
+        if (aquecimento.registrar(tempo)) {
+            marcos.add(criarMarco());
+            if (precisaoRegime > 0 && !regimeConvergido && aquecimento.isConvergido(precisaoRegime)) {
+                regimeConvergido = true;
+            }
+        }
+    }
+
+    /**
+     * Guarda um tempo de atendimento nas listas e nas janelas.
+     * Deve ser chamado com o mutexEstatisticas adquirido.
+     */
+    private void anotarAtendimento(int nivel, long tempo, long agora) {
+        temposAtendimento.get(nivel).add(tempo);
+        for (JanelaDeslizante janela : janelas) janela.registrarAtendimento(nivel, tempo, agora);
+    }
+
+    /**
+     * Registra o resultado de uma tentativa de entrada, para a taxa de rejeição das janelas.
+     * Chamado pelo Sargento Tainha depois de cada {@link #adicionarCliente(Cliente)}.
+     *
+     * @param aceito true se o cliente conseguiu uma cadeira.
+     * @throws InterruptedException se a thread for interrompida ao adquirir o lock.
+     */
+    public void registrarChegada(boolean aceito) throws InterruptedException {
+        registrarChegadas(aceito ? 1 : 0, aceito ? 0 : 1);
+    }
+
+    /**
+     * Registra nas janelas deslizantes as chegadas de um lote (ver {@link #adicionarLote}).
+     *
+     * @param aceitas Quantas conseguiram uma cadeira.
+     * @param rejeitadas Quantas foram mandadas embora.
+     * @throws InterruptedException se a thread for interrompida ao adquirir o lock.
+     */
+    public void registrarChegadas(int aceitas, int rejeitadas) throws InterruptedException {
+        mutexEstatisticas.acquire();
+        try {
+            long agora = System.currentTimeMillis();
+            for (JanelaDeslizante janela : janelas) janela.registrarChegadas(aceitas, rejeitadas, agora);
+        } finally {
+            mutexEstatisticas.release();
+        }
+    }
+
+    /**
+     * Retorna as métricas recentes de cada janela deslizante (10 s, 1 min e 5 min).
+     * O custo não depende da duração da simulação: as janelas são atualizadas incrementalmente.
+     *
+     * @return Um resumo por janela, da mais curta para a mais longa.
+     * @throws InterruptedException se a thread for interrompida ao adquirir o lock.
+     */
+    public JanelaDeslizante.Resumo[] resumirJanelas() throws InterruptedException {
+        JanelaDeslizante.Resumo[] resumos = new JanelaDeslizante.Resumo[janelas.length];
+        mutexEstatisticas.acquire();
+        try {
+            long agora = System.currentTimeMillis();
+            for (int i = 0; i < janelas.length; i++) resumos[i] = janelas[i].resumir(agora);
+        } finally {
+            mutexEstatisticas.release();
+        }
+        return resumos;
+    }
+
+    /**
+     * Liga o encerramento antecipado: quando o aquecimento tiver sido detectado e a espera
+     * média em regime permanente tiver a precisão pedida, {@link #isRegimeConvergido()}
+     * passa a retornar true e o Sargento Tainha vai para casa.
+     *
+     * @param precisaoRelativa A meia largura máxima do intervalo de 95%, relativa à média (ex.: 0.05).
+     */
+    public void setPrecisaoRegime(double precisaoRelativa) {
+        this.precisaoRegime = precisaoRelativa;
+    }
+
+    /**
+     * Verifica se as estimativas em regime permanente já convergiram
+     * (sempre false se {@link #setPrecisaoRegime(double)} não foi chamado).
+     */
+    public boolean isRegimeConvergido() {
+        return regimeConvergido;
+    }
+
+    /**
+     * Separa as métricas de espera e de comprimento das filas em aquecimento (a barbearia
+     * começa vazia, o que puxa as médias para baixo) e regime permanente, no ponto de corte
+     * MSER-5. Se ainda não há corte, o resumo vem com {@code detectado} false.
+     *
+     * @return O resumo, com esperas em segundos e comprimentos médios ponderados pelo tempo.
+     * @throws InterruptedException se a thread for interrompida ao adquirir o lock.
+     */
+    public DetectorAquecimento.Resumo resumirAquecimento() throws InterruptedException {
+        double[] esperaAquecimento = new double[niveis];
+        double[] esperaPermanente = new double[niveis];
+        double[] comprimentoAquecimento = new double[niveis];
+        double[] comprimentoPermanente = new double[niveis];
+        mutexEstatisticas.acquire();
+        try {
+            int corte = aquecimento.getTruncamento();
+            if (corte < 0) {
+                return new DetectorAquecimento.Resumo(false, aquecimento.getLotes(), 0, 0, Double.NaN, Double.NaN,
+                        esperaAquecimento, esperaPermanente, comprimentoAquecimento, comprimentoPermanente);
+            }
+            Marco marco = corte == 0 ? marcoOrigem : marcos.get(corte - 1);
+            Marco agora = criarMarco();
+            long descartados = 0;
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                List<Long> esperas = temposEspera.get(nivel);
+                int origem = marcoOrigem.esperasRegistradas[nivel];
+                int limite = marco.esperasRegistradas[nivel];
+                descartados += limite - origem;
+                esperaAquecimento[nivel] = mediaSegundos(esperas.subList(origem, limite));
+                esperaPermanente[nivel] = mediaSegundos(esperas.subList(limite, esperas.size()));
+
+                long aquecimentoNs = marco.instanteNs - marcoOrigem.instanteNs;
+                long permanenteNs = agora.instanteNs - marco.instanteNs;
+                comprimentoAquecimento[nivel] = aquecimentoNs <= 0 ? 0.0
+                        : (marco.integrais[nivel] - marcoOrigem.integrais[nivel]) / aquecimentoNs;
+                comprimentoPermanente[nivel] = permanenteNs <= 0 ? 0.0
+                        : (agora.integrais[nivel] - marco.integrais[nivel]) / permanenteNs;
+            }
+            return new DetectorAquecimento.Resumo(true, aquecimento.getLotes(),
+                    (marco.instanteNs - marcoOrigem.instanteNs) / 1e9, descartados,
+                    aquecimento.getMediaPermanente() / 1000.0, aquecimento.getMeiaLargura() / 1000.0,
+                    esperaAquecimento, esperaPermanente, comprimentoAquecimento, comprimentoPermanente);
+        } finally {
+            mutexEstatisticas.release();
+        }
+    }
+
+    private static double mediaSegundos(List<Long> tempos) {
+        return tempos.stream().mapToLong(Long::longValue).average().orElse(0.0) / 1000.0;
+    }
+
+
+    /**
+     * Métodos para calcular as médias para o relatório final
+     */
+    public double getOcupacaoPercentual() {
+        return (double) getCadeirasOcupadas() / CAPACIDADE_TOTAL * 100;
+    }
+
+
+
+    /**
+     * Calcula o percentual de ocupação de um nível específico em relação à capacidade TOTAL da barbearia.
+     *
+     * @param nivel O nível de cliente a ser medido.
+     * @return A porcentagem de ocupação (de 0.0 a 100.0) que este nível representa do total de cadeiras.
+     */
+    public double getOcupacaoPercentualPorCategoria(int nivel) {
+        int clientesNestaCategoria = getTamanhoFila(nivel);
+        return (double) clientesNestaCategoria / CAPACIDADE_TOTAL * 100;
+    }
+
+    /**
+     * Calcula o comprimento médio de uma fila específica ao longo de toda a simulação.
+     * É a média ponderada pelo tempo, exata: a integral do comprimento é atualizada
+     * em cada entrada e saída da fila, então rajadas curtas não se perdem.
+     *
+     * @param nivel O nível da fila para o cálculo da média.
+     * @return O comprimento médio da fila como um valor double.
+     */
+    public double getComprimentoMedioFila(int nivel) {
+        if (nivel < 0 || nivel >= niveis) return 0;
+        long agoraNs = System.nanoTime() - inicioNs;
+        if (agoraNs <= 0) return 0.0;
+        return integralFila(nivel, agoraNs) / agoraNs;
+    }
+
+    /**
+     * Calcula a ocupação média das cadeiras por um nível ao longo de toda a simulação,
+     * ponderada pelo tempo, em relação à capacidade total.
+     *
+     * @param nivel O nível de cliente a ser medido.
+     * @return A porcentagem média (de 0.0 a 100.0) das cadeiras ocupadas por este nível.
+     */
+    public double getOcupacaoMediaPorCategoria(int nivel) {
+        return getComprimentoMedioFila(nivel) / CAPACIDADE_TOTAL * 100;
+    }
+
+    /**
+     * Calcula a ocupação média de todas as cadeiras ao longo da simulação, ponderada pelo tempo.
+     */
+    public double getOcupacaoMedia() {
+        double total = 0;
+        for (int nivel = 0; nivel < niveis; nivel++) total += getOcupacaoMediaPorCategoria(nivel);
+        return total;
+    }
+
+    /**
+     * Retorna a vazão média de saída da fila de um nível (clientes retirados por segundo).
+     * Junto com o tempo médio de espera, permite conferir a lei de Little: L = λ · W.
+     */
+    public double getVazaoSaida(int nivel) {
+        if (nivel < 0 || nivel >= niveis) return 0;
+        double segundos = getSegundosObservados();
+        return segundos <= 0 ? 0.0 : getTotalAtendimentos(nivel) / segundos;
+    }
+
+    /**
+     * Calcula o tempo médio de atendimento (corte de cabelo) para um nível de cliente.
+     *
+     * @param nivel O nível de cliente para o cálculo.
+     * @return O tempo médio de atendimento em segundos.
+     */
+    public double getTempoMedioAtendimento(int nivel) {
+        if (nivel < 0 || nivel >= niveis) return 0;
+        List<Long> listaParaMedia = temposAtendimento.get(nivel);
+
+        if (listaParaMedia.isEmpty()) return 0.0;
+        return listaParaMedia.stream().mapToLong(Long::longValue).average().orElse(0.0) / 1000.0; // Em segundos
+    }
+
+    /**
+     * Calcula o tempo médio de espera na fila para um nível de cliente.
+     *
+     * @param nivel O nível de cliente para o cálculo.
+     * @return O tempo médio de espera em segundos.
+     */
+    public double getTempoMedioEspera(int nivel) {
+        if (nivel < 0 || nivel >= niveis) return 0;
+        List<Long> listaParaMedia = temposEspera.get(nivel);
+
+        if (listaParaMedia.isEmpty()) return 0.0;
+        return listaParaMedia.stream().mapToLong(Long::longValue).average().orElse(0.0) / 1000.0; // Em segundos
+    }
+
+    /**
+     * Retorna o número total de atendimentos concluídos para um nível específico.
+     *
+     * @param nivel O nível cujos atendimentos serão contados.
+     * @return O número total de atendimentos.
+     */
+    public int getTotalAtendimentos(int nivel) {
+        if (nivel < 0 || nivel >= niveis) return 0;
+        return totalAtendimentos.get(nivel);
+    }
+
+    /**
+     * Registra cada cliente GERADO pelo Sargento Tainha para fins de relatório.
+     * Este método é chamado ANTES da tentativa de adicionar o cliente às filas,
+     * garantindo a contagem de todas as tentativas, incluindo as que foram rejeitadas.
+     *
+     * @param cliente O cliente que acabou de ser gerado pelo Sargento Tainha.
+     */
+    public void registrarGeracaoCliente(Cliente cliente) {
+        if (cliente == null) return;
+        registrarGeracao(cliente.getNivel());
+    }
+
+    /**
+     * Registra a geração de um cliente do nível informado (ou {@link Cliente#PAUSA}),
+     * para quem não tem o objeto Cliente (ver {@link GatewayChegadas}).
+     */
+    public void registrarGeracao(int nivel) {
+        if (nivel == Cliente.PAUSA) {
+            totalClientesPausaGerados.incrementAndGet();
+        } else {
+            totalClientesGerados.incrementAndGet(nivel);
+        }
+    }
+
+    /**
+     * Retorna o número total de clientes GERADOS de um certo nível,
+     * incluindo clientes que foram mandados embora por falta de espaço.
+     * Para o número de pausas, use {@link Cliente#PAUSA} como nível.
+     *
+     * @param nivel O nível a ser contado.
+     * @return O número total de clientes gerados.
+     */
+    public int getTotalClientesGerados(int nivel) {
+        if (nivel == Cliente.PAUSA) return totalClientesPausaGerados.get();
+        if (nivel < 0 || nivel >= niveis) return 0;
+        return totalClientesGerados.get(nivel);
+    }
+
+    /**
+     * Sinaliza que o Sargento Tainha encerrou suas atividades e não adicionará mais clientes.
+     * Este método é crucial para o encerramento gracioso da simulação, pois "acorda"
+     * quaisquer barbeiros que estejam dormindo para que possam finalizar seus ciclos.
+     */
+    public void sargentoFoiEmbora() {
+        this.sargentoDispensado = true;
+        while (sinalizarParado(SEM_CLIENTE)) {
+            // Barbeiros parados à espera de entrega direta verificam o encerramento
+        }
         // Libera 3 permits, um para cada barbeiro potencial no Caso C.
         // Isso garante que, se eles estiverem esperando em cadeirasOcupadas.acquire(),
         // eles serão liberados para prosseguir e verificar as condições de encerramento.
+        // Quem sai devolve o permit, então os demais barbeiros também acordam em cadeia.
         cadeirasOcupadas.release(3);
     }
 
+    /**
+     * Registra que um barbeiro começou a trabalhar (chamado pelo próprio barbeiro, antes de
+     * pegar o primeiro cliente). A partir daí os atendimentos em andamento são acompanhados.
+     */
+    public void registrarEntradaBarbeiro() {
+        acompanharAtendimentos = true;
+        barbeirosTrabalhando.incrementAndGet();
+    }
+
+    /**
+     * Registra que um barbeiro terminou de trabalhar ou foi aposentado.
+     */
+    public void registrarSaidaBarbeiro() {
+        barbeirosTrabalhando.decrementAndGet();
+    }
+
+    public int getBarbeirosTrabalhando() {
+        return barbeirosTrabalhando.get();
+    }
+
+    /**
+     * Registra um cliente que acabou de sair da fila como em atendimento. Deve ser chamado com
+     * o lock das filas adquirido, junto com o contador de atendimentos, inclusive pelas subclasses.
+     */
+    void marcarRetirado(Cliente cliente) {
+        if (acompanharAtendimentos) emAtendimento.put(cliente, new Atendimento());
+    }
+
+    /**
+     * Retorna um atendimento restaurado de um checkpoint que ainda não foi retomado, ou null.
+     * O barbeiro deve atendê-lo ({@link #iniciarAtendimento(Cliente)}) antes de pegar um cliente novo.
+     */
+    public Cliente retomarAtendimento() {
+        return retomados.poll();
+    }
+
+    /**
+     * Retorna true se ainda há atendimentos restaurados de um checkpoint para retomar.
+     */
+    public boolean temAtendimentoRetomado() {
+        return !retomados.isEmpty();
+    }
+
+    /**
+     * Registra que o barbeiro da thread atual começou a atender o cliente: a espera é
+     * registrada (uma vez só, mesmo que o atendimento seja retomado de um checkpoint) no
+     * mesmo lock em que o atendimento é marcado como começado.
+     *
+     * @param cliente O cliente retirado da fila ou retomado.
+     * @return Quanto falta do atendimento, em milissegundos.
+     * @throws InterruptedException se a thread for interrompida ao adquirir o lock.
+     */
+    public long iniciarAtendimento(Cliente cliente) throws InterruptedException {
+        adquirirMedindo(mutexEstatisticas);
+        try {
+            long agora = System.currentTimeMillis();
+            Atendimento atendimento = emAtendimento.computeIfAbsent(cliente, c -> new Atendimento());
+            if (!atendimento.esperaRegistrada) {
+                anotarEspera(cliente.getNivel(), agora - cliente.getTempoChegada(), agora);
+                atendimento.esperaRegistrada = true;
+            }
+            if (atendimento.duracaoMs < 0) atendimento.duracaoMs = getDuracaoAtendimentoMs(cliente);
+            if (atendimento.restanteMs < 0) atendimento.restanteMs = atendimento.duracaoMs;
+            atendimento.inicioMs = agora;
+            return atendimento.restanteMs;
+        } finally {
+            mutexEstatisticas.release();
+        }
+    }
+
+    /**
+     * Retorna quanto dura o atendimento do cliente pelo barbeiro da thread atual, em milissegundos.
+     * Aqui é o tempo de serviço nominal; a {@link BarbeariaHabilidades} aplica o fator do barbeiro.
+     */
+    public long getDuracaoAtendimentoMs(Cliente cliente) {
+        return cliente.getTempoServico() * 1000L;
+    }
+
+    /**
+     * Registra que o atendimento do cliente terminou: o tempo de atendimento (a duração
+     * inteira, mesmo que retomada) entra nas estatísticas no mesmo lock em que o cliente deixa
+     * de estar em atendimento.
+     *
+     * @throws InterruptedException se a thread for interrompida ao adquirir o lock.
+     */
+    public void concluirAtendimento(Cliente cliente) throws InterruptedException {
+        adquirirMedindo(mutexEstatisticas);
+        try {
+            Atendimento atendimento = emAtendimento.remove(cliente);
+            long duracaoMs = atendimento != null ? atendimento.duracaoMs : getDuracaoAtendimentoMs(cliente);
+            anotarAtendimento(cliente.getNivel(), duracaoMs, System.currentTimeMillis()); // Guardar em ms
+        } finally {
+            mutexEstatisticas.release();
+        }
+    }
+
+    /**
+     * Adquire um lock da barbearia pelo lado dos barbeiros, somando a espera ao tempo bloqueado
+     * da thread atual ({@link #getBloqueadoNs()}). Sem disputa, o tryAcquire resolve sem ler o relógio.
+     *
+     * @throws InterruptedException se a thread for interrompida enquanto espera.
+     */
+    private void adquirirMedindo(Semaphore lock) throws InterruptedException {
+        if (lock.tryAcquire()) return;
+        long antes = System.nanoTime();
+        try {
+            lock.acquire();
+        } finally {
+            somarBloqueio(System.nanoTime() - antes);
+        }
+    }
+
+    /**
+     * Como {@link #adquirirMedindo(Semaphore)}, mas sem ser interrompido.
+     */
+    private void adquirirMedindoSemInterrupcao(Semaphore lock) {
+        if (lock.tryAcquire()) return;
+        long antes = System.nanoTime();
+        lock.acquireUninterruptibly();
+        somarBloqueio(System.nanoTime() - antes);
+    }
+
+    /**
+     * Soma ao tempo bloqueado da thread atual uma espera por lock. Usado também pelas
+     * subclasses, para as travas próprias que os barbeiros pegam.
+     */
+    void somarBloqueio(long esperaNs) {
+        bloqueioDaThread.get()[0] += esperaNs;
+    }
+
+    /**
+     * Retorna quanto tempo a thread atual passou esperando pelos locks da barbearia: o das
+     * filas ao retirar um cliente (ou a trava equivalente das subclasses) e o das estatísticas
+     * ao começar e terminar um atendimento. A espera por um cliente não entra.
+     */
+    public long getBloqueadoNs() {
+        return bloqueioDaThread.get()[0];
+    }
+
+    /**
+     * Registra o uso de recursos de uma thread da simulação para o relatório final.
+     */
+    public void registrarUsoThread(UsoThread uso) {
+        usosThreads.add(uso);
+    }
+
+    /**
+     * Retorna o uso de recursos das threads que já terminaram, na ordem em que terminaram.
+     */
+    public List<UsoThread> getUsosThreads() {
+        return new ArrayList<>(usosThreads);
+    }
+
+    /**
+     * Retorna o tempo simulado antes do checkpoint restaurado (0 se a simulação começou do zero).
+     */
+    public long getDuracaoAnteriorMs() {
+        return duracaoAnteriorMs;
+    }
+
+    /**
+     * Escreve o estado da barbearia em um checkpoint.
+     * Com o mutex das filas e o mutexEstatisticas adquiridos (nessa ordem, como no resto da
+     * classe) são copiados as filas, os contadores, as integrais, os atendimentos em andamento
+     * e o tamanho de cada lista de tempos: tudo do mesmo instante, sem nenhum cliente entre a
+     * fila e o atendimento. São no máximo CAPACIDADE_TOTAL clientes mais O(níveis), então o
+     * despacho não para por mais tempo quanto mais longa for a simulação. As listas de tempos,
+     * que crescem sem limite, são escritas depois, só com o mutexEstatisticas
+     * (ver {@link #escreverEstatisticas(Checkpoint.Escritor, CopiaEstatisticas)}).
+     * O tempo de chegada de cada cliente é salvo como a espera já acumulada, junto com o que
+     * falta do seu prazo de desistência; cada atendimento em andamento é salvo com o tempo
+     * que falta, para ser retomado na restauração.
+     *
+     * @param escritor O buffer do checkpoint.
+     * @throws InterruptedException se a thread for interrompida ao adquirir um lock.
+     */
+    public void capturarEstado(Checkpoint.Escritor escritor) throws InterruptedException {
+        long agora = System.currentTimeMillis();
+        escreverCabecalho(escritor, agora);
+
+        CopiaEstatisticas copia;
+        mutex.acquire();
+        try {
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                escritor.putInt(filas[nivel].size() - desistentesNaFila[nivel]);
+                for (Cliente cliente : filas[nivel]) {
+                    if (!cliente.isDesistiu()) escreverClienteNaFila(escritor, cliente, agora, restanteDesistencia(cliente, agora));
+                }
+                escritor.putInt(totalAtendimentos.get(nivel));
+            }
+            copia = copiarEstatisticas(agora);
+        } finally {
+            mutex.release();
+        }
+        escreverEstatisticas(escritor, copia);
+    }
+
+    /**
+     * As estatísticas de um checkpoint copiadas junto com as filas: tudo, menos as listas de
+     * tempos, já escrito em buffers próprios, e o tamanho de cada lista. As listas só recebem
+     * acréscimos, então o prefixo escrito depois é exatamente o que havia no instante da cópia.
+     */
+    static final class CopiaEstatisticas {
+        private final Checkpoint.Escritor antesDasListas = new Checkpoint.Escritor(64);
+        private final Checkpoint.Escritor depoisDasListas = new Checkpoint.Escritor(256);
+        private final int[] esperas;
+        private final int[] atendimentos;
+
+        private CopiaEstatisticas(int niveis) {
+            esperas = new int[niveis];
+            atendimentos = new int[niveis];
+        }
+    }
+
+    /**
+     * Escreve o início do estado: o número de níveis e o tempo simulado até agora.
+     * Usado também pelas subclasses, que escrevem as próprias filas em seguida.
+     */
+    void escreverCabecalho(Checkpoint.Escritor escritor, long agora) {
+        escritor.putInt(niveis);
+        escritor.putLong(duracaoAnteriorMs + (agora - inicioMs));
+    }
+
+    /**
+     * Escreve um cliente em espera: o tempo de serviço e a espera já acumulada.
+     */
+    static void escreverCliente(Checkpoint.Escritor escritor, Cliente cliente, long agora) {
+        escritor.putInt(cliente.getTempoServico());
+        escritor.putLong(agora - cliente.getTempoChegada());
+    }
+
+    /**
+     * Escreve um cliente da fila: o cliente e quanto falta do seu prazo de desistência.
+     *
+     * @param restanteDesistenciaMs O que falta do prazo, ou -1 se o cliente não tem prazo.
+     */
+    static void escreverClienteNaFila(Checkpoint.Escritor escritor, Cliente cliente, long agora, long restanteDesistenciaMs) {
+        escreverCliente(escritor, cliente, agora);
+        escritor.putLong(restanteDesistenciaMs);
+    }
+
+    /**
+     * Retorna quanto falta do prazo de desistência de um cliente na fila (0 se já venceu e a
+     * roda ainda não avançou), ou -1 se ele não tem prazo. Deve ser chamado com a trava da
+     * fila em que o cliente está.
+     */
+    static long restanteDesistencia(Cliente cliente, long agora) {
+        RodaTemporizacao.Entrada<Cliente> prazo = cliente.getPrazoDesistencia();
+        return prazo == null ? -1 : Math.max(0, prazo.getPrazoMs() - agora);
+    }
+
+    /**
+     * Copia o que vem depois das filas, menos as listas de tempos: clientes gerados,
+     * desistências, entregas diretas, integrais, atendimentos em andamento e o tamanho das
+     * listas. Deve ser chamado com o lock das filas adquirido, logo depois de escrevê-las,
+     * também pelas subclasses; adquire o mutexEstatisticas só para esta cópia, que não
+     * depende da duração da simulação.
+     *
+     * @throws InterruptedException se a thread for interrompida ao adquirir o lock.
+     */
+    CopiaEstatisticas copiarEstatisticas(long agora) throws InterruptedException {
+        CopiaEstatisticas copia = new CopiaEstatisticas(niveis);
+        Checkpoint.Escritor escritor = copia.antesDasListas;
+        mutexEstatisticas.acquire();
+        try {
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                escritor.putInt(totalClientesGerados.get(nivel));
+            }
+            escritor.putInt(totalClientesPausaGerados.get());
+            escritor.putByte((byte) (sargentoDispensado ? 1 : 0));
+
+            // As desistências e as entregas diretas acontecem com o lock das filas, então batem
+            // com as filas copiadas
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                escritor.putInt(totalDesistencias.get(nivel));
+                escritor.putLong(somaEsperaDesistentesMs.get(nivel));
+                escritor.putInt(totalEntregasDiretas.get(nivel));
+            }
+
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                copia.esperas[nivel] = temposEspera.get(nivel).size();
+                copia.atendimentos[nivel] = temposAtendimento.get(nivel).size();
+            }
+
+            escritor = copia.depoisDasListas;
+            long agoraNs = System.nanoTime() - inicioNs;
+            escritor.putLong(agoraNs);
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                escritor.putDouble(integralFila(nivel, agoraNs));
+            }
+
+            // Com os dois locks, este conjunto é exatamente o dos clientes retirados e não concluídos
+            escritor.putInt(emAtendimento.size());
+            for (Map.Entry<Cliente, Atendimento> entrada : emAtendimento.entrySet()) {
+                Cliente cliente = entrada.getKey();
+                Atendimento atendimento = entrada.getValue();
+                escritor.putInt(cliente.getNivel());
+                escreverCliente(escritor, cliente, agora);
+                escritor.putByte((byte) (atendimento.esperaRegistrada ? 1 : 0));
+                escritor.putLong(atendimento.duracaoMs);
+                escritor.putLong(restante(atendimento, agora));
+            }
+        } finally {
+            mutexEstatisticas.release();
+        }
+        return copia;
+    }
+
+    /**
+     * Escreve o que vem depois das filas a partir da cópia, com as listas de tempos cortadas no
+     * tamanho copiado. Deve ser chamado sem o lock das filas: só o mutexEstatisticas é
+     * adquirido, então os produtores e as retiradas seguem enquanto as listas são escritas.
+     *
+     * @throws InterruptedException se a thread for interrompida ao adquirir o lock.
+     */
+    void escreverEstatisticas(Checkpoint.Escritor escritor, CopiaEstatisticas copia) throws InterruptedException {
+        escritor.putBytes(copia.antesDasListas);
+        mutexEstatisticas.acquire();
+        try {
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                escreverLista(escritor, temposEspera.get(nivel), copia.esperas[nivel]);
+                escreverLista(escritor, temposAtendimento.get(nivel), copia.atendimentos[nivel]);
+            }
+        } finally {
+            mutexEstatisticas.release();
+        }
+        escritor.putBytes(copia.depoisDasListas);
+    }
+
+    /**
+     * Retorna quanto falta de um atendimento agora, ou -1 se ele ainda não começou e a
+     * duração não é conhecida (depende do barbeiro que o começar).
+     */
+    private static long restante(Atendimento atendimento, long agora) {
+        if (atendimento.inicioMs == 0) return atendimento.restanteMs;
+        return Math.max(0, atendimento.inicioMs + atendimento.restanteMs - agora);
+    }
+
+    /**
+     * Fotografa o estado atual para uma previsão em tempo virtual ({@link PrevisaoVirtual}):
+     * a espera acumulada e o tempo de serviço de cada cliente na fila, na ordem da fila, o
+     * tempo que falta em cada atendimento em andamento e quantos barbeiros estão trabalhando.
+     * Como no checkpoint, as filas são copiadas com o mutex adquirido (no máximo
+     * CAPACIDADE_TOTAL clientes) e nada na simulação é alterado. Os atendimentos são lidos
+     * dentro do mesmo mutex, em que os clientes saem da fila e entram em atendimento, então
+     * nenhum cliente fica de fora nem aparece duas vezes. Desistentes são ignorados.
+     *
+     * @return O estado fotografado.
+     * @throws InterruptedException se a thread for interrompida ao adquirir o mutex.
+     */
+    public PrevisaoVirtual.Estado fotografar() throws InterruptedException {
+        double[][] idades = new double[niveis][];
+        int[][] servicos = new int[niveis][];
+        double[] restantes;
+        mutex.acquire();
+        try {
+            long agora = System.currentTimeMillis();
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                idades[nivel] = new double[filas[nivel].size() - desistentesNaFila[nivel]];
+                servicos[nivel] = new int[idades[nivel].length];
+                int posicao = 0;
+                for (Cliente cliente : filas[nivel]) {
+                    if (cliente.isDesistiu()) continue;
+                    idades[nivel][posicao] = (agora - cliente.getTempoChegada()) / 1000.0;
+                    servicos[nivel][posicao++] = cliente.getTempoServico();
+                }
+            }
+            restantes = fotografarAtendimentos(agora);
+        } finally {
+            mutex.release();
+        }
+        return new PrevisaoVirtual.Estado(getBarbeirosTrabalhando(), CAPACIDADE_TOTAL, idades, servicos, restantes);
+    }
+
+    /**
+     * Retorna o tempo que falta, em segundos, em cada atendimento em andamento. Um atendimento
+     * que ainda não começou conta com o tempo de serviço nominal. Deve ser chamado com o lock
+     * das filas adquirido, também pelas subclasses; adquire o mutexEstatisticas para a leitura.
+     *
+     * @throws InterruptedException se a thread for interrompida ao adquirir o lock.
+     */
+    double[] fotografarAtendimentos(long agora) throws InterruptedException {
+        mutexEstatisticas.acquire();
+        try {
+            double[] restantes = new double[emAtendimento.size()];
+            int i = 0;
+            for (Map.Entry<Cliente, Atendimento> entrada : emAtendimento.entrySet()) {
+                long restante = restante(entrada.getValue(), agora);
+                if (restante < 0) restante = entrada.getKey().getTempoServico() * 1000L;
+                restantes[i++] = restante / 1000.0;
+            }
+            return restantes;
+        } finally {
+            mutexEstatisticas.release();
+        }
+    }
+
+    private static void escreverLista(Checkpoint.Escritor escritor, List<Long> lista, int tamanho) {
+        escritor.putInt(tamanho);
+        for (int i = 0; i < tamanho; i++) escritor.putLong(lista.get(i));
+    }
+
+    /**
+     * Restaura o estado salvo por {@link #capturarEstado(Checkpoint.Escritor)}.
+     * Deve ser chamado antes de iniciar as threads da simulação, com a barbearia vazia.
+     * Os atendimentos que estavam em andamento voltam a estar em andamento: os barbeiros os
+     * retomam ({@link #retomarAtendimento()}) pelo tempo que faltava, antes de novos clientes.
+     *
+     * @param dados O conteúdo do checkpoint, posicionado no estado da barbearia.
+     * @throws IllegalStateException se o checkpoint tiver outro número de níveis.
+     */
+    public void restaurarEstado(ByteBuffer dados) {
+        long agora = lerCabecalho(dados);
+
+        int[] naFila = new int[niveis];
+        mutex.acquireUninterruptibly(); // O relógio das desistências já pode estar avançando a roda
+        try {
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                naFila[nivel] = dados.getInt();
+                for (int i = 0; i < naFila[nivel]; i++) {
+                    Cliente cliente = lerCliente(dados, nivel, agora);
+                    long restanteDesistenciaMs = dados.getLong();
+                    enfileirar(cliente);
+                    if (prazosDesistencia != null) agendarDesistenciaRestaurada(prazosDesistencia, cliente, restanteDesistenciaMs, agora);
+                }
+                totalAtendimentos.set(nivel, dados.getInt());
+            }
+        } finally {
+            mutex.release();
+        }
+
+        // Os semáforos precisam refletir as cadeiras ocupadas pelos clientes restaurados
+        int total = 0;
+        for (int quantidade : naFila) total += quantidade;
+        if (!cadeirasLivres.tryAcquire(total)) {
+            throw new IllegalStateException("O checkpoint tem mais clientes do que cadeiras.");
+        }
+        cadeirasOcupadas.release(total);
+
+        lerEstatisticas(dados, agora, naFila);
+    }
+
+    /**
+     * Lê o início do estado ({@link #escreverCabecalho}) e retoma o tempo simulado.
+     *
+     * @return O instante da restauração, base das esperas restauradas.
+     * @throws IllegalStateException se o checkpoint tiver outro número de níveis.
+     */
+    long lerCabecalho(ByteBuffer dados) {
+        int niveisSalvos = dados.getInt();
+        if (niveisSalvos != niveis) {
+            throw new IllegalStateException("O checkpoint tem " + niveisSalvos + " níveis, mas a barbearia tem " + niveis + ".");
+        }
+        duracaoAnteriorMs = dados.getLong();
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Lê um cliente escrito por {@link #escreverCliente}, com a chegada recuada pela espera salva.
+     */
+    static Cliente lerCliente(ByteBuffer dados, int nivel, long agora) {
+        int tempoServico = dados.getInt();
+        long esperaMs = dados.getLong();
+        return new Cliente(nivel, tempoServico, agora - esperaMs);
+    }
+
+    /**
+     * Lê o que {@link #escreverEstatisticas} escreveu. Deve ser chamado depois de as filas
+     * restauradas serem preenchidas (inclusive pelas subclasses).
+     *
+     * @param naFila Quantos clientes foram restaurados em cada fila, para continuar as integrais.
+     */
+    void lerEstatisticas(ByteBuffer dados, long agora, int[] naFila) {
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            totalClientesGerados.set(nivel, dados.getInt());
+        }
+        totalClientesPausaGerados.set(dados.getInt());
+        sargentoDispensado = dados.get() == 1;
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            totalDesistencias.set(nivel, dados.getInt());
+            somaEsperaDesistentesMs.set(nivel, dados.getLong());
+            totalEntregasDiretas.set(nivel, dados.getInt());
+        }
+
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            lerLista(dados, temposEspera.get(nivel));
+            lerLista(dados, temposAtendimento.get(nivel));
+        }
+
+        // Continua as integrais: a integral salva vira a soma de saídas e os clientes
+        // restaurados entram no instante salvo, então a integral em t0 é exatamente a salva
+        long decorridoNs = dados.getLong();
+        inicioNs = System.nanoTime() - decorridoNs;
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            long presentes = naFila[nivel];
+            somaSaidasNs.set(nivel, (long) dados.getDouble());
+            somaEntradasNs.set(nivel, presentes * decorridoNs);
+            entradas.set(nivel, presentes);
+            saidas.set(nivel, 0);
+        }
+
+        // Os atendimentos em andamento já estão nos contadores: só falta terminá-los
+        int atendendo = dados.getInt();
+        for (int i = 0; i < atendendo; i++) {
+            int nivel = dados.getInt();
+            Cliente cliente = lerCliente(dados, nivel, agora);
+            Atendimento atendimento = new Atendimento();
+            atendimento.esperaRegistrada = dados.get() == 1;
+            atendimento.duracaoMs = dados.getLong();
+            atendimento.restanteMs = dados.getLong();
+            emAtendimento.put(cliente, atendimento);
+            retomados.add(cliente);
+        }
+
+        // A detecção do aquecimento recomeça do ponto retomado (o detector não vai no checkpoint)
+        marcoOrigem = criarMarco();
+    }
+
+    private static void lerLista(ByteBuffer dados, List<Long> lista) {
+        int quantidade = dados.getInt();
+        for (int i = 0; i < quantidade; i++) lista.add(dados.getLong());
+    }
+
+    /**
+     * Retorna a capacidade total de cadeiras da barbearia.
+     */
+    public int getCapacidadeTotal() {
+        return CAPACIDADE_TOTAL;
+    }
+
     /**
      * Verifica se o Sargento Tainha já foi dispensado.
      * @return true, se o sargento não está mais ativo, false caso contrário.
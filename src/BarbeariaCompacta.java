@@ -0,0 +1,444 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Implementação do despacho que guarda os clientes como {@code long} compactados
+ * ({@link ClienteCompactado}) em anéis de arrays primitivos pré-alocados, um por nível.
+ * A API primitiva ({@link #adicionar(long)}, {@link #retirarProximo()} e {@link #retirar(int)})
+ * não aloca nada em regime: não há nó de LinkedList, objeto Cliente nem nó de fila de
+ * semáforo. A espera usa o monitor intrínseco (wait/notify), que também não aloca objetos
+ * Java ao bloquear, ao contrário dos semáforos (que enfileiram um nó por thread bloqueada).
+ *
+ * A API de objetos herdada da {@link Barbearia} continua funcionando (Casos A, B e D):
+ * o Cliente é compactado na entrada e recriado na saída, então só essa fronteira aloca.
+ * Cada anel tem a capacidade total da barbearia, que é o máximo que um nível pode ter.
+ *
+ * Com a desistência ligada, cada posição do anel ganha um prazo em um array paralelo, e o
+ * desistente é marcado trocando o seu long por {@link ClienteCompactado#VAZIO} e descartado
+ * quando chega à frente, como na {@link Barbearia}. Uma roda de temporização alocaria uma
+ * entrada por cliente; como os anéis guardam no máximo a capacidade da barbearia, o relógio
+ * varre as posições ocupadas, e só quando o prazo mais próximo já passou.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class BarbeariaCompacta extends Barbearia {
+    private final long[][] aneis;      // Um anel por nível
+    private final int[] cabecas;       // Posição do cliente mais antigo de cada anel
+    private final int[] tamanhos;
+    private final long[] atendidos;
+    private final long[] mapaNaoVazias; // Bit i ligado se e somente se o anel i não está vazio
+    private final Object trava = new Object();
+    private int ocupadas = 0;
+    private int acordadosPendentes = 0; // Pedidos de acordarBarbeiros ainda não consumidos
+
+    // Desistência: null enquanto desligada. Os tamanhos contam as posições marcadas até elas
+    // chegarem à frente; desistentesNoAnel diz quantas são
+    private long[][] prazosUs;         // Prazo de cada posição dos anéis, no relógio das chegadas
+    private int[] desistentesNoAnel;
+    private long proximoPrazoUs = Long.MAX_VALUE; // Menor prazo pendente
+
+    // Origem do relógio das chegadas; recuada ao restaurar um checkpoint (ver restaurarEstado)
+    private long origemNs = System.nanoTime();
+    private long origemMs = System.currentTimeMillis();
+
+    /**
+     * Constrói a barbearia compacta com os níveis configurados.
+     *
+     * @param categorias A configuração dos níveis de prioridade (no máximo 255 níveis).
+     */
+    public BarbeariaCompacta(Categorias categorias) {
+        super(categorias);
+        int niveis = categorias.getQuantidade();
+        if (niveis > ClienteCompactado.MAX_NIVEL + 1) {
+            throw new IllegalArgumentException("A representação compacta suporta no máximo " + (ClienteCompactado.MAX_NIVEL + 1) + " níveis.");
+        }
+        aneis = new long[niveis][getCapacidadeTotal()];
+        cabecas = new int[niveis];
+        tamanhos = new int[niveis];
+        atendidos = new long[niveis];
+        mapaNaoVazias = new long[(niveis + 63) / 64];
+    }
+
+    /**
+     * Retorna o instante atual em microssegundos desde a origem da barbearia,
+     * o relógio usado na chegada dos clientes compactados.
+     */
+    public long agoraUs() {
+        return (System.nanoTime() - origemNs) / 1000;
+    }
+
+    /**
+     * Tenta colocar um cliente compactado no anel do seu nível. Não bloqueia e não aloca.
+     *
+     * @param cliente O cliente compactado.
+     * @return true se havia cadeira livre, false se o cliente foi rejeitado.
+     */
+    public boolean adicionar(long cliente) {
+        int nivel = ClienteCompactado.getNivel(cliente);
+        synchronized (trava) {
+            if (ocupadas >= getCapacidadeTotal()) return false;
+            long[] anel = aneis[nivel];
+            int posicao = (cabecas[nivel] + tamanhos[nivel]) % anel.length;
+            anel[posicao] = cliente;
+            if (prazosUs != null) agendarPrazo(nivel, posicao, ClienteCompactado.getChegadaUs(cliente));
+            tamanhos[nivel]++;
+            ocupadas++;
+            mapaNaoVazias[nivel >>> 6] |= 1L << nivel;
+            marcarEntrada(nivel);
+            trava.notify(); // Acorda um barbeiro esperando
+        }
+        return true;
+    }
+
+    /**
+     * Retira o próximo cliente por prioridade global, esperando se não houver nenhum.
+     *
+     * @return O cliente compactado, ou {@link ClienteCompactado#VAZIO} se a simulação estiver
+     *         terminando ou se o barbeiro foi acordado por {@link #acordarBarbeiros(int)}.
+     * @throws InterruptedException se a thread for interrompida enquanto espera.
+     */
+    public long retirarProximo() throws InterruptedException {
+        return retirar(-1);
+    }
+
+    /**
+     * Retira um cliente do nível preferido ou, se ele estiver vazio, por prioridade global.
+     * Espera se não houver nenhum cliente.
+     *
+     * @param nivelPreferido O nível atendido primeiro, ou -1 para só a prioridade global.
+     * @return O cliente compactado, ou {@link ClienteCompactado#VAZIO} (ver {@link #retirarProximo()}).
+     * @throws InterruptedException se a thread for interrompida enquanto espera.
+     */
+    public long retirar(int nivelPreferido) throws InterruptedException {
+        synchronized (trava) {
+            while (ocupadas == 0) {
+                if (acordadosPendentes > 0) {
+                    acordadosPendentes--;
+                    return ClienteCompactado.VAZIO;
+                }
+                if (isSargentoDispensado()) return ClienteCompactado.VAZIO;
+                trava.wait();
+            }
+            int nivel = nivelPreferido >= 0 && nivelPreferido < tamanhos.length && tamanhos[nivelPreferido] > 0
+                    ? nivelPreferido
+                    : nivelMaisPrioritario();
+            long[] anel = aneis[nivel];
+            long cliente = anel[cabecas[nivel]]; // Nunca é um desistente: eles não ficam na frente
+            cabecas[nivel] = (cabecas[nivel] + 1) % anel.length;
+            tamanhos[nivel]--;
+            if (prazosUs != null) descartarDesistentesDaFrente(nivel);
+            if (tamanhos[nivel] == 0) {
+                mapaNaoVazias[nivel >>> 6] &= ~(1L << nivel);
+            }
+            ocupadas--;
+            atendidos[nivel]++;
+            marcarSaida(nivel);
+            return cliente;
+        }
+    }
+
+    /**
+     * Grava o prazo de desistência da posição. Deve ser chamado com a trava adquirida.
+     */
+    private void agendarPrazo(int nivel, int posicao, long chegadaUs) {
+        long prazo = chegadaUs + getPacienciaMs(nivel) * 1000;
+        prazosUs[nivel][posicao] = prazo;
+        if (prazo < proximoPrazoUs) proximoPrazoUs = prazo;
+    }
+
+    /**
+     * Remove as posições marcadas da frente do anel, para que a frente nunca seja um
+     * desistente. Deve ser chamado com a trava adquirida.
+     */
+    private void descartarDesistentesDaFrente(int nivel) {
+        long[] anel = aneis[nivel];
+        while (tamanhos[nivel] > 0 && anel[cabecas[nivel]] == ClienteCompactado.VAZIO) {
+            cabecas[nivel] = (cabecas[nivel] + 1) % anel.length;
+            tamanhos[nivel]--;
+            desistentesNoAnel[nivel]--;
+        }
+    }
+
+    private int nivelMaisPrioritario() {
+        for (int i = 0; i < mapaNaoVazias.length; i++) {
+            if (mapaNaoVazias[i] != 0) return (i << 6) + Long.numberOfTrailingZeros(mapaNaoVazias[i]);
+        }
+        return -1;
+    }
+
+    /**
+     * Converte um cliente compactado de volta para objeto, na fronteira com o código de objetos.
+     */
+    private Cliente paraObjeto(long cliente) {
+        if (cliente == ClienteCompactado.VAZIO) return null;
+        return new Cliente(ClienteCompactado.getNivel(cliente), ClienteCompactado.getTempoServico(cliente),
+                origemMs + ClienteCompactado.getChegadaUs(cliente) / 1000);
+    }
+
+    @Override
+    public boolean adicionarCliente(Cliente cliente) {
+        if (cliente.isPausa()) return false;
+        long chegadaUs = Math.max(0, (cliente.getTempoChegada() - origemMs) * 1000);
+        return adicionar(ClienteCompactado.compactar(cliente.getNivel(), cliente.getTempoServico(), chegadaUs));
+    }
+
+    /**
+     * Coloca o lote nos anéis sob uma única aquisição da trava, sem alocar nada: os clientes
+     * são compactados direto dos arrays do lote.
+     */
+    @Override
+    public int adicionarLote(int[] niveis, int[] temposServico, int quantidade, boolean[] aceitos) {
+        long chegadaUs = agoraUs();
+        int aceitas = 0;
+        synchronized (trava) {
+            for (int i = 0; i < quantidade; i++) {
+                aceitos[i] = ocupadas < getCapacidadeTotal();
+                if (!aceitos[i]) continue;
+                int nivel = niveis[i];
+                long[] anel = aneis[nivel];
+                int posicao = (cabecas[nivel] + tamanhos[nivel]) % anel.length;
+                anel[posicao] = ClienteCompactado.compactar(nivel, temposServico[i], chegadaUs);
+                if (prazosUs != null) agendarPrazo(nivel, posicao, chegadaUs);
+                tamanhos[nivel]++;
+                ocupadas++;
+                mapaNaoVazias[nivel >>> 6] |= 1L << nivel;
+                marcarEntrada(nivel);
+                aceitas++;
+            }
+            if (aceitas == 1) {
+                trava.notify();
+            } else if (aceitas > 1) {
+                trava.notifyAll();
+            }
+        }
+        return aceitas;
+    }
+
+    @Override
+    public Cliente pegarProximoCliente() throws InterruptedException {
+        return pegarObjeto(-1);
+    }
+
+    @Override
+    public Cliente pegarCliente(int nivelPreferido) throws InterruptedException {
+        return pegarObjeto(nivelPreferido);
+    }
+
+    /**
+     * Retira um cliente pela API de objetos e o marca como em atendimento na mesma posse da
+     * trava (o wait dentro de {@link #retirar(int)} solta a trava inteira enquanto espera).
+     * A API primitiva não acompanha atendimentos, para continuar sem alocar.
+     */
+    private Cliente pegarObjeto(int nivelPreferido) throws InterruptedException {
+        long antes = System.nanoTime();
+        synchronized (trava) {
+            somarBloqueio(System.nanoTime() - antes); // Entrada no monitor; a espera em wait() é ociosa
+            Cliente cliente = paraObjeto(retirar(nivelPreferido));
+            if (cliente != null) marcarRetirado(cliente);
+            return cliente;
+        }
+    }
+
+    @Override
+    public int getTamanhoFila(int nivel) {
+        if (nivel < 0 || nivel >= tamanhos.length) return 0;
+        synchronized (trava) {
+            return tamanhos[nivel] - (desistentesNoAnel != null ? desistentesNoAnel[nivel] : 0);
+        }
+    }
+
+    @Override
+    public int getCadeirasOcupadas() {
+        synchronized (trava) {
+            return ocupadas;
+        }
+    }
+
+    @Override
+    public boolean isBarbeariaVazia() {
+        return getCadeirasOcupadas() == 0;
+    }
+
+    @Override
+    public int getTotalAtendimentos(int nivel) {
+        if (nivel < 0 || nivel >= atendidos.length) return 0;
+        synchronized (trava) {
+            return (int) atendidos[nivel];
+        }
+    }
+
+    @Override
+    public long getEsperaMaisAntiga() {
+        long maisAntigaUs = -1;
+        synchronized (trava) {
+            for (int nivel = 0; nivel < aneis.length; nivel++) {
+                if (tamanhos[nivel] == 0) continue;
+                long chegada = ClienteCompactado.getChegadaUs(aneis[nivel][cabecas[nivel]]);
+                if (maisAntigaUs < 0 || chegada < maisAntigaUs) maisAntigaUs = chegada;
+            }
+        }
+        return maisAntigaUs < 0 ? 0 : (agoraUs() - maisAntigaUs) / 1000;
+    }
+
+    @Override
+    public void acordarBarbeiros(int quantidade) {
+        synchronized (trava) {
+            acordadosPendentes += quantidade;
+            trava.notifyAll();
+        }
+    }
+
+    @Override
+    public void sargentoFoiEmbora() {
+        super.sargentoFoiEmbora();
+        synchronized (trava) {
+            trava.notifyAll(); // Barbeiros esperando verificam a condição de encerramento
+        }
+    }
+
+    @Override
+    String conferirEstadoQuiescente() {
+        synchronized (trava) {
+            int soma = 0;
+            for (int nivel = 0; nivel < tamanhos.length; nivel++) {
+                boolean marcado = (mapaNaoVazias[nivel >>> 6] & (1L << nivel)) != 0;
+                if (marcado != (tamanhos[nivel] > 0)) return "mapa de bits do nível " + nivel + " não confere com o anel";
+                if (tamanhos[nivel] > 0 && aneis[nivel][cabecas[nivel]] == ClienteCompactado.VAZIO) {
+                    return "anel do nível " + nivel + " tem um desistente na frente";
+                }
+                soma += getTamanhoFila(nivel);
+            }
+            return soma == ocupadas ? null : "ocupação " + ocupadas + " com " + soma + " clientes nos anéis";
+        }
+    }
+
+    @Override
+    void prepararDesistencia() {
+        synchronized (trava) {
+            prazosUs = new long[aneis.length][getCapacidadeTotal()];
+            desistentesNoAnel = new int[aneis.length];
+        }
+    }
+
+    /**
+     * Marca como desistentes os clientes cujo prazo passou, trocando o long da posição por
+     * {@link ClienteCompactado#VAZIO}, e libera as cadeiras deles. Não varre os anéis antes
+     * de o prazo mais próximo vencer.
+     */
+    @Override
+    void expirarPrazosDesistencia() {
+        synchronized (trava) {
+            long agora = agoraUs();
+            if (agora < proximoPrazoUs) return;
+            long proximo = Long.MAX_VALUE;
+            for (int nivel = 0; nivel < aneis.length; nivel++) {
+                long[] anel = aneis[nivel];
+                for (int i = 0; i < tamanhos[nivel]; i++) {
+                    int posicao = (cabecas[nivel] + i) % anel.length;
+                    long cliente = anel[posicao];
+                    if (cliente == ClienteCompactado.VAZIO) continue;
+                    if (prazosUs[nivel][posicao] > agora) {
+                        proximo = Math.min(proximo, prazosUs[nivel][posicao]);
+                        continue;
+                    }
+                    anel[posicao] = ClienteCompactado.VAZIO;
+                    desistentesNoAnel[nivel]++;
+                    ocupadas--;
+                    registrarDesistencia(nivel, (agora - ClienteCompactado.getChegadaUs(cliente)) / 1000);
+                }
+                descartarDesistentesDaFrente(nivel);
+                if (tamanhos[nivel] == 0) mapaNaoVazias[nivel >>> 6] &= ~(1L << nivel);
+            }
+            proximoPrazoUs = proximo;
+        }
+    }
+
+    /**
+     * Escreve o estado no mesmo formato da {@link Barbearia}, com a trava adquirida durante a
+     * cópia dos anéis e dos contadores (as listas de tempos vêm depois). Os clientes são recriados como objetos só aqui, fora do caminho de despacho.
+     */
+    @Override
+    public void capturarEstado(Checkpoint.Escritor escritor) throws InterruptedException {
+        long agora = System.currentTimeMillis();
+        escreverCabecalho(escritor, agora);
+        CopiaEstatisticas copia;
+        synchronized (trava) {
+            for (int nivel = 0; nivel < aneis.length; nivel++) {
+                escritor.putInt(getTamanhoFila(nivel));
+                for (int i = 0; i < tamanhos[nivel]; i++) {
+                    int posicao = (cabecas[nivel] + i) % aneis[nivel].length;
+                    long cliente = aneis[nivel][posicao];
+                    if (cliente == ClienteCompactado.VAZIO) continue;
+                    long restanteDesistenciaMs = prazosUs == null ? -1 : Math.max(0, (prazosUs[nivel][posicao] - agoraUs()) / 1000);
+                    escreverClienteNaFila(escritor, paraObjeto(cliente), agora, restanteDesistenciaMs);
+                }
+                escritor.putInt((int) atendidos[nivel]);
+            }
+            copia = copiarEstatisticas(agora);
+        }
+        escreverEstatisticas(escritor, copia);
+    }
+
+    /**
+     * Restaura o estado salvo por {@link #capturarEstado(Checkpoint.Escritor)}. A origem do
+     * relógio das chegadas é recuada pelo tempo já simulado: nenhum cliente esperou mais que
+     * isso, então a chegada de todos os restaurados cabe no campo sem sinal do cliente compactado.
+     * Cada cliente volta com o prazo de desistência que tinha no checkpoint.
+     */
+    @Override
+    public void restaurarEstado(ByteBuffer dados) {
+        long agora = lerCabecalho(dados);
+        origemMs -= getDuracaoAnteriorMs();
+        origemNs -= getDuracaoAnteriorMs() * 1_000_000;
+        int[] naFila = new int[aneis.length];
+        for (int nivel = 0; nivel < aneis.length; nivel++) {
+            naFila[nivel] = dados.getInt();
+            synchronized (trava) { // O relógio das desistências já pode estar varrendo os anéis
+                for (int i = 0; i < naFila[nivel]; i++) {
+                    Cliente cliente = lerCliente(dados, nivel, agora);
+                    long restanteDesistenciaMs = dados.getLong();
+                    if (!adicionarCliente(cliente)) {
+                        throw new IllegalStateException("O checkpoint tem mais clientes do que cadeiras.");
+                    }
+                    if (prazosUs != null && restanteDesistenciaMs >= 0) {
+                        // Troca o prazo padrão, gravado por adicionar, pelo que faltava no checkpoint
+                        int posicao = (cabecas[nivel] + tamanhos[nivel] - 1) % aneis[nivel].length;
+                        long prazo = agoraUs() + restanteDesistenciaMs * 1000;
+                        prazosUs[nivel][posicao] = prazo;
+                        proximoPrazoUs = Math.min(proximoPrazoUs, prazo);
+                    }
+                }
+                atendidos[nivel] = dados.getInt();
+            }
+        }
+        lerEstatisticas(dados, agora, naFila);
+    }
+
+    /**
+     * Fotografa os anéis e os atendimentos em andamento com a trava adquirida, como
+     * {@link Barbearia#fotografar()} faz com o mutex.
+     */
+    @Override
+    public PrevisaoVirtual.Estado fotografar() throws InterruptedException {
+        double[][] idades = new double[aneis.length][];
+        int[][] servicos = new int[aneis.length][];
+        double[] restantes;
+        synchronized (trava) {
+            long agora = agoraUs();
+            for (int nivel = 0; nivel < aneis.length; nivel++) {
+                idades[nivel] = new double[getTamanhoFila(nivel)];
+                servicos[nivel] = new int[idades[nivel].length];
+                int posicao = 0;
+                for (int i = 0; i < tamanhos[nivel]; i++) {
+                    long cliente = aneis[nivel][(cabecas[nivel] + i) % aneis[nivel].length];
+                    if (cliente == ClienteCompactado.VAZIO) continue;
+                    idades[nivel][posicao] = (agora - ClienteCompactado.getChegadaUs(cliente)) / 1e6;
+                    servicos[nivel][posicao++] = ClienteCompactado.getTempoServico(cliente);
+                }
+            }
+            restantes = fotografarAtendimentos(System.currentTimeMillis());
+        }
+        return new PrevisaoVirtual.Estado(getBarbeirosTrabalhando(), getCapacidadeTotal(), idades, servicos, restantes);
+    }
+}
@@ -0,0 +1,526 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue; // Tamanho e cabeça lidos sem a trava do posto
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport; // Para o barbeiro dormir e ser acordado individualmente
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementação do Caso C em que cada barbeiro dedicado possui sua própria fila local.
+ * O cliente que chega é colocado na fila de um barbeiro dedicado à sua categoria
+ * (em rodízio, se houver mais de um) e só esse barbeiro é acordado. Quando a própria
+ * fila está vazia, o barbeiro "rouba" clientes das filas dos outros, percorrendo-as na
+ * ordem de prioridade global (nível 0 primeiro).
+ * Não há mutex nem semáforo global: cada posto tem a sua trava, pega por quem mexe naquela
+ * fila (o dono, o produtor que entrega ali ou um ladrão) e, no checkpoint, por quem copia
+ * todas as filas de uma vez. O dono não está livre de disputa: toda retirada, inclusive da
+ * própria fila, pega a trava do posto e espera se um produtor ou ladrão estiver com ela, e
+ * atualiza contadores atômicos de toda a barbearia (cadeiras ocupadas e integrais das filas).
+ * A disputa fica espalhada pelos postos em vez de concentrada em um lock só.
+ * Com a desistência ligada, cada posto tem a sua roda de prazos, protegida pela mesma trava:
+ * o desistente é marcado na fila local e descartado quando chega à frente, como na
+ * {@link Barbearia}.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class BarbeariaDedicada extends Barbearia {
+    // Tempo máximo que um barbeiro ocioso dorme antes de reverificar as filas por conta própria
+    private static final long ESPERA_MAXIMA_NS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * A posição de um barbeiro dedicado: sua fila local e o que é preciso para acordá-lo.
+     * A fila só é alterada com a trava do posto adquirida; leituras aproximadas (tamanho,
+     * cabeça) dispensam a trava.
+     */
+    private static final class Posto {
+        final int nivel;
+        final ReentrantLock trava = new ReentrantLock(); // Dono, produtores que entregam aqui e ladrões
+        final ConcurrentLinkedQueue<Cliente> fila = new ConcurrentLinkedQueue<>();
+        final AtomicInteger tamanho = new AtomicInteger(0); // Clientes esperando, sem os desistentes; size() da fila é O(n)
+        final AtomicBoolean ocupado = new AtomicBoolean(false); // Já reivindicado por uma thread
+        final int[] atendidos; // Por nível; escrito só pelo dono
+        volatile Thread dono;
+        volatile boolean dormindo = false;
+        RodaTemporizacao<Cliente> prazos; // Prazos de desistência da fila; null se desligada
+        int desistentes = 0; // Marcados como desistentes e ainda na fila
+
+        Posto(int nivel, int niveis) {
+            this.nivel = nivel;
+            this.atendidos = new int[niveis];
+        }
+    }
+
+    private final Posto[] postos;
+    private final Posto[] ordemRoubo; // Postos ordenados por prioridade da categoria
+    private final Posto[][] postosPorNivel;
+    private final AtomicInteger[] rodizioPorNivel;
+    private final AtomicInteger ocupacao = new AtomicInteger(0); // Cadeiras ocupadas em todas as filas locais
+    private final ThreadLocal<Posto> postoDaThread = new ThreadLocal<>();
+    // Atendimentos feitos por barbeiros sem posto (pegarProximoCliente), raros neste modo
+    private final AtomicIntegerArray atendidosSemPostoPorNivel;
+
+    /**
+     * Constrói a barbearia com um posto para cada barbeiro dedicado.
+     *
+     * @param categorias A configuração dos níveis de prioridade.
+     * @param dedicacoes O nível de cada barbeiro, na ordem em que serão criados.
+     */
+    public BarbeariaDedicada(Categorias categorias, int... dedicacoes) {
+        super(categorias);
+        int niveis = categorias.getQuantidade();
+        postos = new Posto[dedicacoes.length];
+        for (int i = 0; i < dedicacoes.length; i++) {
+            if (dedicacoes[i] < 0 || dedicacoes[i] >= niveis) {
+                throw new IllegalArgumentException("Nível de dedicação inválido: " + dedicacoes[i]);
+            }
+            postos[i] = new Posto(dedicacoes[i], niveis);
+        }
+
+        postosPorNivel = new Posto[niveis][];
+        rodizioPorNivel = new AtomicInteger[niveis];
+        List<Posto> ordem = new ArrayList<>();
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            List<Posto> doNivel = new ArrayList<>();
+            for (Posto posto : postos) {
+                if (posto.nivel == nivel) doNivel.add(posto);
+            }
+            postosPorNivel[nivel] = doNivel.toArray(new Posto[0]);
+            rodizioPorNivel[nivel] = new AtomicInteger(0);
+            ordem.addAll(doNivel); // Níveis percorridos em ordem de prioridade
+        }
+        ordemRoubo = ordem.toArray(new Posto[0]);
+
+        atendidosSemPostoPorNivel = new AtomicIntegerArray(niveis);
+    }
+
+    /**
+     * Tenta adicionar um cliente à fila local de um barbeiro dedicado à sua categoria.
+     * Se nenhum barbeiro for dedicado à categoria, o cliente vai para qualquer posto em rodízio.
+     * Não bloqueia: se a barbearia estiver cheia, o cliente é rejeitado.
+     *
+     * @param cliente O cliente a ser adicionado.
+     * @return true se o cliente conseguiu um lugar, false caso contrário.
+     */
+    @Override
+    public boolean adicionarCliente(Cliente cliente) {
+        if (cliente.isPausa()) return false;
+        Posto destino = colocar(cliente, true);
+        if (destino == null) return false;
+
+        // Acorda o dono; se ele já está acordado (atendendo), acorda um ladrão ocioso
+        if (destino.dormindo) {
+            LockSupport.unpark(destino.dono);
+        } else {
+            for (Posto posto : ordemRoubo) {
+                if (posto.dormindo) {
+                    LockSupport.unpark(posto.dono);
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reserva uma cadeira e coloca o cliente na fila do posto escolhido pelo rodízio.
+     *
+     * @param agendar Se deve agendar o prazo de desistência padrão (a restauração agenda o salvo).
+     * @return O posto que recebeu o cliente, ou null se a barbearia estiver cheia.
+     */
+    private Posto colocar(Cliente cliente, boolean agendar) {
+        if (postos.length == 0) return null;
+
+        // Reserva uma cadeira sem bloquear, equivalente ao tryAcquire de cadeirasLivres
+        int atual;
+        do {
+            atual = ocupacao.get();
+            if (atual >= getCapacidadeTotal()) return null;
+        } while (!ocupacao.compareAndSet(atual, atual + 1));
+
+        Posto[] candidatos = postosPorNivel[cliente.getNivel()];
+        if (candidatos.length == 0) candidatos = postos;
+        int indice = rodizioPorNivel[cliente.getNivel()].getAndIncrement();
+        Posto destino = candidatos[Math.floorMod(indice, candidatos.length)];
+
+        destino.trava.lock();
+        try {
+            destino.tamanho.incrementAndGet();
+            marcarEntrada(cliente.getNivel());
+            destino.fila.offer(cliente);
+            if (agendar && destino.prazos != null) agendarDesistencia(destino.prazos, cliente);
+        } finally {
+            destino.trava.unlock();
+        }
+        return destino;
+    }
+
+    /**
+     * Não há um lock único para amortizar: cada cliente do lote vai para o seu posto por
+     * {@link #adicionarCliente(Cliente)}, com a trava daquele posto.
+     */
+    @Override
+    public int adicionarLote(int[] niveis, int[] temposServico, int quantidade, boolean[] aceitos) {
+        long agora = System.currentTimeMillis();
+        int aceitas = 0;
+        for (int i = 0; i < quantidade; i++) {
+            aceitos[i] = adicionarCliente(new Cliente(niveis[i], temposServico[i], agora));
+            if (aceitos[i]) aceitas++;
+        }
+        return aceitas;
+    }
+
+    /**
+     * Retira um cliente para o barbeiro dedicado da thread atual.
+     * Na primeira chamada, a thread reivindica um posto livre do nível informado.
+     * O barbeiro atende a própria fila; se estiver vazia, rouba das demais por prioridade global;
+     * se não houver ninguém, dorme até ser acordado pelo Sargento.
+     *
+     * @param nivelPreferido O nível ao qual o barbeiro é dedicado.
+     * @return O cliente a ser atendido, ou null se a simulação estiver terminando.
+     * @throws InterruptedException se a thread for interrompida enquanto dorme.
+     */
+    @Override
+    public Cliente pegarCliente(int nivelPreferido) throws InterruptedException {
+        Posto meu = postoDaThread.get();
+        if (meu == null) {
+            meu = reivindicarPosto(nivelPreferido);
+            postoDaThread.set(meu);
+        }
+
+        while (true) {
+            Cliente cliente = retirar(meu);
+            if (cliente != null) return cliente;
+            if (isSargentoDispensado() && isBarbeariaVazia()) return null;
+
+            // Anuncia que vai dormir e verifica de novo: o Sargento grava na fila antes de ler
+            // 'dormindo', e nós gravamos 'dormindo' antes de ler a fila, então ninguém perde o aviso.
+            meu.dormindo = true;
+            cliente = retirar(meu);
+            if (cliente != null || (isSargentoDispensado() && isBarbeariaVazia())) {
+                meu.dormindo = false;
+                return cliente;
+            }
+            LockSupport.parkNanos(this, ESPERA_MAXIMA_NS);
+            meu.dormindo = false;
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Retira o próximo cliente por prioridade global, sem posto próprio (Casos A e B).
+     * Como não há posto para ser acordado, o barbeiro reverifica as filas periodicamente.
+     *
+     * @return O próximo cliente, ou null se a simulação estiver terminando.
+     * @throws InterruptedException se a thread for interrompida enquanto espera.
+     */
+    @Override
+    public Cliente pegarProximoCliente() throws InterruptedException {
+        while (true) {
+            for (Posto posto : ordemRoubo) {
+                Cliente cliente = retirarDe(posto, null);
+                if (cliente != null) return cliente;
+            }
+            if (isSargentoDispensado() && isBarbeariaVazia()) return null;
+            LockSupport.parkNanos(this, ESPERA_MAXIMA_NS);
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+    }
+
+    private Posto reivindicarPosto(int nivel) {
+        for (Posto posto : postosPorNivel[nivel]) {
+            if (posto.ocupado.compareAndSet(false, true)) {
+                posto.dono = Thread.currentThread();
+                return posto;
+            }
+        }
+        throw new IllegalStateException("Não há posto livre dedicado a " + getCategorias().getNome(nivel)
+                + " para " + Thread.currentThread().getName());
+    }
+
+    /**
+     * Tenta a própria fila e, se vazia, rouba das outras em ordem de prioridade global.
+     */
+    private Cliente retirar(Posto meu) {
+        Cliente cliente = retirarDe(meu, meu);
+        if (cliente != null) return cliente;
+        for (Posto posto : ordemRoubo) {
+            if (posto != meu && (cliente = retirarDe(posto, meu)) != null) return cliente;
+        }
+        return null;
+    }
+
+    private Cliente retirarDe(Posto posto, Posto quemAtende) {
+        if (posto.tamanho.get() == 0) return null; // Evita tocar a fila dos outros quando está vazia
+        Cliente cliente;
+        if (!posto.trava.tryLock()) {
+            long antes = System.nanoTime();
+            posto.trava.lock();
+            somarBloqueio(System.nanoTime() - antes);
+        }
+        try {
+            cliente = posto.fila.poll(); // Nunca é um desistente: eles não ficam na frente
+            if (cliente == null) return null;
+            if (posto.prazos != null) {
+                cancelarDesistencia(posto.prazos, cliente);
+                descartarDesistentesDaFrente(posto);
+            }
+            posto.tamanho.decrementAndGet();
+            marcarSaida(cliente.getNivel());
+            if (quemAtende != null) {
+                quemAtende.atendidos[cliente.getNivel()]++;
+            } else {
+                atendidosSemPostoPorNivel.incrementAndGet(cliente.getNivel());
+            }
+            marcarRetirado(cliente);
+        } finally {
+            posto.trava.unlock();
+        }
+        ocupacao.decrementAndGet(); // Libera a cadeira
+        return cliente;
+    }
+
+    /**
+     * Remove os desistentes da frente de uma fila local, para que a frente nunca seja um
+     * desistente. Deve ser chamado com a trava do posto adquirida.
+     */
+    private void descartarDesistentesDaFrente(Posto posto) {
+        Cliente frente;
+        while ((frente = posto.fila.peek()) != null && frente.isDesistiu()) {
+            posto.fila.poll();
+            posto.desistentes--;
+        }
+    }
+
+    @Override
+    public int getTamanhoFila(int nivel) {
+        int total = 0;
+        for (Posto posto : postos) {
+            for (Cliente cliente : posto.fila) {
+                if (cliente.getNivel() == nivel && !cliente.isDesistiu()) total++;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public int getCadeirasOcupadas() {
+        return ocupacao.get();
+    }
+
+    @Override
+    public boolean isBarbeariaVazia() {
+        return ocupacao.get() == 0;
+    }
+
+    @Override
+    public int getTotalAtendimentos(int nivel) {
+        if (nivel < 0 || nivel >= postosPorNivel.length) return 0;
+        int total = atendidosSemPostoPorNivel.get(nivel);
+        for (Posto posto : postos) {
+            total += posto.atendidos[nivel];
+        }
+        return total;
+    }
+
+    @Override
+    public long getEsperaMaisAntiga() {
+        long agora = System.currentTimeMillis();
+        long maisAntigo = agora;
+        for (Posto posto : postos) {
+            Cliente cabeca = posto.fila.peek();
+            if (cabeca != null) maisAntigo = Math.min(maisAntigo, cabeca.getTempoChegada());
+        }
+        return agora - maisAntigo;
+    }
+
+    @Override
+    public void acordarBarbeiros(int quantidade) {
+        acordarTodos();
+    }
+
+    @Override
+    public void sargentoFoiEmbora() {
+        super.sargentoFoiEmbora();
+        acordarTodos(); // Barbeiros dormindo verificam a condição de encerramento
+    }
+
+    @Override
+    String conferirEstadoQuiescente() {
+        int somaEsperando = 0;
+        for (Posto posto : postos) {
+            int esperando = posto.fila.size() - posto.desistentes;
+            if (posto.tamanho.get() != esperando) {
+                return "posto do nível " + posto.nivel + " tem tamanho " + posto.tamanho.get() + " e " + esperando + " clientes esperando";
+            }
+            Cliente frente = posto.fila.peek();
+            if (frente != null && frente.isDesistiu()) return "posto do nível " + posto.nivel + " tem um desistente na frente";
+            somaEsperando += esperando;
+        }
+        return ocupacao.get() == somaEsperando ? null
+                : "ocupação " + ocupacao.get() + " com " + somaEsperando + " clientes nas filas locais";
+    }
+
+    /**
+     * Cria uma roda de prazos para cada posto, protegida pela trava do posto.
+     */
+    @Override
+    void prepararDesistencia() {
+        for (Posto posto : postos) posto.prazos = novaRodaDesistencia();
+    }
+
+    /**
+     * Avança a roda de cada posto com a trava dele, uma de cada vez: o relógio nunca segura
+     * duas travas, então não disputa a ordem com o checkpoint.
+     */
+    @Override
+    void expirarPrazosDesistencia() throws InterruptedException {
+        for (Posto posto : postos) {
+            posto.trava.lockInterruptibly();
+            try {
+                posto.prazos.avancar(System.currentTimeMillis(), cliente -> desistir(posto, cliente));
+            } finally {
+                posto.trava.unlock();
+            }
+        }
+    }
+
+    /**
+     * Marca o cliente como desistente na fila local e libera a sua cadeira. Ele só sai da
+     * fila quando chegar à frente. Deve ser chamado com a trava do posto adquirida.
+     */
+    private void desistir(Posto posto, Cliente cliente) {
+        registrarDesistencia(cliente);
+        posto.tamanho.decrementAndGet();
+        posto.desistentes++;
+        descartarDesistentesDaFrente(posto);
+        ocupacao.decrementAndGet();
+    }
+
+    /**
+     * Escreve o estado no mesmo formato da {@link Barbearia}: as travas de todos os postos são
+     * adquiridas (em ordem, e ninguém mais segura duas), então as filas locais, os contadores
+     * e os atendimentos em andamento são copiados de uma vez. Cada nível junta os clientes
+     * de todos os postos, do que espera há mais tempo para o mais recente.
+     */
+    @Override
+    public void capturarEstado(Checkpoint.Escritor escritor) throws InterruptedException {
+        long agora = System.currentTimeMillis();
+        escreverCabecalho(escritor, agora);
+        CopiaEstatisticas copia;
+        travarPostos();
+        try {
+            List<List<Cliente>> porNivel = clientesPorNivel();
+            for (int nivel = 0; nivel < porNivel.size(); nivel++) {
+                escritor.putInt(porNivel.get(nivel).size());
+                for (Cliente cliente : porNivel.get(nivel)) {
+                    escreverClienteNaFila(escritor, cliente, agora, restanteDesistencia(cliente, agora));
+                }
+                escritor.putInt(getTotalAtendimentos(nivel));
+            }
+            copia = copiarEstatisticas(agora);
+        } finally {
+            destravarPostos();
+        }
+        escreverEstatisticas(escritor, copia);
+    }
+
+    /**
+     * Restaura o estado salvo por {@link #capturarEstado(Checkpoint.Escritor)} (ou pela
+     * {@link Barbearia}): os clientes são distribuídos pelos postos como chegadas, cada um
+     * com o prazo de desistência que tinha no checkpoint. Os atendimentos anteriores ficam
+     * no contador dos barbeiros sem posto.
+     */
+    @Override
+    public void restaurarEstado(ByteBuffer dados) {
+        long agora = lerCabecalho(dados);
+        int[] naFila = new int[postosPorNivel.length];
+        for (int nivel = 0; nivel < naFila.length; nivel++) {
+            naFila[nivel] = dados.getInt();
+            for (int i = 0; i < naFila[nivel]; i++) {
+                Cliente cliente = lerCliente(dados, nivel, agora);
+                long restanteDesistenciaMs = dados.getLong();
+                Posto posto = colocar(cliente, false);
+                if (posto == null) throw new IllegalStateException("O checkpoint tem mais clientes do que cadeiras.");
+                if (posto.prazos != null) {
+                    posto.trava.lock();
+                    try {
+                        agendarDesistenciaRestaurada(posto.prazos, cliente, restanteDesistenciaMs, agora);
+                    } finally {
+                        posto.trava.unlock();
+                    }
+                }
+            }
+            atendidosSemPostoPorNivel.set(nivel, dados.getInt());
+        }
+        lerEstatisticas(dados, agora, naFila);
+    }
+
+    private void travarPostos() {
+        for (Posto posto : postos) posto.trava.lock();
+    }
+
+    private void destravarPostos() {
+        for (int i = postos.length - 1; i >= 0; i--) postos[i].trava.unlock();
+    }
+
+    /**
+     * Junta os clientes das filas locais por nível, do mais antigo para o mais recente,
+     * sem os desistentes. Deve ser chamado com as travas de todos os postos adquiridas.
+     */
+    private List<List<Cliente>> clientesPorNivel() {
+        List<List<Cliente>> porNivel = new ArrayList<>();
+        for (int nivel = 0; nivel < postosPorNivel.length; nivel++) porNivel.add(new ArrayList<>());
+        for (Posto posto : postos) {
+            for (Cliente cliente : posto.fila) {
+                if (!cliente.isDesistiu()) porNivel.get(cliente.getNivel()).add(cliente);
+            }
+        }
+        for (List<Cliente> clientes : porNivel) clientes.sort(Comparator.comparingLong(Cliente::getTempoChegada));
+        return porNivel;
+    }
+
+    /**
+     * Fotografa as filas locais e os atendimentos em andamento com as travas de todos os
+     * postos adquiridas, como no checkpoint. Cada nível junta os clientes de todos os postos,
+     * do mais antigo para o mais recente.
+     */
+    @Override
+    public PrevisaoVirtual.Estado fotografar() throws InterruptedException {
+        int niveis = postosPorNivel.length;
+        double[][] idades = new double[niveis][];
+        int[][] servicos = new int[niveis][];
+        double[] restantes;
+        travarPostos();
+        try {
+            long agora = System.currentTimeMillis();
+            List<List<Cliente>> porNivel = clientesPorNivel();
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                List<Cliente> clientes = porNivel.get(nivel);
+                idades[nivel] = new double[clientes.size()];
+                servicos[nivel] = new int[clientes.size()];
+                for (int i = 0; i < clientes.size(); i++) {
+                    idades[nivel][i] = (agora - clientes.get(i).getTempoChegada()) / 1000.0;
+                    servicos[nivel][i] = clientes.get(i).getTempoServico();
+                }
+            }
+            restantes = fotografarAtendimentos(agora);
+        } finally {
+            destravarPostos();
+        }
+        return new PrevisaoVirtual.Estado(getBarbeirosTrabalhando(), getCapacidadeTotal(), idades, servicos, restantes);
+    }
+
+    private void acordarTodos() {
+        for (Posto posto : postos) {
+            Thread dono = posto.dono;
+            if (dono != null) LockSupport.unpark(dono);
+        }
+    }
+}
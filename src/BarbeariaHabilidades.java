@@ -0,0 +1,513 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementação do Caso E: uma equipe heterogênea, em que cada barbeiro tem um fator de
+ * velocidade e um conjunto de categorias que atende ({@link Habilidades}). Quem decide
+ * qual cliente vai para qual barbeiro é o {@link RoteadorHabilidades}: o barbeiro que fica
+ * livre escolhe a fila pela regra cμ generalizada, e o cliente que chega com barbeiros
+ * ociosos aptos vai direto para o mais rápido deles.
+ *
+ * As filas ficam sob um único ReentrantLock, e cada barbeiro espera na sua própria Condition,
+ * para que a chegada acorde exatamente o barbeiro escolhido. O atendimento dura o tempo de
+ * serviço do cliente vezes o fator do barbeiro naquela categoria
+ * (ver {@link #getDuracaoAtendimentoMs(Cliente)}).
+ * Com a desistência ligada, os prazos ficam em uma roda protegida pela mesma trava, e o
+ * desistente é marcado na fila e descartado quando chega à frente, como na {@link Barbearia}:
+ * as cabeças que o roteador lê nunca são desistentes.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class BarbeariaHabilidades extends Barbearia {
+    // Depois que o Sargento vai embora, um barbeiro sem cliente apto reverifica a cada 50 ms
+    private static final long ESPERA_ENCERRAMENTO_NS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final RoteadorHabilidades roteador;
+    private final ReentrantLock trava = new ReentrantLock();
+    private final Condition[] sinais;        // Um por barbeiro
+    private final Cliente[] atribuidos;      // Cliente entregue a um barbeiro ocioso, ainda não retirado
+    private final ArrayDeque<Cliente>[] filas;
+    private final long[] mapaNaoVazias;      // Bit i ligado se e somente se filas[i] não está vazia
+    private final long[] atendidos;          // Por nível
+    private final long[][] atendidosPorBarbeiro;
+    private int ocupadas = 0;
+    private int acordadosPendentes = 0;      // Pedidos de acordarBarbeiros ainda não consumidos
+    private long agoraMs;                    // Instante da decisão em curso, para as idades
+    private RodaTemporizacao<Cliente> prazos; // Prazos de desistência; null se desligada
+    private final int[] desistentesNaFila;   // Marcados como desistentes e ainda na fila
+
+    // Barbeiros: designados pelo Main ou reivindicados na primeira chamada, em ordem
+    private final Map<Thread, Integer> designados = new ConcurrentHashMap<>();
+    private final AtomicBoolean[] reivindicados;
+    private final String[] nomes;
+    private final ThreadLocal<Integer> postoDaThread = new ThreadLocal<>();
+
+    // Os primeiros clientes das filas, lidos pelo roteador com a trava adquirida
+    private final RoteadorHabilidades.Cabecas cabecas = new RoteadorHabilidades.Cabecas() {
+        @Override
+        public double getIdadeCabeca(int nivel) {
+            return (agoraMs - filas[nivel].peekFirst().getTempoChegada()) / 1000.0;
+        }
+
+        @Override
+        public double getServicoCabeca(int nivel) {
+            return filas[nivel].peekFirst().getTempoServico();
+        }
+    };
+
+    /**
+     * Constrói a barbearia para uma equipe, com os pesos padrão de cada nível.
+     *
+     * @param categorias A configuração dos níveis de prioridade.
+     * @param equipe O perfil de cada barbeiro; todo nível deve ter pelo menos um barbeiro apto.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BarbeariaHabilidades(Categorias categorias, Habilidades... equipe) {
+        super(categorias);
+        int niveis = categorias.getQuantidade();
+        roteador = new RoteadorHabilidades(equipe, RoteadorHabilidades.pesosPadrao(niveis));
+        sinais = new Condition[equipe.length];
+        for (int b = 0; b < equipe.length; b++) sinais[b] = trava.newCondition();
+        atribuidos = new Cliente[equipe.length];
+        filas = new ArrayDeque[niveis];
+        for (int nivel = 0; nivel < niveis; nivel++) filas[nivel] = new ArrayDeque<>();
+        mapaNaoVazias = new long[(niveis + 63) / 64];
+        atendidos = new long[niveis];
+        desistentesNaFila = new int[niveis];
+        atendidosPorBarbeiro = new long[equipe.length][niveis];
+        reivindicados = new AtomicBoolean[equipe.length];
+        for (int b = 0; b < equipe.length; b++) reivindicados[b] = new AtomicBoolean(false);
+        nomes = new String[equipe.length];
+    }
+
+    /**
+     * Associa a thread de um barbeiro a um perfil da equipe. Deve ser chamado antes de
+     * iniciar a thread; threads não designadas ficam com o próximo perfil livre.
+     *
+     * @param barbeiro A thread do barbeiro.
+     * @param indice O índice do perfil na equipe.
+     */
+    public void designar(Thread barbeiro, int indice) {
+        if (!reivindicados[indice].compareAndSet(false, true)) {
+            throw new IllegalStateException("O perfil " + indice + " já tem um barbeiro.");
+        }
+        nomes[indice] = barbeiro.getName();
+        designados.put(barbeiro, indice);
+    }
+
+    private int getPosto() {
+        Integer posto = postoDaThread.get();
+        if (posto != null) return posto;
+        posto = designados.get(Thread.currentThread());
+        if (posto == null) {
+            for (int b = 0; b < reivindicados.length && posto == null; b++) {
+                if (reivindicados[b].compareAndSet(false, true)) {
+                    nomes[b] = Thread.currentThread().getName();
+                    posto = b;
+                }
+            }
+            if (posto == null) {
+                throw new IllegalStateException("Não há perfil livre na equipe para " + Thread.currentThread().getName());
+            }
+        }
+        postoDaThread.set(posto);
+        return posto;
+    }
+
+    /**
+     * Tenta adicionar um cliente. Se houver um barbeiro ocioso que atenda a categoria, o
+     * cliente vai direto para o mais rápido deles; senão, espera na fila do seu nível.
+     * Não bloqueia: se a barbearia estiver cheia, o cliente é rejeitado.
+     *
+     * @param cliente O cliente a ser adicionado.
+     * @return true se o cliente conseguiu um lugar, false caso contrário.
+     */
+    @Override
+    public boolean adicionarCliente(Cliente cliente) {
+        if (cliente.isPausa()) return false;
+        int nivel = cliente.getNivel();
+        trava.lock();
+        try {
+            if (ocupadas >= getCapacidadeTotal()) return false;
+            marcarEntrada(nivel);
+            int barbeiro = roteador.escolherBarbeiroOcioso(nivel);
+            if (barbeiro >= 0) {
+                roteador.marcarOcupado(barbeiro);
+                atribuidos[barbeiro] = cliente;
+                registrarRetirada(barbeiro, cliente);
+                sinais[barbeiro].signal();
+                return true;
+            }
+            filas[nivel].addLast(cliente);
+            mapaNaoVazias[nivel >>> 6] |= 1L << nivel;
+            ocupadas++;
+            if (prazos != null) agendarDesistencia(prazos, cliente);
+            return true;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Cada cliente do lote passa pelo roteamento de {@link #adicionarCliente(Cliente)}.
+     */
+    @Override
+    public int adicionarLote(int[] niveis, int[] temposServico, int quantidade, boolean[] aceitos) {
+        long agora = System.currentTimeMillis();
+        int aceitas = 0;
+        for (int i = 0; i < quantidade; i++) {
+            aceitos[i] = adicionarCliente(new Cliente(niveis[i], temposServico[i], agora));
+            if (aceitos[i]) aceitas++;
+        }
+        return aceitas;
+    }
+
+    /**
+     * Retira o cliente que o roteador escolher para o barbeiro da thread atual, esperando
+     * se não houver nenhum cliente que ele atenda.
+     *
+     * @return O cliente a ser atendido, ou null se a simulação estiver terminando ou se o
+     *         barbeiro foi acordado por {@link #acordarBarbeiros(int)}.
+     * @throws InterruptedException se a thread for interrompida enquanto espera.
+     */
+    @Override
+    public Cliente pegarProximoCliente() throws InterruptedException {
+        int barbeiro = getPosto();
+        if (!trava.tryLock()) {
+            long antes = System.nanoTime();
+            trava.lockInterruptibly();
+            somarBloqueio(System.nanoTime() - antes);
+        }
+        try {
+            while (true) {
+                if (atribuidos[barbeiro] != null) {
+                    Cliente cliente = atribuidos[barbeiro];
+                    atribuidos[barbeiro] = null;
+                    return cliente;
+                }
+                agoraMs = System.currentTimeMillis();
+                int nivel = roteador.escolherNivel(barbeiro, mapaNaoVazias, cabecas);
+                if (nivel >= 0) return retirar(barbeiro, nivel);
+                if (acordadosPendentes > 0) {
+                    acordadosPendentes--;
+                    return null;
+                }
+                if (isSargentoDispensado()) {
+                    // Os clientes restantes, se houver, são de categorias que este barbeiro não atende
+                    if (ocupadas > 0) sinais[barbeiro].awaitNanos(ESPERA_ENCERRAMENTO_NS);
+                    return null;
+                }
+
+                roteador.marcarOcioso(barbeiro);
+                try {
+                    sinais[barbeiro].await();
+                } catch (InterruptedException e) {
+                    if (atribuidos[barbeiro] == null) throw e;
+                    Thread.currentThread().interrupt(); // Já recebeu: atende e deixa a interrupção para depois
+                } finally {
+                    roteador.marcarOcupado(barbeiro); // Sem efeito se a chegada já o marcou
+                }
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Neste caso quem escolhe a fila é o roteador: a preferência é ignorada.
+     */
+    @Override
+    public Cliente pegarCliente(int nivelPreferido) throws InterruptedException {
+        return pegarProximoCliente();
+    }
+
+    private Cliente retirar(int barbeiro, int nivel) {
+        Cliente cliente = filas[nivel].pollFirst(); // Nunca é um desistente: eles não ficam na frente
+        if (prazos != null) {
+            cancelarDesistencia(prazos, cliente);
+            descartarDesistentesDaFrente(nivel);
+        }
+        if (filas[nivel].isEmpty()) mapaNaoVazias[nivel >>> 6] &= ~(1L << nivel);
+        ocupadas--;
+        registrarRetirada(barbeiro, cliente);
+        return cliente;
+    }
+
+    /**
+     * Remove os desistentes da frente da fila de um nível, para que o roteador nunca leia um
+     * desistente como cabeça. Deve ser chamado com a trava adquirida.
+     */
+    private void descartarDesistentesDaFrente(int nivel) {
+        Cliente frente;
+        while ((frente = filas[nivel].peekFirst()) != null && frente.isDesistiu()) {
+            filas[nivel].pollFirst();
+            desistentesNaFila[nivel]--;
+        }
+    }
+
+    private void registrarRetirada(int barbeiro, Cliente cliente) {
+        int nivel = cliente.getNivel();
+        atendidos[nivel]++;
+        atendidosPorBarbeiro[barbeiro][nivel]++;
+        marcarSaida(nivel);
+        marcarRetirado(cliente); // Entregue a um barbeiro ocioso já conta como em atendimento
+    }
+
+    /**
+     * Retorna a duração do atendimento pelo barbeiro da thread atual: o tempo de serviço do
+     * cliente vezes o fator do barbeiro na categoria.
+     */
+    @Override
+    public long getDuracaoAtendimentoMs(Cliente cliente) {
+        double fator = roteador.getHabilidades(getPosto()).getFator(cliente.getNivel());
+        return Math.round(cliente.getTempoServico() * fator * 1000);
+    }
+
+    /**
+     * Retorna o número de barbeiros da equipe.
+     */
+    public int getQuantidadeBarbeiros() {
+        return roteador.getBarbeiros();
+    }
+
+    /**
+     * Retorna o nome da thread do barbeiro com o perfil informado, ou null se nenhuma o assumiu.
+     */
+    public String getNomeBarbeiro(int barbeiro) {
+        return nomes[barbeiro];
+    }
+
+    public Habilidades getHabilidades(int barbeiro) {
+        return roteador.getHabilidades(barbeiro);
+    }
+
+    /**
+     * Retorna quantos clientes de um nível o barbeiro recebeu.
+     */
+    public long getAtendimentos(int barbeiro, int nivel) {
+        trava.lock();
+        try {
+            return atendidosPorBarbeiro[barbeiro][nivel];
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public int getTamanhoFila(int nivel) {
+        if (nivel < 0 || nivel >= filas.length) return 0;
+        trava.lock();
+        try {
+            return filas[nivel].size() - desistentesNaFila[nivel];
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public int getCadeirasOcupadas() {
+        trava.lock();
+        try {
+            return ocupadas;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public boolean isBarbeariaVazia() {
+        return getCadeirasOcupadas() == 0;
+    }
+
+    @Override
+    public int getTotalAtendimentos(int nivel) {
+        if (nivel < 0 || nivel >= atendidos.length) return 0;
+        trava.lock();
+        try {
+            return (int) atendidos[nivel];
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public long getEsperaMaisAntiga() {
+        long maisAntiga = Long.MAX_VALUE;
+        trava.lock();
+        try {
+            for (ArrayDeque<Cliente> fila : filas) {
+                if (!fila.isEmpty()) maisAntiga = Math.min(maisAntiga, fila.peekFirst().getTempoChegada());
+            }
+        } finally {
+            trava.unlock();
+        }
+        return maisAntiga == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - maisAntiga;
+    }
+
+    @Override
+    public void acordarBarbeiros(int quantidade) {
+        trava.lock();
+        try {
+            acordadosPendentes += quantidade;
+            for (Condition sinal : sinais) sinal.signal();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    public void sargentoFoiEmbora() {
+        super.sargentoFoiEmbora();
+        trava.lock();
+        try {
+            for (Condition sinal : sinais) sinal.signal(); // Barbeiros esperando verificam a condição de encerramento
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    String conferirEstadoQuiescente() {
+        trava.lock();
+        try {
+            int soma = 0;
+            for (int nivel = 0; nivel < filas.length; nivel++) {
+                boolean marcado = (mapaNaoVazias[nivel >>> 6] & (1L << nivel)) != 0;
+                if (marcado == filas[nivel].isEmpty()) return "mapa de bits do nível " + nivel + " não confere com a fila";
+                soma += filas[nivel].size() - desistentesNaFila[nivel];
+            }
+            for (int b = 0; b < atribuidos.length; b++) {
+                if (atribuidos[b] != null) return "cliente entregue ao barbeiro " + b + " e nunca retirado";
+            }
+            return soma == ocupadas ? null : "ocupação " + ocupadas + " com " + soma + " clientes nas filas";
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @Override
+    void prepararDesistencia() {
+        prazos = novaRodaDesistencia();
+    }
+
+    @Override
+    void expirarPrazosDesistencia() throws InterruptedException {
+        trava.lockInterruptibly();
+        try {
+            prazos.avancar(System.currentTimeMillis(), this::desistir);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Marca o cliente como desistente e libera a sua cadeira. Ele só sai da fila quando chegar
+     * à frente. Deve ser chamado com a trava adquirida.
+     */
+    private void desistir(Cliente cliente) {
+        int nivel = cliente.getNivel();
+        registrarDesistencia(cliente);
+        desistentesNaFila[nivel]++;
+        ocupadas--;
+        descartarDesistentesDaFrente(nivel);
+        if (filas[nivel].isEmpty()) mapaNaoVazias[nivel >>> 6] &= ~(1L << nivel);
+    }
+
+    /**
+     * Escreve o estado no mesmo formato da {@link Barbearia}, com a trava das filas adquirida
+     * durante a cópia das filas e dos contadores (as listas de tempos vêm depois). Os clientes já entregues a um barbeiro ocioso e ainda não
+     * retirados contam como em atendimento. Os atendimentos por barbeiro não são salvos.
+     */
+    @Override
+    public void capturarEstado(Checkpoint.Escritor escritor) throws InterruptedException {
+        long agora = System.currentTimeMillis();
+        escreverCabecalho(escritor, agora);
+        CopiaEstatisticas copia;
+        trava.lockInterruptibly();
+        try {
+            for (int nivel = 0; nivel < filas.length; nivel++) {
+                escritor.putInt(filas[nivel].size() - desistentesNaFila[nivel]);
+                for (Cliente cliente : filas[nivel]) {
+                    if (!cliente.isDesistiu()) escreverClienteNaFila(escritor, cliente, agora, restanteDesistencia(cliente, agora));
+                }
+                escritor.putInt((int) atendidos[nivel]);
+            }
+            copia = copiarEstatisticas(agora);
+        } finally {
+            trava.unlock();
+        }
+        escreverEstatisticas(escritor, copia);
+    }
+
+    /**
+     * Restaura o estado salvo por {@link #capturarEstado(Checkpoint.Escritor)}: os clientes
+     * voltam às filas do seu nível, com o prazo de desistência que tinham, e o roteador os
+     * distribui quando os barbeiros começarem.
+     * Um atendimento retomado dura o que faltava com o barbeiro que o começou.
+     */
+    @Override
+    public void restaurarEstado(ByteBuffer dados) {
+        long agora = lerCabecalho(dados);
+        int[] naFila = new int[filas.length];
+        trava.lock();
+        try {
+            for (int nivel = 0; nivel < filas.length; nivel++) {
+                naFila[nivel] = dados.getInt();
+                for (int i = 0; i < naFila[nivel]; i++) {
+                    if (ocupadas >= getCapacidadeTotal()) {
+                        throw new IllegalStateException("O checkpoint tem mais clientes do que cadeiras.");
+                    }
+                    Cliente cliente = lerCliente(dados, nivel, agora);
+                    long restanteDesistenciaMs = dados.getLong();
+                    filas[nivel].addLast(cliente);
+                    mapaNaoVazias[nivel >>> 6] |= 1L << nivel;
+                    ocupadas++;
+                    marcarEntrada(nivel);
+                    if (prazos != null) agendarDesistenciaRestaurada(prazos, cliente, restanteDesistenciaMs, agora);
+                }
+                atendidos[nivel] = dados.getInt();
+            }
+        } finally {
+            trava.unlock();
+        }
+        lerEstatisticas(dados, agora, naFila);
+    }
+
+    /**
+     * Fotografa as filas e os atendimentos em andamento com a trava das filas adquirida.
+     * Os clientes já entregues a um barbeiro ocioso entram como atendimentos.
+     */
+    @Override
+    public PrevisaoVirtual.Estado fotografar() throws InterruptedException {
+        double[][] idades = new double[filas.length][];
+        int[][] servicos = new int[filas.length][];
+        double[] restantes;
+        trava.lockInterruptibly();
+        try {
+            long agora = System.currentTimeMillis();
+            for (int nivel = 0; nivel < filas.length; nivel++) {
+                int esperando = filas[nivel].size() - desistentesNaFila[nivel];
+                idades[nivel] = new double[esperando];
+                servicos[nivel] = new int[esperando];
+                int posicao = 0;
+                for (Cliente cliente : filas[nivel]) {
+                    if (cliente.isDesistiu()) continue;
+                    idades[nivel][posicao] = (agora - cliente.getTempoChegada()) / 1000.0;
+                    servicos[nivel][posicao++] = cliente.getTempoServico();
+                }
+            }
+            restantes = fotografarAtendimentos(agora);
+        } finally {
+            trava.unlock();
+        }
+        return new PrevisaoVirtual.Estado(getBarbeirosTrabalhando(), getCapacidadeTotal(), idades, servicos, restantes);
+    }
+}
@@ -11,20 +11,52 @@ public class Barbeiro implements Runnable {
     private String nome;
     private Barbearia barbearia;
     private volatile boolean encerrar = false; // Flag para sinalizar o término da thread
-    private String casoAtual; // Para adaptar o comportamento de acordo com o caso (A, B, C)
+    private volatile boolean aposentado = false; // Flag do AutoEscalonador: sai após o cliente atual
+    // A thread e se ela está esperando cliente, protegidas pelo monitor do barbeiro (ver aposentar)
+    private Thread thread;
+    private boolean esperandoCliente = false;
+    private volatile long inicioMs = 0; // Início e fim do turno, para os barbeiro-segundos
+    private volatile long fimMs = 0;
+    private String casoAtual; // Para adaptar o comportamento de acordo com o caso (A a E)
+    private int nivelPreferido; // Nível ao qual o barbeiro é dedicado no Caso C
     
     
     /**
      * Constrói a thread de um Barbeiro.
+     * No Caso C, o nível preferido segue os barbeiros originais: Recruta Zero atende o
+     * nível 0 (Oficiais), Dentinho o nível 1 (Sargentos) e os demais o último nível.
      *
      * @param nome O nome do barbeiro (ex: "Recruta Zero").
      * @param barbearia A instância compartilhada da Barbearia.
-     * @param casoAtual A letra do caso de teste ('A', 'B' ou 'C') que define seu comportamento.
+     * @param casoAtual A letra do caso de teste ('A' a 'E') que define seu comportamento.
      */
     public Barbeiro(String nome, Barbearia barbearia, String casoAtual) {
+        this(nome, barbearia, casoAtual, nivelPreferidoPorNome(nome, barbearia.getCategorias().getQuantidade()));
+    }
+
+    /**
+     * Constrói a thread de um Barbeiro dedicado a um nível específico.
+     *
+     * @param nome O nome do barbeiro.
+     * @param barbearia A instância compartilhada da Barbearia.
+     * @param casoAtual A letra do caso de teste que define seu comportamento.
+     * @param nivelPreferido O nível que o barbeiro atende primeiro no Caso C.
+     */
+    public Barbeiro(String nome, Barbearia barbearia, String casoAtual, int nivelPreferido) {
         this.nome = nome;
         this.barbearia = barbearia;
         this.casoAtual = casoAtual;
+        this.nivelPreferido = nivelPreferido;
+    }
+
+    private static int nivelPreferidoPorNome(String nome, int niveis) {
+        if (nome.equals("Recruta Zero")) {
+            return 0;
+        } else if (nome.equals("Dentinho")) {
+            return Math.min(1, niveis - 1);
+        } else { // Otto
+            return niveis - 1;
+        }
     }
     
     /**
@@ -34,41 +66,67 @@ public class Barbeiro implements Runnable {
      */
     @Override
     public void run() {
+        synchronized (this) {
+            thread = Thread.currentThread();
+        }
+        inicioMs = System.currentTimeMillis();
         System.out.println(nome + " começou a trabalhar.");
+        barbearia.registrarEntradaBarbeiro();
+        // Contabilidade de tempo: ocioso esperando cliente, ocupado atendendo, bloqueado esperando
+        // pelos locks da barbearia (medido por ela, ver Barbearia.getBloqueadoNs) e "outros", o
+        // resto do ciclo, como a saída no console
+        long inicioNs = System.nanoTime();
+        long ociosoNs = 0;
+        long ocupadoNs = 0;
+        int atendidos = 0;
         // O barbeiro só deve parar quando for sinalizado para encerrar E a barbearia estiver vazia
-        while (!encerrar || !barbearia.isBarbeariaVazia()) {
+        // (incluindo os atendimentos restaurados de um checkpoint que ainda não foram retomados)
+        while (!aposentado && (!encerrar || !barbearia.isBarbeariaVazia() || barbearia.temAtendimentoRetomado())) {
             Cliente cliente = null;
             try {
-                if (casoAtual.equals("A") || casoAtual.equals("B")) {
-                   // Casos A e B: Barbeiro atende a fila com prioridade global
-                    cliente = barbearia.pegarProximoCliente();
-                } else if (casoAtual.equals("C")) {
-                    // Caso C: Barbeiro dedicado a uma fila, mas pode atender outras se a sua estiver vazia
-                    Cliente.Categoria categoriaPreferida;
-
-                    // Define a categoria preferida de cada barbeiro no Caso C
-                    if (nome.equals("Recruta Zero")) {
-                        categoriaPreferida = Cliente.Categoria.OFICIAL;
-                    } else if (nome.equals("Dentinho")) {
-                        categoriaPreferida = Cliente.Categoria.SARGENTO;
-                    } else { // Otto
-                        categoriaPreferida = Cliente.Categoria.CABO;
+                // Um atendimento interrompido pelo checkpoint é terminado antes de qualquer cliente novo
+                cliente = barbearia.retomarAtendimento();
+                long antesDeEsperar = System.nanoTime();
+                long bloqueadoAntes = barbearia.getBloqueadoNs();
+                if (cliente == null) {
+                    if (!comecarEspera()) break; // Aposentado
+                    try {
+                        if (casoAtual.equals("A") || casoAtual.equals("B") || casoAtual.equals("D") || casoAtual.equals("E")) {
+                           // Casos A, B e D: Barbeiro atende a fila com prioridade global
+                           // Caso E: a BarbeariaHabilidades escolhe a fila pelo perfil do barbeiro
+                            cliente = barbearia.pegarProximoCliente();
+                        } else if (casoAtual.equals("C")) {
+                            // Caso C: Barbeiro dedicado a uma fila, mas pode atender outras se a sua estiver vazia
+                            cliente = barbearia.pegarCliente(nivelPreferido);
+                        }
+                    } finally {
+                        terminarEspera();
                     }
-                    cliente = barbearia.pegarCliente(categoriaPreferida);
                 }
+                // A espera pelo lock das filas depois de achar cliente é bloqueio, não ociosidade
+                ociosoNs += System.nanoTime() - antesDeEsperar - (barbearia.getBloqueadoNs() - bloqueadoAntes);
 
                 if (cliente != null) {
-                    // Cálculo do tempo de espera
-                    long tempoEspera = System.currentTimeMillis() - cliente.getTempoChegada();
-                    barbearia.registrarTempoEspera(cliente.getCategoria(), tempoEspera);
+                    // Registra a espera e devolve quanto falta do corte: a duração inteira, que no
+                    // Caso E depende da velocidade do barbeiro na categoria, ou o resto de um
+                    // atendimento retomado
+                    long duracaoMs = barbearia.iniciarAtendimento(cliente);
 
-                    System.out.println(nome + " está atendendo um " + cliente.getCategoria() + ". Tempo de serviço: " + cliente.getTempoServico() + "s. Fila Of: " + barbearia.getTamanhoFila(Cliente.Categoria.OFICIAL) + " Sgt: " + barbearia.getTamanhoFila(Cliente.Categoria.SARGENTO) + " Cabo: " + barbearia.getTamanhoFila(Cliente.Categoria.CABO));
-                    Thread.sleep(cliente.getTempoServico() * 1000); // Simula o tempo de corte
+                    Categorias categorias = barbearia.getCategorias();
+                    StringBuilder filas = new StringBuilder();
+                    for (int nivel = 0; nivel < categorias.getQuantidade(); nivel++) {
+                        filas.append(' ').append(categorias.getNome(nivel)).append(": ").append(barbearia.getTamanhoFila(nivel));
+                    }
+                    System.out.println(nome + " está atendendo um " + categorias.getNome(cliente.getNivel()) + ". Tempo de serviço: " + (duracaoMs / 1000.0) + "s. Filas" + filas);
+                    long antesDoCorte = System.nanoTime();
+                    Thread.sleep(duracaoMs); // Simula o tempo de corte
+                    ocupadoNs += System.nanoTime() - antesDoCorte;
+                    atendidos++;
 
-                    // Registro do tempo de atendimento
-                    barbearia.registrarTempoAtendimento(cliente.getCategoria(), cliente.getTempoServico() * 1000); // Guardar em ms
+                    // Registro do tempo de atendimento, no mesmo lock em que o cliente deixa de estar em atendimento
+                    barbearia.concluirAtendimento(cliente);
 
-                    System.out.println(nome + " terminou de atender o " + cliente.getCategoria() + ".");
+                    System.out.println(nome + " terminou de atender o " + categorias.getNome(cliente.getNivel()) + ".");
                 } else {
                     // Se não há clientes para atender no momento, o barbeiro espera um pouco para não consumir CPU em excesso
                 	if (encerrar && barbearia.isBarbeariaVazia()) {
@@ -77,12 +135,18 @@ public class Barbeiro implements Runnable {
                 }
 
             } catch (InterruptedException e) {
+                if (aposentado) break; // Acordado pela aposentadoria enquanto esperava cliente
                 Thread.currentThread().interrupt();
                 System.out.println(nome + " interrompido.");
                 break; // Sai do loop
             }
         }
+        fimMs = System.currentTimeMillis();
         System.out.println(nome + " terminou de trabalhar.");
+        barbearia.registrarSaidaBarbeiro();
+        long bloqueadoNs = barbearia.getBloqueadoNs();
+        long outrosNs = System.nanoTime() - inicioNs - ociosoNs - ocupadoNs - bloqueadoNs;
+        barbearia.registrarUsoThread(UsoThread.medirThreadAtual(nome).comAtendimento(ocupadoNs, ociosoNs, bloqueadoNs, outrosNs, atendidos));
     }
 
     /**
@@ -92,4 +156,55 @@ public class Barbeiro implements Runnable {
     public void encerrar() {
         this.encerrar = true;
     }
+
+    /**
+     * Sinaliza para o barbeiro que ele deve sair do turno assim que terminar o cliente atual,
+     * mesmo que ainda haja clientes esperando (eles ficam para os demais barbeiros).
+     * Usado pelo AutoEscalonador para reduzir a equipe.
+     */
+    public synchronized void aposentar() {
+        this.aposentado = true;
+        // Se estiver parado esperando cliente, a interrupção acorda exatamente este barbeiro
+        // (um sinal na barbearia acordaria qualquer um). Atendendo, ele vê a flag ao terminar.
+        if (esperandoCliente && thread != null) thread.interrupt();
+    }
+
+    /**
+     * Marca que o barbeiro vai esperar um cliente.
+     *
+     * @return false se ele já foi aposentado e deve sair.
+     */
+    private synchronized boolean comecarEspera() {
+        if (aposentado) return false;
+        esperandoCliente = true;
+        return true;
+    }
+
+    /**
+     * Marca o fim da espera. Uma interrupção da aposentadoria que chegou depois de o cliente
+     * ser pego é descartada aqui: depois disso aposentar() não interrompe mais, então o
+     * atendimento nunca é cortado.
+     */
+    private synchronized void terminarEspera() {
+        esperandoCliente = false;
+        if (aposentado) Thread.interrupted();
+    }
+
+    /**
+     * Retorna há quantos segundos o barbeiro trabalha: do início ao fim do turno ou até agora,
+     * e 0 se a thread ainda não começou.
+     */
+    public double getSegundosTrabalhados() {
+        long inicio = inicioMs;
+        if (inicio == 0) return 0.0;
+        long fim = fimMs;
+        return ((fim == 0 ? System.currentTimeMillis() : fim) - inicio) / 1000.0;
+    }
+
+    /**
+     * Retorna o nome do barbeiro.
+     */
+    public String getNome() {
+        return nome;
+    }
 }
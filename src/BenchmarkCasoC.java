@@ -0,0 +1,90 @@
+/**
+ * Mede a vazão do despacho do Caso C com barbeiros dedicados, comparando a
+ * implementação original (mutex e semáforos globais, {@link Barbearia#pegarCliente})
+ * com a de filas locais e roubo de trabalho ({@link BarbeariaDedicada}).
+ * O tempo de serviço é zero e não há cochilos: só o custo do despacho é medido.
+ *
+ * Uso: java BenchmarkCasoC [duracaoSegundos]
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class BenchmarkCasoC {
+    private static final int[] NUMEROS_BARBEIROS = {3, 6, 12, 24, 48, 64};
+    private static final Categorias CATEGORIAS = Categorias.padrao();
+
+    /**
+     * Executa o benchmark para cada número de barbeiros e cada implementação.
+     *
+     * @param args Duração de cada rodada em segundos (padrão: 2).
+     * @throws InterruptedException Se a espera (join) por uma thread for interrompida.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long duracaoMs = (args.length > 0 ? Integer.parseInt(args[0]) : 2) * 1000L;
+
+        System.out.println("--- Benchmark do Caso C (tempo de serviço zero) ---");
+        System.out.printf("%-10s %-12s %15s %12s %10s\n", "Barbeiros", "Despacho", "Atend./s", "Rejeitados", "Perdidos");
+        for (int n : NUMEROS_BARBEIROS) {
+            int[] dedicacoes = new int[n];
+            for (int i = 0; i < n; i++) dedicacoes[i] = i % CATEGORIAS.getQuantidade();
+
+            rodar("Global", new Barbearia(CATEGORIAS), dedicacoes, duracaoMs);
+            rodar("Roubo", new BarbeariaDedicada(CATEGORIAS, dedicacoes), dedicacoes, duracaoMs);
+        }
+    }
+
+    private static void rodar(String nome, Barbearia barbearia, int[] dedicacoes, long duracaoMs)
+            throws InterruptedException {
+        long[] atendidos = new long[dedicacoes.length];
+        Thread[] barbeiros = new Thread[dedicacoes.length];
+        for (int i = 0; i < dedicacoes.length; i++) {
+            final int id = i;
+            barbeiros[i] = new Thread(() -> {
+                try {
+                    while (true) {
+                        Cliente cliente = barbearia.pegarCliente(dedicacoes[id]);
+                        if (cliente != null) {
+                            atendidos[id]++;
+                        } else if (barbearia.isSargentoDispensado() && barbearia.isBarbeariaVazia()) {
+                            break;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "Barbeiro-" + i);
+        }
+
+        long[] aceitos = new long[1];
+        long[] rejeitados = new long[1];
+        Thread sargento = new Thread(() -> {
+            long fim = System.currentTimeMillis() + duracaoMs;
+            int i = 0;
+            try {
+                while (System.currentTimeMillis() < fim) {
+                    if (barbearia.adicionarCliente(new Cliente(i++ % CATEGORIAS.getQuantidade(), 0))) {
+                        aceitos[0]++;
+                    } else {
+                        rejeitados[0]++;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            barbearia.sargentoFoiEmbora();
+        }, "Sargento");
+
+        long inicio = System.nanoTime();
+        for (Thread barbeiro : barbeiros) barbeiro.start();
+        sargento.start();
+        sargento.join();
+        for (Thread barbeiro : barbeiros) barbeiro.join();
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        long total = 0;
+        for (long a : atendidos) total += a;
+        System.out.printf("%-10d %-12s %15.0f %12d %10d\n",
+                dedicacoes.length, nome, total / segundos, rejeitados[0], aceitos[0] - total);
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Mede quantas chegadas por segundo cada processo de chegada consegue gerar e confere
+ * se a taxa observada no tempo virtual bate com a taxa média teórica do processo.
+ * Nenhuma barbearia é usada: só o custo de gerar os clientes é medido.
+ *
+ * Uso: java BenchmarkChegadas [quantidadeDeChegadas]
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class BenchmarkChegadas {
+
+    /**
+     * Executa o benchmark para cada processo de chegada.
+     *
+     * @param args Quantidade de chegadas geradas por processo (padrão: 5.000.000).
+     */
+    public static void main(String[] args) {
+        int quantidade = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        Categorias categorias = Categorias.padrao();
+
+        System.out.println("--- Benchmark dos Processos de Chegada ---");
+        System.out.printf("%-10s %18s %15s %15s\n", "Processo", "Chegadas/s (real)", "Taxa teórica", "Taxa observada");
+        for (String codigo : new String[] {"P", "M", "D"}) {
+            // Aquecimento do JIT com um gerador independente: o processo também é outro, porque
+            // o MMPP guarda a fase atual e o aquecimento a moveria antes da medição
+            GeradorChegadas aquecimento = new GeradorChegadas(GeradorChegadas.criarProcesso(codigo), categorias, 7L);
+            for (int i = 0; i < quantidade / 10; i++) aquecimento.proximo();
+
+            ProcessoChegada processo = GeradorChegadas.criarProcesso(codigo);
+            GeradorChegadas gerador = new GeradorChegadas(processo, categorias, 42L);
+
+            long somaTempos = 0; // Evita que o JIT descarte os clientes gerados
+            long inicio = System.nanoTime();
+            for (int i = 0; i < quantidade; i++) {
+                somaTempos += gerador.proximo().getTempoServico();
+            }
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+
+            System.out.printf("%-10s %18.0f %15.3f %15.3f   (soma de serviço: %d)\n", codigo, quantidade / segundos,
+                    processo.getTaxaMedia(), quantidade / gerador.getProximoInstante(), somaTempos);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Compara o caminho de objetos (Cliente em LinkedList, {@link Barbearia}) com o caminho
+ * compactado (long em anéis primitivos, {@link BarbeariaCompacta}) em vazão e pressão
+ * no coletor de lixo. Um produtor e N barbeiros, sem cochilos e com serviço zero.
+ * Relata atendimentos por segundo, bytes alocados por atendimento (somando produtor e
+ * barbeiros, pelo ThreadMXBean) e coletas de lixo durante a rodada.
+ *
+ * Uso: java BenchmarkCompacto [duracaoSegundos]
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class BenchmarkCompacto {
+    private static final int[] NUMEROS_BARBEIROS = {1, 2, 4};
+    private static final Categorias CATEGORIAS = Categorias.padrao();
+
+    /**
+     * Executa o benchmark para cada número de barbeiros e cada representação.
+     *
+     * @param args Duração de cada rodada em segundos (padrão: 2).
+     * @throws InterruptedException Se a espera (join) por uma thread for interrompida.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long duracaoMs = (args.length > 0 ? Integer.parseInt(args[0]) : 2) * 1000L;
+
+        System.out.println("--- Benchmark da Representação Compacta (tempo de serviço zero) ---");
+        System.out.printf("%-10s %-10s %14s %14s %8s %10s %10s\n",
+                "Barbeiros", "Caminho", "Atend./s", "Bytes/atend.", "GCs", "GC (ms)", "Perdidos");
+        for (int n : NUMEROS_BARBEIROS) {
+            rodar("Objeto", n, duracaoMs);
+            rodar("Compacto", n, duracaoMs);
+        }
+    }
+
+    private static void rodar(String caminho, int numeroBarbeiros, long duracaoMs) throws InterruptedException {
+        boolean compacto = caminho.equals("Compacto");
+        Barbearia barbearia = compacto ? new BarbeariaCompacta(CATEGORIAS) : new Barbearia(CATEGORIAS);
+        BarbeariaCompacta anel = compacto ? (BarbeariaCompacta) barbearia : null;
+        int niveis = CATEGORIAS.getQuantidade();
+
+        long[] atendidos = new long[numeroBarbeiros];
+        long[] bytes = new long[numeroBarbeiros + 1]; // Alocação de cada thread durante a rodada
+        Thread[] barbeiros = new Thread[numeroBarbeiros];
+        for (int i = 0; i < numeroBarbeiros; i++) {
+            final int id = i;
+            barbeiros[i] = new Thread(() -> {
+                long antes = UsoThread.medirThreadAtual("").getBytesAlocados();
+                try {
+                    while (true) {
+                        boolean pegou = compacto
+                                ? anel.retirarProximo() != ClienteCompactado.VAZIO
+                                : barbearia.pegarProximoCliente() != null;
+                        if (pegou) {
+                            atendidos[id]++;
+                        } else if (barbearia.isSargentoDispensado() && barbearia.isBarbeariaVazia()) {
+                            break;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                bytes[id] = UsoThread.medirThreadAtual("").getBytesAlocados() - antes;
+            }, "Barbeiro-" + i);
+        }
+
+        long[] aceitos = new long[1];
+        long fim = System.currentTimeMillis() + duracaoMs;
+        Thread produtor = new Thread(() -> {
+            long antes = UsoThread.medirThreadAtual("").getBytesAlocados();
+            int nivel = 0;
+            try {
+                while (System.currentTimeMillis() < fim) {
+                    nivel = nivel + 1 == niveis ? 0 : nivel + 1;
+                    boolean entrou = compacto
+                            ? anel.adicionar(ClienteCompactado.compactar(nivel, 0, anel.agoraUs()))
+                            : barbearia.adicionarCliente(new Cliente(nivel, 0));
+                    if (entrou) aceitos[0]++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            bytes[numeroBarbeiros] = UsoThread.medirThreadAtual("").getBytesAlocados() - antes;
+        }, "Produtor");
+
+        long gcsAntes = contarColetas();
+        long gcMsAntes = tempoColetasMs();
+        long inicio = System.nanoTime();
+        for (Thread t : barbeiros) t.start();
+        produtor.start();
+        produtor.join();
+        barbearia.sargentoFoiEmbora();
+        for (Thread t : barbeiros) t.join();
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        long total = 0;
+        for (long a : atendidos) total += a;
+        long bytesTotal = 0;
+        for (long b : bytes) bytesTotal += b;
+        System.out.printf("%-10d %-10s %14.0f %14.1f %8d %10d %10d\n", numeroBarbeiros, caminho, total / segundos,
+                total == 0 ? 0.0 : (double) bytesTotal / total, contarColetas() - gcsAntes,
+                tempoColetasMs() - gcMsAntes, aceitos[0] - total);
+    }
+
+    private static long contarColetas() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long tempoColetasMs() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
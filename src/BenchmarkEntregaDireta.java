@@ -0,0 +1,103 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Mede o ganho da entrega direta (um cliente que chega com um barbeiro parado vai direto para
+ * ele, sem passar pelas filas) na latência de despacho: o tempo entre o início de
+ * {@code adicionarCliente} e a volta de {@code pegarProximoCliente} no barbeiro.
+ * Compara a {@link Barbearia} com a entrega direta desligada e ligada, em carga baixa e média.
+ *
+ * Um produtor gera chegadas de Poisson e N barbeiros atendem com um tempo de serviço fixo
+ * (parkNanos). A carga é a utilização oferecida aos barbeiros: taxa x serviço / N.
+ *
+ * Uso: java BenchmarkEntregaDireta [duracaoSegundosPorRodada]
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class BenchmarkEntregaDireta {
+    private static final int BARBEIROS = 2;
+    private static final long SERVICO_NS = 200_000;
+    private static final double[] CARGAS = {0.2, 0.6};
+    private static final Categorias CATEGORIAS = Categorias.padrao();
+
+    /**
+     * Executa o benchmark para cada carga, com a entrega direta desligada e ligada.
+     *
+     * @param args Duração de cada rodada em segundos (padrão: 2).
+     * @throws InterruptedException Se a espera (join) por uma thread for interrompida.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long duracaoMs = (args.length > 0 ? Integer.parseInt(args[0]) : 2) * 1000L;
+
+        System.out.printf("--- Benchmark da Entrega Direta (%d barbeiros, serviço de %d µs) ---\n",
+                BARBEIROS, SERVICO_NS / 1000);
+        System.out.printf("%-6s %-9s %10s %10s %10s %10s %10s\n",
+                "Carga", "Entrega", "Clientes", "Diretos", "p50 (µs)", "p99 (µs)", "Média (µs)");
+        for (double carga : CARGAS) {
+            rodar(carga, false, duracaoMs);
+            rodar(carga, true, duracaoMs);
+        }
+    }
+
+    private static void rodar(double carga, boolean entregaDireta, long duracaoMs) throws InterruptedException {
+        Barbearia barbearia = new Barbearia(CATEGORIAS);
+        barbearia.setEntregaDireta(entregaDireta);
+        int niveis = CATEGORIAS.getQuantidade();
+
+        HistogramaLatencia[] latencias = new HistogramaLatencia[BARBEIROS];
+        Thread[] barbeiros = new Thread[BARBEIROS];
+        for (int i = 0; i < BARBEIROS; i++) {
+            HistogramaLatencia latencia = latencias[i] = new HistogramaLatencia();
+            barbeiros[i] = new Thread(() -> {
+                try {
+                    while (true) {
+                        Cliente cliente = barbearia.pegarProximoCliente();
+                        if (cliente != null) {
+                            latencia.registrar(System.nanoTime() - ((EstresseSaturacao.ClienteMarcado) cliente).chegadaNs);
+                            LockSupport.parkNanos(SERVICO_NS);
+                        } else if (barbearia.isSargentoDispensado() && barbearia.isBarbeariaVazia()) {
+                            break;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "Barbeiro-" + i);
+        }
+
+        // Taxa de chegada que oferece a carga pedida: carga = taxa x serviço / barbeiros
+        double intervaloMedioNs = SERVICO_NS / (carga * BARBEIROS);
+        Thread produtor = new Thread(() -> {
+            GeradorAleatorio aleatorio = new GeradorAleatorio(42);
+            long fim = System.currentTimeMillis() + duracaoMs;
+            int id = 0;
+            try {
+                long proxima = System.nanoTime();
+                while (System.currentTimeMillis() < fim) {
+                    proxima += (long) aleatorio.exponencial(1.0 / intervaloMedioNs);
+                    long espera = proxima - System.nanoTime();
+                    if (espera > 0) LockSupport.parkNanos(espera);
+                    barbearia.adicionarCliente(new EstresseSaturacao.ClienteMarcado(id++, aleatorio.proximoInt(niveis)));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "Produtor");
+
+        for (Thread t : barbeiros) t.start();
+        produtor.start();
+        produtor.join();
+        barbearia.sargentoFoiEmbora();
+        for (Thread t : barbeiros) t.join();
+
+        HistogramaLatencia total = new HistogramaLatencia();
+        for (HistogramaLatencia latencia : latencias) total.somar(latencia);
+        long diretos = 0;
+        for (int nivel = 0; nivel < niveis; nivel++) diretos += barbearia.getTotalEntregasDiretas(nivel);
+        System.out.printf("%-6s %-9s %10d %9.1f%% %10.1f %10.1f %10.1f\n",
+                String.format("%.0f%%", carga * 100), entregaDireta ? "Ligada" : "Desligada", total.getContagem(),
+                total.getContagem() == 0 ? 0.0 : 100.0 * diretos / total.getContagem(),
+                total.percentil(0.50) / 1000.0, total.percentil(0.99) / 1000.0, total.getMedia() / 1000.0);
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Compara, em tempo virtual ({@link SimulacaoVirtual}), os despachos com a equipe heterogênea
+ * padrão do Caso E ({@link Habilidades#equipePadrao(int, int)}): prioridade global, barbeiro
+ * dedicado ao nível em que é mais rápido e o roteamento por habilidade
+ * ({@link RoteadorHabilidades}). Todos respeitam quem pode atender cada categoria; o que muda
+ * é quem pega qual cliente. Para cada taxa de chegada (Poisson) imprime a vazão, a espera
+ * média ponderada pelos pesos de prioridade, o p95 da espera de cada categoria e a rejeição.
+ *
+ * Em seguida mede o custo do roteador, em ns por decisão, para equipes e números de níveis
+ * crescentes: a escolha do nível por um barbeiro livre e a escolha do barbeiro ocioso para
+ * um cliente que chega (com as marcações de ocupado e ocioso que a acompanham).
+ *
+ * Uso: java BenchmarkRoteamento [horasVirtuaisPorRodada]
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class BenchmarkRoteamento {
+    private static final int BARBEIROS = 3;
+    private static final int CADEIRAS = 20;
+    private static final int REPLICACOES = 5;
+    private static final double[] TAXAS = {0.30, 0.45, 0.55, 0.65};
+    private static final String[] DESPACHOS = {SimulacaoVirtual.GLOBAL, SimulacaoVirtual.DEDICADO, SimulacaoVirtual.HABILIDADES};
+    private static final Categorias CATEGORIAS = Categorias.padrao();
+
+    private static final int[] EQUIPES = {3, 64, 1024};
+    private static final int[] NIVEIS = {3, 64, 255};
+    private static final int DECISOES = 2_000_000;
+    private static final int AQUECIMENTO = 200_000;
+
+    /**
+     * Executa a comparação dos despachos e a medição do custo do roteador.
+     *
+     * @param args Horas virtuais de cada rodada (padrão: 4).
+     */
+    public static void main(String[] args) {
+        double duracao = (args.length > 0 ? Double.parseDouble(args[0]) : 4) * 3600;
+        compararDespachos(duracao);
+        System.out.println();
+        medirRoteador();
+    }
+
+    private static void compararDespachos(double duracao) {
+        int niveis = CATEGORIAS.getQuantidade();
+        Habilidades[] equipe = Habilidades.equipePadrao(BARBEIROS, niveis);
+        double[] pesos = RoteadorHabilidades.pesosPadrao(niveis);
+
+        System.out.printf("--- Despachos com a equipe heterogênea (%d barbeiros, %d cadeiras, %d x %.0f h virtuais) ---\n",
+                BARBEIROS, CADEIRAS, REPLICACOES, duracao / 3600);
+        for (int b = 0; b < equipe.length; b++) System.out.printf("Barbeiro %d: %s\n", b + 1, equipe[b]);
+        StringBuilder cabecalho = new StringBuilder(String.format("%-6s %-12s %10s %12s", "Taxa", "Despacho", "Atend./h", "Espera pond."));
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            cabecalho.append(String.format(" %12s", "p95 " + CATEGORIAS.getNome(nivel)));
+        }
+        System.out.println(cabecalho.append(String.format(" %10s", "Rejeição")));
+
+        for (double taxa : TAXAS) {
+            for (String despacho : DESPACHOS) {
+                HistogramaLatencia[] esperas = new HistogramaLatencia[niveis];
+                for (int nivel = 0; nivel < niveis; nivel++) esperas[nivel] = new HistogramaLatencia();
+                long aceitos = 0, rejeitados = 0;
+                for (int replicacao = 0; replicacao < REPLICACOES; replicacao++) {
+                    SimulacaoVirtual simulacao = new SimulacaoVirtual(CATEGORIAS, equipe, CADEIRAS, despacho);
+                    // Mesma semente por replicação em todos os despachos
+                    simulacao.executar(new GeradorChegadas(new ProcessoChegada.Poisson(taxa), CATEGORIAS, replicacao + 1), duracao);
+                    for (int nivel = 0; nivel < niveis; nivel++) {
+                        esperas[nivel].somar(simulacao.getEsperasMs(nivel));
+                        aceitos += simulacao.getAceitos(nivel);
+                        rejeitados += simulacao.getRejeitados(nivel);
+                    }
+                }
+
+                // Espera média ponderada: cada categoria pesa o seu peso de prioridade
+                double somaPonderada = 0, somaPesos = 0;
+                long atendidos = 0;
+                for (int nivel = 0; nivel < niveis; nivel++) {
+                    somaPonderada += pesos[nivel] * esperas[nivel].getMedia();
+                    somaPesos += pesos[nivel];
+                    atendidos += esperas[nivel].getContagem();
+                }
+                StringBuilder linha = new StringBuilder(String.format("%-6.2f %-12s %10.0f %10.2f s", taxa, despacho,
+                        atendidos * 3600.0 / (duracao * REPLICACOES), somaPonderada / somaPesos / 1000));
+                for (int nivel = 0; nivel < niveis; nivel++) {
+                    linha.append(String.format(" %10.2f s", esperas[nivel].percentil(0.95) / 1000.0));
+                }
+                long tentativas = aceitos + rejeitados;
+                System.out.println(linha.append(String.format(" %9.2f%%", tentativas == 0 ? 0.0 : rejeitados * 100.0 / tentativas)));
+            }
+        }
+    }
+
+    private static void medirRoteador() {
+        System.out.println("--- Custo do roteador (ns por decisão) ---");
+        System.out.printf("%-10s %-7s %14s %16s\n", "Barbeiros", "Níveis", "Escolha nível", "Escolha barbeiro");
+        for (int barbeiros : EQUIPES) {
+            for (int niveis : NIVEIS) {
+                GeradorAleatorio aleatorio = new GeradorAleatorio(barbeiros * 1000L + niveis);
+                RoteadorHabilidades roteador = new RoteadorHabilidades(equipeAleatoria(barbeiros, niveis, aleatorio),
+                        RoteadorHabilidades.pesosPadrao(niveis));
+
+                // Metade dos níveis com fila, com cabeças de idade e serviço variados
+                long[] naoVazias = new long[(niveis + 63) / 64];
+                double[] idades = new double[niveis];
+                double[] servicos = new double[niveis];
+                for (int nivel = 0; nivel < niveis; nivel++) {
+                    if (aleatorio.proximoDouble() < 0.5) naoVazias[nivel >>> 6] |= 1L << nivel;
+                    idades[nivel] = aleatorio.proximoDouble() * 60;
+                    servicos[nivel] = 1 + aleatorio.proximoDouble() * 5;
+                }
+                RoteadorHabilidades.Cabecas cabecas = new RoteadorHabilidades.Cabecas() {
+                    @Override
+                    public double getIdadeCabeca(int nivel) {
+                        return idades[nivel];
+                    }
+
+                    @Override
+                    public double getServicoCabeca(int nivel) {
+                        return servicos[nivel];
+                    }
+                };
+                // Metade da equipe ociosa
+                for (int b = 0; b < barbeiros; b += 2) roteador.marcarOcioso(b);
+
+                int[] sorteados = new int[1024];
+                for (int i = 0; i < sorteados.length; i++) sorteados[i] = (int) (aleatorio.proximoDouble() * barbeiros * niveis);
+
+                medirNivel(roteador, naoVazias, cabecas, sorteados, barbeiros, AQUECIMENTO);
+                double nsNivel = medirNivel(roteador, naoVazias, cabecas, sorteados, barbeiros, DECISOES);
+                medirBarbeiro(roteador, sorteados, niveis, AQUECIMENTO);
+                double nsBarbeiro = medirBarbeiro(roteador, sorteados, niveis, DECISOES);
+                System.out.printf("%-10d %-7d %14.1f %16.1f\n", barbeiros, niveis, nsNivel, nsBarbeiro);
+            }
+        }
+    }
+
+    /**
+     * Cada barbeiro atende o nível b % níveis e cerca de metade dos outros, com fatores de 0.5 a 2.
+     */
+    private static Habilidades[] equipeAleatoria(int barbeiros, int niveis, GeradorAleatorio aleatorio) {
+        Habilidades[] equipe = new Habilidades[barbeiros];
+        for (int b = 0; b < barbeiros; b++) {
+            double[] fatores = new double[niveis];
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                boolean apto = nivel == b % niveis || aleatorio.proximoDouble() < 0.5;
+                fatores[nivel] = apto ? 0.5 + aleatorio.proximoDouble() * 1.5 : Double.NaN;
+            }
+            equipe[b] = new Habilidades(fatores);
+        }
+        // Com menos barbeiros que níveis, um generalista garante que todo nível tem quem o atenda
+        if (barbeiros < niveis) equipe[0] = Habilidades.generalista(niveis);
+        return equipe;
+    }
+
+    private static double medirNivel(RoteadorHabilidades roteador, long[] naoVazias, RoteadorHabilidades.Cabecas cabecas,
+                                     int[] sorteados, int barbeiros, int decisoes) {
+        long soma = 0; // Consumido no fim para o JIT não descartar as chamadas
+        long inicio = System.nanoTime();
+        for (int i = 0; i < decisoes; i++) {
+            soma += roteador.escolherNivel(sorteados[i & 1023] % barbeiros, naoVazias, cabecas);
+        }
+        long decorrido = System.nanoTime() - inicio;
+        if (soma == Long.MIN_VALUE) System.out.println(soma);
+        return (double) decorrido / decisoes;
+    }
+
+    private static double medirBarbeiro(RoteadorHabilidades roteador, int[] sorteados, int niveis, int decisoes) {
+        long soma = 0;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < decisoes; i++) {
+            int b = roteador.escolherBarbeiroOcioso(sorteados[i & 1023] % niveis);
+            if (b >= 0) {
+                // Atende e volta a ficar ocioso, para o estado da equipe não mudar entre as decisões
+                roteador.marcarOcupado(b);
+                roteador.marcarOcioso(b);
+            }
+            soma += b;
+        }
+        long decorrido = System.nanoTime() - inicio;
+        if (soma == Long.MIN_VALUE) System.out.println(soma);
+        return (double) decorrido / decisoes;
+    }
+}
@@ -0,0 +1,236 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador de carga externo para o {@link GatewayChegadas}: abre N conexões TCP ou UDP com o
+ * gateway e envia chegadas a uma taxa fixa por conexão, medindo a latência de admissão
+ * (do envio até a resposta, pelo carimbo devolvido) e contando aceitas, rejeitadas e perdidas.
+ * Cada conexão tem uma thread que envia e outra que lê as respostas; chegadas que vencem
+ * juntas vão na mesma escrita (ou no mesmo datagrama, até
+ * {@value GatewayChegadas#MAX_MENSAGENS_DATAGRAMA}).
+ *
+ * Com a porta, alimenta uma simulação em outro processo (iniciada com
+ * {@code -Dbarbearia.gateway=porta}). Com "local", sobe no próprio processo uma barbearia com
+ * dois barbeiros de serviço zero e um gateway em uma porta livre, para medir só o gateway
+ * ({@code -Dbarbearia.compacta=true} usa a {@link BarbeariaCompacta}).
+ *
+ * Uso: java CargaGateway [porta|local] [tcp|udp] [conexoes] [clientesPorSegundoPorConexao] [segundos]
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class CargaGateway {
+    private static final int BARBEIROS_LOCAIS = 2;
+    private static final long ESPERA_RESPOSTAS_MS = 2000; // Depois do último envio
+    private static final Categorias CATEGORIAS = Categorias.padrao();
+
+    /**
+     * Uma conexão com o gateway e o que foi medido nela.
+     */
+    private static final class Conexao {
+        final ByteChannel canal;
+        final boolean udp;
+        final HistogramaLatencia latencia = new HistogramaLatencia(); // Só a thread de leitura escreve
+        volatile long enviadas = 0;
+        volatile long respostas = 0;
+        long aceitas = 0;
+        long rejeitadas = 0;
+        long invalidas = 0;
+
+        Conexao(ByteChannel canal, boolean udp) {
+            this.canal = canal;
+            this.udp = udp;
+        }
+    }
+
+    /**
+     * Executa a carga e imprime o resultado.
+     *
+     * @param args Porta ou "local" (padrão: local), protocolo (padrão: tcp), conexões (padrão: 4),
+     *             clientes por segundo por conexão (padrão: 2000) e duração em segundos (padrão: 3).
+     * @throws IOException Se não for possível conectar ao gateway.
+     * @throws InterruptedException Se a espera (join) por uma thread for interrompida.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean local = args.length == 0 || args[0].equalsIgnoreCase("local");
+        boolean udp = args.length > 1 && args[1].equalsIgnoreCase("udp");
+        int quantidade = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        double taxa = args.length > 3 ? Double.parseDouble(args[3]) : 2000;
+        long duracaoMs = (args.length > 4 ? Integer.parseInt(args[4]) : 3) * 1000L;
+
+        Barbearia barbearia = null;
+        GatewayChegadas gateway = null;
+        Thread gatewayThread = null;
+        Thread[] barbeiros = new Thread[0];
+        int porta;
+        if (local) {
+            barbearia = Boolean.getBoolean("barbearia.compacta") ? new BarbeariaCompacta(CATEGORIAS) : new Barbearia(CATEGORIAS);
+            barbeiros = iniciarBarbeiros(barbearia);
+            gateway = new GatewayChegadas(barbearia, 0);
+            porta = gateway.getPorta();
+            gatewayThread = new Thread(gateway, "GatewayChegadas");
+            gatewayThread.start();
+        } else {
+            porta = Integer.parseInt(args[0]);
+        }
+
+        System.out.printf("--- Carga no Gateway de Chegadas (%s, %d conexões, %.0f clientes/s cada, %d s) ---\n",
+                udp ? "UDP" : "TCP", quantidade, taxa, duracaoMs / 1000);
+        InetSocketAddress endereco = new InetSocketAddress(InetAddress.getLoopbackAddress(), porta);
+        Conexao[] conexoes = new Conexao[quantidade];
+        Thread[] threads = new Thread[2 * quantidade];
+        long fim = System.currentTimeMillis() + duracaoMs;
+        for (int i = 0; i < quantidade; i++) {
+            Conexao conexao = conexoes[i] = new Conexao(conectar(endereco, udp), udp);
+            int semente = i;
+            threads[2 * i] = new Thread(() -> enviar(conexao, taxa, fim, semente), "Envio-" + i);
+            threads[2 * i + 1] = new Thread(() -> receber(conexao), "Respostas-" + i);
+        }
+        for (Thread t : threads) t.start();
+        for (int i = 0; i < quantidade; i++) threads[2 * i].join();
+
+        // Espera as respostas em trânsito; no UDP as que não vierem são contadas como perdidas
+        long limite = System.currentTimeMillis() + ESPERA_RESPOSTAS_MS;
+        for (Conexao conexao : conexoes) {
+            while (conexao.respostas < conexao.enviadas && System.currentTimeMillis() < limite) Thread.sleep(10);
+            conexao.canal.close();
+        }
+        for (int i = 0; i < quantidade; i++) threads[2 * i + 1].join();
+
+        imprimir(conexoes, duracaoMs);
+
+        if (local) {
+            gateway.encerrar();
+            gatewayThread.join();
+            barbearia.sargentoFoiEmbora();
+            for (Thread t : barbeiros) t.join();
+            System.out.printf("Gateway: %d lotes, %.1f mensagens por lote em média.\n",
+                    gateway.getLotes(), gateway.getLotes() == 0 ? 0.0 : (double) gateway.getMensagens() / gateway.getLotes());
+        }
+    }
+
+    private static ByteChannel conectar(InetSocketAddress endereco, boolean udp) throws IOException {
+        if (udp) {
+            DatagramChannel canal = DatagramChannel.open();
+            canal.connect(endereco);
+            return canal;
+        }
+        SocketChannel canal = SocketChannel.open(endereco);
+        canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        return canal;
+    }
+
+    /**
+     * Envia chegadas até o fim, no ritmo da taxa: a cada volta, todas as que já venceram.
+     */
+    private static void enviar(Conexao conexao, double taxa, long fim, int semente) {
+        GeradorAleatorio aleatorio = new GeradorAleatorio(semente);
+        ByteBuffer buffer = ByteBuffer.allocate(GatewayChegadas.MAX_MENSAGENS_DATAGRAMA * GatewayChegadas.TAMANHO_MENSAGEM);
+        long inicioNs = System.nanoTime();
+        long intervaloNs = (long) (1e9 / taxa);
+        int sequencia = 0;
+        try {
+            while (System.currentTimeMillis() < fim) {
+                long devidas = (System.nanoTime() - inicioNs) / intervaloNs + 1 - sequencia;
+                if (devidas <= 0) {
+                    LockSupport.parkNanos(inicioNs + sequencia * intervaloNs - System.nanoTime());
+                    continue;
+                }
+                buffer.clear();
+                for (int i = 0; i < devidas && buffer.hasRemaining(); i++) {
+                    buffer.putInt(sequencia++);
+                    buffer.put((byte) aleatorio.proximoInt(CATEGORIAS.getQuantidade()));
+                    buffer.put((byte) 0);
+                    buffer.putShort((short) 1); // Tempo de serviço em segundos
+                    buffer.putLong(System.nanoTime());
+                }
+                buffer.flip();
+                int mensagens = buffer.remaining() / GatewayChegadas.TAMANHO_MENSAGEM;
+                while (buffer.hasRemaining()) conexao.canal.write(buffer);
+                conexao.enviadas += mensagens;
+            }
+        } catch (IOException e) {
+            System.out.println("Falha ao enviar: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lê as respostas até a conexão ser fechada, registrando a latência de cada uma.
+     */
+    private static void receber(Conexao conexao) {
+        ByteBuffer buffer = ByteBuffer.allocate(GatewayChegadas.MAX_MENSAGENS_DATAGRAMA * GatewayChegadas.TAMANHO_MENSAGEM);
+        try {
+            while (true) {
+                if (conexao.canal.read(buffer) < 0) return;
+                long agora = System.nanoTime();
+                buffer.flip();
+                while (buffer.remaining() >= GatewayChegadas.TAMANHO_MENSAGEM) {
+                    buffer.getInt(); // Sequência
+                    byte situacao = buffer.get();
+                    buffer.get();
+                    buffer.getShort(); // Cadeiras livres
+                    conexao.latencia.registrar(agora - buffer.getLong());
+                    if (situacao == GatewayChegadas.ACEITO) {
+                        conexao.aceitas++;
+                    } else if (situacao == GatewayChegadas.REJEITADO) {
+                        conexao.rejeitadas++;
+                    } else {
+                        conexao.invalidas++;
+                    }
+                    conexao.respostas++;
+                }
+                if (conexao.udp) {
+                    buffer.clear(); // Um datagrama truncado não deixa resto útil
+                } else {
+                    buffer.compact();
+                }
+            }
+        } catch (IOException e) {
+            // Conexão fechada pelo main depois das respostas em trânsito
+        }
+    }
+
+    private static void imprimir(Conexao[] conexoes, long duracaoMs) {
+        HistogramaLatencia total = new HistogramaLatencia();
+        long enviadas = 0, respostas = 0, aceitas = 0, rejeitadas = 0, invalidas = 0;
+        for (Conexao conexao : conexoes) {
+            total.somar(conexao.latencia);
+            enviadas += conexao.enviadas;
+            respostas += conexao.respostas;
+            aceitas += conexao.aceitas;
+            rejeitadas += conexao.rejeitadas;
+            invalidas += conexao.invalidas;
+        }
+        System.out.printf("%10s %10s %10s %10s %9s %9s %10s %10s %10s %10s\n", "Enviadas", "Respostas", "Aceitas",
+                "Rejeitadas", "Inválidas", "Perdidas", "Resp./s", "p50 (us)", "p99 (us)", "Máx (us)");
+        System.out.printf("%10d %10d %10d %10d %9d %9d %10.0f %10.1f %10.1f %10.1f\n", enviadas, respostas, aceitas,
+                rejeitadas, invalidas, enviadas - respostas, respostas * 1000.0 / duracaoMs,
+                total.percentil(0.50) / 1000.0, total.percentil(0.99) / 1000.0, total.getMaximo() / 1000.0);
+    }
+
+    private static Thread[] iniciarBarbeiros(Barbearia barbearia) {
+        Thread[] barbeiros = new Thread[BARBEIROS_LOCAIS];
+        for (int i = 0; i < barbeiros.length; i++) {
+            barbeiros[i] = new Thread(() -> {
+                try {
+                    while (true) {
+                        Cliente cliente = barbearia.pegarProximoCliente(); // Serviço zero
+                        if (cliente == null && barbearia.isSargentoDispensado() && barbearia.isBarbeariaVazia()) break;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "Barbeiro-" + i);
+            barbeiros[i].start();
+        }
+        return barbeiros;
+    }
+}
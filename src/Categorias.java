@@ -0,0 +1,125 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuração das categorias (níveis de prioridade) de clientes da simulação.
+ * O nível 0 é o de maior prioridade; cada nível tem um nome e uma distribuição
+ * própria de tempo de serviço. A configuração é definida na inicialização e não muda
+ * durante a simulação, então pode ser compartilhada entre as threads sem lock.
+ *
+ * Formato aceito por {@link #ler(String)}: {@code NOME:tempo,NOME:tempo,...},
+ * em ordem decrescente de prioridade, com os tempos em segundos. O tempo pode ser
+ * {@code min-max} (uniforme), {@code n} (constante) ou {@code expM} (exponencial de média M).
+ * Exemplo (configuração padrão): {@code OFICIAL:4-6,SARGENTO:2-4,CABO:1-3}.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class Categorias {
+    /** Especificação das três categorias do trabalho prático. [cite: 17] */
+    public static final String ESPECIFICACAO_PADRAO = "OFICIAL:4-6,SARGENTO:2-4,CABO:1-3";
+
+    private final String[] nomes;
+    private final DistribuicaoServico[] distribuicoes; // Tempo de serviço de cada nível
+
+    /**
+     * Constrói a configuração a partir de arrays indexados por nível.
+     *
+     * @param nomes O nome de cada nível, do mais prioritário ao menos prioritário.
+     * @param distribuicoes A distribuição do tempo de serviço de cada nível.
+     */
+    public Categorias(String[] nomes, DistribuicaoServico[] distribuicoes) {
+        if (nomes.length == 0 || nomes.length != distribuicoes.length) {
+            throw new IllegalArgumentException("Configuração de categorias inconsistente.");
+        }
+        this.nomes = nomes.clone();
+        this.distribuicoes = distribuicoes.clone();
+    }
+
+    /**
+     * Retorna a configuração padrão do trabalho prático: Oficiais, Sargentos e Cabos.
+     */
+    public static Categorias padrao() {
+        return ler(ESPECIFICACAO_PADRAO);
+    }
+
+    /**
+     * Lê uma configuração no formato descrito na documentação da classe.
+     *
+     * @param especificacao O texto da configuração.
+     * @return A configuração lida.
+     * @throws IllegalArgumentException se o texto estiver mal formatado.
+     */
+    public static Categorias ler(String especificacao) {
+        List<String> nomes = new ArrayList<>();
+        List<DistribuicaoServico> distribuicoes = new ArrayList<>();
+        for (String item : especificacao.split(",")) {
+            String[] partes = item.trim().split(":");
+            if (partes.length != 2) {
+                throw new IllegalArgumentException("Categoria mal formatada: " + item);
+            }
+            String tempo = partes[1].trim();
+            try {
+                if (tempo.startsWith("exp")) {
+                    distribuicoes.add(DistribuicaoServico.exponencial(Double.parseDouble(tempo.substring(3))));
+                } else {
+                    String[] faixa = tempo.split("-");
+                    int min = Integer.parseInt(faixa[0].trim());
+                    int max = faixa.length > 1 ? Integer.parseInt(faixa[1].trim()) : min;
+                    distribuicoes.add(min == max ? DistribuicaoServico.constante(min) : DistribuicaoServico.uniforme(min, max));
+                }
+                nomes.add(partes[0].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Tempo de serviço mal formatado: " + item, e);
+            }
+        }
+        return new Categorias(nomes.toArray(new String[0]), distribuicoes.toArray(new DistribuicaoServico[0]));
+    }
+
+    /**
+     * Retorna o número de níveis de prioridade configurados.
+     */
+    public int getQuantidade() {
+        return nomes.length;
+    }
+
+    /**
+     * Retorna o nome de um nível, ou "PAUSA" para {@link Cliente#PAUSA}.
+     */
+    public String getNome(int nivel) {
+        return nivel == Cliente.PAUSA ? "PAUSA" : nomes[nivel];
+    }
+
+    /**
+     * Retorna a distribuição do tempo de serviço de um nível.
+     */
+    public DistribuicaoServico getDistribuicao(int nivel) {
+        return distribuicoes[nivel];
+    }
+
+    /**
+     * Sorteia o tempo de serviço de um cliente do nível informado.
+     *
+     * @return O tempo de serviço em segundos, segundo a distribuição do nível.
+     */
+    public int sortearTempoServico(int nivel, GeradorAleatorio aleatorio) {
+        return distribuicoes[nivel].sortear(aleatorio);
+    }
+
+    /**
+     * Gera um cliente aleatório seguindo as regras do trabalho prático, generalizadas para N níveis:
+     * sorteia uniformemente entre a PAUSA e cada um dos níveis configurados. [cite: 35, 37]
+     *
+     * @param aleatorio O gerador de números aleatórios a usar.
+     * @return Uma nova instância de Cliente (possivelmente uma PAUSA).
+     */
+    public Cliente gerarClienteAleatorio(GeradorAleatorio aleatorio) {
+        int sorteio = aleatorio.proximoInt(nomes.length + 1);
+        if (sorteio == 0) {
+            return new Cliente(Cliente.PAUSA, 0);
+        }
+        int nivel = sorteio - 1;
+        return new Cliente(nivel, sortearTempoServico(nivel, aleatorio));
+    }
+}
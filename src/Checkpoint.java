@@ -0,0 +1,156 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel; // Leitura e escrita do arquivo com NIO
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Grava e lê checkpoints binários de uma simulação em andamento, para que ela possa
+ * ser pausada e retomada (inclusive depois que a JVM parar).
+ * O arquivo contém um cabeçalho, o estado da Barbearia (filas com a espera já
+ * acumulada e o prazo de desistência de cada cliente, contadores, desistências,
+ * estatísticas e atendimentos em andamento com o tempo que falta) e o estado do Sargento Tainha
+ * (contadores, estado do gerador aleatório e do processo de chegada).
+ * O checkpoint é escrito em um arquivo temporário e renomeado no final, então um
+ * checkpoint interrompido nunca substitui o anterior.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public final class Checkpoint {
+    private static final int MAGICO = 0x42524252; // "BRBR"
+    // 3: atendimentos em andamento retomados, não contados como concluídos
+    // 4: desistências por nível e o prazo de desistência de cada cliente na fila
+    // 5: entregas diretas por nível
+    private static final short VERSAO = 5;
+
+    private Checkpoint() {
+    }
+
+    /**
+     * Buffer de escrita que cresce conforme necessário.
+     * Os componentes escrevem seu estado aqui em memória; o arquivo só é tocado depois.
+     */
+    public static final class Escritor {
+        private ByteBuffer buffer;
+
+        Escritor(int capacidadeInicial) {
+            buffer = ByteBuffer.allocate(capacidadeInicial);
+        }
+
+        private void garantir(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer maior = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                maior.put(buffer);
+                buffer = maior;
+            }
+        }
+
+        public void putByte(byte valor) {
+            garantir(1);
+            buffer.put(valor);
+        }
+
+        public void putInt(int valor) {
+            garantir(4);
+            buffer.putInt(valor);
+        }
+
+        public void putLong(long valor) {
+            garantir(8);
+            buffer.putLong(valor);
+        }
+
+        public void putDouble(double valor) {
+            garantir(8);
+            buffer.putDouble(valor);
+        }
+
+        /**
+         * Acrescenta tudo o que já foi escrito em outro escritor.
+         */
+        public void putBytes(Escritor outro) {
+            ByteBuffer dados = outro.paraLeitura();
+            garantir(dados.remaining());
+            buffer.put(dados);
+        }
+
+        ByteBuffer paraLeitura() {
+            ByteBuffer copia = buffer.duplicate();
+            copia.flip();
+            return copia;
+        }
+    }
+
+    /**
+     * Captura o estado da simulação e o grava no arquivo.
+     * Deve ser chamado pela thread do Sargento Tainha entre duas chegadas, que é o único
+     * ponto em que o estado do produtor e o da barbearia são consistentes entre si.
+     * As filas e as estatísticas ficam travadas juntas só durante a cópia em memória das
+     * filas, dos contadores e dos atendimentos em andamento (no máximo a capacidade da
+     * barbearia); as listas de tempos são copiadas depois, só com o lock das estatísticas, e
+     * a escrita no disco acontece sem nenhum lock.
+     *
+     * @param arquivo O arquivo de destino.
+     * @param barbearia A barbearia a ser salva.
+     * @param sargento O produtor a ser salvo.
+     * @return O tamanho do checkpoint em bytes.
+     * @throws IOException se a gravação falhar.
+     * @throws InterruptedException se a thread for interrompida ao adquirir um lock.
+     */
+    public static int gravar(Path arquivo, Barbearia barbearia, SargentoTainha sargento)
+            throws IOException, InterruptedException {
+        Escritor escritor = new Escritor(4096);
+        escritor.putInt(MAGICO);
+        escritor.putInt(VERSAO);
+        barbearia.capturarEstado(escritor);
+        sargento.capturarEstado(escritor);
+
+        ByteBuffer dados = escritor.paraLeitura();
+        int tamanho = dados.remaining();
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (dados.hasRemaining()) {
+                canal.write(dados);
+            }
+            canal.force(true);
+        }
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return tamanho;
+    }
+
+    /**
+     * Lê um checkpoint e valida o cabeçalho.
+     * O buffer retornado deve ser passado, nesta ordem, para
+     * {@link Barbearia#restaurarEstado(ByteBuffer)} e {@link SargentoTainha#restaurarEstado(ByteBuffer)}.
+     *
+     * @param arquivo O arquivo de checkpoint.
+     * @return O conteúdo posicionado logo após o cabeçalho.
+     * @throws IOException se a leitura falhar ou o arquivo não for um checkpoint válido.
+     */
+    public static ByteBuffer ler(Path arquivo) throws IOException {
+        ByteBuffer dados;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho > Integer.MAX_VALUE) throw new IOException("Checkpoint grande demais: " + arquivo);
+            dados = ByteBuffer.allocate((int) tamanho);
+            while (dados.hasRemaining() && canal.read(dados) >= 0) {
+                // Lê até o fim do arquivo
+            }
+        }
+        dados.flip();
+        if (dados.remaining() < 8 || dados.getInt() != MAGICO) {
+            throw new IOException("Arquivo não é um checkpoint da barbearia: " + arquivo);
+        }
+        int versao = dados.getInt();
+        if (versao != VERSAO) {
+            throw new IOException("Versão de checkpoint não suportada: " + versao);
+        }
+        return dados;
+    }
+}
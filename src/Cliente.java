@@ -1,12 +1,12 @@
 // NENHUMA linha de 'package' aqui
 
-import java.util.Random;
-
 /**
  * Representa um único cliente da barbearia.
- * Esta é uma classe de dados (POJO) que armazena a categoria do cliente,
+ * Esta é uma classe de dados (POJO) que armazena o nível de prioridade do cliente,
  * o tempo necessário para seu atendimento e o momento de sua criação para
  * calcular o tempo de espera.
+ * Os níveis são definidos pela configuração em {@link Categorias}: o nível 0 é o
+ * de maior prioridade (Oficiais, na configuração padrão).
  *
  * @author Matheus Rocha
  * @author Guilherme Sahdo
@@ -15,39 +15,59 @@ import java.util.Random;
 
 public class Cliente {
 	/**
-     * Enumeração para as categorias de clientes, que também definem a prioridade de atendimento.
-     * A categoria PAUSA é um evento especial para indicar que não havia ninguém na fila externa. [cite: 35, 37]
+     * Nível especial que indica que não havia ninguém na fila externa. [cite: 35, 37]
+     * Uma PAUSA nunca entra nas filas da barbearia.
      */
-    public enum Categoria {
-        OFICIAL,    // Prioridade mais alta
-        SARGENTO,   // Prioridade média
-        CABO,       // Prioridade mais baixa
-        PAUSA       // Categoria 0 para indicar que não há ninguém na fila
-    }
+    public static final int PAUSA = -1;
 
-    private Categoria categoria;
+    private int nivel; // Nível de prioridade: 0 é o mais alto
     private int tempoServico; // Duração do corte de cabelo em segundos
     private long tempoChegada; // Momento em que o cliente foi criado
 
+    // Desistência (ver Barbearia#configurarDesistencia), protegidos pela trava da fila em que o cliente está
+    private RodaTemporizacao.Entrada<Cliente> prazoDesistencia; // null se não há paciência configurada
+    private boolean desistiu = false;
+
     /**
      * Constrói uma nova instância de Cliente.
      * O tempo de chegada é registrado automaticamente no momento da criação.
      *
-     * @param categoria A categoria do cliente (OFICIAL, SARGENTO, CABO).
+     * @param nivel O nível de prioridade do cliente (0 é o mais alto), ou {@link #PAUSA}.
      * @param tempoServico O tempo em segundos necessário para atender este cliente.
      */
-    public Cliente(Categoria categoria, int tempoServico) {
-        this.categoria = categoria;
+    public Cliente(int nivel, int tempoServico) {
+        this.nivel = nivel;
         this.tempoServico = tempoServico;
         this.tempoChegada = System.currentTimeMillis();
     }
 
     /**
-     * Retorna a categoria do cliente.
-     * @return A categoria do cliente.
+     * Constrói um Cliente com um tempo de chegada explícito.
+     * Usado ao restaurar um checkpoint, para que a espera já acumulada seja mantida.
+     *
+     * @param nivel O nível de prioridade do cliente (0 é o mais alto).
+     * @param tempoServico O tempo em segundos necessário para atender este cliente.
+     * @param tempoChegada O timestamp de chegada em milissegundos.
+     */
+    public Cliente(int nivel, int tempoServico, long tempoChegada) {
+        this.nivel = nivel;
+        this.tempoServico = tempoServico;
+        this.tempoChegada = tempoChegada;
+    }
+
+    /**
+     * Retorna o nível de prioridade do cliente.
+     * @return O nível do cliente (0 é o mais alto), ou {@link #PAUSA}.
      */
-    public Categoria getCategoria() {
-        return categoria;
+    public int getNivel() {
+        return nivel;
+    }
+
+    /**
+     * Indica se este "cliente" é, na verdade, uma pausa na fila externa.
+     */
+    public boolean isPausa() {
+        return nivel == PAUSA;
     }
 
     /**
@@ -66,40 +86,22 @@ public class Cliente {
         return tempoChegada;
     }
 
+    RodaTemporizacao.Entrada<Cliente> getPrazoDesistencia() {
+        return prazoDesistencia;
+    }
+
+    void setPrazoDesistencia(RodaTemporizacao.Entrada<Cliente> prazoDesistencia) {
+        this.prazoDesistencia = prazoDesistencia;
+    }
+
     /**
-     * Método de fábrica estático para gerar um cliente com categoria e tempo de serviço aleatórios,
-     * seguindo as regras do trabalho prático.
-     * @return Uma nova instância de Cliente.
+     * Indica se o cliente perdeu a paciência e saiu da fila sem ser atendido.
      */
-    public static Cliente gerarClienteAleatorio() {
-        Random random = new Random();
-        int tipoCategoria = random.nextInt(4);
-
-        Categoria categoria;
-        int tempoServico = 0;
+    public boolean isDesistiu() {
+        return desistiu;
+    }
 
-        switch (tipoCategoria) {
-            case 0:
-                categoria = Categoria.PAUSA;
-                tempoServico = 0;
-                break;
-            case 1:
-                categoria = Categoria.OFICIAL;
-                tempoServico = random.nextInt(3) + 4; // 4 a 6 segundos [cite: 17]
-                break;
-            case 2:
-                categoria = Categoria.SARGENTO;
-                tempoServico = random.nextInt(3) + 2; // 2 a 4 segundos [cite: 17]
-                break;
-            case 3:
-                categoria = Categoria.CABO;
-                tempoServico = random.nextInt(3) + 1; // 1 a 3 segundos [cite: 17]
-                break;
-            default:
-                categoria = Categoria.PAUSA;
-                tempoServico = 0;
-                break;
-        }
-        return new Cliente(categoria, tempoServico);
+    void marcarDesistencia() {
+        this.desistiu = true;
     }
-}
\ No newline at end of file
+}
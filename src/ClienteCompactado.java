@@ -0,0 +1,56 @@
+/**
+ * Representação de um cliente em um único {@code long}, sem objeto nenhum.
+ * Usada pela {@link BarbeariaCompacta} para guardar clientes em arrays primitivos.
+ *
+ * Layout dos 64 bits:
+ * nível (8 bits, 0 a 254) | tempo de serviço em segundos (16 bits) | chegada em
+ * microssegundos desde a origem da barbearia (40 bits, cerca de 12 dias).
+ * O valor {@link #VAZIO} (todos os bits ligados) nunca é um cliente válido.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public final class ClienteCompactado {
+    /** Indica "nenhum cliente"; corresponde ao nível 255, que não é aceito. */
+    public static final long VAZIO = -1L;
+
+    public static final int MAX_NIVEL = 254;
+    public static final int MAX_TEMPO_SERVICO = 0xFFFF;
+    public static final long MAX_CHEGADA_US = (1L << 40) - 1;
+
+    private ClienteCompactado() {
+    }
+
+    /**
+     * Compacta os campos de um cliente.
+     *
+     * @param nivel O nível de prioridade (0 a {@link #MAX_NIVEL}).
+     * @param tempoServico O tempo de serviço em segundos (0 a {@link #MAX_TEMPO_SERVICO}).
+     * @param chegadaUs O instante de chegada em microssegundos desde a origem (0 a {@link #MAX_CHEGADA_US}).
+     * @return O cliente compactado.
+     * @throws IllegalArgumentException se algum campo não couber no seu espaço.
+     */
+    public static long compactar(int nivel, int tempoServico, long chegadaUs) {
+        if (nivel < 0 || nivel > MAX_NIVEL) throw new IllegalArgumentException("Nível fora do intervalo: " + nivel);
+        if (tempoServico < 0 || tempoServico > MAX_TEMPO_SERVICO) {
+            throw new IllegalArgumentException("Tempo de serviço fora do intervalo: " + tempoServico);
+        }
+        if (chegadaUs < 0 || chegadaUs > MAX_CHEGADA_US) {
+            throw new IllegalArgumentException("Chegada fora do intervalo: " + chegadaUs);
+        }
+        return ((long) nivel << 56) | ((long) tempoServico << 40) | chegadaUs;
+    }
+
+    public static int getNivel(long cliente) {
+        return (int) (cliente >>> 56);
+    }
+
+    public static int getTempoServico(long cliente) {
+        return (int) (cliente >>> 40) & 0xFFFF;
+    }
+
+    public static long getChegadaUs(long cliente) {
+        return cliente & MAX_CHEGADA_US;
+    }
+}
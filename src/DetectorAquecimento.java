@@ -0,0 +1,160 @@
+import java.util.Arrays;
+
+/**
+ * Detecta o fim do aquecimento (transiente inicial) de uma série de observações pela regra
+ * MSER-5: as observações são agrupadas em lotes de {@value #TAMANHO_LOTE} e o ponto de corte d
+ * é o que minimiza o erro padrão da média dos lotes restantes,
+ * MSER(d) = Σ_{i>d} (X_i - média_d)² / (n - d)².
+ * Cortes na segunda metade da série não são aceitos: indicam que o aquecimento ainda não acabou.
+ *
+ * A precisão da média em regime permanente é estimada por médias de lotes: os lotes restantes
+ * são reagrupados em {@value #GRUPOS} grupos, cuja variância dá o intervalo de confiança de 95%.
+ * Não é thread-safe: a {@link Barbearia} o protege com o mutex de estatísticas.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class DetectorAquecimento {
+    public static final int TAMANHO_LOTE = 5;
+    private static final int MIN_LOTES = 20; // Menos que isso não dá para separar aquecimento de ruído
+    private static final int GRUPOS = 10;
+    private static final double T_95 = 2.262; // t de Student, 95% bilateral, GRUPOS - 1 graus de liberdade
+
+    /**
+     * Métricas da barbearia separadas em aquecimento e regime permanente, montadas por
+     * {@link Barbearia#resumirAquecimento()}. Tempos em segundos.
+     */
+    public static final class Resumo {
+        public final boolean detectado;
+        public final int lotes;
+        public final double segundosAquecimento;
+        public final long clientesDescartados;
+        public final double mediaPermanente;  // Espera média de todos os níveis depois do corte
+        public final double meiaLargura;      // Meia largura do intervalo de 95% dessa média
+        public final double[] esperaAquecimento;
+        public final double[] esperaPermanente;
+        public final double[] comprimentoAquecimento;
+        public final double[] comprimentoPermanente;
+
+        Resumo(boolean detectado, int lotes, double segundosAquecimento, long clientesDescartados,
+               double mediaPermanente, double meiaLargura, double[] esperaAquecimento, double[] esperaPermanente,
+               double[] comprimentoAquecimento, double[] comprimentoPermanente) {
+            this.detectado = detectado;
+            this.lotes = lotes;
+            this.segundosAquecimento = segundosAquecimento;
+            this.clientesDescartados = clientesDescartados;
+            this.mediaPermanente = mediaPermanente;
+            this.meiaLargura = meiaLargura;
+            this.esperaAquecimento = esperaAquecimento;
+            this.esperaPermanente = esperaPermanente;
+            this.comprimentoAquecimento = comprimentoAquecimento;
+            this.comprimentoPermanente = comprimentoPermanente;
+        }
+    }
+
+    private double[] medias = new double[64]; // Média de cada lote fechado
+    private int lotes = 0;
+    private double somaLote = 0;
+    private int noLote = 0;
+
+    /**
+     * Registra uma observação.
+     *
+     * @param valor O valor observado.
+     * @return true se a observação fechou um lote.
+     */
+    public boolean registrar(double valor) {
+        somaLote += valor;
+        if (++noLote < TAMANHO_LOTE) return false;
+        if (lotes == medias.length) medias = Arrays.copyOf(medias, lotes * 2);
+        medias[lotes++] = somaLote / TAMANHO_LOTE;
+        somaLote = 0;
+        noLote = 0;
+        return true;
+    }
+
+    /**
+     * Retorna o número de lotes fechados.
+     */
+    public int getLotes() {
+        return lotes;
+    }
+
+    /**
+     * Calcula o ponto de corte MSER-5 em O(n), com somas acumuladas do fim para o começo.
+     *
+     * @return O número de lotes de aquecimento a descartar, ou -1 se ainda não há lotes
+     *         suficientes ou se o corte cairia na segunda metade da série.
+     */
+    public int getTruncamento() {
+        if (lotes < MIN_LOTES) return -1;
+        double soma = 0;
+        double somaQuadrados = 0;
+        double melhor = Double.POSITIVE_INFINITY;
+        int corte = -1;
+        for (int d = lotes - 1; d >= 0; d--) {
+            soma += medias[d];
+            somaQuadrados += medias[d] * medias[d];
+            if (d > lotes / 2) continue; // Só cortes na primeira metade são candidatos
+            int restantes = lotes - d;
+            double desvios = somaQuadrados - soma * soma / restantes;
+            double mser = desvios / ((double) restantes * restantes);
+            if (mser <= melhor) {
+                melhor = mser;
+                corte = d;
+            }
+        }
+        return corte;
+    }
+
+    /**
+     * Retorna a média dos lotes depois do corte, ou NaN se não houver corte.
+     */
+    public double getMediaPermanente() {
+        int corte = getTruncamento();
+        if (corte < 0) return Double.NaN;
+        double soma = 0;
+        for (int i = corte; i < lotes; i++) soma += medias[i];
+        return soma / (lotes - corte);
+    }
+
+    /**
+     * Retorna a meia largura do intervalo de confiança de 95% da média em regime permanente,
+     * ou NaN se não houver corte ou lotes suficientes depois dele.
+     */
+    public double getMeiaLargura() {
+        int corte = getTruncamento();
+        if (corte < 0) return Double.NaN;
+        int porGrupo = (lotes - corte) / GRUPOS;
+        if (porGrupo == 0) return Double.NaN;
+
+        // Descarta o resto do começo, para que os grupos fiquem do mesmo tamanho
+        int inicio = lotes - porGrupo * GRUPOS;
+        double[] grupos = new double[GRUPOS];
+        double media = 0;
+        for (int g = 0; g < GRUPOS; g++) {
+            double soma = 0;
+            for (int i = 0; i < porGrupo; i++) soma += medias[inicio + g * porGrupo + i];
+            grupos[g] = soma / porGrupo;
+            media += grupos[g] / GRUPOS;
+        }
+        double variancia = 0;
+        for (double grupo : grupos) variancia += (grupo - media) * (grupo - media);
+        variancia /= GRUPOS - 1;
+        return T_95 * Math.sqrt(variancia / GRUPOS);
+    }
+
+    /**
+     * Verifica se o aquecimento já foi detectado e a média em regime permanente tem a
+     * precisão pedida.
+     *
+     * @param precisaoRelativa A meia largura máxima do intervalo de 95%, relativa à média (ex.: 0.05).
+     */
+    public boolean isConvergido(double precisaoRelativa) {
+        double media = getMediaPermanente();
+        double meiaLargura = getMeiaLargura();
+        if (Double.isNaN(media) || Double.isNaN(meiaLargura)) return false;
+        return meiaLargura <= precisaoRelativa * Math.abs(media);
+    }
+}
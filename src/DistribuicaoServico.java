@@ -0,0 +1,45 @@
+/**
+ * Distribuição do tempo de serviço (duração do corte) de um nível de clientes.
+ * Cada nível configurado em {@link Categorias} pode ter a sua.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface DistribuicaoServico {
+
+    /**
+     * Sorteia um tempo de serviço.
+     *
+     * @param aleatorio O gerador de números aleatórios.
+     * @return O tempo de serviço em segundos, nunca negativo.
+     */
+    int sortear(GeradorAleatorio aleatorio);
+
+    /**
+     * Tempo sempre igual ao informado.
+     */
+    static DistribuicaoServico constante(int segundos) {
+        if (segundos < 0) throw new IllegalArgumentException("O tempo de serviço não pode ser negativo.");
+        return aleatorio -> segundos;
+    }
+
+    /**
+     * Tempo uniforme entre {@code min} e {@code max}, inclusive (a regra do trabalho prático). [cite: 17]
+     */
+    static DistribuicaoServico uniforme(int min, int max) {
+        if (min < 0 || max < min) throw new IllegalArgumentException("Faixa de tempo de serviço inválida.");
+        int amplitude = max - min + 1;
+        return aleatorio -> min + aleatorio.proximoInt(amplitude);
+    }
+
+    /**
+     * Tempo exponencial com a média informada, arredondado para o segundo mais próximo.
+     */
+    static DistribuicaoServico exponencial(double mediaSegundos) {
+        if (mediaSegundos <= 0) throw new IllegalArgumentException("A média deve ser positiva.");
+        double taxa = 1.0 / mediaSegundos;
+        return aleatorio -> (int) Math.round(aleatorio.exponencial(taxa));
+    }
+}
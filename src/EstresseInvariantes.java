@@ -0,0 +1,430 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Teste de estresse aleatório que confere os invariantes do despacho sob muita disputa.
+ * Cada rodada sorteia, a partir de uma semente, o número de produtores, de barbeiros e de
+ * níveis, a duração e o tipo de perturbação (yield ou pequenas pausas nas threads), e
+ * martela uma implementação de despacho sem cochilos e com serviço zero.
+ *
+ * Invariantes conferidos em cada rodada:
+ * 1. Conservação: todo cliente aceito é retirado exatamente uma vez e nenhum rejeitado é retirado.
+ * 2. Capacidade: as cadeiras ocupadas observadas ficam entre 0 e a capacidade.
+ * 3. Prioridade (despachos Global, Compacto e Lote): nenhum cliente é retirado enquanto um de nível mais
+ *    prioritário estava comprovadamente na fila durante toda a retirada.
+ * 4. FIFO por categoria: se Y entrou antes de X começar a entrar, X não termina de sair
+ *    antes de Y começar a sair (no Roubo, só nos níveis com um único posto).
+ * 5. Encerramento limpo: depois que o Sargento vai embora, todos os barbeiros saem, a
+ *    barbearia fica vazia e as estruturas internas (permits, mapa de bits, contadores)
+ *    conferem ({@link Barbearia#conferirEstadoQuiescente()}).
+ *
+ * O despacho Compacto ({@link BarbeariaCompacta}) é exercitado pela API primitiva, com o
+ * identificador do cliente no campo de chegada do long compactado. O despacho Lote usa a
+ * {@link Barbearia} com sempre dois produtores concorrentes: um cliente a cliente (que usa a
+ * entrega direta) e outro em lotes, como o gateway ({@link Barbearia#adicionarLote}); o
+ * identificador vai no tempo de serviço, que o teste não usa. O despacho Habilidades
+ * ({@link BarbeariaHabilidades}, equipe padrão do Caso E) não segue a prioridade estrita, então
+ * só a FIFO por categoria é conferida na ordem.
+ *
+ * Como as threads são escalonadas pelo sistema, a semente reproduz a configuração da
+ * rodada, não a intercalação exata; rodar a mesma semente repetidamente costuma bastar.
+ *
+ * Uso: java EstresseInvariantes [duracaoTotalSegundos] [semente]
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class EstresseInvariantes {
+    private static final int MAX_CLIENTES_POR_RODADA = 400_000; // Cabe nos 20 bits usados na ordenação
+    private static final long LIMITE_ENCERRAMENTO_MS = 10_000;
+    private static final int MAX_VIOLACOES_LISTADAS = 5;
+    private static final String[] DESPACHOS = {"Global", "Preferida", "Roubo", "Compacto", "Habilidades", "Lote"};
+    private static final int MAX_LOTE = 8;
+
+    /**
+     * Configuração de uma rodada, derivada inteiramente da semente.
+     */
+    static final class Configuracao {
+        final long semente;
+        final int produtores;
+        final int barbeiros;
+        final int niveis;
+        final long duracaoMs;
+        final int perturbacao; // 0: nenhuma, 1: Thread.yield(), 2: pausas curtas com parkNanos
+
+        Configuracao(long semente) {
+            GeradorAleatorio g = new GeradorAleatorio(semente);
+            this.semente = semente;
+            this.produtores = 1 + g.proximoInt(4);
+            this.barbeiros = 1 + g.proximoInt(8);
+            this.niveis = 1 + g.proximoInt(6);
+            this.duracaoMs = 200 + g.proximoInt(800);
+            this.perturbacao = g.proximoInt(3);
+        }
+
+        Categorias criarCategorias() {
+            String[] nomes = new String[niveis];
+            DistribuicaoServico[] distribuicoes = new DistribuicaoServico[niveis];
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                nomes[nivel] = "N" + nivel;
+                distribuicoes[nivel] = DistribuicaoServico.constante(0);
+            }
+            return new Categorias(nomes, distribuicoes);
+        }
+    }
+
+    /**
+     * Executa rodadas com sementes aleatórias (ou só a semente informada) em todos os despachos.
+     *
+     * @param args Duração total em segundos (padrão: 30) e, opcionalmente, a semente a reproduzir.
+     * @throws InterruptedException Se a espera (join) por uma thread for interrompida.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long duracaoTotalMs = (args.length > 0 ? Integer.parseInt(args[0]) : 30) * 1000L;
+        boolean reproduzir = args.length > 1;
+        GeradorAleatorio sementes = new GeradorAleatorio(reproduzir ? 0 : System.nanoTime());
+
+        System.out.println("--- Estresse de Invariantes do Despacho ---");
+        System.out.printf("%-11s %20s %5s %5s %6s %6s %10s %10s\n",
+                "Despacho", "Semente", "Prod", "Barb", "Níveis", "Pert.", "Aceitos", "Violações");
+        long fim = System.currentTimeMillis() + duracaoTotalMs;
+        int rodadas = 0;
+        List<String> falhas = new ArrayList<>();
+        do {
+            long semente = reproduzir ? Long.parseLong(args[1]) : sementes.proximoLong();
+            Configuracao configuracao = new Configuracao(semente);
+            for (String despacho : DESPACHOS) {
+                List<String> violacoes = new ArrayList<>();
+                long aceitos = rodar(despacho, configuracao, violacoes);
+                rodadas++;
+                System.out.printf("%-11s %20d %5d %5d %6d %6d %10d %10d\n", despacho, semente, produtores(despacho, configuracao),
+                        configuracao.barbeiros, configuracao.niveis, configuracao.perturbacao, aceitos, violacoes.size());
+                for (int i = 0; i < Math.min(MAX_VIOLACOES_LISTADAS, violacoes.size()); i++) {
+                    System.out.println("    " + violacoes.get(i));
+                }
+                if (!violacoes.isEmpty()) falhas.add(despacho + " com semente " + semente);
+            }
+        } while (!reproduzir && System.currentTimeMillis() < fim);
+
+        if (falhas.isEmpty()) {
+            System.out.println("Invariantes OK em " + rodadas + " rodadas.");
+        } else {
+            System.out.println("VIOLAÇÕES em " + falhas.size() + " de " + rodadas + " rodadas. Para reproduzir:");
+            for (String falha : falhas) {
+                System.out.println("    java EstresseInvariantes 0 " + falha.substring(falha.lastIndexOf(' ') + 1) + "   (" + falha + ")");
+            }
+            System.exit(1);
+        }
+    }
+
+    private static void perturbar(GeradorAleatorio g, int perturbacao) {
+        if (perturbacao == 1 && g.proximoInt(8) == 0) {
+            Thread.yield();
+        } else if (perturbacao == 2 && g.proximoInt(16) == 0) {
+            LockSupport.parkNanos(g.proximoInt(50_000));
+        }
+    }
+
+    private static int produtores(String despacho, Configuracao configuracao) {
+        return despacho.equals("Lote") ? 2 : configuracao.produtores;
+    }
+
+    /**
+     * Executa uma rodada e acrescenta as violações encontradas à lista.
+     *
+     * @return O número de clientes aceitos na rodada.
+     */
+    static long rodar(String despacho, Configuracao configuracao, List<String> violacoes) throws InterruptedException {
+        Categorias categorias = configuracao.criarCategorias();
+        Barbearia barbearia = EstresseSaturacao.criarBarbearia(despacho, categorias, configuracao.barbeiros);
+        BarbeariaCompacta anel = barbearia instanceof BarbeariaCompacta ? (BarbeariaCompacta) barbearia : null;
+        boolean usaPreferida = despacho.equals("Preferida") || despacho.equals("Roubo");
+        boolean lote = despacho.equals("Lote");
+        int capacidade = barbearia.getCapacidadeTotal();
+        int niveis = configuracao.niveis;
+
+        // Instantes relativos a 'base', todos >= 0; índice = id do cliente
+        long base = System.nanoTime();
+        int[] nivelDe = new int[MAX_CLIENTES_POR_RODADA];
+        long[] inicioAdicao = new long[MAX_CLIENTES_POR_RODADA];
+        long[] aceitoEm = new long[MAX_CLIENTES_POR_RODADA];
+        boolean[] aceito = new boolean[MAX_CLIENTES_POR_RODADA];
+        long[] inicioRetirada = new long[MAX_CLIENTES_POR_RODADA];
+        long[] fimRetirada = new long[MAX_CLIENTES_POR_RODADA];
+        AtomicIntegerArray vezesRetirado = new AtomicIntegerArray(MAX_CLIENTES_POR_RODADA);
+        AtomicInteger proximoId = new AtomicInteger(0);
+        AtomicInteger fantasmas = new AtomicInteger(0); // Clientes retirados que não são desta rodada
+
+        Thread[] threadsBarbeiros = new Thread[configuracao.barbeiros];
+        for (int b = 0; b < configuracao.barbeiros; b++) {
+            final int nivelPreferido = b % niveis;
+            final GeradorAleatorio g = new GeradorAleatorio(configuracao.semente * 31 + b);
+            threadsBarbeiros[b] = new Thread(() -> {
+                try {
+                    while (true) {
+                        long antes = System.nanoTime() - base;
+                        int id; // -1: nenhum cliente, -2: cliente desconhecido
+                        if (anel != null) {
+                            long compactado = anel.retirarProximo();
+                            id = compactado == ClienteCompactado.VAZIO ? -1 : (int) ClienteCompactado.getChegadaUs(compactado);
+                        } else {
+                            Cliente cliente = usaPreferida ? barbearia.pegarCliente(nivelPreferido) : barbearia.pegarProximoCliente();
+                            id = cliente == null ? -1
+                                    : cliente instanceof EstresseSaturacao.ClienteMarcado ? ((EstresseSaturacao.ClienteMarcado) cliente).id
+                                    : lote ? cliente.getTempoServico() : -2;
+                        }
+                        long depois = System.nanoTime() - base;
+                        if (id == -1) {
+                            if (barbearia.isSargentoDispensado() && barbearia.isBarbeariaVazia()) break;
+                            continue;
+                        }
+                        if (id < 0 || id >= MAX_CLIENTES_POR_RODADA) {
+                            fantasmas.incrementAndGet();
+                            continue;
+                        }
+                        if (vezesRetirado.incrementAndGet(id) == 1) {
+                            inicioRetirada[id] = antes;
+                            fimRetirada[id] = depois;
+                        }
+                        perturbar(g, configuracao.perturbacao);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "Barbeiro-" + b);
+        }
+
+        long fim = System.currentTimeMillis() + configuracao.duracaoMs;
+        Thread[] threadsProdutores = new Thread[produtores(despacho, configuracao)];
+        for (int p = 0; p < threadsProdutores.length; p++) {
+            final GeradorAleatorio g = new GeradorAleatorio(configuracao.semente * 17 + p);
+            final boolean emLotes = lote && p == 1;
+            threadsProdutores[p] = new Thread(() -> {
+                int[] niveisLote = new int[MAX_LOTE];
+                int[] idsLote = new int[MAX_LOTE];
+                boolean[] aceitosLote = new boolean[MAX_LOTE];
+                try {
+                    while (emLotes && System.currentTimeMillis() < fim) {
+                        int quantidade = 0;
+                        int tamanho = 1 + g.proximoInt(MAX_LOTE);
+                        long inicio = System.nanoTime() - base;
+                        while (quantidade < tamanho) {
+                            int id = proximoId.getAndIncrement();
+                            if (id >= MAX_CLIENTES_POR_RODADA) break;
+                            niveisLote[quantidade] = nivelDe[id] = g.proximoInt(niveis);
+                            inicioAdicao[id] = inicio;
+                            idsLote[quantidade++] = id;
+                        }
+                        if (quantidade == 0) break;
+                        barbearia.adicionarLote(niveisLote, idsLote, quantidade, aceitosLote);
+                        long depois = System.nanoTime() - base;
+                        for (int i = 0; i < quantidade; i++) {
+                            if (aceitosLote[i]) {
+                                aceitoEm[idsLote[i]] = depois;
+                                aceito[idsLote[i]] = true;
+                            }
+                        }
+                        perturbar(g, configuracao.perturbacao);
+                    }
+                    while (!emLotes && System.currentTimeMillis() < fim) {
+                        int id = proximoId.getAndIncrement();
+                        if (id >= MAX_CLIENTES_POR_RODADA) break;
+                        int nivel = g.proximoInt(niveis);
+                        nivelDe[id] = nivel;
+                        inicioAdicao[id] = System.nanoTime() - base;
+                        boolean entrou = anel != null ? anel.adicionar(ClienteCompactado.compactar(nivel, 0, id))
+                                : lote ? barbearia.adicionarCliente(new Cliente(nivel, id))
+                                : barbearia.adicionarCliente(new EstresseSaturacao.ClienteMarcado(id, nivel));
+                        if (entrou) {
+                            aceitoEm[id] = System.nanoTime() - base;
+                            aceito[id] = true;
+                        }
+                        perturbar(g, configuracao.perturbacao);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "Produtor-" + p);
+        }
+
+        // Observa as cadeiras ocupadas pela API pública enquanto a rodada acontece
+        int[] foraDosLimites = new int[1];
+        int[] pior = new int[1];
+        AtomicBoolean parar = new AtomicBoolean(false);
+        Thread monitor = new Thread(() -> {
+            while (!parar.get()) {
+                int ocupadas = barbearia.getCadeirasOcupadas();
+                if (ocupadas < 0 || ocupadas > capacidade) {
+                    foraDosLimites[0]++;
+                    if (Math.abs(ocupadas) > Math.abs(pior[0])) pior[0] = ocupadas;
+                }
+                Thread.yield();
+            }
+        }, "Monitor");
+
+        for (Thread t : threadsBarbeiros) t.start();
+        monitor.start();
+        for (Thread t : threadsProdutores) t.start();
+        for (Thread t : threadsProdutores) t.join();
+        barbearia.sargentoFoiEmbora();
+
+        long limite = System.currentTimeMillis() + LIMITE_ENCERRAMENTO_MS;
+        for (Thread t : threadsBarbeiros) {
+            t.join(Math.max(1, limite - System.currentTimeMillis()));
+        }
+        int presos = 0;
+        for (Thread t : threadsBarbeiros) {
+            if (t.isAlive()) {
+                presos++;
+                t.interrupt();
+                t.join();
+            }
+        }
+        parar.set(true);
+        monitor.join();
+
+        if (presos > 0) {
+            violacoes.add("Encerramento: " + presos + " barbeiro(s) não saíram em " + LIMITE_ENCERRAMENTO_MS + " ms");
+        }
+        if (foraDosLimites[0] > 0) {
+            violacoes.add("Capacidade: " + foraDosLimites[0] + " leitura(s) de cadeiras ocupadas fora de [0, "
+                    + capacidade + "], pior " + pior[0]);
+        }
+        if (!barbearia.isBarbeariaVazia() || barbearia.getCadeirasOcupadas() != 0) {
+            violacoes.add("Encerramento: barbearia não ficou vazia (" + barbearia.getCadeirasOcupadas() + " ocupadas)");
+        }
+        String estado = barbearia.conferirEstadoQuiescente();
+        if (estado != null) violacoes.add("Estado interno: " + estado);
+        if (fantasmas.get() > 0) violacoes.add("Conservação: " + fantasmas.get() + " cliente(s) desconhecido(s) retirado(s)");
+
+        // Conservação
+        int total = Math.min(proximoId.get(), MAX_CLIENTES_POR_RODADA);
+        long aceitos = 0;
+        int[] porNivel = new int[niveis];
+        for (int id = 0; id < total; id++) {
+            int vezes = vezesRetirado.get(id);
+            if (aceito[id]) {
+                aceitos++;
+                porNivel[nivelDe[id]]++;
+                if (vezes == 0) violacoes.add("Conservação: cliente " + id + " aceito e nunca retirado");
+                if (vezes > 1) violacoes.add("Conservação: cliente " + id + " retirado " + vezes + " vezes");
+            } else if (vezes > 0) {
+                violacoes.add("Conservação: cliente " + id + " rejeitado mas retirado");
+            }
+        }
+
+        // Ids aceitos e retirados uma vez, por nível, para as conferências de ordem
+        int[][] idsPorNivel = new int[niveis][];
+        for (int nivel = 0; nivel < niveis; nivel++) idsPorNivel[nivel] = new int[porNivel[nivel]];
+        int[] preenchidos = new int[niveis];
+        for (int id = 0; id < total; id++) {
+            if (aceito[id] && vezesRetirado.get(id) == 1) {
+                idsPorNivel[nivelDe[id]][preenchidos[nivelDe[id]]++] = id;
+            }
+        }
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            idsPorNivel[nivel] = Arrays.copyOf(idsPorNivel[nivel], preenchidos[nivel]);
+        }
+
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            if (despacho.equals("Roubo") && postosDoNivel(nivel, configuracao) != 1) continue;
+            conferirFifo(nivel, idsPorNivel[nivel], inicioAdicao, aceitoEm, inicioRetirada, fimRetirada, violacoes);
+        }
+        if (despacho.equals("Global") || despacho.equals("Compacto") || lote) {
+            conferirPrioridade(idsPorNivel, nivelDe, aceitoEm, inicioRetirada, fimRetirada, violacoes);
+        }
+        return aceitos;
+    }
+
+    /**
+     * No despacho Roubo, os clientes de um nível só mantêm a ordem FIFO se houver exatamente
+     * um posto dedicado ao nível (com vários, eles se dividem em rodízio entre filas locais).
+     */
+    private static int postosDoNivel(int nivel, Configuracao configuracao) {
+        int postos = 0;
+        for (int b = 0; b < configuracao.barbeiros; b++) {
+            if (b % configuracao.niveis == nivel) postos++;
+        }
+        return postos;
+    }
+
+    /**
+     * Ordena ids por uma chave de tempo, empacotando chave e posição em um long.
+     */
+    private static int[] ordenarPor(int[] ids, long[] chave) {
+        long[] pacote = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) pacote[i] = (chave[ids[i]] << 20) | i;
+        Arrays.sort(pacote);
+        int[] ordenados = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) ordenados[i] = ids[(int) (pacote[i] & 0xFFFFF)];
+        return ordenados;
+    }
+
+    /**
+     * FIFO dentro do nível: viola se existe Y aceito antes de X começar a entrar e que só
+     * começou a sair depois que X terminou de sair. Varredura O(n log n): X em ordem de
+     * início da adição, Y em ordem de aceitação, guardando o Y pendente de saída mais tardia.
+     */
+    private static void conferirFifo(int nivel, int[] ids, long[] inicioAdicao, long[] aceitoEm,
+            long[] inicioRetirada, long[] fimRetirada, List<String> violacoes) {
+        int[] porAdicao = ordenarPor(ids, inicioAdicao);
+        int[] porAceite = ordenarPor(ids, aceitoEm);
+        int y = 0;
+        int piorY = -1;
+        for (int x : porAdicao) {
+            while (y < porAceite.length && aceitoEm[porAceite[y]] < inicioAdicao[x]) {
+                int candidato = porAceite[y++];
+                if (piorY < 0 || inicioRetirada[candidato] > inicioRetirada[piorY]) piorY = candidato;
+            }
+            if (piorY >= 0 && inicioRetirada[piorY] > fimRetirada[x]) {
+                violacoes.add("FIFO no nível " + nivel + ": cliente " + x + " saiu antes do cliente " + piorY
+                        + ", que entrou primeiro");
+            }
+        }
+    }
+
+    /**
+     * Prioridade global: viola se X foi retirado enquanto Y, de nível mais prioritário,
+     * estava na fila desde antes do início da retirada de X até depois do seu fim.
+     */
+    private static void conferirPrioridade(int[][] idsPorNivel, int[] nivelDe, long[] aceitoEm,
+            long[] inicioRetirada, long[] fimRetirada, List<String> violacoes) {
+        int niveis = idsPorNivel.length;
+        int quantidade = 0;
+        for (int[] ids : idsPorNivel) quantidade += ids.length;
+        int[] todos = new int[quantidade];
+        int posicao = 0;
+        for (int[] ids : idsPorNivel) {
+            System.arraycopy(ids, 0, todos, posicao, ids.length);
+            posicao += ids.length;
+        }
+        int[] porRetirada = ordenarPor(todos, inicioRetirada);
+        int[] porAceite = ordenarPor(todos, aceitoEm);
+        int[] piorPorNivel = new int[niveis];
+        Arrays.fill(piorPorNivel, -1);
+        int y = 0;
+        for (int x : porRetirada) {
+            while (y < porAceite.length && aceitoEm[porAceite[y]] < inicioRetirada[x]) {
+                int candidato = porAceite[y++];
+                int nivel = nivelDe[candidato];
+                if (piorPorNivel[nivel] < 0 || inicioRetirada[candidato] > inicioRetirada[piorPorNivel[nivel]]) {
+                    piorPorNivel[nivel] = candidato;
+                }
+            }
+            for (int nivel = 0; nivel < nivelDe[x]; nivel++) {
+                int pior = piorPorNivel[nivel];
+                if (pior >= 0 && inicioRetirada[pior] > fimRetirada[x]) {
+                    violacoes.add("Prioridade: cliente " + x + " (nível " + nivelDe[x] + ") saiu com o cliente "
+                            + pior + " (nível " + nivel + ") esperando");
+                    break;
+                }
+            }
+        }
+    }
+}
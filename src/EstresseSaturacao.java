@@ -0,0 +1,209 @@
+import java.util.BitSet;
+
+/**
+ * Modo de estresse que procura o teto de vazão de cada implementação de despacho.
+ * Roda N threads produtoras e M barbeiros contra uma única Barbearia, sem cochilos e
+ * com tempo de serviço zero, variando N e M. Para cada combinação relata operações por
+ * segundo, taxa de rejeição e percentis da latência entre a entrada na fila e a retirada.
+ * Cada cliente recebe um identificador único, e no final confere-se que nenhum cliente
+ * aceito foi perdido ou atendido duas vezes.
+ *
+ * Despachos medidos:
+ * Global (pegarProximoCliente, Casos A/B), Preferida (pegarCliente da Barbearia, Caso C
+ * original) e Roubo (BarbeariaDedicada).
+ *
+ * Uso: java EstresseSaturacao [duracaoSegundosPorRodada]
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class EstresseSaturacao {
+    private static final int[] PRODUTORES = {1, 2, 4};
+    private static final int[] BARBEIROS = {1, 4, 16};
+    static final String[] DESPACHOS = {"Global", "Preferida", "Roubo"};
+    private static final Categorias CATEGORIAS = Categorias.padrao();
+
+    /**
+     * Cliente com identificador único e instante de chegada em nanossegundos,
+     * usados só para conferir a conservação e medir a latência.
+     */
+    static final class ClienteMarcado extends Cliente {
+        final int id;
+        final long chegadaNs;
+
+        ClienteMarcado(int id, int nivel) {
+            super(nivel, 0);
+            this.id = id;
+            this.chegadaNs = System.nanoTime();
+        }
+    }
+
+    /**
+     * Resultado de uma rodada: contagens, conservação e latências somadas de todos os barbeiros.
+     */
+    static final class Resultado {
+        long aceitos;
+        long rejeitados;
+        long atendidos;
+        long perdidos;
+        long duplicados;
+        double segundos;
+        final HistogramaLatencia latencia = new HistogramaLatencia();
+
+        double getOperacoesPorSegundo() {
+            return atendidos / segundos;
+        }
+
+        double getTaxaRejeicao() {
+            long tentativas = aceitos + rejeitados;
+            return tentativas == 0 ? 0.0 : (double) rejeitados / tentativas;
+        }
+    }
+
+    /**
+     * Executa a varredura de produtores e barbeiros para cada despacho.
+     *
+     * @param args Duração de cada rodada em segundos (padrão: 1).
+     * @throws InterruptedException Se a espera (join) por uma thread for interrompida.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long duracaoMs = (args.length > 0 ? Integer.parseInt(args[0]) : 1) * 1000L;
+        boolean violou = false;
+
+        System.out.println("--- Estresse de Saturação do Despacho (sem cochilos, serviço zero) ---");
+        System.out.printf("%-10s %5s %5s %14s %10s %10s %10s %10s %10s %8s %8s\n", "Despacho", "Prod", "Barb",
+                "Atend./s", "Rejeição", "p50 (us)", "p99 (us)", "p99.9(us)", "Máx (us)", "Perdidos", "Duplic.");
+        for (String despacho : DESPACHOS) {
+            for (int produtores : PRODUTORES) {
+                for (int barbeiros : BARBEIROS) {
+                    Resultado r = rodar(despacho, produtores, barbeiros, duracaoMs);
+                    System.out.printf("%-10s %5d %5d %14.0f %9.2f%% %10.1f %10.1f %10.1f %10.1f %8d %8d\n",
+                            despacho, produtores, barbeiros, r.getOperacoesPorSegundo(), 100 * r.getTaxaRejeicao(),
+                            r.latencia.percentil(0.50) / 1e3, r.latencia.percentil(0.99) / 1e3,
+                            r.latencia.percentil(0.999) / 1e3, r.latencia.getMaximo() / 1e3,
+                            r.perdidos, r.duplicados);
+                    violou |= r.perdidos > 0 || r.duplicados > 0;
+                }
+            }
+        }
+        System.out.println(violou
+                ? "VIOLAÇÃO: houve clientes perdidos ou atendidos mais de uma vez."
+                : "Conservação OK: todo cliente aceito foi atendido exatamente uma vez.");
+    }
+
+    /**
+     * Cria a barbearia do despacho informado. Também usado pelo {@link EstresseInvariantes},
+     * que tem a própria lista de despachos; um nome desconhecido cria a {@link Barbearia}.
+     */
+    static Barbearia criarBarbearia(String despacho, Categorias categorias, int barbeiros) {
+        if (despacho.equals("Roubo")) {
+            int[] dedicacoes = new int[barbeiros];
+            for (int i = 0; i < barbeiros; i++) dedicacoes[i] = i % categorias.getQuantidade();
+            return new BarbeariaDedicada(categorias, dedicacoes);
+        }
+        if (despacho.equals("Compacto")) {
+            return new BarbeariaCompacta(categorias);
+        }
+        if (despacho.equals("Habilidades")) {
+            return new BarbeariaHabilidades(categorias, Habilidades.equipePadrao(barbeiros, categorias.getQuantidade()));
+        }
+        return new Barbearia(categorias);
+    }
+
+    /**
+     * Executa uma rodada com o número de produtores e barbeiros informado.
+     */
+    static Resultado rodar(String despacho, int produtores, int barbeiros, long duracaoMs) throws InterruptedException {
+        Barbearia barbearia = criarBarbearia(despacho, CATEGORIAS, barbeiros);
+        boolean usaPreferida = !despacho.equals("Global");
+
+        BitSet[] atendidosPorBarbeiro = new BitSet[barbeiros];
+        long[] duplicadosPorBarbeiro = new long[barbeiros];
+        HistogramaLatencia[] latencias = new HistogramaLatencia[barbeiros];
+        Thread[] threadsBarbeiros = new Thread[barbeiros];
+        for (int b = 0; b < barbeiros; b++) {
+            final int id = b;
+            atendidosPorBarbeiro[b] = new BitSet();
+            latencias[b] = new HistogramaLatencia();
+            threadsBarbeiros[b] = new Thread(() -> {
+                int nivelPreferido = id % CATEGORIAS.getQuantidade();
+                try {
+                    while (true) {
+                        Cliente cliente = usaPreferida ? barbearia.pegarCliente(nivelPreferido) : barbearia.pegarProximoCliente();
+                        if (cliente == null) {
+                            if (barbearia.isSargentoDispensado() && barbearia.isBarbeariaVazia()) break;
+                            continue;
+                        }
+                        ClienteMarcado marcado = (ClienteMarcado) cliente;
+                        latencias[id].registrar(System.nanoTime() - marcado.chegadaNs);
+                        if (atendidosPorBarbeiro[id].get(marcado.id)) duplicadosPorBarbeiro[id]++;
+                        atendidosPorBarbeiro[id].set(marcado.id);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "Barbeiro-" + b);
+        }
+
+        BitSet[] aceitosPorProdutor = new BitSet[produtores];
+        long[] rejeitadosPorProdutor = new long[produtores];
+        Thread[] threadsProdutores = new Thread[produtores];
+        long fim = System.currentTimeMillis() + duracaoMs;
+        for (int p = 0; p < produtores; p++) {
+            final int id = p;
+            aceitosPorProdutor[p] = new BitSet();
+            threadsProdutores[p] = new Thread(() -> {
+                // Os identificadores de cada produtor não se cruzam: id, id + N, id + 2N, ...
+                int proximoId = id;
+                try {
+                    while (System.currentTimeMillis() < fim) {
+                        ClienteMarcado cliente = new ClienteMarcado(proximoId, proximoId % CATEGORIAS.getQuantidade());
+                        if (barbearia.adicionarCliente(cliente)) {
+                            aceitosPorProdutor[id].set(proximoId);
+                        } else {
+                            rejeitadosPorProdutor[id]++;
+                        }
+                        proximoId += produtores;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "Produtor-" + p);
+        }
+
+        long inicio = System.nanoTime();
+        for (Thread t : threadsBarbeiros) t.start();
+        for (Thread t : threadsProdutores) t.start();
+        for (Thread t : threadsProdutores) t.join();
+        barbearia.sargentoFoiEmbora();
+        for (Thread t : threadsBarbeiros) t.join();
+
+        Resultado r = new Resultado();
+        r.segundos = (System.nanoTime() - inicio) / 1e9;
+
+        BitSet aceitos = new BitSet();
+        for (int p = 0; p < produtores; p++) {
+            aceitos.or(aceitosPorProdutor[p]);
+            r.rejeitados += rejeitadosPorProdutor[p];
+        }
+        r.aceitos = aceitos.cardinality();
+
+        BitSet atendidos = new BitSet();
+        for (int b = 0; b < barbeiros; b++) {
+            BitSet repetidos = (BitSet) atendidosPorBarbeiro[b].clone();
+            repetidos.and(atendidos); // Atendidos por este barbeiro e por algum anterior
+            r.duplicados += repetidos.cardinality() + duplicadosPorBarbeiro[b];
+            atendidos.or(atendidosPorBarbeiro[b]);
+            r.latencia.somar(latencias[b]);
+        }
+        r.atendidos = r.latencia.getContagem();
+
+        BitSet perdidos = (BitSet) aceitos.clone();
+        perdidos.andNot(atendidos);
+        BitSet fantasmas = (BitSet) atendidos.clone(); // Atendidos sem terem sido aceitos
+        fantasmas.andNot(aceitos);
+        r.perdidos = perdidos.cardinality() + fantasmas.cardinality();
+        return r;
+    }
+}
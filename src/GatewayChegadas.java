@@ -0,0 +1,420 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Porta de entrada de clientes vindos de outros processos: um servidor NIO em localhost,
+ * com um único Selector atendendo TCP e UDP na mesma porta, em uma única thread.
+ * Qualquer número de geradores de carga externos (ver {@link CargaGateway}) pode alimentar
+ * a barbearia ao mesmo tempo que o Sargento Tainha.
+ *
+ * Protocolo binário, big-endian, mensagens de {@value #TAMANHO_MENSAGEM} bytes:
+ * chegada = sequência (int) | nível (byte) | reservado (byte) | tempo de serviço em segundos
+ * (short sem sinal) | carimbo do cliente (long);
+ * resposta = sequência (int) | situação (byte: {@link #ACEITO}, {@link #REJEITADO} ou
+ * {@link #INVALIDO}) | reservado (byte) | cadeiras livres (short) | carimbo devolvido (long).
+ * No TCP as mensagens formam um fluxo contínuo; no UDP cada datagrama leva uma ou mais
+ * mensagens e recebe um datagrama com as respostas na mesma ordem. O carimbo é devolvido
+ * como veio, então o gerador mede a latência de admissão com o próprio relógio.
+ *
+ * As mensagens são decodificadas direto dos buffers de cada conexão para arrays primitivos
+ * reutilizados, sem objeto por mensagem. Tudo que chegou em uma volta do Selector forma um
+ * lote admitido com {@link Barbearia#adicionarLote}, que toca o mutex das filas uma vez só.
+ * Uma conexão cujas respostas não cabem mais no buffer de saída deixa de ser lida até o
+ * cliente consumi-las, o que limita a memória por conexão.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class GatewayChegadas implements Runnable {
+    public static final int TAMANHO_MENSAGEM = 16;
+    public static final byte REJEITADO = 0;
+    public static final byte ACEITO = 1;
+    public static final byte INVALIDO = 2; // Nível inexistente: nem chega à barbearia
+    public static final int MAX_MENSAGENS_DATAGRAMA = 64;
+
+    private static final int MAX_LOTE = 256;
+    private static final int BUFFER_CONEXAO = 256 * TAMANHO_MENSAGEM;
+    private static final long INTERVALO_SELECT_MS = 100; // Para perceber o encerramento
+
+    /**
+     * Estado de uma conexão TCP: buffers de entrada e de saída alocados uma vez só.
+     */
+    private static final class Conexao {
+        final SocketChannel canal;
+        final SelectionKey chave;
+        final ByteBuffer entrada = ByteBuffer.allocateDirect(BUFFER_CONEXAO);
+        final ByteBuffer saida = ByteBuffer.allocateDirect(BUFFER_CONEXAO); // Respostas ainda não escritas
+        int noLote = 0;          // Mensagens desta conexão no lote atual, com resposta a reservar
+        boolean comRespostas = false;
+        boolean fechada = false;
+
+        Conexao(SocketChannel canal, SelectionKey chave) {
+            this.canal = canal;
+            this.chave = chave;
+        }
+    }
+
+    private final Barbearia barbearia;
+    private final int niveisValidos;
+    private final Selector seletor;
+    private final ServerSocketChannel servidorTcp;
+    private final DatagramChannel canalUdp;
+    private final ByteBuffer entradaUdp = ByteBuffer.allocateDirect(MAX_MENSAGENS_DATAGRAMA * TAMANHO_MENSAGEM);
+    private final ByteBuffer saidaUdp = ByteBuffer.allocateDirect(MAX_MENSAGENS_DATAGRAMA * TAMANHO_MENSAGEM);
+    private final Consumer<SelectionKey> tratador = this::tratar; // Criado uma vez: select(Consumer) não aloca
+    private volatile boolean encerrar = false;
+
+    // Lote atual em arrays paralelos. Uma origem null é uma mensagem do datagrama UDP corrente
+    private final int[] niveis = new int[MAX_LOTE];
+    private final int[] temposServico = new int[MAX_LOTE];
+    private final int[] sequencias = new int[MAX_LOTE];
+    private final long[] carimbos = new long[MAX_LOTE];
+    private final byte[] situacoes = new byte[MAX_LOTE];
+    private final boolean[] aceitos = new boolean[MAX_LOTE];
+    private final int[] posicoesValidas = new int[MAX_LOTE]; // Posição no lote de cada mensagem válida
+    private final Conexao[] origens = new Conexao[MAX_LOTE];
+    private final List<Conexao> comRespostas = new ArrayList<>();
+    private int tamanhoLote = 0;
+
+    // Estatísticas, escritas só pela thread do gateway
+    private volatile long mensagens = 0;
+    private volatile long aceitas = 0;
+    private volatile long rejeitadas = 0;
+    private volatile long invalidas = 0;
+    private volatile long lotes = 0;
+    private volatile int conexoesAbertas = 0;
+
+    /**
+     * Abre os canais TCP e UDP em localhost.
+     *
+     * @param barbearia A barbearia que recebe os clientes.
+     * @param porta A porta TCP e UDP (0 escolhe uma porta livre, ver {@link #getPorta()}).
+     * @throws IOException Se a porta não puder ser aberta.
+     */
+    public GatewayChegadas(Barbearia barbearia, int porta) throws IOException {
+        this.barbearia = barbearia;
+        this.niveisValidos = barbearia.getCategorias().getQuantidade();
+        this.seletor = Selector.open();
+        this.servidorTcp = ServerSocketChannel.open();
+        this.canalUdp = DatagramChannel.open();
+        try {
+            InetAddress local = InetAddress.getLoopbackAddress();
+            servidorTcp.bind(new InetSocketAddress(local, porta));
+            canalUdp.bind(new InetSocketAddress(local, ((InetSocketAddress) servidorTcp.getLocalAddress()).getPort()));
+            servidorTcp.configureBlocking(false);
+            canalUdp.configureBlocking(false);
+            servidorTcp.register(seletor, SelectionKey.OP_ACCEPT);
+            canalUdp.register(seletor, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            fecharCanais();
+            throw e;
+        }
+    }
+
+    /**
+     * Retorna a porta TCP e UDP em que o gateway escuta.
+     */
+    public int getPorta() {
+        try {
+            return ((InetSocketAddress) servidorTcp.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Pede o encerramento; o laço termina em até {@value #INTERVALO_SELECT_MS} ms.
+     */
+    public void encerrar() {
+        encerrar = true;
+        seletor.wakeup();
+    }
+
+    /**
+     * Laço do Selector. Termina quando {@link #encerrar()} é chamado ou quando o Sargento
+     * Tainha vai embora: depois disso a barbearia não recebe mais clientes.
+     */
+    @Override
+    public void run() {
+        System.out.println("Gateway de chegadas escutando em localhost:" + getPorta() + " (TCP e UDP).");
+        try {
+            while (!encerrar && !barbearia.isSargentoDispensado()) {
+                seletor.select(tratador, INTERVALO_SELECT_MS);
+                admitirLote(); // O que sobrou da volta
+            }
+        } catch (IOException e) {
+            System.out.println("Gateway de chegadas interrompido por erro: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            fecharCanais();
+        }
+        System.out.printf("Gateway de chegadas encerrado: %d mensagens (%d aceitas, %d rejeitadas, %d inválidas) em %d lotes.\n",
+                mensagens, aceitas, rejeitadas, invalidas, lotes);
+        barbearia.registrarUsoThread(UsoThread.medirThreadAtual("Gateway de Chegadas"));
+    }
+
+    private void tratar(SelectionKey chave) {
+        if (!chave.isValid()) return; // Conexão fechada antes, nesta mesma volta
+        try {
+            if (chave.isAcceptable()) {
+                aceitarConexao();
+            } else if (chave.channel() == canalUdp) {
+                lerDatagramas();
+            } else {
+                Conexao conexao = (Conexao) chave.attachment();
+                if (chave.isWritable()) escrever(conexao);
+                if (!conexao.fechada && chave.isReadable()) ler(conexao);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            encerrar = true;
+        } catch (IOException e) {
+            if (chave.attachment() instanceof Conexao) {
+                fechar((Conexao) chave.attachment());
+            } else {
+                System.out.println("Falha no gateway de chegadas: " + e.getMessage());
+            }
+        }
+    }
+
+    private void aceitarConexao() throws IOException {
+        SocketChannel canal;
+        while ((canal = servidorTcp.accept()) != null) {
+            canal.configureBlocking(false);
+            canal.setOption(StandardSocketOptions.TCP_NODELAY, true); // Respostas pequenas não esperam o Nagle
+            SelectionKey chave = canal.register(seletor, SelectionKey.OP_READ);
+            chave.attach(new Conexao(canal, chave));
+            conexoesAbertas++;
+        }
+    }
+
+    private void ler(Conexao conexao) throws IOException, InterruptedException {
+        int lidos = conexao.canal.read(conexao.entrada);
+        decodificar(conexao);
+        if (lidos < 0) fechar(conexao); // O que já chegou completo foi admitido
+    }
+
+    /**
+     * Decodifica as mensagens completas do buffer de entrada da conexão, enquanto houver espaço
+     * para as respostas no buffer de saída. Uma mensagem incompleta fica para a próxima leitura.
+     */
+    private void decodificar(Conexao conexao) throws IOException, InterruptedException {
+        ByteBuffer entrada = conexao.entrada;
+        entrada.flip();
+        while (entrada.remaining() >= TAMANHO_MENSAGEM) {
+            if (conexao.saida.remaining() < (conexao.noLote + 1) * TAMANHO_MENSAGEM) break; // Sem espaço para responder
+            if (tamanhoLote == MAX_LOTE) admitirLote();
+            adicionarAoLote(entrada, conexao);
+            conexao.noLote++;
+        }
+        entrada.compact();
+        atualizarInteresse(conexao);
+    }
+
+    private void lerDatagramas() throws IOException, InterruptedException {
+        SocketAddress remetente;
+        while (true) {
+            entradaUdp.clear();
+            if ((remetente = canalUdp.receive(entradaUdp)) == null) return;
+            entradaUdp.flip();
+            // Cada datagrama é respondido antes do próximo: as respostas do lote vão todas a ele
+            if (tamanhoLote + MAX_MENSAGENS_DATAGRAMA > MAX_LOTE) admitirLote();
+            while (entradaUdp.remaining() >= TAMANHO_MENSAGEM) adicionarAoLote(entradaUdp, null);
+            admitirLote(remetente);
+        }
+    }
+
+    private void adicionarAoLote(ByteBuffer buffer, Conexao origem) {
+        int i = tamanhoLote++;
+        sequencias[i] = buffer.getInt();
+        niveis[i] = buffer.get() & 0xFF;
+        buffer.get(); // Reservado
+        temposServico[i] = buffer.getShort() & 0xFFFF;
+        carimbos[i] = buffer.getLong();
+        origens[i] = origem;
+    }
+
+    private void admitirLote() throws IOException, InterruptedException {
+        admitirLote(null);
+    }
+
+    /**
+     * Admite o lote atual na barbearia e enfileira as respostas: as das conexões TCP nos
+     * buffers de saída delas, as do datagrama corrente em um datagrama para o remetente.
+     */
+    private void admitirLote(SocketAddress remetenteUdp) throws IOException, InterruptedException {
+        if (tamanhoLote == 0) return;
+
+        // Mensagens válidas são compactadas para o começo dos arrays do lote
+        int validas = 0;
+        for (int i = 0; i < tamanhoLote; i++) {
+            if (niveis[i] < 0 || niveis[i] >= niveisValidos) {
+                situacoes[i] = INVALIDO;
+                invalidas++;
+                continue;
+            }
+            barbearia.registrarGeracao(niveis[i]);
+            posicoesValidas[validas] = i;
+            niveis[validas] = niveis[i];
+            temposServico[validas] = temposServico[i];
+            validas++;
+        }
+        if (validas > 0) {
+            // Depois que o Sargento vai embora os barbeiros podem já ter saído: ninguém mais entra
+            int aceitasLote = barbearia.isSargentoDispensado() ? 0 : barbearia.adicionarLote(niveis, temposServico, validas, aceitos);
+            for (int v = 0; v < validas; v++) {
+                situacoes[posicoesValidas[v]] = aceitasLote > 0 && aceitos[v] ? ACEITO : REJEITADO;
+            }
+            barbearia.registrarChegadas(aceitasLote, validas - aceitasLote);
+            aceitas += aceitasLote;
+            rejeitadas += validas - aceitasLote;
+        }
+
+        short cadeirasLivres = (short) Math.min(Short.MAX_VALUE, barbearia.getCadeirasLivres());
+        saidaUdp.clear();
+        for (int i = 0; i < tamanhoLote; i++) {
+            Conexao origem = origens[i];
+            if (origem == null) {
+                escreverResposta(saidaUdp, i, cadeirasLivres);
+                continue;
+            }
+            origens[i] = null;
+            origem.noLote = 0;
+            if (origem.fechada) continue;
+            escreverResposta(origem.saida, i, cadeirasLivres);
+            if (!origem.comRespostas) {
+                origem.comRespostas = true;
+                comRespostas.add(origem);
+            }
+        }
+        mensagens += tamanhoLote;
+        lotes++;
+        tamanhoLote = 0;
+
+        if (remetenteUdp != null && saidaUdp.position() > 0) {
+            saidaUdp.flip();
+            canalUdp.send(saidaUdp, remetenteUdp); // Se o buffer do socket estiver cheio, o datagrama se perde, como no UDP
+        }
+        for (int c = 0; c < comRespostas.size(); c++) {
+            Conexao conexao = comRespostas.get(c);
+            conexao.comRespostas = false;
+            try {
+                enviar(conexao);
+            } catch (IOException e) {
+                fechar(conexao);
+            }
+        }
+        comRespostas.clear();
+    }
+
+    private void escreverResposta(ByteBuffer saida, int i, short cadeirasLivres) {
+        saida.putInt(sequencias[i]);
+        saida.put(situacoes[i]);
+        saida.put((byte) 0);
+        saida.putShort(cadeirasLivres);
+        saida.putLong(carimbos[i]);
+    }
+
+    /**
+     * Escreve o que couber das respostas pendentes. Se o buffer de saída esvaziar, as mensagens
+     * que ficaram na entrada esperando espaço para a resposta são decodificadas.
+     */
+    private void escrever(Conexao conexao) throws IOException, InterruptedException {
+        enviar(conexao);
+        if (!conexao.fechada && conexao.entrada.position() >= TAMANHO_MENSAGEM) decodificar(conexao);
+    }
+
+    /**
+     * Escreve o que couber das respostas pendentes, sem decodificar nada (pode ser chamado
+     * no meio de {@link #decodificar(Conexao)}, quando o lote enche).
+     */
+    private void enviar(Conexao conexao) throws IOException {
+        if (conexao.fechada) return;
+        ByteBuffer saida = conexao.saida;
+        saida.flip();
+        conexao.canal.write(saida);
+        saida.compact();
+        atualizarInteresse(conexao);
+    }
+
+    private void atualizarInteresse(Conexao conexao) {
+        if (conexao.fechada) return;
+        int interesse = 0;
+        if (conexao.saida.position() > 0) interesse |= SelectionKey.OP_WRITE;
+        // Só lê se ainda há espaço para responder pelo menos uma mensagem
+        if (conexao.saida.remaining() >= (conexao.noLote + 1) * TAMANHO_MENSAGEM) interesse |= SelectionKey.OP_READ;
+        try {
+            conexao.chave.interestOps(interesse);
+        } catch (CancelledKeyException e) {
+            conexao.fechada = true;
+        }
+    }
+
+    private void fechar(Conexao conexao) {
+        if (conexao.fechada) return;
+        conexao.fechada = true;
+        conexao.chave.cancel();
+        try {
+            conexao.canal.close();
+        } catch (IOException e) {
+            // Já estava fechada pelo outro lado
+        }
+        conexoesAbertas--;
+    }
+
+    private void fecharCanais() {
+        for (SelectionKey chave : seletor.keys()) {
+            if (chave.attachment() instanceof Conexao) fechar((Conexao) chave.attachment());
+        }
+        try {
+            seletor.close();
+        } catch (IOException e) {
+            // Nada a fazer no encerramento
+        }
+        try {
+            servidorTcp.close();
+            canalUdp.close();
+        } catch (IOException e) {
+            // Nada a fazer no encerramento
+        }
+    }
+
+    public long getMensagens() {
+        return mensagens;
+    }
+
+    public long getAceitas() {
+        return aceitas;
+    }
+
+    public long getRejeitadas() {
+        return rejeitadas;
+    }
+
+    public long getInvalidas() {
+        return invalidas;
+    }
+
+    public long getLotes() {
+        return lotes;
+    }
+
+    public int getConexoesAbertas() {
+        return conexoesAbertas;
+    }
+}
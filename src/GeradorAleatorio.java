@@ -0,0 +1,72 @@
+/**
+ * Gerador de números pseudoaleatórios rápido (SplitMix64) para os geradores de chegada.
+ * Diferente de {@link java.util.Random}, não é sincronizado e todo o seu estado cabe
+ * em um único long, que pode ser lido e restaurado para reproduzir uma sequência.
+ * Cada instância deve ser usada por uma única thread.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class GeradorAleatorio {
+    private long estado;
+
+    /**
+     * Constrói o gerador a partir de uma semente.
+     *
+     * @param semente A semente; a mesma semente gera sempre a mesma sequência.
+     */
+    public GeradorAleatorio(long semente) {
+        this.estado = semente;
+    }
+
+    /**
+     * Retorna o próximo long pseudoaleatório.
+     */
+    public long proximoLong() {
+        long z = (estado += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Retorna um double uniforme em [0, 1).
+     */
+    public double proximoDouble() {
+        return (proximoLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Retorna um inteiro uniforme em [0, limite).
+     *
+     * @param limite O limite superior (exclusivo), maior que zero.
+     */
+    public int proximoInt(int limite) {
+        return (int) (((proximoLong() >>> 33) * limite) >>> 31);
+    }
+
+    /**
+     * Sorteia um intervalo exponencial com a taxa informada.
+     *
+     * @param taxa Eventos por unidade de tempo, maior que zero.
+     * @return O intervalo até o próximo evento, na mesma unidade de tempo da taxa.
+     */
+    public double exponencial(double taxa) {
+        return -Math.log(1.0 - proximoDouble()) / taxa;
+    }
+
+    /**
+     * Retorna o estado interno, para salvar a posição atual da sequência.
+     */
+    public long getEstado() {
+        return estado;
+    }
+
+    /**
+     * Restaura um estado lido de {@link #getEstado()}.
+     */
+    public void setEstado(long estado) {
+        this.estado = estado;
+    }
+}
@@ -0,0 +1,169 @@
+import java.util.Arrays;
+
+/**
+ * Gera a sequência de clientes que chegam à fila externa: quando chegam (pelo
+ * {@link ProcessoChegada}), de qual nível são (pela mistura de categorias) e quanto
+ * tempo de serviço pedem (pela {@link DistribuicaoServico} do nível).
+ * O tempo é virtual, em segundos desde o início: quem usa o gerador decide se espera
+ * o tempo real passar (como o Sargento Tainha) ou se consome as chegadas sem pausa.
+ * Não é thread-safe; cada produtor deve ter o seu.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class GeradorChegadas {
+    private final ProcessoChegada processo;
+    private final Categorias categorias;
+    private final double[] pesosAcumulados; // Níveis 0..N-1 e, por último, a PAUSA
+    private final GeradorAleatorio aleatorio;
+    private double proximoInstante;
+
+    /**
+     * Constrói um gerador com mistura uniforme entre os níveis e sem pausas.
+     *
+     * @param processo O processo de chegada.
+     * @param categorias Os níveis e suas distribuições de tempo de serviço.
+     * @param semente A semente do gerador de números aleatórios.
+     */
+    public GeradorChegadas(ProcessoChegada processo, Categorias categorias, long semente) {
+        this(processo, categorias, pesosIguais(categorias.getQuantidade()), 0.0, semente);
+    }
+
+    /**
+     * Constrói um gerador com uma mistura de categorias configurável.
+     *
+     * @param processo O processo de chegada.
+     * @param categorias Os níveis e suas distribuições de tempo de serviço.
+     * @param pesos O peso relativo de cada nível na mistura.
+     * @param pesoPausa O peso relativo da PAUSA (chegada vazia) na mistura.
+     * @param semente A semente do gerador de números aleatórios.
+     */
+    public GeradorChegadas(ProcessoChegada processo, Categorias categorias, double[] pesos, double pesoPausa, long semente) {
+        if (pesos.length != categorias.getQuantidade()) {
+            throw new IllegalArgumentException("É preciso um peso para cada nível.");
+        }
+        this.processo = processo;
+        this.categorias = categorias;
+        this.aleatorio = new GeradorAleatorio(semente);
+
+        pesosAcumulados = new double[pesos.length + 1];
+        double total = 0;
+        for (int nivel = 0; nivel < pesos.length; nivel++) {
+            if (pesos[nivel] < 0) throw new IllegalArgumentException("Peso negativo para o nível " + nivel);
+            total += pesos[nivel];
+            pesosAcumulados[nivel] = total;
+        }
+        if (pesoPausa < 0) throw new IllegalArgumentException("Peso negativo para a PAUSA.");
+        total += pesoPausa;
+        pesosAcumulados[pesos.length] = total;
+        if (total <= 0) throw new IllegalArgumentException("A soma dos pesos deve ser positiva.");
+        for (int i = 0; i < pesosAcumulados.length; i++) {
+            pesosAcumulados[i] /= total;
+        }
+
+        this.proximoInstante = processo.proximaChegada(0.0, aleatorio);
+    }
+
+    private static double[] pesosIguais(int niveis) {
+        double[] pesos = new double[niveis];
+        Arrays.fill(pesos, 1.0);
+        return pesos;
+    }
+
+    /**
+     * Retorna o instante da próxima chegada, em segundos desde o início.
+     */
+    public double getProximoInstante() {
+        return proximoInstante;
+    }
+
+    /**
+     * Sorteia o nível do próximo cliente pela mistura configurada.
+     *
+     * @return Um nível de 0 a N-1, ou {@link Cliente#PAUSA}.
+     */
+    public int sortearNivel() {
+        double u = aleatorio.proximoDouble();
+        // Busca binária no acumulado: O(log N) para qualquer número de níveis
+        int inicio = 0;
+        int fim = pesosAcumulados.length - 1;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (u < pesosAcumulados[meio]) fim = meio; else inicio = meio + 1;
+        }
+        return inicio == pesosAcumulados.length - 1 ? Cliente.PAUSA : inicio;
+    }
+
+    /**
+     * Sorteia o tempo de serviço de um cliente do nível informado.
+     */
+    public int sortearTempoServico(int nivel) {
+        return nivel == Cliente.PAUSA ? 0 : categorias.sortearTempoServico(nivel, aleatorio);
+    }
+
+    /**
+     * Consome a próxima chegada: cria o cliente e sorteia o instante da seguinte.
+     *
+     * @return O cliente que chegou em {@link #getProximoInstante()} (possivelmente uma PAUSA).
+     */
+    public Cliente proximo() {
+        int nivel = sortearNivel();
+        Cliente cliente = new Cliente(nivel, sortearTempoServico(nivel));
+        avancar();
+        return cliente;
+    }
+
+    /**
+     * Sorteia o instante da chegada seguinte, sem criar cliente.
+     * Simulações em tempo virtual sorteiam nível e tempo de serviço com
+     * {@link #sortearNivel()} e {@link #sortearTempoServico(int)} e depois chamam este método,
+     * na mesma ordem de {@link #proximo()}.
+     */
+    public void avancar() {
+        proximoInstante = processo.proximaChegada(proximoInstante, aleatorio);
+    }
+
+    /**
+     * Retorna o processo de chegada em uso.
+     */
+    public ProcessoChegada getProcesso() {
+        return processo;
+    }
+
+    /**
+     * Retorna o gerador de números aleatórios, para salvar ou restaurar seu estado.
+     */
+    public GeradorAleatorio getAleatorio() {
+        return aleatorio;
+    }
+
+    /**
+     * Restaura o instante da próxima chegada, junto com o estado do gerador aleatório.
+     */
+    public void setProximoInstante(double proximoInstante) {
+        this.proximoInstante = proximoInstante;
+    }
+
+    /**
+     * Cria um processo de chegada pelo código usado no menu da simulação.
+     * As taxas são próximas da do Sargento Tainha original (cerca de 1 cliente por segundo).
+     *
+     * @param codigo P (Poisson), M (rajadas MMPP) ou D (perfil diurno).
+     * @return O processo correspondente, ou null se o código for desconhecido.
+     */
+    public static ProcessoChegada criarProcesso(String codigo) {
+        switch (codigo) {
+            case "P":
+                return new ProcessoChegada.Poisson(1.0);
+            case "M":
+                // 20 s de calmaria a 0,5 cliente/s alternados com 5 s de rajada a 4 clientes/s
+                return new ProcessoChegada.Mmpp(new double[] {0.5, 4.0}, new double[] {20.0, 5.0});
+            case "D":
+                // Um "dia" de 2 minutos, variando de 0,2 a 1,8 cliente/s
+                return new ProcessoChegada.Diurno(1.0, 0.8, 120.0);
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+import java.util.Arrays;
+
+/**
+ * Perfil de um barbeiro: para cada nível, se ele atende aquela categoria e com que velocidade.
+ * O fator multiplica o tempo de serviço do cliente: 1.0 é o tempo nominal, 0.6 é um
+ * especialista (40% mais rápido), 1.5 é um barbeiro lento naquela categoria.
+ *
+ * Formato textual de um perfil: um fator por nível, separados por vírgula, com "-" para
+ * um nível que o barbeiro não atende (ex.: "1.5,0.6,1"). Um único valor vale para todos os
+ * níveis. Uma equipe é uma lista de perfis separados por ponto e vírgula.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public final class Habilidades {
+    public static final String INAPTO = "-";
+
+    private final double[] fatores; // NaN: não atende o nível
+    private final long[] elegiveis; // Bit i ligado se e somente se atende o nível i
+    private final int quantidadeElegiveis;
+
+    /**
+     * @param fatores O fator de tempo de cada nível, ou NaN para um nível que o barbeiro não atende.
+     * @throws IllegalArgumentException se algum fator não for positivo ou se nenhum nível for atendido.
+     */
+    public Habilidades(double[] fatores) {
+        this.fatores = fatores.clone();
+        this.elegiveis = new long[(fatores.length + 63) / 64];
+        int quantidade = 0;
+        for (int nivel = 0; nivel < fatores.length; nivel++) {
+            if (Double.isNaN(fatores[nivel])) continue;
+            if (!(fatores[nivel] > 0) || Double.isInfinite(fatores[nivel])) {
+                throw new IllegalArgumentException("Fator de tempo inválido para o nível " + nivel + ": " + fatores[nivel]);
+            }
+            elegiveis[nivel >>> 6] |= 1L << nivel;
+            quantidade++;
+        }
+        if (quantidade == 0) throw new IllegalArgumentException("O barbeiro precisa atender pelo menos um nível.");
+        this.quantidadeElegiveis = quantidade;
+    }
+
+    /**
+     * Um barbeiro que atende todos os níveis no tempo nominal.
+     */
+    public static Habilidades generalista(int niveis) {
+        double[] fatores = new double[niveis];
+        Arrays.fill(fatores, 1.0);
+        return new Habilidades(fatores);
+    }
+
+    /**
+     * Lê um perfil (ver o formato na descrição da classe).
+     *
+     * @throws IllegalArgumentException se o perfil estiver mal formatado.
+     */
+    public static Habilidades ler(String especificacao, int niveis) {
+        String[] partes = especificacao.split(",");
+        if (partes.length != 1 && partes.length != niveis) {
+            throw new IllegalArgumentException("O perfil \"" + especificacao + "\" deve ter 1 ou " + niveis + " fatores.");
+        }
+        double[] fatores = new double[niveis];
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            String parte = (partes.length == 1 ? partes[0] : partes[nivel]).trim();
+            fatores[nivel] = parte.equals(INAPTO) ? Double.NaN : Double.parseDouble(parte);
+        }
+        return new Habilidades(fatores);
+    }
+
+    /**
+     * Lê uma equipe: perfis separados por ponto e vírgula, um por barbeiro.
+     */
+    public static Habilidades[] lerEquipe(String especificacao, int niveis) {
+        String[] perfis = especificacao.split(";");
+        Habilidades[] equipe = new Habilidades[perfis.length];
+        for (int b = 0; b < perfis.length; b++) equipe[b] = ler(perfis[b], niveis);
+        return equipe;
+    }
+
+    /**
+     * A equipe heterogênea padrão do Caso E: o primeiro barbeiro é generalista e cada um dos
+     * outros é especialista em um nível (fator 0.6), lento nos demais (1.5) e não atende o
+     * nível 0, salvo se for o seu.
+     *
+     * @param barbeiros O tamanho da equipe.
+     * @param niveis A quantidade de níveis.
+     */
+    public static Habilidades[] equipePadrao(int barbeiros, int niveis) {
+        Habilidades[] equipe = new Habilidades[barbeiros];
+        equipe[0] = generalista(niveis);
+        for (int b = 1; b < barbeiros; b++) {
+            int especialidade = b % niveis;
+            double[] fatores = new double[niveis];
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                if (nivel == especialidade) {
+                    fatores[nivel] = 0.6;
+                } else {
+                    fatores[nivel] = nivel == 0 ? Double.NaN : 1.5;
+                }
+            }
+            equipe[b] = new Habilidades(fatores);
+        }
+        return equipe;
+    }
+
+    public int getNiveis() {
+        return fatores.length;
+    }
+
+    public boolean isElegivel(int nivel) {
+        return nivel >= 0 && nivel < fatores.length && !Double.isNaN(fatores[nivel]);
+    }
+
+    /**
+     * Retorna o fator de tempo do nível, ou NaN se o barbeiro não o atende.
+     */
+    public double getFator(int nivel) {
+        return fatores[nivel];
+    }
+
+    public int getQuantidadeElegiveis() {
+        return quantidadeElegiveis;
+    }
+
+    /**
+     * Retorna o nível em que o barbeiro é mais rápido; no empate, o mais prioritário.
+     */
+    public int getNivelMaisRapido() {
+        int melhor = -1;
+        for (int nivel = 0; nivel < fatores.length; nivel++) {
+            if (isElegivel(nivel) && (melhor < 0 || fatores[nivel] < fatores[melhor])) melhor = nivel;
+        }
+        return melhor;
+    }
+
+    /**
+     * Mapa de bits dos níveis atendidos. Não deve ser alterado.
+     */
+    long[] getElegiveis() {
+        return elegiveis;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder();
+        for (int nivel = 0; nivel < fatores.length; nivel++) {
+            if (nivel > 0) texto.append(',');
+            texto.append(isElegivel(nivel) ? String.valueOf(fatores[nivel]) : INAPTO);
+        }
+        return texto.toString();
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.Arrays;
+
+/**
+ * Histograma de latências com baldes log-lineares: cada potência de 2 é dividida em
+ * 16 baldes, então qualquer percentil sai com erro relativo de no máximo ~6%.
+ * Usa memória fixa (960 contadores) e registrar um valor não aloca nada.
+ * Não é thread-safe: cada thread registra no seu e os histogramas são somados no final.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class HistogramaLatencia {
+    private static final int BITS_SUB = 4;
+    private static final int SUB = 1 << BITS_SUB; // Baldes por potência de 2
+    private static final int TOTAL_BALDES = (64 - BITS_SUB) * SUB;
+
+    private final long[] baldes = new long[TOTAL_BALDES];
+    private long contagem = 0;
+    private long soma = 0;
+    private long maximo = 0;
+
+    /**
+     * Registra um valor (por exemplo, uma latência em nanossegundos).
+     * Valores negativos são contados como zero.
+     */
+    public void registrar(long valor) {
+        if (valor < 0) valor = 0;
+        baldes[indice(valor)]++;
+        contagem++;
+        soma += valor;
+        if (valor > maximo) maximo = valor;
+    }
+
+    /**
+     * Soma as contagens de outro histograma a este.
+     */
+    public void somar(HistogramaLatencia outro) {
+        for (int i = 0; i < TOTAL_BALDES; i++) {
+            baldes[i] += outro.baldes[i];
+        }
+        contagem += outro.contagem;
+        soma += outro.soma;
+        maximo = Math.max(maximo, outro.maximo);
+    }
+
+    /**
+     * Subtrai as contagens de outro histograma (que deve ter sido somado a este antes).
+     * O máximo não pode ser desfeito e continua sendo o maior já visto.
+     */
+    public void subtrair(HistogramaLatencia outro) {
+        for (int i = 0; i < TOTAL_BALDES; i++) {
+            baldes[i] -= outro.baldes[i];
+        }
+        contagem -= outro.contagem;
+        soma -= outro.soma;
+    }
+
+    /**
+     * Zera o histograma para reutilizá-lo sem alocar.
+     */
+    public void limpar() {
+        Arrays.fill(baldes, 0);
+        contagem = 0;
+        soma = 0;
+        maximo = 0;
+    }
+
+    /**
+     * Retorna o valor abaixo do qual está a fração {@code p} dos registros.
+     *
+     * @param p O percentil como fração, de 0.0 a 1.0 (ex: 0.99 para o p99).
+     * @return O limite inferior do balde que contém o percentil, ou 0 se vazio.
+     * @throws IllegalArgumentException se {@code p} estiver fora de [0, 1] (por exemplo, 99 em vez de 0.99).
+     */
+    public long percentil(double p) {
+        if (!(p >= 0 && p <= 1)) throw new IllegalArgumentException("Percentil fora de [0, 1]: " + p);
+        if (contagem == 0) return 0;
+        long alvo = Math.max(1, (long) Math.ceil(p * contagem));
+        long acumulado = 0;
+        for (int i = 0; i < TOTAL_BALDES; i++) {
+            acumulado += baldes[i];
+            if (acumulado >= alvo) return Math.min(valorDoBalde(i), maximo);
+        }
+        return maximo;
+    }
+
+    public long getContagem() {
+        return contagem;
+    }
+
+    public long getMaximo() {
+        return maximo;
+    }
+
+    /**
+     * Retorna a média exata dos valores registrados, ou 0 se vazio.
+     */
+    public double getMedia() {
+        return contagem == 0 ? 0.0 : (double) soma / contagem;
+    }
+
+    private static int indice(long valor) {
+        if (valor < 2 * SUB) return (int) valor;
+        int deslocamento = 64 - Long.numberOfLeadingZeros(valor) - (BITS_SUB + 1);
+        int topo = (int) (valor >>> deslocamento); // Entre SUB e 2*SUB - 1
+        return (deslocamento + 1) * SUB + (topo - SUB);
+    }
+
+    private static long valorDoBalde(int indice) {
+        if (indice < 2 * SUB) return indice;
+        int deslocamento = indice / SUB - 1;
+        long topo = indice % SUB + SUB;
+        return topo << deslocamento;
+    }
+}
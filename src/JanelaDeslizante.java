@@ -0,0 +1,208 @@
+/**
+ * Métricas de uma janela deslizante de tempo (por exemplo, os últimos 60 segundos).
+ * A janela é um anel de baldes de mesma largura; cada balde guarda as contagens e os
+ * histogramas de espera e de atendimento por nível do seu intervalo. Um total acumulado
+ * é mantido incrementalmente: quando o balde mais antigo sai da janela, ele é subtraído
+ * do total e reaproveitado. Consultar a janela nunca percorre o histórico, e a memória é
+ * fixa (baldes x níveis x 2 histogramas).
+ * Não é thread-safe: a Barbearia protege suas janelas com o lock das estatísticas.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class JanelaDeslizante {
+
+    /**
+     * As contagens de um intervalo: um balde do anel ou o total da janela.
+     */
+    private static final class Balde {
+        long atendimentos;
+        long aceitos;
+        long rejeitados;
+        final HistogramaLatencia[] esperas;
+        final HistogramaLatencia[] servicos;
+
+        Balde(int niveis) {
+            esperas = new HistogramaLatencia[niveis];
+            servicos = new HistogramaLatencia[niveis];
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                esperas[nivel] = new HistogramaLatencia();
+                servicos[nivel] = new HistogramaLatencia();
+            }
+        }
+
+        void somar(Balde outro) {
+            atendimentos += outro.atendimentos;
+            aceitos += outro.aceitos;
+            rejeitados += outro.rejeitados;
+            for (int nivel = 0; nivel < esperas.length; nivel++) {
+                esperas[nivel].somar(outro.esperas[nivel]);
+                servicos[nivel].somar(outro.servicos[nivel]);
+            }
+        }
+
+        void subtrair(Balde outro) {
+            atendimentos -= outro.atendimentos;
+            aceitos -= outro.aceitos;
+            rejeitados -= outro.rejeitados;
+            for (int nivel = 0; nivel < esperas.length; nivel++) {
+                esperas[nivel].subtrair(outro.esperas[nivel]);
+                servicos[nivel].subtrair(outro.servicos[nivel]);
+            }
+        }
+
+        void limpar() {
+            atendimentos = 0;
+            aceitos = 0;
+            rejeitados = 0;
+            for (int nivel = 0; nivel < esperas.length; nivel++) {
+                esperas[nivel].limpar();
+                servicos[nivel].limpar();
+            }
+        }
+    }
+
+    /**
+     * Fotografia da janela em um instante, segura para ser lida por outra thread.
+     * Tempos em milissegundos.
+     */
+    public static final class Resumo {
+        public final long duracaoMs;      // Duração nominal da janela
+        public final double segundos;     // Tempo efetivamente coberto (menor no início da simulação)
+        public final long atendimentos;
+        public final long aceitos;
+        public final long rejeitados;
+        public final long[] esperaP50;
+        public final long[] esperaP99;
+        public final long[] atendimentoP50;
+        public final long[] atendimentoP99;
+
+        private Resumo(long duracaoMs, double segundos, Balde total) {
+            this.duracaoMs = duracaoMs;
+            this.segundos = segundos;
+            this.atendimentos = total.atendimentos;
+            this.aceitos = total.aceitos;
+            this.rejeitados = total.rejeitados;
+            int niveis = total.esperas.length;
+            esperaP50 = new long[niveis];
+            esperaP99 = new long[niveis];
+            atendimentoP50 = new long[niveis];
+            atendimentoP99 = new long[niveis];
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                esperaP50[nivel] = total.esperas[nivel].percentil(0.50);
+                esperaP99[nivel] = total.esperas[nivel].percentil(0.99);
+                atendimentoP50[nivel] = total.servicos[nivel].percentil(0.50);
+                atendimentoP99[nivel] = total.servicos[nivel].percentil(0.99);
+            }
+        }
+
+        /**
+         * Atendimentos concluídos por segundo na janela.
+         */
+        public double getVazao() {
+            return segundos <= 0 ? 0.0 : atendimentos / segundos;
+        }
+
+        /**
+         * Fração das chegadas rejeitadas por falta de cadeira na janela.
+         */
+        public double getTaxaRejeicao() {
+            long tentativas = aceitos + rejeitados;
+            return tentativas == 0 ? 0.0 : (double) rejeitados / tentativas;
+        }
+    }
+
+    private final long duracaoMs;
+    private final long larguraMs;
+    private final Balde[] baldes;
+    private final Balde total;
+    private final long inicioMs;
+    private long baldeAtual; // Número absoluto (tempo / largura) do balde em baldes[baldeAtual % length]
+
+    /**
+     * @param duracaoMs A duração da janela em milissegundos.
+     * @param quantidadeBaldes Em quantos baldes a janela é dividida (a resolução da janela).
+     * @param niveis A quantidade de níveis de prioridade.
+     * @param agoraMs O instante de criação, em milissegundos.
+     */
+    public JanelaDeslizante(long duracaoMs, int quantidadeBaldes, int niveis, long agoraMs) {
+        if (quantidadeBaldes <= 0 || duracaoMs < quantidadeBaldes) {
+            throw new IllegalArgumentException("Janela inválida: " + duracaoMs + " ms em " + quantidadeBaldes + " baldes.");
+        }
+        this.duracaoMs = duracaoMs;
+        this.larguraMs = duracaoMs / quantidadeBaldes;
+        this.baldes = new Balde[quantidadeBaldes];
+        for (int i = 0; i < quantidadeBaldes; i++) baldes[i] = new Balde(niveis);
+        this.total = new Balde(niveis);
+        this.inicioMs = agoraMs;
+        this.baldeAtual = agoraMs / larguraMs;
+    }
+
+    /**
+     * Avança o anel até o instante informado, retirando do total os baldes que saíram da janela.
+     * Custa no máximo um balde por balde vencido, limitado ao tamanho do anel.
+     */
+    private Balde avancar(long agoraMs) {
+        long alvo = agoraMs / larguraMs;
+        if (alvo > baldeAtual) {
+            long passos = Math.min(alvo - baldeAtual, baldes.length);
+            for (long i = 1; i <= passos; i++) {
+                Balde vencido = baldes[(int) ((alvo - passos + i) % baldes.length)];
+                total.subtrair(vencido);
+                vencido.limpar();
+            }
+            baldeAtual = alvo;
+        }
+        return baldes[(int) (baldeAtual % baldes.length)];
+    }
+
+    /**
+     * Registra o tempo de espera de um cliente retirado da fila.
+     */
+    public void registrarEspera(int nivel, long esperaMs, long agoraMs) {
+        avancar(agoraMs).esperas[nivel].registrar(esperaMs);
+        total.esperas[nivel].registrar(esperaMs);
+    }
+
+    /**
+     * Registra um atendimento concluído e sua duração.
+     */
+    public void registrarAtendimento(int nivel, long duracaoAtendimentoMs, long agoraMs) {
+        Balde balde = avancar(agoraMs);
+        balde.atendimentos++;
+        balde.servicos[nivel].registrar(duracaoAtendimentoMs);
+        total.atendimentos++;
+        total.servicos[nivel].registrar(duracaoAtendimentoMs);
+    }
+
+    /**
+     * Registra uma chegada, aceita ou rejeitada por falta de cadeira.
+     */
+    public void registrarChegada(boolean aceita, long agoraMs) {
+        registrarChegadas(aceita ? 1 : 0, aceita ? 0 : 1, agoraMs);
+    }
+
+    /**
+     * Registra de uma vez as chegadas de um lote, todas no mesmo instante.
+     */
+    public void registrarChegadas(int aceitas, int rejeitadas, long agoraMs) {
+        Balde balde = avancar(agoraMs);
+        balde.aceitos += aceitas;
+        total.aceitos += aceitas;
+        balde.rejeitados += rejeitadas;
+        total.rejeitados += rejeitadas;
+    }
+
+    /**
+     * Retorna as métricas atuais da janela.
+     * A janela cobre os baldes inteiros mais o balde corrente, então o tempo coberto
+     * varia entre {@code duracao - largura} e {@code duracao}; a vazão usa o tempo coberto real.
+     */
+    public Resumo resumir(long agoraMs) {
+        avancar(agoraMs);
+        long inicioJanela = (baldeAtual - baldes.length + 1) * larguraMs;
+        long coberto = agoraMs - Math.max(inicioJanela, inicioMs);
+        return new Resumo(duracaoMs, coberto / 1000.0, total);
+    }
+}
@@ -1,3 +1,7 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Scanner;
 
 /**
@@ -13,16 +17,25 @@ import java.util.Scanner;
  * @version 1.0
  */
 public class Main {
+    private static final int MIN_BARBEIROS_AUTO = 1;      // Limites do Caso D
+    private static final int MAX_BARBEIROS_AUTO = 5;
+    private static final long ESPERA_SLA_AUTO_MS = 10000; // Meta de espera do Caso D: 10 segundos
+    private static final long INTERVALO_CHECKPOINT_PADRAO_MS = 10000;
+    private static final String[] NOMES_BARBEIROS = {"Recruta Zero", "Dentinho", "Otto"}; // Os demais são numerados
 	
 	/**
      * O método principal que executa a simulação.
      *
-     * @param args Argumentos da linha de comando (não utilizados nesta versão interativa).
+     * @param args Opcional: a configuração das categorias no formato de {@link Categorias#ler(String)}
+     *             (padrão: {@value Categorias#ESPECIFICACAO_PADRAO}).
+     * @throws IllegalArgumentException Se a configuração das categorias estiver mal formatada.
      * @throws InterruptedException Se a espera (join) por uma thread for interrompida.
      */
 	
     public static void main(String[] args) throws InterruptedException {
         Scanner scanner = new Scanner(System.in);
+        Categorias categorias = args.length > 0 ? Categorias.ler(args[0]) : Categorias.padrao();
+        int ultimoNivel = categorias.getQuantidade() - 1;
 
         System.out.println("--- Barbearia do Recruta Zero ---"); 
         System.out.println("Configuração do Sargento Tainha:");
@@ -37,15 +50,74 @@ public class Main {
         System.out.println("A: Um barbeiro (Recruta Zero) atende as três filas com prioridade."); 
         System.out.println("B: Dois barbeiros (Recruta Zero e Dentinho) atendem as três filas com prioridade."); 
         System.out.println("C: Três barbeiros (Recruta Zero, Dentinho e Otto), cada um dedicado a uma fila, mas com fallback."); 
-        System.out.print("Digite A, B ou C: ");
+        System.out.println("D: Equipe auto-escalonada (" + MIN_BARBEIROS_AUTO + " a " + MAX_BARBEIROS_AUTO + " barbeiros) conforme a fila, com prioridade global.");
+        System.out.println("E: Equipe heterogênea (velocidade e categorias atendidas por barbeiro), com roteamento por habilidade.");
+        System.out.print("Digite A, B, C, D ou E: ");
         String caso = scanner.next().toUpperCase();
+        // Validado já aqui: depois das configurações abaixo não há mais saída antecipada
+        if (!caso.matches("[A-E]")) {
+            System.out.println("Caso de teste inválido. Saindo.");
+            scanner.close();
+            return;
+        }
+
+        System.out.println("\nEscolha o processo de chegada dos clientes:");
+        System.out.println("T: Original do Sargento Tainha (cochilos de 1 a 5 segundos).");
+        System.out.println("P: Poisson, 1 cliente por segundo em média.");
+        System.out.println("M: Rajadas (MMPP): calmaria de 0,5 cliente/s alternada com surtos de 4 clientes/s.");
+        System.out.println("D: Perfil diurno: taxa de 0,2 a 1,8 cliente/s em um \"dia\" de 2 minutos.");
+        System.out.print("Digite T, P, M ou D: ");
+        // Entradas antigas (só cochilos e caso) continuam valendo: sem resposta, usa o original
+        String chegada = scanner.hasNext() ? scanner.next().toUpperCase() : "T";
 
-        Barbearia barbearia = new Barbearia();
+        // No Caso C cada barbeiro tem sua fila local com roubo de trabalho (ver BarbeariaDedicada)
+        // Recruta Zero, Dentinho e Otto são dedicados ao primeiro, ao segundo e ao último nível
+        // No Caso E cada barbeiro tem um perfil de velocidade e categorias (ver BarbeariaHabilidades)
+        Habilidades[] equipe = null;
+        if (caso.equals("E") && (equipe = lerEquipe(categorias)) == null) {
+            scanner.close();
+            return;
+        }
+        Barbearia barbearia = caso.equals("C")
+                ? new BarbeariaDedicada(categorias, 0, Math.min(1, ultimoNivel), ultimoNivel)
+                : caso.equals("E") ? new BarbeariaHabilidades(categorias, equipe)
+                : Boolean.getBoolean("barbearia.compacta") ? new BarbeariaCompacta(categorias) : new Barbearia(categorias);
 
         // Cria e inicia a thread do Sargento Tainha
-        SargentoTainha sargentoTainha = new SargentoTainha(barbearia, minCochiloSeg * 1000, maxCochiloSeg * 1000);
+        ProcessoChegada processo = GeradorChegadas.criarProcesso(chegada);
+        GeradorChegadas gerador = null;
+        if (processo != null && (gerador = criarGerador(processo, categorias)) == null) {
+            scanner.close();
+            return;
+        }
+        SargentoTainha sargentoTainha = gerador == null
+                ? new SargentoTainha(barbearia, minCochiloSeg * 1000, maxCochiloSeg * 1000)
+                : new SargentoTainha(barbearia, gerador);
+        // -Dbarbearia.precisaoRegime=0.05 encerra a chegada de clientes quando a espera média em
+        // regime permanente estiver estimada com essa precisão relativa (intervalo de 95%)
+        String precisaoRegime = System.getProperty("barbearia.precisaoRegime");
+        if (precisaoRegime != null) barbearia.setPrecisaoRegime(Double.parseDouble(precisaoRegime));
+        // O gateway é o último: só abre depois que todas as outras configurações foram aceitas
+        if (!configurarDesistencia(barbearia) || !configurarCheckpoint(barbearia, sargentoTainha)
+                || !iniciarPrevisao(barbearia, scanner) || !iniciarGateway(barbearia)) {
+            scanner.close();
+            return;
+        }
         Thread sargentoThread = new Thread(sargentoTainha, "SargentoTainha");
 
+        if (caso.equals("D")) {
+            System.out.println("\nExecutando Caso D: Barbeiros auto-escalonados.");
+            executarCasoAutoEscalonado(barbearia, sargentoThread);
+            scanner.close();
+            return;
+        }
+        if (caso.equals("E")) {
+            System.out.println("\nExecutando Caso E: " + equipe.length + " barbeiros com velocidades e habilidades diferentes.");
+            executarCasoHabilidades((BarbeariaHabilidades) barbearia, sargentoThread);
+            scanner.close();
+            return;
+        }
+
         // Cria as threads dos barbeiros, dependendo do caso
         Barbeiro recrutaZero = new Barbeiro("Recruta Zero", barbearia, caso);
         Thread recrutaZeroThread = new Thread(recrutaZero, "RecrutaZero");
@@ -72,10 +144,6 @@ public class Main {
                 otto = new Barbeiro("Otto", barbearia, caso);
                 ottoThread = new Thread(otto, "Otto");
                 break;
-            default:
-                System.out.println("Caso de teste inválido. Saindo.");
-                scanner.close();
-                return;
         }
 
         TenenteEscovinha tenenteEscovinha = new TenenteEscovinha(barbearia);
@@ -105,4 +173,243 @@ public class Main {
         System.out.println("\nSimulação da Barbearia do Recruta Zero finalizada.");
         scanner.close();
     }
+
+    /**
+     * Monta o gerador dos processos P, M e D com a mistura de categorias das propriedades
+     * {@code -Dbarbearia.mistura=p1,p2,...} (o peso relativo de cada nível; padrão: todos iguais)
+     * e {@code -Dbarbearia.pausa=p} (o peso da PAUSA, a chegada vazia; padrão: 0). O Sargento
+     * original (T) sorteia as categorias do seu jeito e ignora as duas.
+     *
+     * @return O gerador, ou null se a mistura estiver mal formatada.
+     */
+    private static GeradorChegadas criarGerador(ProcessoChegada processo, Categorias categorias) {
+        String mistura = System.getProperty("barbearia.mistura");
+        String pausa = System.getProperty("barbearia.pausa");
+        try {
+            double[] pesos = new double[categorias.getQuantidade()];
+            if (mistura == null) {
+                Arrays.fill(pesos, 1.0);
+            } else {
+                String[] partes = mistura.split(",");
+                if (partes.length != pesos.length) {
+                    throw new IllegalArgumentException("é preciso um peso para cada um dos " + pesos.length + " níveis");
+                }
+                for (int nivel = 0; nivel < pesos.length; nivel++) pesos[nivel] = Double.parseDouble(partes[nivel].trim());
+            }
+            double pesoPausa = pausa == null ? 0.0 : Double.parseDouble(pausa.trim());
+            return new GeradorChegadas(processo, categorias, pesos, pesoPausa, System.nanoTime());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Mistura de chegadas inválida: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Liga a desistência pela propriedade {@code -Dbarbearia.paciencia=s1,s2,...}: a paciência
+     * de cada nível em segundos, ou um único valor para todos. Antes do checkpoint, para que
+     * os clientes restaurados também recebam o prazo.
+     *
+     * @return false se a desistência não pôde ser configurada e a simulação não deve começar.
+     */
+    private static boolean configurarDesistencia(Barbearia barbearia) {
+        String paciencia = System.getProperty("barbearia.paciencia");
+        if (paciencia == null) return true;
+        try {
+            String[] partes = paciencia.split(",");
+            long[] pacienciasMs = new long[barbearia.getCategorias().getQuantidade()];
+            for (int nivel = 0; nivel < pacienciasMs.length; nivel++) {
+                String parte = partes.length == 1 ? partes[0] : partes[nivel];
+                pacienciasMs[nivel] = Math.round(Double.parseDouble(parte.trim()) * 1000);
+            }
+            barbearia.configurarDesistencia(pacienciasMs);
+            return true;
+        } catch (RuntimeException e) {
+            System.out.println("Não foi possível configurar a desistência: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Abre o gateway de chegadas pela propriedade {@code -Dbarbearia.gateway=porta}: clientes
+     * de geradores de carga externos (ver {@link CargaGateway}) entram junto com os do Sargento.
+     * O gateway para sozinho quando o Sargento vai embora. Deve ser a última configuração
+     * verificada, e a thread é daemon: se a simulação não começar, ela não segura a JVM.
+     *
+     * @return false se a porta não pôde ser aberta e a simulação não deve começar.
+     */
+    private static boolean iniciarGateway(Barbearia barbearia) {
+        String porta = System.getProperty("barbearia.gateway");
+        if (porta == null) return true;
+        try {
+            GatewayChegadas gateway = new GatewayChegadas(barbearia, Integer.parseInt(porta.trim()));
+            Thread gatewayThread = new Thread(gateway, "GatewayChegadas");
+            gatewayThread.setDaemon(true);
+            gatewayThread.start();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Não foi possível abrir o gateway de chegadas: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Liga a previsão sob demanda pela propriedade {@code -Dbarbearia.previsao=minutos}: a cada
+     * Enter digitado durante a simulação, o estado atual é fotografado e rodado em tempo
+     * virtual pelos próximos minutos, comparando as ações da {@link PrevisaoVirtual}.
+     * A leitura do teclado fica em uma thread daemon, que não segura o fim da simulação.
+     *
+     * @return false se a previsão não pôde ser ligada e a simulação não deve começar.
+     */
+    private static boolean iniciarPrevisao(Barbearia barbearia, Scanner scanner) {
+        String minutos = System.getProperty("barbearia.previsao");
+        if (minutos == null) return true;
+        double horizonte;
+        try {
+            horizonte = Double.parseDouble(minutos.trim()) * 60;
+            if (!(horizonte > 0)) throw new IllegalArgumentException("o horizonte deve ser positivo");
+        } catch (RuntimeException e) {
+            System.out.println("Não foi possível ligar a previsão: " + e.getMessage());
+            return false;
+        }
+        Thread previsao = new Thread(() -> {
+            if (scanner.hasNextLine()) scanner.nextLine(); // Resto da linha do processo de chegada
+            try {
+                while (scanner.hasNextLine()) {
+                    scanner.nextLine();
+                    long inicio = System.nanoTime();
+                    PrevisaoVirtual.Estado estado = barbearia.fotografar();
+                    PrevisaoVirtual previsor = PrevisaoVirtual.medirChegadas(barbearia);
+                    PrevisaoVirtual.Resultado[] resultados = previsor.preverAcoes(estado, horizonte);
+                    previsor.imprimir(estado, resultados, horizonte, System.nanoTime() - inicio);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "Previsao");
+        previsao.setDaemon(true);
+        previsao.start();
+        System.out.println("Previsão ligada: tecle Enter durante a simulação para prever os próximos " + minutos.trim() + " min.");
+        return true;
+    }
+
+    /**
+     * Configura os checkpoints pelas propriedades do sistema:
+     * {@code -Dbarbearia.restaurar=arquivo} retoma a simulação salva no arquivo,
+     * {@code -Dbarbearia.checkpoint=arquivo} grava checkpoints periódicos e
+     * {@code -Dbarbearia.checkpointIntervalo=ms} define o intervalo (padrão: 10000 ms).
+     * A simulação retomada deve usar as mesmas categorias, caso e processo de chegada.
+     *
+     * @return false se o checkpoint não pôde ser restaurado e a simulação não deve começar.
+     */
+    private static boolean configurarCheckpoint(Barbearia barbearia, SargentoTainha sargentoTainha) {
+        String restaurar = System.getProperty("barbearia.restaurar");
+        if (restaurar != null) {
+            try {
+                ByteBuffer dados = Checkpoint.ler(Paths.get(restaurar));
+                barbearia.restaurarEstado(dados);
+                sargentoTainha.restaurarEstado(dados);
+                System.out.println("Simulação retomada do checkpoint " + restaurar + ".");
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Não foi possível restaurar o checkpoint: " + e.getMessage());
+                return false;
+            }
+        }
+        String checkpoint = System.getProperty("barbearia.checkpoint");
+        if (checkpoint != null) {
+            long intervaloMs = Long.getLong("barbearia.checkpointIntervalo", INTERVALO_CHECKPOINT_PADRAO_MS);
+            sargentoTainha.configurarCheckpoint(Paths.get(checkpoint), intervaloMs);
+        }
+        return true;
+    }
+
+    /**
+     * Lê a equipe do Caso E pela propriedade {@code -Dbarbearia.habilidades=perfil;perfil;...}
+     * (formato de {@link Habilidades}, um perfil por barbeiro). Sem a propriedade, usa a equipe
+     * padrão de três barbeiros ({@link Habilidades#equipePadrao(int, int)}).
+     *
+     * @return A equipe, ou null se a propriedade estiver mal formatada.
+     */
+    private static Habilidades[] lerEquipe(Categorias categorias) {
+        String especificacao = System.getProperty("barbearia.habilidades");
+        int niveis = categorias.getQuantidade();
+        try {
+            Habilidades[] equipe = especificacao == null
+                    ? Habilidades.equipePadrao(NOMES_BARBEIROS.length, niveis)
+                    : Habilidades.lerEquipe(especificacao, niveis);
+            new RoteadorHabilidades(equipe, RoteadorHabilidades.pesosPadrao(niveis)); // Todo nível tem quem o atenda
+            return equipe;
+        } catch (IllegalArgumentException e) {
+            System.out.println("Equipe do Caso E inválida: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Executa o Caso E: um barbeiro por perfil da equipe, cada um designado ao seu perfil.
+     * O encerramento segue a mesma ordem dos outros casos: Sargento, barbeiros e, por fim, Tenente.
+     *
+     * @throws InterruptedException Se a espera (join) por uma thread for interrompida.
+     */
+    private static void executarCasoHabilidades(BarbeariaHabilidades barbearia, Thread sargentoThread) throws InterruptedException {
+        int quantidade = barbearia.getQuantidadeBarbeiros();
+        Barbeiro[] barbeiros = new Barbeiro[quantidade];
+        Thread[] threads = new Thread[quantidade];
+        for (int b = 0; b < quantidade; b++) {
+            String nome = b < NOMES_BARBEIROS.length ? NOMES_BARBEIROS[b] : "Barbeiro " + (b + 1);
+            barbeiros[b] = new Barbeiro(nome, barbearia, "E");
+            threads[b] = new Thread(barbeiros[b], nome.replace(" ", ""));
+            barbearia.designar(threads[b], b);
+            System.out.println(nome + ": " + barbearia.getHabilidades(b));
+        }
+
+        TenenteEscovinha tenenteEscovinha = new TenenteEscovinha(barbearia);
+        Thread tenenteThread = new Thread(tenenteEscovinha, "TenenteEscovinha");
+
+        sargentoThread.start();
+        for (Thread t : threads) t.start();
+        tenenteThread.start();
+
+        sargentoThread.join();
+        System.out.println("\nSargento Tainha finalizou a geração de clientes.");
+
+        for (Barbeiro barbeiro : barbeiros) barbeiro.encerrar();
+        for (Thread t : threads) t.join();
+        System.out.println("Todos os barbeiros terminaram seus atendimentos e a barbearia está vazia.");
+
+        tenenteEscovinha.encerrar();
+        tenenteThread.join();
+
+        System.out.println("\nSimulação da Barbearia do Recruta Zero finalizada.");
+    }
+
+    /**
+     * Executa o Caso D: o AutoEscalonador cria e aposenta os barbeiros durante a simulação.
+     * O encerramento segue a mesma ordem dos outros casos: Sargento, barbeiros e, por fim, Tenente.
+     *
+     * @throws InterruptedException Se a espera (join) por uma thread for interrompida.
+     */
+    private static void executarCasoAutoEscalonado(Barbearia barbearia, Thread sargentoThread) throws InterruptedException {
+        AutoEscalonador autoEscalonador = new AutoEscalonador(barbearia, MIN_BARBEIROS_AUTO, MAX_BARBEIROS_AUTO, ESPERA_SLA_AUTO_MS);
+        Thread autoEscalonadorThread = new Thread(autoEscalonador, "AutoEscalonador");
+
+        TenenteEscovinha tenenteEscovinha = new TenenteEscovinha(barbearia);
+        Thread tenenteThread = new Thread(tenenteEscovinha, "TenenteEscovinha");
+
+        sargentoThread.start();
+        autoEscalonadorThread.start();
+        tenenteThread.start();
+
+        sargentoThread.join();
+        System.out.println("\nSargento Tainha finalizou a geração de clientes.");
+
+        // O auto-escalonador encerra e espera todos os barbeiros que contratou
+        autoEscalonador.encerrar();
+        autoEscalonadorThread.join();
+        System.out.println("Todos os barbeiros terminaram seus atendimentos e a barbearia está vazia.");
+
+        tenenteEscovinha.encerrar();
+        tenenteThread.join();
+
+        System.out.println("\nSimulação da Barbearia do Recruta Zero finalizada.");
+    }
 }
@@ -0,0 +1,284 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Planejador de capacidade: dado um perfil de chegada e metas de SLA por categoria
+ * (p95 da espera de cada nível e taxa máxima de rejeição), procura a configuração mais
+ * barata de barbeiros, cadeiras e despacho que cumpre as metas.
+ *
+ * Cada configuração é avaliada com {@link SimulacaoVirtual} (horas de operação em
+ * milissegundos), em várias replicações com as mesmas sementes para todas as configurações
+ * (números aleatórios comuns), e as configurações rodam em paralelo em todos os núcleos.
+ * As configurações são visitadas em ordem crescente de custo, em lotes do tamanho do pool,
+ * e são podadas sem simular quando:
+ * - custam mais que a melhor configuração viável já encontrada;
+ * - a carga oferecida excede os barbeiros (rejeição de pelo menos 1 - b / (λ·E[S]));
+ * - são dominadas por uma reprovada do mesmo despacho: se uma falhou na rejeição, toda
+ *   configuração com menos (ou iguais) barbeiros e cadeiras também falha.
+ * Uma reprovação na espera não poda nada: o p95 é medido só sobre os clientes atendidos, e
+ * com mais cadeiras ele depende de quem é admitido e das replicações, então não há garantia
+ * de que a configuração com mais cadeiras também falhe.
+ *
+ * Uso: java PlanejadorCapacidade [processo P|M|D] [p95 por nível em s, ex.: 10,30,60]
+ *      [rejeição máxima] [horas simuladas]
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class PlanejadorCapacidade {
+    private static final int MAX_BARBEIROS = 12;
+    private static final int[] CADEIRAS = {5, 10, 15, 20, 30, 40};
+    private static final String[] DESPACHOS = {SimulacaoVirtual.GLOBAL, SimulacaoVirtual.DEDICADO};
+    private static final int CUSTO_BARBEIRO = 10;
+    private static final int CUSTO_CADEIRA = 1;
+    private static final int REPLICACOES = 4;
+    private static final int AMOSTRAS_SERVICO = 100_000; // Para estimar E[S]
+
+    private final String codigoProcesso;
+    private final Categorias categorias;
+    private final double[] limitesP95Segundos;
+    private final double rejeicaoMaxima;
+    private final double duracaoSegundos;
+
+    private final List<Avaliacao> reprovadas = new ArrayList<>();
+    private Avaliacao melhor = null;
+    private int simuladas = 0;
+    private int podadas = 0;
+
+    /**
+     * Uma configuração candidata.
+     */
+    static final class Configuracao {
+        final int barbeiros;
+        final int cadeiras;
+        final String despacho;
+
+        Configuracao(int barbeiros, int cadeiras, String despacho) {
+            this.barbeiros = barbeiros;
+            this.cadeiras = cadeiras;
+            this.despacho = despacho;
+        }
+
+        int getCusto() {
+            return barbeiros * CUSTO_BARBEIRO + cadeiras * CUSTO_CADEIRA;
+        }
+
+        @Override
+        public String toString() {
+            return barbeiros + " barbeiros, " + cadeiras + " cadeiras, despacho " + despacho;
+        }
+    }
+
+    /**
+     * O resultado medido de uma configuração, somando todas as replicações.
+     */
+    static final class Avaliacao {
+        final Configuracao configuracao;
+        final HistogramaLatencia[] esperasMs;
+        long aceitos;
+        long rejeitados;
+        double utilizacao;
+        boolean falhouRejeicao;
+        boolean falhouEspera;
+
+        Avaliacao(Configuracao configuracao, int niveis) {
+            this.configuracao = configuracao;
+            esperasMs = new HistogramaLatencia[niveis];
+            for (int nivel = 0; nivel < niveis; nivel++) esperasMs[nivel] = new HistogramaLatencia();
+        }
+
+        double getTaxaRejeicao() {
+            long tentativas = aceitos + rejeitados;
+            return tentativas == 0 ? 0.0 : (double) rejeitados / tentativas;
+        }
+
+        boolean isViavel() {
+            return !falhouRejeicao && !falhouEspera;
+        }
+    }
+
+    public PlanejadorCapacidade(String codigoProcesso, Categorias categorias, double[] limitesP95Segundos,
+                                double rejeicaoMaxima, double duracaoSegundos) {
+        if (GeradorChegadas.criarProcesso(codigoProcesso) == null) {
+            throw new IllegalArgumentException("Processo de chegada desconhecido: " + codigoProcesso);
+        }
+        if (limitesP95Segundos.length != categorias.getQuantidade()) {
+            throw new IllegalArgumentException("É preciso um limite de p95 para cada nível.");
+        }
+        this.codigoProcesso = codigoProcesso;
+        this.categorias = categorias;
+        this.limitesP95Segundos = limitesP95Segundos;
+        this.rejeicaoMaxima = rejeicaoMaxima;
+        this.duracaoSegundos = duracaoSegundos;
+    }
+
+    /**
+     * Executa o planejador.
+     *
+     * @param args Processo, limites de p95, rejeição máxima e horas simuladas (todos opcionais).
+     * @throws InterruptedException Se a espera pelo pool for interrompida.
+     * @throws ExecutionException Se uma simulação falhar.
+     */
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        Categorias categorias = Categorias.padrao();
+        String processo = args.length > 0 ? args[0].toUpperCase() : "P";
+        double[] limites = args.length > 1 ? lerLimites(args[1]) : new double[] {10, 30, 60};
+        double rejeicao = args.length > 2 ? Double.parseDouble(args[2]) : 0.05;
+        double horas = args.length > 3 ? Double.parseDouble(args[3]) : 8;
+
+        PlanejadorCapacidade planejador = new PlanejadorCapacidade(processo, categorias, limites, rejeicao, horas * 3600);
+        System.out.println("--- Planejador de Capacidade ---");
+        System.out.printf("Processo %s, %.1f h simuladas x %d replicações, rejeição máxima %.1f%%\n",
+                processo, horas, REPLICACOES, rejeicao * 100);
+        for (int nivel = 0; nivel < categorias.getQuantidade(); nivel++) {
+            System.out.printf("  p95 da espera de %s <= %.1f s\n", categorias.getNome(nivel), limites[nivel]);
+        }
+
+        long inicio = System.nanoTime();
+        Avaliacao melhor = planejador.planejar(Runtime.getRuntime().availableProcessors());
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        System.out.printf("\n%d configurações simuladas, %d podadas, em %.1f s.\n",
+                planejador.simuladas, planejador.podadas, segundos);
+        if (melhor == null) {
+            System.out.println("Nenhuma configuração do espaço de busca cumpre as metas.");
+            return;
+        }
+        System.out.println("\nConfiguração mais barata que cumpre as metas: " + melhor.configuracao
+                + " (custo " + melhor.configuracao.getCusto() + ")");
+        planejador.imprimirEvidencias(melhor);
+    }
+
+    private static double[] lerLimites(String texto) {
+        String[] partes = texto.split(",");
+        double[] limites = new double[partes.length];
+        for (int i = 0; i < partes.length; i++) limites[i] = Double.parseDouble(partes[i].trim());
+        return limites;
+    }
+
+    /**
+     * Procura a configuração viável mais barata.
+     *
+     * @param threads O tamanho do pool de simulações.
+     * @return A avaliação da melhor configuração, ou null se nenhuma cumprir as metas.
+     * @throws InterruptedException Se a espera pelo pool for interrompida.
+     * @throws ExecutionException Se uma simulação falhar.
+     */
+    public Avaliacao planejar(int threads) throws InterruptedException, ExecutionException {
+        List<Configuracao> candidatas = new ArrayList<>();
+        for (String despacho : DESPACHOS) {
+            for (int b = 1; b <= MAX_BARBEIROS; b++) {
+                for (int c : CADEIRAS) candidatas.add(new Configuracao(b, c, despacho));
+            }
+        }
+        candidatas.sort(Comparator.comparingInt(Configuracao::getCusto).thenComparingInt(c -> c.barbeiros));
+
+        double cargaOferecida = GeradorChegadas.criarProcesso(codigoProcesso).getTaxaMedia() * estimarServicoMedio();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            int proxima = 0;
+            while (proxima < candidatas.size()) {
+                // Monta um lote com as próximas candidatas que não podem ser descartadas
+                List<Configuracao> lote = new ArrayList<>();
+                while (proxima < candidatas.size() && lote.size() < threads) {
+                    Configuracao candidata = candidatas.get(proxima++);
+                    if (melhor != null && candidata.getCusto() > melhor.configuracao.getCusto()) {
+                        podadas += candidatas.size() - proxima + 1; // Ordenadas por custo: as demais também
+                        proxima = candidatas.size();
+                        break;
+                    }
+                    if (1.0 - candidata.barbeiros / cargaOferecida > rejeicaoMaxima || isDominada(candidata)) {
+                        podadas++;
+                    } else {
+                        lote.add(candidata);
+                    }
+                }
+
+                List<Future<Avaliacao>> futuros = new ArrayList<>();
+                for (Configuracao configuracao : lote) futuros.add(pool.submit(() -> avaliar(configuracao)));
+                for (Future<Avaliacao> futuro : futuros) {
+                    Avaliacao avaliacao = futuro.get();
+                    simuladas++;
+                    if (!avaliacao.isViavel()) {
+                        reprovadas.add(avaliacao);
+                    } else if (melhor == null || avaliacao.configuracao.getCusto() < melhor.configuracao.getCusto()) {
+                        melhor = avaliacao;
+                    }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return melhor;
+    }
+
+    /**
+     * Verifica se uma reprovada na rejeição, do mesmo despacho, já garante que a candidata
+     * também falha: com menos (ou iguais) barbeiros e cadeiras, a rejeição só pode ser maior.
+     */
+    private boolean isDominada(Configuracao candidata) {
+        for (Avaliacao reprovada : reprovadas) {
+            Configuracao r = reprovada.configuracao;
+            if (!reprovada.falhouRejeicao || !r.despacho.equals(candidata.despacho)) continue;
+            if (candidata.barbeiros <= r.barbeiros && candidata.cadeiras <= r.cadeiras) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Simula uma configuração em todas as replicações e confere as metas.
+     */
+    private Avaliacao avaliar(Configuracao configuracao) {
+        int niveis = categorias.getQuantidade();
+        Avaliacao avaliacao = new Avaliacao(configuracao, niveis);
+        for (int replicacao = 0; replicacao < REPLICACOES; replicacao++) {
+            SimulacaoVirtual simulacao = new SimulacaoVirtual(categorias, configuracao.barbeiros,
+                    configuracao.cadeiras, configuracao.despacho);
+            // Mesma semente por replicação em todas as configurações
+            GeradorChegadas gerador = new GeradorChegadas(GeradorChegadas.criarProcesso(codigoProcesso), categorias, replicacao + 1);
+            simulacao.executar(gerador, duracaoSegundos);
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                avaliacao.esperasMs[nivel].somar(simulacao.getEsperasMs(nivel));
+                avaliacao.aceitos += simulacao.getAceitos(nivel);
+                avaliacao.rejeitados += simulacao.getRejeitados(nivel);
+            }
+            avaliacao.utilizacao += simulacao.getUtilizacao() / REPLICACOES;
+        }
+
+        avaliacao.falhouRejeicao = avaliacao.getTaxaRejeicao() > rejeicaoMaxima;
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            if (avaliacao.esperasMs[nivel].percentil(0.95) > limitesP95Segundos[nivel] * 1000) avaliacao.falhouEspera = true;
+        }
+        return avaliacao;
+    }
+
+    /**
+     * Estima o tempo médio de serviço com a mistura uniforme de níveis do {@link GeradorChegadas}.
+     */
+    private double estimarServicoMedio() {
+        GeradorChegadas gerador = new GeradorChegadas(GeradorChegadas.criarProcesso(codigoProcesso), categorias, 0);
+        long soma = 0;
+        for (int i = 0; i < AMOSTRAS_SERVICO; i++) {
+            soma += gerador.sortearTempoServico(gerador.sortearNivel());
+        }
+        return (double) soma / AMOSTRAS_SERVICO;
+    }
+
+    private void imprimirEvidencias(Avaliacao avaliacao) {
+        System.out.printf("%-12s %12s %12s %12s %12s\n", "Categoria", "Atendidos", "Espera méd.", "p95 (s)", "Meta p95");
+        for (int nivel = 0; nivel < categorias.getQuantidade(); nivel++) {
+            HistogramaLatencia esperas = avaliacao.esperasMs[nivel];
+            System.out.printf("%-12s %12d %10.2f s %12.2f %10.1f s\n", categorias.getNome(nivel), esperas.getContagem(),
+                    esperas.getMedia() / 1000, esperas.percentil(0.95) / 1000.0, limitesP95Segundos[nivel]);
+        }
+        System.out.printf("Rejeição: %.2f%% (meta %.2f%%), %d de %d tentativas\n", avaliacao.getTaxaRejeicao() * 100,
+                rejeicaoMaxima * 100, avaliacao.rejeitados, avaliacao.aceitos + avaliacao.rejeitados);
+        System.out.printf("Utilização dos barbeiros: %.1f%%\n", avaliacao.utilizacao * 100);
+    }
+}
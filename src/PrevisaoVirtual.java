@@ -0,0 +1,201 @@
+import java.util.Arrays;
+
+/**
+ * Previsão "e se" a partir do estado atual da barbearia: fotografa as filas e os
+ * atendimentos em andamento ({@link Barbearia#fotografar()}) e roda esse estado para a
+ * frente em tempo virtual ({@link SimulacaoVirtual}) com o modelo de chegadas atual, sem
+ * tocar na simulação real. Cada ação alternativa (manter a equipe, contratar um barbeiro,
+ * passar ao despacho dedicado) é simulada a partir do mesmo estado e com as mesmas
+ * sementes, para que as diferenças venham da ação e não do sorteio.
+ *
+ * O modelo de chegadas é o medido, e não o configurado: chegadas de Poisson com a taxa de
+ * tentativas do último minuto (aceitas e rejeitadas) e a mistura de categorias dos clientes
+ * gerados até agora, com os tempos de serviço de {@link Categorias}. Assim vale para qualquer
+ * processo de chegada, inclusive o Sargento original e o gateway. Desistências não são
+ * simuladas, então as esperas previstas são um limite superior quando elas estão ligadas.
+ * Para alguns minutos de horizonte, cada previsão leva poucos milissegundos.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class PrevisaoVirtual {
+    public static final String ATUAL = "Atual";
+    public static final String CONTRATAR = "+1 barbeiro";
+    public static final String DEDICAR = "Dedicado";
+
+    private static final int REPLICACOES = 20;
+    private static final long JANELA_TAXA_MS = 60_000; // Janela de onde vem a taxa de chegada
+    private static final double TAXA_MINIMA = 1e-9;    // Sem chegadas medidas: praticamente nenhuma
+
+    /**
+     * O estado fotografado de uma barbearia. Os tempos são em segundos.
+     */
+    public static final class Estado {
+        public final int barbeiros;       // Barbeiros trabalhando
+        public final int cadeiras;        // Capacidade da barbearia
+        public final double[][] idades;   // [nível][posição na fila]: espera já acumulada
+        public final int[][] servicos;    // [nível][posição na fila]: tempo de serviço
+        public final double[] restantes;  // Tempo que falta em cada atendimento em andamento
+
+        public Estado(int barbeiros, int cadeiras, double[][] idades, int[][] servicos, double[] restantes) {
+            this.barbeiros = barbeiros;
+            this.cadeiras = cadeiras;
+            this.idades = idades;
+            this.servicos = servicos;
+            this.restantes = restantes;
+        }
+
+        /**
+         * Retorna quantos clientes esperam em todas as filas.
+         */
+        public int getNaFila() {
+            int total = 0;
+            for (double[] fila : idades) total += fila.length;
+            return total;
+        }
+    }
+
+    /**
+     * O que uma ação produziria no horizonte da previsão, somado sobre as replicações.
+     */
+    public static final class Resultado {
+        public final String acao;
+        public final int barbeiros;
+        public final String despacho;
+        public final HistogramaLatencia[] esperasMs; // Inclui os clientes que já estavam na fila
+        public final long[] aceitos;
+        public final long[] rejeitados;
+        double utilizacao = 0;
+
+        Resultado(String acao, int barbeiros, String despacho, int niveis) {
+            this.acao = acao;
+            this.barbeiros = barbeiros;
+            this.despacho = despacho;
+            this.esperasMs = new HistogramaLatencia[niveis];
+            for (int nivel = 0; nivel < niveis; nivel++) esperasMs[nivel] = new HistogramaLatencia();
+            this.aceitos = new long[niveis];
+            this.rejeitados = new long[niveis];
+        }
+
+        /**
+         * Retorna a fração prevista das chegadas do nível que encontram a barbearia cheia.
+         */
+        public double getTaxaRejeicao(int nivel) {
+            long tentativas = aceitos[nivel] + rejeitados[nivel];
+            return tentativas == 0 ? 0.0 : (double) rejeitados[nivel] / tentativas;
+        }
+
+        public double getUtilizacao() {
+            return utilizacao;
+        }
+    }
+
+    private final Categorias categorias;
+    private final double taxa;
+    private final double[] mistura;
+
+    /**
+     * @param categorias Os níveis e suas distribuições de tempo de serviço.
+     * @param taxa As chegadas por segundo (todas as categorias).
+     * @param mistura O peso relativo de cada nível nas chegadas.
+     */
+    public PrevisaoVirtual(Categorias categorias, double taxa, double[] mistura) {
+        if (mistura.length != categorias.getQuantidade()) throw new IllegalArgumentException("É preciso um peso para cada nível.");
+        this.categorias = categorias;
+        this.taxa = Math.max(TAXA_MINIMA, taxa);
+        this.mistura = mistura.clone();
+    }
+
+    /**
+     * Monta a previsão com o modelo de chegadas medido na barbearia: a taxa de tentativas da
+     * janela de 1 minuto e a mistura dos clientes gerados (uniforme, se ainda não houver nenhum).
+     *
+     * @throws InterruptedException se a thread for interrompida ao ler as janelas.
+     */
+    public static PrevisaoVirtual medirChegadas(Barbearia barbearia) throws InterruptedException {
+        Categorias categorias = barbearia.getCategorias();
+        double taxa = 0;
+        for (JanelaDeslizante.Resumo resumo : barbearia.resumirJanelas()) {
+            if (resumo.duracaoMs == JANELA_TAXA_MS && resumo.segundos > 0) taxa = (resumo.aceitos + resumo.rejeitados) / resumo.segundos;
+        }
+        double[] mistura = new double[categorias.getQuantidade()];
+        double total = 0;
+        for (int nivel = 0; nivel < mistura.length; nivel++) total += mistura[nivel] = barbearia.getTotalClientesGerados(nivel);
+        if (total == 0) Arrays.fill(mistura, 1.0);
+        return new PrevisaoVirtual(categorias, taxa, mistura);
+    }
+
+    /**
+     * Prevê as três ações padrão a partir do estado: manter a equipe e o despacho global,
+     * contratar mais um barbeiro e passar ao despacho dedicado com a mesma equipe.
+     *
+     * @param estado O estado fotografado.
+     * @param horizonte Quantos segundos virtuais simular.
+     */
+    public Resultado[] preverAcoes(Estado estado, double horizonte) {
+        int barbeiros = Math.max(1, estado.barbeiros); // No início, os barbeiros podem ainda não ter entrado
+        return new Resultado[] {
+                prever(estado, ATUAL, barbeiros, SimulacaoVirtual.GLOBAL, horizonte),
+                prever(estado, CONTRATAR, barbeiros + 1, SimulacaoVirtual.GLOBAL, horizonte),
+                prever(estado, DEDICAR, barbeiros, SimulacaoVirtual.DEDICADO, horizonte)
+        };
+    }
+
+    /**
+     * Prevê uma ação: o estado rodado para a frente com a equipe e o despacho dados.
+     *
+     * @param estado O estado fotografado.
+     * @param acao O nome da ação, para o relatório.
+     * @param barbeiros Quantos barbeiros trabalham a partir de agora.
+     * @param despacho {@link SimulacaoVirtual#GLOBAL} ou {@link SimulacaoVirtual#DEDICADO}.
+     * @param horizonte Quantos segundos virtuais simular.
+     */
+    public Resultado prever(Estado estado, String acao, int barbeiros, String despacho, double horizonte) {
+        int niveis = categorias.getQuantidade();
+        Resultado resultado = new Resultado(acao, barbeiros, despacho, niveis);
+        for (int replicacao = 0; replicacao < REPLICACOES; replicacao++) {
+            SimulacaoVirtual simulacao = new SimulacaoVirtual(categorias, barbeiros, estado.cadeiras, despacho);
+            simulacao.semear(estado);
+            // Mesma semente por replicação em todas as ações
+            GeradorChegadas gerador = new GeradorChegadas(new ProcessoChegada.Poisson(taxa), categorias, mistura, 0.0, replicacao + 1);
+            simulacao.executar(gerador, horizonte);
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                resultado.esperasMs[nivel].somar(simulacao.getEsperasMs(nivel));
+                resultado.aceitos[nivel] += simulacao.getAceitos(nivel);
+                resultado.rejeitados[nivel] += simulacao.getRejeitados(nivel);
+            }
+            resultado.utilizacao += simulacao.getUtilizacao() / REPLICACOES;
+        }
+        return resultado;
+    }
+
+    public double getTaxa() {
+        return taxa;
+    }
+
+    /**
+     * Imprime a comparação das ações: espera média e p95 por categoria, rejeição e utilização.
+     */
+    public void imprimir(Estado estado, Resultado[] resultados, double horizonte, long calculoNs) {
+        int niveis = categorias.getQuantidade();
+        System.out.println("\n*************** PREVISÃO (TEMPO VIRTUAL) ***************");
+        System.out.printf("Agora: %d barbeiros, %d clientes na fila, %d em atendimento; chegadas a %.2f/s.\n",
+                estado.barbeiros, estado.getNaFila(), estado.restantes.length, taxa);
+        System.out.printf("Próximos %.0f min, %d replicações por ação, calculado em %.1f ms:\n",
+                horizonte / 60, REPLICACOES, calculoNs / 1e6);
+        for (Resultado resultado : resultados) {
+            StringBuilder linha = new StringBuilder();
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                HistogramaLatencia esperas = resultado.esperasMs[nivel];
+                linha.append(nivel == 0 ? "" : ", ").append(String.format("%s %.1f/%.1f s, %.1f%% rej.",
+                        categorias.getNome(nivel), esperas.getMedia() / 1000, esperas.percentil(0.95) / 1000.0,
+                        resultado.getTaxaRejeicao(nivel) * 100));
+            }
+            System.out.printf("   %-12s (%d, %s, utilização %.0f%%): %s\n", resultado.acao, resultado.barbeiros,
+                    resultado.despacho, resultado.getUtilizacao() * 100, linha);
+        }
+        System.out.println("   (espera média/p95 por categoria)");
+        System.out.println("********************************************************");
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Processo de chegada de clientes à fila externa.
+ * Dado o instante atual (em segundos desde o início da simulação), sorteia o instante
+ * da próxima chegada. As implementações usam o gerador recebido, de modo que toda a
+ * aleatoriedade da simulação vem de um único {@link GeradorAleatorio}.
+ *
+ * Implementações disponíveis:
+ * {@link Poisson} (taxa constante), {@link Mmpp} (rajadas moduladas por uma cadeia de
+ * Markov) e {@link Diurno} (taxa que varia ao longo do "dia").
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public interface ProcessoChegada {
+
+    /**
+     * Sorteia o instante da próxima chegada.
+     *
+     * @param instante O instante da chegada anterior, em segundos.
+     * @param aleatorio O gerador de números aleatórios.
+     * @return O instante da próxima chegada, em segundos, maior ou igual a {@code instante}.
+     */
+    double proximaChegada(double instante, GeradorAleatorio aleatorio);
+
+    /**
+     * Retorna a taxa média de longo prazo, em clientes por segundo.
+     */
+    double getTaxaMedia();
+
+    /**
+     * Retorna o estado interno do processo, para salvar em um checkpoint.
+     * Processos sem estado além do instante da última chegada retornam 0.
+     */
+    default long getEstado() {
+        return 0;
+    }
+
+    /**
+     * Restaura um estado lido de {@link #getEstado()}.
+     */
+    default void setEstado(long estado) {
+    }
+
+    /**
+     * Chegadas de Poisson: intervalos exponenciais com taxa constante.
+     */
+    final class Poisson implements ProcessoChegada {
+        private final double taxa;
+
+        /**
+         * @param taxa Clientes por segundo.
+         */
+        public Poisson(double taxa) {
+            if (taxa <= 0) throw new IllegalArgumentException("A taxa deve ser positiva.");
+            this.taxa = taxa;
+        }
+
+        @Override
+        public double proximaChegada(double instante, GeradorAleatorio aleatorio) {
+            return instante + aleatorio.exponencial(taxa);
+        }
+
+        @Override
+        public double getTaxaMedia() {
+            return taxa;
+        }
+    }
+
+    /**
+     * Processo de Poisson modulado por Markov (MMPP): a taxa de chegada depende de uma fase,
+     * e a fase muda para a seguinte (em ciclo) após um tempo exponencial. Com uma fase calma
+     * e uma fase de rajada, reproduz chegadas em surtos.
+     */
+    final class Mmpp implements ProcessoChegada {
+        private final double[] taxas;        // Clientes por segundo em cada fase
+        private final double[] taxasSaida;   // Trocas de fase por segundo em cada fase
+        private int fase = 0;
+
+        /**
+         * @param taxas A taxa de chegada de cada fase, em clientes por segundo.
+         * @param duracoesMedias A duração média de cada fase, em segundos.
+         */
+        public Mmpp(double[] taxas, double[] duracoesMedias) {
+            if (taxas.length == 0 || taxas.length != duracoesMedias.length) {
+                throw new IllegalArgumentException("Cada fase precisa de uma taxa e de uma duração.");
+            }
+            this.taxas = taxas.clone();
+            this.taxasSaida = new double[duracoesMedias.length];
+            for (int i = 0; i < duracoesMedias.length; i++) {
+                if (taxas[i] < 0 || duracoesMedias[i] <= 0) {
+                    throw new IllegalArgumentException("Taxa ou duração de fase inválida.");
+                }
+                taxasSaida[i] = 1.0 / duracoesMedias[i];
+            }
+        }
+
+        @Override
+        public double proximaChegada(double instante, GeradorAleatorio aleatorio) {
+            // Corrida entre "chega um cliente" e "muda de fase"; repete até um cliente chegar
+            while (true) {
+                double total = taxas[fase] + taxasSaida[fase];
+                instante += aleatorio.exponencial(total);
+                if (aleatorio.proximoDouble() * total < taxas[fase]) {
+                    return instante;
+                }
+                fase = (fase + 1) % taxas.length;
+            }
+        }
+
+        @Override
+        public double getTaxaMedia() {
+            // Média das taxas ponderada pelo tempo passado em cada fase
+            double tempoTotal = 0;
+            double chegadas = 0;
+            for (int i = 0; i < taxas.length; i++) {
+                tempoTotal += 1.0 / taxasSaida[i];
+                chegadas += taxas[i] / taxasSaida[i];
+            }
+            return chegadas / tempoTotal;
+        }
+
+        /**
+         * O estado do processo é a fase atual.
+         */
+        @Override
+        public long getEstado() {
+            return fase;
+        }
+
+        @Override
+        public void setEstado(long estado) {
+            if (estado < 0 || estado >= taxas.length) throw new IllegalArgumentException("Fase inválida: " + estado);
+            this.fase = (int) estado;
+        }
+    }
+
+    /**
+     * Perfil diurno: a taxa oscila senoidalmente em torno de uma média,
+     * {@code taxa(t) = media * (1 + amplitude * sen(2*pi*t / periodo))}.
+     * As chegadas são sorteadas por afinamento (thinning): candidatos à taxa máxima
+     * são aceitos com probabilidade {@code taxa(t) / taxaMaxima}.
+     */
+    final class Diurno implements ProcessoChegada {
+        private final double media;
+        private final double amplitude;
+        private final double periodo;
+        private final double taxaMaxima;
+
+        /**
+         * @param media A taxa média, em clientes por segundo.
+         * @param amplitude A variação relativa em torno da média, entre 0 e 1.
+         * @param periodo A duração de um "dia" simulado, em segundos.
+         */
+        public Diurno(double media, double amplitude, double periodo) {
+            if (media <= 0 || amplitude < 0 || amplitude > 1 || periodo <= 0) {
+                throw new IllegalArgumentException("Perfil diurno inválido.");
+            }
+            this.media = media;
+            this.amplitude = amplitude;
+            this.periodo = periodo;
+            this.taxaMaxima = media * (1 + amplitude);
+        }
+
+        /**
+         * Retorna a taxa de chegada no instante informado, em clientes por segundo.
+         */
+        public double getTaxa(double instante) {
+            return media * (1 + amplitude * Math.sin(2 * Math.PI * instante / periodo));
+        }
+
+        @Override
+        public double proximaChegada(double instante, GeradorAleatorio aleatorio) {
+            while (true) {
+                instante += aleatorio.exponencial(taxaMaxima);
+                if (aleatorio.proximoDouble() * taxaMaxima < getTaxa(instante)) {
+                    return instante;
+                }
+            }
+        }
+
+        @Override
+        public double getTaxaMedia() {
+            return media;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.function.Consumer;
+
+/**
+ * Roda de temporização com hash (hashed timing wheel) para prazos em milissegundos.
+ * O tempo é dividido em ticks de {@code tickMs}; cada tick cai em um dos baldes do anel
+ * (tick módulo o número de baldes) e cada balde é uma lista duplamente encadeada.
+ * Um prazo além de uma volta do anel guarda quantas voltas ainda faltam.
+ *
+ * Agendar e cancelar custam O(1), independente de quantos prazos estejam pendentes, e
+ * {@link #avancar(long, Consumer)} só visita os baldes dos ticks que passaram. Assim milhares
+ * de clientes esperando não precisam de uma thread de timer cada nem de varrer as filas.
+ * Não é thread-safe: cada despacho a protege com a trava das filas cujos clientes ela acompanha.
+ *
+ * @param <T> O tipo do item associado a cada prazo.
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class RodaTemporizacao<T> {
+
+    /**
+     * Um prazo agendado. Guardado por quem agendou para poder cancelar.
+     */
+    public static final class Entrada<T> {
+        private final T item;
+        private final long prazoMs;
+        private long voltas;
+        private Entrada<T> anterior;
+        private Entrada<T> proxima;
+        private int balde = -1; // -1: não está na roda (expirada ou cancelada)
+
+        private Entrada(T item, long prazoMs) {
+            this.item = item;
+            this.prazoMs = prazoMs;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        /**
+         * Retorna o instante agendado, em milissegundos (antes do arredondamento para o tick).
+         */
+        public long getPrazoMs() {
+            return prazoMs;
+        }
+    }
+
+    private final long tickMs;
+    private final long origemMs;
+    private final Entrada<T>[] baldes; // Cabeça da lista de cada balde
+    private final int mascara;
+    private long tickAtual = 0; // Último tick já processado
+    private int pendentes = 0;
+
+    /**
+     * @param tickMs A resolução da roda, em milissegundos.
+     * @param quantidadeBaldes O número de baldes (arredondado para a próxima potência de 2).
+     * @param origemMs O instante correspondente ao tick 0.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public RodaTemporizacao(long tickMs, int quantidadeBaldes, long origemMs) {
+        if (tickMs <= 0 || quantidadeBaldes <= 0) throw new IllegalArgumentException("Tick e baldes devem ser positivos.");
+        int tamanho = quantidadeBaldes == 1 ? 1 : Integer.highestOneBit(quantidadeBaldes - 1) << 1;
+        this.tickMs = tickMs;
+        this.origemMs = origemMs;
+        this.baldes = new Entrada[tamanho];
+        this.mascara = tamanho - 1;
+    }
+
+    /**
+     * Agenda um prazo. Um prazo que já passou expira no próximo {@link #avancar(long, Consumer)}.
+     *
+     * @param item O item devolvido quando o prazo expirar.
+     * @param prazoMs O instante do prazo, em milissegundos.
+     * @return A entrada, para {@link #cancelar(Entrada)}.
+     */
+    public Entrada<T> agendar(T item, long prazoMs) {
+        long tick = Math.max(tickAtual + 1, (prazoMs - origemMs + tickMs - 1) / tickMs); // Nunca antes do prazo
+        Entrada<T> entrada = new Entrada<>(item, prazoMs);
+        entrada.voltas = (tick - tickAtual - 1) / baldes.length;
+        int balde = (int) (tick & mascara);
+        entrada.balde = balde;
+        entrada.proxima = baldes[balde];
+        if (baldes[balde] != null) baldes[balde].anterior = entrada;
+        baldes[balde] = entrada;
+        pendentes++;
+        return entrada;
+    }
+
+    /**
+     * Cancela um prazo pendente.
+     *
+     * @return true se a entrada ainda estava na roda.
+     */
+    public boolean cancelar(Entrada<T> entrada) {
+        if (entrada == null || entrada.balde < 0) return false;
+        remover(entrada);
+        return true;
+    }
+
+    private void remover(Entrada<T> entrada) {
+        if (entrada.anterior != null) {
+            entrada.anterior.proxima = entrada.proxima;
+        } else {
+            baldes[entrada.balde] = entrada.proxima;
+        }
+        if (entrada.proxima != null) entrada.proxima.anterior = entrada.anterior;
+        entrada.anterior = null;
+        entrada.proxima = null;
+        entrada.balde = -1;
+        pendentes--;
+    }
+
+    /**
+     * Processa todos os ticks completos até {@code agoraMs}, entregando os itens vencidos.
+     * Se a roda ficou parada por mais de uma volta, cada balde é visitado uma vez só.
+     *
+     * @param agoraMs O instante atual, em milissegundos.
+     * @param aoExpirar Recebe cada item cujo prazo venceu.
+     * @return Quantos itens expiraram.
+     */
+    public int avancar(long agoraMs, Consumer<T> aoExpirar) {
+        long alvo = (agoraMs - origemMs) / tickMs;
+        int expirados = 0;
+        long passos = Math.min(alvo - tickAtual, baldes.length);
+        for (long i = 1; i <= passos && pendentes > 0; i++) {
+            long tick = tickAtual + i;
+            // Quantas vezes este balde seria visitado se a roda tivesse girado tick a tick
+            long visitas = (alvo - tick) / baldes.length + 1;
+            Entrada<T> entrada = baldes[(int) (tick & mascara)];
+            while (entrada != null) {
+                Entrada<T> proxima = entrada.proxima;
+                if (entrada.voltas < visitas) {
+                    remover(entrada);
+                    aoExpirar.accept(entrada.item);
+                    expirados++;
+                } else {
+                    entrada.voltas -= visitas;
+                }
+                entrada = proxima;
+            }
+        }
+        if (alvo > tickAtual) tickAtual = alvo;
+        return expirados;
+    }
+
+    /**
+     * Retorna quantos prazos estão pendentes.
+     */
+    public int getPendentes() {
+        return pendentes;
+    }
+}
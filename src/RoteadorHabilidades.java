@@ -0,0 +1,192 @@
+import java.util.Arrays;
+
+/**
+ * Roteamento de clientes entre barbeiros com velocidades e habilidades diferentes
+ * (ver {@link Habilidades}). Usado pela {@link BarbeariaHabilidades} e pela
+ * {@link SimulacaoVirtual}, para que a comparação em tempo virtual use a mesma política.
+ *
+ * Há duas decisões, cada uma tomada por quem fica livre:
+ * <ul>
+ * <li>Um barbeiro que termina um atendimento escolhe o nível pela regra cμ generalizada
+ * (Gcμ): o maior peso(i) x idade(i) / (serviço(i) x fator(i)), em que idade e serviço são os
+ * do primeiro cliente da fila i. É a derivada do custo quadrático da espera vezes a taxa de
+ * atendimento desse barbeiro para esse cliente: favorece categorias prioritárias, clientes
+ * que ele atende rápido e clientes esperando há muito tempo, sem deixar nenhum nível
+ * esperar para sempre. No empate (por exemplo, todos acabaram de chegar), vence o nível
+ * mais prioritário.</li>
+ * <li>Um cliente que chega com barbeiros ociosos aptos vai para o mais rápido deles no seu
+ * nível; no empate, o menos versátil, para deixar livres os que atendem mais categorias.
+ * Um barbeiro só fica ocioso quando não há cliente que ele atenda, então o cliente que
+ * encontra um barbeiro ocioso apto nunca passa na frente de ninguém do seu nível.</li>
+ * </ul>
+ * O custo não depende do tamanho da equipe na escolha do nível (só os níveis não vazios e
+ * aptos do barbeiro são visitados, por um E de mapas de bits) e é de uma busca de bit por
+ * palavra de 64 barbeiros na escolha do barbeiro: cada nível mantém um mapa de bits dos
+ * barbeiros aptos ociosos, na ordem de velocidade. Marcar um barbeiro como ocioso ou
+ * ocupado custa O(níveis que ele atende).
+ * Não é thread-safe: quem usa protege com o próprio lock.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class RoteadorHabilidades {
+
+    /**
+     * O primeiro cliente de cada fila, consultado só para os níveis não vazios.
+     */
+    public interface Cabecas {
+        /** A idade (espera até agora) do primeiro cliente do nível, em segundos. */
+        double getIdadeCabeca(int nivel);
+
+        /** O tempo de serviço nominal do primeiro cliente do nível, em segundos. */
+        double getServicoCabeca(int nivel);
+    }
+
+    private static final double SERVICO_MINIMO = 0.001; // Evita divisão por zero com serviço de 0 s
+
+    private final Habilidades[] equipe;
+    private final int niveis;
+    private final double[] pesos;
+    private final int[][] rankingPorNivel;   // Barbeiros aptos de cada nível, do mais rápido ao mais lento
+    private final int[][] posicaoNoRanking;  // [barbeiro][nível]: posição no ranking, -1 se não apto
+    private final long[][] ociososPorNivel;  // [nível]: bit k ligado se o k-ésimo do ranking está ocioso
+    private final boolean[] ocioso;
+
+    /**
+     * @param equipe O perfil de cada barbeiro; todo nível deve ter pelo menos um barbeiro apto.
+     * @param pesos O peso de cada nível no custo da espera (ver {@link #pesosPadrao(int)}).
+     * @throws IllegalArgumentException se algum nível não tiver barbeiro apto.
+     */
+    public RoteadorHabilidades(Habilidades[] equipe, double[] pesos) {
+        this.equipe = equipe.clone();
+        this.niveis = pesos.length;
+        this.pesos = pesos.clone();
+        this.rankingPorNivel = new int[niveis][];
+        this.posicaoNoRanking = new int[equipe.length][niveis];
+        this.ociososPorNivel = new long[niveis][];
+        this.ocioso = new boolean[equipe.length];
+
+        for (int[] posicoes : posicaoNoRanking) Arrays.fill(posicoes, -1);
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            int nivelFinal = nivel;
+            Integer[] aptos = new Integer[equipe.length];
+            int quantidade = 0;
+            for (int b = 0; b < equipe.length; b++) {
+                if (equipe[b].getNiveis() != niveis) throw new IllegalArgumentException("Perfil com número de níveis errado.");
+                if (equipe[b].isElegivel(nivel)) aptos[quantidade++] = b;
+            }
+            if (quantidade == 0) throw new IllegalArgumentException("Nenhum barbeiro atende o nível " + nivel + ".");
+            Arrays.sort(aptos, 0, quantidade, (a, c) -> {
+                int porFator = Double.compare(equipe[a].getFator(nivelFinal), equipe[c].getFator(nivelFinal));
+                if (porFator != 0) return porFator;
+                return Integer.compare(equipe[a].getQuantidadeElegiveis(), equipe[c].getQuantidadeElegiveis());
+            });
+            rankingPorNivel[nivel] = new int[quantidade];
+            for (int k = 0; k < quantidade; k++) {
+                rankingPorNivel[nivel][k] = aptos[k];
+                posicaoNoRanking[aptos[k]][nivel] = k;
+            }
+            ociososPorNivel[nivel] = new long[(quantidade + 63) / 64];
+        }
+    }
+
+    /**
+     * Pesos que preservam a ordem das categorias: cada nível vale o dobro do seguinte.
+     */
+    public static double[] pesosPadrao(int niveis) {
+        double[] pesos = new double[niveis];
+        for (int nivel = 0; nivel < niveis; nivel++) pesos[nivel] = Math.pow(2, niveis - 1 - nivel);
+        return pesos;
+    }
+
+    /**
+     * Escolhe o nível que um barbeiro livre deve atender.
+     *
+     * @param barbeiro O índice do barbeiro.
+     * @param naoVazias O mapa de bits dos níveis com clientes esperando.
+     * @param cabecas Os primeiros clientes das filas.
+     * @return O nível escolhido, ou -1 se não houver cliente que o barbeiro atenda.
+     */
+    public int escolherNivel(int barbeiro, long[] naoVazias, Cabecas cabecas) {
+        Habilidades perfil = equipe[barbeiro];
+        long[] elegiveis = perfil.getElegiveis();
+        int melhor = -1;
+        double melhorIndice = -1;
+        for (int palavra = 0; palavra < elegiveis.length; palavra++) {
+            long candidatos = naoVazias[palavra] & elegiveis[palavra];
+            while (candidatos != 0) {
+                int nivel = (palavra << 6) + Long.numberOfTrailingZeros(candidatos);
+                candidatos &= candidatos - 1;
+                double servico = Math.max(SERVICO_MINIMO, cabecas.getServicoCabeca(nivel) * perfil.getFator(nivel));
+                double indice = pesos[nivel] * cabecas.getIdadeCabeca(nivel) / servico;
+                if (indice > melhorIndice) { // Estrito: no empate fica o mais prioritário, visitado antes
+                    melhorIndice = indice;
+                    melhor = nivel;
+                }
+            }
+        }
+        return melhor;
+    }
+
+    /**
+     * Retorna o barbeiro ocioso mais rápido que atende o nível, ou -1 se não houver.
+     * O barbeiro continua marcado como ocioso até {@link #marcarOcupado(int)}.
+     */
+    public int escolherBarbeiroOcioso(int nivel) {
+        long[] ociosos = ociososPorNivel[nivel];
+        for (int palavra = 0; palavra < ociosos.length; palavra++) {
+            if (ociosos[palavra] != 0) {
+                return rankingPorNivel[nivel][(palavra << 6) + Long.numberOfTrailingZeros(ociosos[palavra])];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Marca o barbeiro como ocioso: ele não achou cliente que atenda e espera uma chegada.
+     */
+    public void marcarOcioso(int barbeiro) {
+        if (ocioso[barbeiro]) return;
+        ocioso[barbeiro] = true;
+        alterarOcioso(barbeiro, true);
+    }
+
+    /**
+     * Marca o barbeiro como ocupado (recebeu um cliente ou foi acordado sem cliente).
+     */
+    public void marcarOcupado(int barbeiro) {
+        if (!ocioso[barbeiro]) return;
+        ocioso[barbeiro] = false;
+        alterarOcioso(barbeiro, false);
+    }
+
+    private void alterarOcioso(int barbeiro, boolean valor) {
+        long[] elegiveis = equipe[barbeiro].getElegiveis();
+        for (int palavra = 0; palavra < elegiveis.length; palavra++) {
+            long niveisAptos = elegiveis[palavra];
+            while (niveisAptos != 0) {
+                int nivel = (palavra << 6) + Long.numberOfTrailingZeros(niveisAptos);
+                niveisAptos &= niveisAptos - 1;
+                int k = posicaoNoRanking[barbeiro][nivel];
+                if (valor) {
+                    ociososPorNivel[nivel][k >>> 6] |= 1L << k;
+                } else {
+                    ociososPorNivel[nivel][k >>> 6] &= ~(1L << k);
+                }
+            }
+        }
+    }
+
+    public boolean isOcioso(int barbeiro) {
+        return ocioso[barbeiro];
+    }
+
+    public int getBarbeiros() {
+        return equipe.length;
+    }
+
+    public Habilidades getHabilidades(int barbeiro) {
+        return equipe[barbeiro];
+    }
+}
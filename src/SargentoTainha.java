@@ -1,34 +1,93 @@
-import java.util.Random;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 
+/**
+ * Representa a thread do Sargento Tainha, o "produtor" de clientes.
+ * No modo original, ele cochila entre 1 e 5 segundos, converte o cochilo em chegadas
+ * (1 cliente por segundo) e vai embora após 3 tentativas vazias seguidas.
+ * No modo com {@link GeradorChegadas}, as chegadas seguem o processo configurado
+ * (Poisson, rajadas ou perfil diurno) em tempo real, até gerar o total de clientes.
+ * Opcionalmente grava checkpoints periódicos da simulação entre duas chegadas
+ * (ver {@link Checkpoint}).
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
 public class SargentoTainha implements Runnable {
     private Barbearia barbearia;
     private int periodoCochiloMinMs;
     private int periodoCochiloMaxMs;
-    private Random random;
+    private GeradorAleatorio random;
+    private GeradorChegadas gerador; // null no modo original
 
     // Constantes baseadas nos requisitos do trabalho e do professor
-    private final int TOTAL_CLIENTES_PARA_GERAR = 1000; // 
+    private final int TOTAL_CLIENTES_PARA_GERAR = 1000; //
     private final int TAXA_GERACAO_EXTERNA_MS = 1000; // 1 cliente a cada 1 segundo (conforme professor)
 
     private volatile boolean encerrar = false;
     private int tentativasVaziasSequenciais = 0;
-    private final int MAX_TENTATIVAS_VAZIAS = 3; // 
+    private final int MAX_TENTATIVAS_VAZIAS = 3; //
     private int clientesGerados = 0;
 
+    private long inicioGeradorNs;          // Origem do relógio do gerador, em System.nanoTime()
+    private long decorridoRestauradoNs = 0; // Tempo do gerador já passado antes do checkpoint restaurado
+
+    private Path arquivoCheckpoint;  // null se os checkpoints estiverem desligados
+    private long intervaloCheckpointMs;
+    private long proximoCheckpointMs;
+
     public SargentoTainha(Barbearia barbearia, int periodoCochiloMinMs, int periodoCochiloMaxMs) {
         this.barbearia = barbearia;
         this.periodoCochiloMinMs = periodoCochiloMinMs;
         this.periodoCochiloMaxMs = periodoCochiloMaxMs;
-        this.random = new Random();
+        this.random = new GeradorAleatorio(System.nanoTime());
+    }
+
+    /**
+     * Constrói o Sargento no modo com processo de chegada configurável.
+     *
+     * @param barbearia A instância compartilhada da Barbearia.
+     * @param gerador O gerador que define quando chegam os clientes e de que nível são.
+     */
+    public SargentoTainha(Barbearia barbearia, GeradorChegadas gerador) {
+        this.barbearia = barbearia;
+        this.gerador = gerador;
+        this.random = gerador.getAleatorio();
+    }
+
+    /**
+     * Liga a gravação periódica de checkpoints.
+     * Deve ser chamado antes de iniciar a thread.
+     *
+     * @param arquivo O arquivo de checkpoint (substituído a cada gravação).
+     * @param intervaloMs O intervalo mínimo entre duas gravações, em milissegundos.
+     */
+    public void configurarCheckpoint(Path arquivo, long intervaloMs) {
+        this.arquivoCheckpoint = arquivo;
+        this.intervaloCheckpointMs = intervaloMs;
+        this.proximoCheckpointMs = System.currentTimeMillis() + intervaloMs;
     }
 
     @Override
     public void run() {
         System.out.println("Sargento Tainha começou a tentar adicionar clientes.");
+        if (gerador != null) {
+            executarComGerador();
+        } else {
+            executarCochilos();
+        }
+        System.out.println("Sargento Tainha finalizou suas operações de adição. Total de clientes gerados: " + clientesGerados);
+        barbearia.registrarUsoThread(UsoThread.medirThreadAtual("Sargento Tainha"));
+        barbearia.sargentoFoiEmbora();
+    }
+
+    private void executarCochilos() {
         while (!encerrar && clientesGerados < TOTAL_CLIENTES_PARA_GERAR) {
             try {
                 // 1. Sargento dorme por um tempo aleatório definido na inicialização
-                long tempoCochilo = random.nextInt(periodoCochiloMaxMs - periodoCochiloMinMs + 1) + periodoCochiloMinMs;
+                long tempoCochilo = random.proximoInt(periodoCochiloMaxMs - periodoCochiloMinMs + 1) + periodoCochiloMinMs;
                 Thread.sleep(tempoCochilo);
 
                 // 2. Calcula quantos clientes "chegaram" na fila externa enquanto ele dormia
@@ -44,19 +103,13 @@ public class SargentoTainha implements Runnable {
 
                 // 3. Processa cada cliente que "chegou" durante o cochilo
                 for (int i = 0; i < clientesQueChegaram && clientesGerados < TOTAL_CLIENTES_PARA_GERAR; i++) {
-                    Cliente clienteTentativa = Cliente.gerarClienteAleatorio();
+                    Cliente clienteTentativa = barbearia.getCategorias().gerarClienteAleatorio(random);
                     barbearia.registrarGeracaoCliente(clienteTentativa); // Registra para o relatório
 
-                    if (clienteTentativa.getCategoria() == Cliente.Categoria.PAUSA) {
+                    if (clienteTentativa.isPausa()) {
                         encontrouPausaNesteCiclo = true;
-                    } else {
-                        clientesGerados++;
-                        if (barbearia.adicionarCliente(clienteTentativa)) {
-                            System.out.println("Sargento Tainha adicionou um " + clienteTentativa.getCategoria() + ". (" + clientesGerados + "/" + TOTAL_CLIENTES_PARA_GERAR + ")");
-                            adicionouPeloMenosUmRealNesteCiclo = true;
-                        } else {
-                            System.out.println("Sargento Tainha tentou adicionar um " + clienteTentativa.getCategoria() + ", mas a barbearia está cheia.");
-                        }
+                    } else if (tentarAdicionar(clienteTentativa)) {
+                        adicionouPeloMenosUmRealNesteCiclo = true;
                     }
                 }
 
@@ -75,6 +128,8 @@ public class SargentoTainha implements Runnable {
                     System.out.println("Sargento Tainha foi para casa (3 tentativas vazias sequenciais).");
                     encerrar = true;
                 }
+                gravarCheckpointSeVencido();
+                verificarRegimeConvergido();
 
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -82,11 +137,120 @@ public class SargentoTainha implements Runnable {
                 break;
             }
         }
-        System.out.println("Sargento Tainha finalizou suas operações de adição. Total de clientes gerados: " + clientesGerados);
-        barbearia.sargentoFoiEmbora();
+    }
+
+    /**
+     * Segue o relógio do gerador: dorme até a próxima chegada e adiciona todas as que
+     * já venceram de uma vez, para que taxas altas não dependam da precisão do sleep.
+     */
+    private void executarComGerador() {
+        inicioGeradorNs = System.nanoTime() - decorridoRestauradoNs;
+        while (!encerrar && clientesGerados < TOTAL_CLIENTES_PARA_GERAR) {
+            try {
+                long esperaNs = (long) (gerador.getProximoInstante() * 1e9) - (System.nanoTime() - inicioGeradorNs);
+                if (esperaNs > 1_000_000) {
+                    Thread.sleep(esperaNs / 1_000_000, (int) (esperaNs % 1_000_000));
+                }
+
+                double agora = (System.nanoTime() - inicioGeradorNs) / 1e9;
+                while (gerador.getProximoInstante() <= agora && clientesGerados < TOTAL_CLIENTES_PARA_GERAR) {
+                    Cliente clienteTentativa = gerador.proximo();
+                    barbearia.registrarGeracaoCliente(clienteTentativa); // Registra para o relatório
+                    if (!clienteTentativa.isPausa()) {
+                        tentarAdicionar(clienteTentativa);
+                    }
+                }
+                gravarCheckpointSeVencido();
+                verificarRegimeConvergido();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.out.println("Sargento Tainha interrompido.");
+                break;
+            }
+        }
+    }
+
+    private boolean tentarAdicionar(Cliente clienteTentativa) throws InterruptedException {
+        clientesGerados++;
+        String nome = barbearia.getCategorias().getNome(clienteTentativa.getNivel());
+        boolean aceito = barbearia.adicionarCliente(clienteTentativa);
+        barbearia.registrarChegada(aceito);
+        if (aceito) {
+            System.out.println("Sargento Tainha adicionou um " + nome + ". (" + clientesGerados + "/" + TOTAL_CLIENTES_PARA_GERAR + ")");
+            return true;
+        }
+        System.out.println("Sargento Tainha tentou adicionar um " + nome + ", mas a barbearia está cheia.");
+        return false;
+    }
+
+    /**
+     * Encerra a geração de clientes se as estimativas em regime permanente já convergiram
+     * (ver {@link Barbearia#setPrecisaoRegime(double)}).
+     */
+    private void verificarRegimeConvergido() {
+        if (!encerrar && barbearia.isRegimeConvergido()) {
+            System.out.println("Sargento Tainha foi para casa (as estimativas em regime permanente convergiram).");
+            encerrar = true;
+        }
+    }
+
+    /**
+     * Grava um checkpoint se o intervalo configurado já passou.
+     * Uma falha de gravação é relatada mas não interrompe a simulação.
+     */
+    private void gravarCheckpointSeVencido() throws InterruptedException {
+        if (arquivoCheckpoint == null || System.currentTimeMillis() < proximoCheckpointMs) return;
+        try {
+            int bytes = Checkpoint.gravar(arquivoCheckpoint, barbearia, this);
+            System.out.println("Sargento Tainha gravou um checkpoint em " + arquivoCheckpoint + " (" + bytes + " bytes).");
+        } catch (IOException e) {
+            System.out.println("Falha ao gravar o checkpoint: " + e.getMessage());
+        }
+        proximoCheckpointMs = System.currentTimeMillis() + intervaloCheckpointMs;
+    }
+
+    /**
+     * Escreve o estado do produtor em um checkpoint: contadores, estado do gerador
+     * aleatório e, no modo com gerador, o relógio virtual e o estado do processo de chegada.
+     * Chamado pela própria thread do Sargento, entre duas chegadas.
+     *
+     * @param escritor O buffer do checkpoint.
+     */
+    public void capturarEstado(Checkpoint.Escritor escritor) {
+        escritor.putByte((byte) (gerador != null ? 1 : 0));
+        escritor.putInt(clientesGerados);
+        escritor.putInt(tentativasVaziasSequenciais);
+        escritor.putLong(random.getEstado());
+        if (gerador != null) {
+            escritor.putDouble(gerador.getProximoInstante());
+            escritor.putLong(System.nanoTime() - inicioGeradorNs);
+            escritor.putLong(gerador.getProcesso().getEstado());
+        }
+    }
+
+    /**
+     * Restaura o estado salvo por {@link #capturarEstado(Checkpoint.Escritor)}.
+     * Deve ser chamado antes de iniciar a thread, com o Sargento criado no mesmo modo.
+     *
+     * @param dados O conteúdo do checkpoint, posicionado no estado do Sargento.
+     * @throws IllegalStateException se o checkpoint foi gravado em outro modo.
+     */
+    public void restaurarEstado(ByteBuffer dados) {
+        boolean comGerador = dados.get() == 1;
+        if (comGerador != (gerador != null)) {
+            throw new IllegalStateException("O checkpoint foi gravado com outro processo de chegada.");
+        }
+        clientesGerados = dados.getInt();
+        tentativasVaziasSequenciais = dados.getInt();
+        random.setEstado(dados.getLong());
+        if (gerador != null) {
+            gerador.setProximoInstante(dados.getDouble());
+            decorridoRestauradoNs = dados.getLong();
+            gerador.getProcesso().setEstado(dados.getLong());
+        }
     }
 
     public void encerrar() {
         this.encerrar = true;
     }
-}
\ No newline at end of file
+}
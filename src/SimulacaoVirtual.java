@@ -0,0 +1,320 @@
+import java.util.Arrays;
+
+/**
+ * Simulação da barbearia em tempo virtual, por eventos discretos: em vez de dormir, o
+ * relógio salta direto para a próxima chegada ou o próximo fim de atendimento. Horas de
+ * operação são simuladas em milissegundos, sem threads.
+ *
+ * Reproduz as políticas de despacho da simulação real:
+ * {@link #GLOBAL} (Casos A, B e D: todos atendem por prioridade global) e
+ * {@link #DEDICADO} (Caso C: cada barbeiro atende primeiro o seu nível e, se estiver vazio,
+ * os outros por prioridade global). A capacidade de cadeiras é configurável; quem chega com
+ * todas ocupadas é rejeitado, como em {@link Barbearia#adicionarCliente(Cliente)}.
+ *
+ * Com uma equipe heterogênea ({@link Habilidades}), o tempo de serviço de cada cliente é
+ * multiplicado pelo fator do barbeiro que o atende e ninguém atende um nível em que não é
+ * apto. Nesse caso há também o despacho {@link #HABILIDADES} (Caso E), com o mesmo
+ * {@link RoteadorHabilidades} da {@link BarbeariaHabilidades}.
+ * Os tempos são em segundos; as esperas são registradas em milissegundos.
+ * Não é thread-safe: cada simulação é usada por uma thread só.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class SimulacaoVirtual {
+    public static final String GLOBAL = "Global";
+    public static final String DEDICADO = "Dedicado";
+    public static final String HABILIDADES = "Habilidades";
+
+    private final int niveis;
+    private final int cadeiras;
+    private final boolean dedicado;
+    private final Habilidades[] equipe;
+    private final RoteadorHabilidades roteador; // Só no modo HABILIDADES
+    private final int[] dedicacoes; // Nível preferido de cada barbeiro no modo DEDICADO
+    private final double[] livreEm;  // Instante em que cada barbeiro fica livre
+
+    // Uma fila circular por nível, com a chegada e o tempo de serviço de cada cliente
+    private final double[][] chegadas;
+    private final int[][] servicos;
+    private final int[] cabecas;
+    private final int[] tamanhos;
+    private final long[] naoVazias; // Bit i ligado se a fila do nível i tem clientes
+    private int ocupadas = 0;
+    private double agora = 0;
+
+    // Resultados
+    private final HistogramaLatencia[] esperasMs;
+    private final long[] aceitos;
+    private final long[] rejeitados;
+    private double segundosOcupados = 0;
+    private double segundosSimulados = 0;
+
+    private final RoteadorHabilidades.Cabecas primeiros = new RoteadorHabilidades.Cabecas() {
+        @Override
+        public double getIdadeCabeca(int nivel) {
+            return agora - chegadas[nivel][cabecas[nivel]];
+        }
+
+        @Override
+        public double getServicoCabeca(int nivel) {
+            return servicos[nivel][cabecas[nivel]];
+        }
+    };
+
+    /**
+     * Simulação com barbeiros generalistas, todos no tempo nominal.
+     *
+     * @param categorias Os níveis de prioridade.
+     * @param barbeiros O número de barbeiros.
+     * @param cadeiras O número de cadeiras de espera.
+     * @param despacho {@link #GLOBAL}, {@link #DEDICADO} ou {@link #HABILIDADES}.
+     */
+    public SimulacaoVirtual(Categorias categorias, int barbeiros, int cadeiras, String despacho) {
+        this(categorias, generalistas(barbeiros, categorias.getQuantidade()), cadeiras, despacho);
+    }
+
+    /**
+     * Simulação com uma equipe heterogênea. No modo DEDICADO, o nível preferido de cada
+     * barbeiro é aquele em que ele é mais rápido (o nível b % níveis, se empatar com ele).
+     *
+     * @param categorias Os níveis de prioridade.
+     * @param equipe O perfil de cada barbeiro; todo nível deve ter pelo menos um barbeiro apto.
+     * @param cadeiras O número de cadeiras de espera.
+     * @param despacho {@link #GLOBAL}, {@link #DEDICADO} ou {@link #HABILIDADES}.
+     * @throws IllegalArgumentException se algum nível não tiver barbeiro apto.
+     */
+    public SimulacaoVirtual(Categorias categorias, Habilidades[] equipe, int cadeiras, String despacho) {
+        if (equipe.length == 0 || cadeiras <= 0) throw new IllegalArgumentException("Barbeiros e cadeiras devem ser positivos.");
+        if (!despacho.equals(GLOBAL) && !despacho.equals(DEDICADO) && !despacho.equals(HABILIDADES)) {
+            throw new IllegalArgumentException("Despacho desconhecido: " + despacho);
+        }
+        this.niveis = categorias.getQuantidade();
+        this.cadeiras = cadeiras;
+        this.dedicado = despacho.equals(DEDICADO);
+        this.equipe = equipe.clone();
+        // O roteador também confere que todo nível tem quem o atenda
+        RoteadorHabilidades validado = new RoteadorHabilidades(equipe, RoteadorHabilidades.pesosPadrao(niveis));
+        this.roteador = despacho.equals(HABILIDADES) ? validado : null;
+        this.dedicacoes = new int[equipe.length];
+        for (int b = 0; b < equipe.length; b++) {
+            int maisRapido = equipe[b].getNivelMaisRapido();
+            int preferido = b % niveis;
+            boolean empata = equipe[b].isElegivel(preferido) && equipe[b].getFator(preferido) <= equipe[b].getFator(maisRapido);
+            dedicacoes[b] = empata ? preferido : maisRapido;
+        }
+        this.livreEm = new double[equipe.length];
+        if (roteador != null) {
+            for (int b = 0; b < equipe.length; b++) roteador.marcarOcioso(b);
+        }
+
+        chegadas = new double[niveis][cadeiras];
+        servicos = new int[niveis][cadeiras];
+        cabecas = new int[niveis];
+        tamanhos = new int[niveis];
+        naoVazias = new long[(niveis + 63) / 64];
+
+        esperasMs = new HistogramaLatencia[niveis];
+        for (int nivel = 0; nivel < niveis; nivel++) esperasMs[nivel] = new HistogramaLatencia();
+        aceitos = new long[niveis];
+        rejeitados = new long[niveis];
+    }
+
+    private static Habilidades[] generalistas(int barbeiros, int niveis) {
+        if (barbeiros <= 0) throw new IllegalArgumentException("Barbeiros e cadeiras devem ser positivos.");
+        Habilidades generalista = Habilidades.generalista(niveis);
+        Habilidades[] equipe = new Habilidades[barbeiros];
+        Arrays.fill(equipe, generalista);
+        return equipe;
+    }
+
+    /**
+     * Começa de um estado fotografado da barbearia real em vez da barbearia vazia (ver
+     * {@link PrevisaoVirtual}). Os clientes em espera entram nas filas com a espera que já
+     * acumularam, que é somada à espera registrada quando forem atendidos; eles não contam
+     * como chegadas aceitas. Cada atendimento em andamento ocupa um barbeiro pelo tempo que
+     * falta; se houver mais atendimentos que barbeiros, os excedentes vão para o barbeiro que
+     * fica livre primeiro. Deve ser chamado antes de {@link #executar}.
+     *
+     * @param estado O estado fotografado.
+     * @throws IllegalArgumentException se o estado tiver outro número de níveis.
+     */
+    public void semear(PrevisaoVirtual.Estado estado) {
+        if (estado.idades.length != niveis) {
+            throw new IllegalArgumentException("O estado tem " + estado.idades.length + " níveis, mas a simulação tem " + niveis + ".");
+        }
+        for (double restante : estado.restantes) {
+            int b = 0;
+            for (int outro = 1; outro < livreEm.length; outro++) {
+                if (livreEm[outro] < livreEm[b]) b = outro;
+            }
+            livreEm[b] = Math.max(livreEm[b], agora) + restante;
+            segundosOcupados += restante;
+        }
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            for (int i = 0; i < estado.idades[nivel].length && ocupadas < cadeiras; i++) {
+                int posicao = (cabecas[nivel] + tamanhos[nivel]) % cadeiras;
+                chegadas[nivel][posicao] = agora - estado.idades[nivel][i];
+                servicos[nivel][posicao] = estado.servicos[nivel][i];
+                if (tamanhos[nivel]++ == 0) naoVazias[nivel >>> 6] |= 1L << nivel;
+                ocupadas++;
+            }
+        }
+        if (roteador != null) {
+            // Todos voltam a escolher no próximo despacho; quem não achar cliente fica ocioso de novo
+            for (int b = 0; b < livreEm.length; b++) roteador.marcarOcupado(b);
+        }
+    }
+
+    /**
+     * Executa a simulação por {@code duracao} segundos virtuais a partir do instante atual,
+     * com as chegadas do gerador (cujos instantes são tratados como tempo da simulação).
+     * Pode ser chamado de novo para continuar de onde parou.
+     *
+     * @param gerador O gerador de chegadas.
+     * @param duracao A duração em segundos virtuais.
+     */
+    public void executar(GeradorChegadas gerador, double duracao) {
+        double fim = agora + duracao;
+        while (true) {
+            despachar();
+            double proximoFim = Double.POSITIVE_INFINITY;
+            for (double instante : livreEm) {
+                if (instante > agora && instante < proximoFim) proximoFim = instante;
+            }
+            double proximaChegada = gerador.getProximoInstante();
+
+            if (proximaChegada <= proximoFim && proximaChegada <= fim) {
+                agora = Math.max(agora, proximaChegada);
+                int nivel = gerador.sortearNivel();
+                int tempoServico = gerador.sortearTempoServico(nivel);
+                gerador.avancar();
+                if (nivel != Cliente.PAUSA) chegar(nivel, tempoServico);
+            } else if (proximoFim <= fim) {
+                agora = proximoFim;
+            } else {
+                break;
+            }
+        }
+        segundosSimulados += duracao;
+        agora = fim;
+    }
+
+    private void chegar(int nivel, int tempoServico) {
+        if (roteador != null) {
+            // Como na BarbeariaHabilidades: um barbeiro ocioso apto recebe o cliente sem fila
+            int b = roteador.escolherBarbeiroOcioso(nivel);
+            if (b >= 0) {
+                roteador.marcarOcupado(b);
+                aceitos[nivel]++;
+                esperasMs[nivel].registrar(0);
+                iniciarAtendimento(b, nivel, tempoServico);
+                return;
+            }
+        }
+        if (ocupadas >= cadeiras) {
+            rejeitados[nivel]++;
+            return;
+        }
+        int posicao = (cabecas[nivel] + tamanhos[nivel]) % cadeiras;
+        chegadas[nivel][posicao] = agora;
+        servicos[nivel][posicao] = tempoServico;
+        if (tamanhos[nivel]++ == 0) naoVazias[nivel >>> 6] |= 1L << nivel;
+        ocupadas++;
+        aceitos[nivel]++;
+    }
+
+    /**
+     * Entrega clientes aos barbeiros livres no instante atual, conforme o despacho.
+     */
+    private void despachar() {
+        // No modo HABILIDADES o barbeiro que fica livre sem cliente precisa ser marcado ocioso
+        if (ocupadas == 0 && roteador == null) return;
+        for (int b = 0; b < livreEm.length; b++) {
+            // "while" e não "if": com tempo de serviço zero o barbeiro fica livre no mesmo instante
+            while (livreEm[b] <= agora && (roteador == null || !roteador.isOcioso(b))) {
+                if (!atender(b)) break;
+            }
+        }
+    }
+
+    /**
+     * O barbeiro b, livre agora, retira um cliente que ele atende: no modo HABILIDADES, o
+     * escolhido pelo roteador; no DEDICADO, o do seu nível, se houver; senão, o de maior
+     * prioridade.
+     *
+     * @return false se não houver cliente que o barbeiro atenda (no modo HABILIDADES, ele fica ocioso).
+     */
+    private boolean atender(int b) {
+        int nivel;
+        if (roteador != null) {
+            nivel = ocupadas == 0 ? -1 : roteador.escolherNivel(b, naoVazias, primeiros);
+            if (nivel < 0) {
+                roteador.marcarOcioso(b);
+                return false;
+            }
+        } else {
+            if (ocupadas == 0) return false;
+            nivel = dedicado && tamanhos[dedicacoes[b]] > 0 ? dedicacoes[b] : nivelMaisPrioritario(b);
+            if (nivel < 0) return false;
+        }
+        int posicao = cabecas[nivel];
+        double espera = agora - chegadas[nivel][posicao];
+        int tempoServico = servicos[nivel][posicao];
+        cabecas[nivel] = (posicao + 1) % cadeiras;
+        if (--tamanhos[nivel] == 0) naoVazias[nivel >>> 6] &= ~(1L << nivel);
+        ocupadas--;
+
+        esperasMs[nivel].registrar(Math.round(espera * 1000));
+        iniciarAtendimento(b, nivel, tempoServico);
+        return true;
+    }
+
+    private void iniciarAtendimento(int b, int nivel, int tempoServico) {
+        double duracao = tempoServico * equipe[b].getFator(nivel);
+        livreEm[b] = agora + duracao;
+        segundosOcupados += duracao;
+    }
+
+    /**
+     * Retorna o nível mais prioritário com clientes que o barbeiro atende, ou -1.
+     */
+    private int nivelMaisPrioritario(int b) {
+        long[] elegiveis = equipe[b].getElegiveis();
+        for (int palavra = 0; palavra < naoVazias.length; palavra++) {
+            long candidatos = naoVazias[palavra] & elegiveis[palavra];
+            if (candidatos != 0) return (palavra << 6) + Long.numberOfTrailingZeros(candidatos);
+        }
+        return -1;
+    }
+
+    /**
+     * Retorna o histograma das esperas (em ms) dos clientes de um nível que já foram atendidos.
+     */
+    public HistogramaLatencia getEsperasMs(int nivel) {
+        return esperasMs[nivel];
+    }
+
+    public long getAceitos(int nivel) {
+        return aceitos[nivel];
+    }
+
+    public long getRejeitados(int nivel) {
+        return rejeitados[nivel];
+    }
+
+    /**
+     * Retorna a fração do tempo em que os barbeiros estiveram atendendo.
+     */
+    public double getUtilizacao() {
+        return segundosSimulados <= 0 ? 0.0 : Math.min(1.0, segundosOcupados / (segundosSimulados * livreEm.length));
+    }
+
+    /**
+     * Retorna o instante atual da simulação, em segundos virtuais.
+     */
+    public double getAgora() {
+        return agora;
+    }
+}
@@ -38,20 +38,34 @@ public class TenenteEscovinha implements Runnable {
             try {
                 Thread.sleep(3000); // Verifica o estado da barbearia a cada 3 segundos
 
-                // Registrar o comprimento atual das filas para o cálculo da média posterior
-                barbearia.registrarComprimentosFila();
+                // O comprimento médio das filas não depende destas leituras: a Barbearia mantém
+                // a integral exata de cada fila no tempo
 
                 // Exemplo de relatório parcial (pode ser mais detalhado)
+                Categorias categorias = barbearia.getCategorias();
                 System.out.println("\n--- Relatório Parcial do Tenente Escovinha ---");
                 System.out.printf("Cadeiras Ocupadas: %d / %d (%.2f%%)\n",
-                        barbearia.getCadeirasOcupadas(), 20, barbearia.getOcupacaoPercentual()); // [cite: 22]
-                System.out.printf("Ocupação por categoria: Oficiais %.2f%%, Sargentos %.2f%%, Cabos %.2f%%\n",
-                        barbearia.getOcupacaoPercentualPorCategoria(Cliente.Categoria.OFICIAL), // [cite: 22]
-                        barbearia.getOcupacaoPercentualPorCategoria(Cliente.Categoria.SARGENTO), // [cite: 22]
-                        barbearia.getOcupacaoPercentualPorCategoria(Cliente.Categoria.CABO)); // [cite: 22]
-                System.out.println("Tamanho atual das filas: Oficiais: " + barbearia.getTamanhoFila(Cliente.Categoria.OFICIAL) +
-                                   ", Sargentos: " + barbearia.getTamanhoFila(Cliente.Categoria.SARGENTO) +
-                                   ", Cabos: " + barbearia.getTamanhoFila(Cliente.Categoria.CABO)); // [cite: 23]
+                        barbearia.getCadeirasOcupadas(), barbearia.getCapacidadeTotal(), barbearia.getOcupacaoPercentual()); // [cite: 22]
+                StringBuilder ocupacao = new StringBuilder("Ocupação por categoria:");
+                StringBuilder tamanhos = new StringBuilder("Tamanho atual das filas:");
+                for (int nivel = 0; nivel < categorias.getQuantidade(); nivel++) {
+                    String separador = nivel == 0 ? " " : ", ";
+                    ocupacao.append(separador).append(String.format("%s %.2f%%",
+                            categorias.getNome(nivel), barbearia.getOcupacaoPercentualPorCategoria(nivel))); // [cite: 22]
+                    tamanhos.append(separador).append(categorias.getNome(nivel)).append(": ")
+                            .append(barbearia.getTamanhoFila(nivel)); // [cite: 23]
+                }
+                System.out.println(ocupacao);
+                System.out.println(tamanhos);
+                System.out.println("Condições recentes:");
+                imprimirJanelas("  ");
+                DetectorAquecimento.Resumo regime = barbearia.resumirAquecimento();
+                if (regime.detectado) {
+                    System.out.printf("Regime permanente desde %.1f s: espera média %.2f ± %.2f s\n",
+                            regime.segundosAquecimento, regime.mediaPermanente, regime.meiaLargura);
+                } else {
+                    System.out.println("Regime permanente: ainda em aquecimento.");
+                }
                 System.out.println("----------------------------------------------");
 
             } catch (InterruptedException e) {
@@ -60,9 +74,33 @@ public class TenenteEscovinha implements Runnable {
                 break; // Sai do loop
             }
         }
+        barbearia.registrarUsoThread(UsoThread.medirThreadAtual("Tenente Escovinha")); // Antes do relatório, para entrar nele
         gerarRelatorioFinal(); // Gera o relatório final ao encerrar
     }
 
+    /**
+     * Imprime as métricas das janelas deslizantes da barbearia: vazão, taxa de rejeição
+     * e p50/p99 de espera e de atendimento por categoria.
+     */
+    private void imprimirJanelas(String recuo) throws InterruptedException {
+        Categorias categorias = barbearia.getCategorias();
+        for (JanelaDeslizante.Resumo resumo : barbearia.resumirJanelas()) {
+            String nome = resumo.duracaoMs < 60_000
+                    ? (resumo.duracaoMs / 1000) + " s"
+                    : (resumo.duracaoMs / 60_000) + " min";
+            System.out.printf("%sÚltimos %s: %.2f atendimentos/s, rejeição %.2f%%\n",
+                    recuo, nome, resumo.getVazao(), 100 * resumo.getTaxaRejeicao());
+            StringBuilder linha = new StringBuilder(recuo + "  Espera p50/p99 | Atendimento p50/p99:");
+            for (int nivel = 0; nivel < categorias.getQuantidade(); nivel++) {
+                linha.append(nivel == 0 ? " " : ", ").append(String.format("%s %.1f/%.1f | %.1f/%.1f",
+                        categorias.getNome(nivel),
+                        resumo.esperaP50[nivel] / 1000.0, resumo.esperaP99[nivel] / 1000.0,
+                        resumo.atendimentoP50[nivel] / 1000.0, resumo.atendimentoP99[nivel] / 1000.0));
+            }
+            System.out.println(linha);
+        }
+    }
+
     /**
      * Sinaliza para o Tenente Escovinha que ele deve parar de monitorar e gerar o relatório final.
      */
@@ -74,51 +112,159 @@ public class TenenteEscovinha implements Runnable {
      * Elabora e exibe o relatório final das atividades da barbearia.
      */
     private void gerarRelatorioFinal() {
-        long duracaoSimulacaoMs = System.currentTimeMillis() - inicioSimulacao;
+        // Se a simulação foi retomada de um checkpoint, soma o tempo simulado antes dele
+        long duracaoSimulacaoMs = barbearia.getDuracaoAnteriorMs() + System.currentTimeMillis() - inicioSimulacao;
         double duracaoSimulacaoSeg = duracaoSimulacaoMs / 1000.0;
 
         System.out.println("\n\n*** Relatório Final das Atividades da Barbearia ***"); // [cite: 21]
         System.out.printf("Duração Total da Simulação: %.2f segundos\n\n", duracaoSimulacaoSeg);
 
+        Categorias categorias = barbearia.getCategorias();
+        int niveis = categorias.getQuantidade();
+
         // 1. Estado de ocupação das cadeiras (% por categoria e livre)
         System.out.println("1. Estado de Ocupação das Cadeiras:");
         System.out.printf("   Total Ocupadas: %d (%.2f%%)\n", barbearia.getCadeirasOcupadas(), barbearia.getOcupacaoPercentual());
         System.out.printf("   Total Livres: %d (%.2f%%)\n", barbearia.getCadeirasLivres(), 100.0 - barbearia.getOcupacaoPercentual());
-        System.out.printf("   Ocupação Média por Categoria: Oficiais %.2f%%, Sargentos %.2f%%, Cabos %.2f%%\n\n",
-                barbearia.getOcupacaoPercentualPorCategoria(Cliente.Categoria.OFICIAL),
-                barbearia.getOcupacaoPercentualPorCategoria(Cliente.Categoria.SARGENTO),
-                barbearia.getOcupacaoPercentualPorCategoria(Cliente.Categoria.CABO));
+        System.out.printf("   Ocupação Média (ponderada pelo tempo): %.2f%%\n", barbearia.getOcupacaoMedia());
+        System.out.print("   Ocupação Média por Categoria:");
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            System.out.printf("%s%s %.2f%%", nivel == 0 ? " " : ", ", categorias.getNome(nivel),
+                    barbearia.getOcupacaoMediaPorCategoria(nivel));
+        }
+        System.out.println("\n");
 
         // 2. Comprimento médio das filas
         System.out.println("2. Comprimento Médio das Filas:");
-        System.out.printf("   Oficiais: %.2f\n", barbearia.getComprimentoMedioFila(Cliente.Categoria.OFICIAL));
-        System.out.printf("   Sargentos: %.2f\n", barbearia.getComprimentoMedioFila(Cliente.Categoria.SARGENTO));
-        System.out.printf("   Cabos: %.2f\n\n", barbearia.getComprimentoMedioFila(Cliente.Categoria.CABO));
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            System.out.printf("   %s: %.2f\n", categorias.getNome(nivel), barbearia.getComprimentoMedioFila(nivel));
+        }
+        System.out.println();
 
         // 3. Tempo médio de atendimento por categoria
         System.out.println("3. Tempo Médio de Atendimento por Categoria (segundos):");
-        System.out.printf("   Oficiais: %.2f\n", barbearia.getTempoMedioAtendimento(Cliente.Categoria.OFICIAL));
-        System.out.printf("   Sargentos: %.2f\n", barbearia.getTempoMedioAtendimento(Cliente.Categoria.SARGENTO));
-        System.out.printf("   Cabos: %.2f\n\n", barbearia.getTempoMedioAtendimento(Cliente.Categoria.CABO));
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            System.out.printf("   %s: %.2f\n", categorias.getNome(nivel), barbearia.getTempoMedioAtendimento(nivel));
+        }
+        System.out.println();
 
         // 4. Tempo médio de espera por categoria
         System.out.println("4. Tempo Médio de Espera por Categoria (segundos):");
-        System.out.printf("   Oficiais: %.2f\n", barbearia.getTempoMedioEspera(Cliente.Categoria.OFICIAL));
-        System.out.printf("   Sargentos: %.2f\n", barbearia.getTempoMedioEspera(Cliente.Categoria.SARGENTO));
-        System.out.printf("   Cabos: %.2f\n\n", barbearia.getTempoMedioEspera(Cliente.Categoria.CABO));
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            System.out.printf("   %s: %.2f\n", categorias.getNome(nivel), barbearia.getTempoMedioEspera(nivel));
+        }
+        System.out.println();
 
         // 5. Número de atendimentos por categoria
         System.out.println("5. Número de Atendimentos por Categoria:");
-        System.out.printf("   Oficiais: %d\n", barbearia.getTotalAtendimentos(Cliente.Categoria.OFICIAL));
-        System.out.printf("   Sargentos: %d\n", barbearia.getTotalAtendimentos(Cliente.Categoria.SARGENTO));
-        System.out.printf("   Cabos: %d\n\n", barbearia.getTotalAtendimentos(Cliente.Categoria.CABO));
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            System.out.printf("   %s: %d\n", categorias.getNome(nivel), barbearia.getTotalAtendimentos(nivel));
+        }
+        System.out.println();
 
-        // 6. Número total de clientes por categoria (oficiais, sargentos, cabos e pausa)
+        // 6. Número total de clientes por categoria (todas as categorias e pausa)
         System.out.println("6. Número Total de Clientes Gerados por Categoria:");
-        System.out.printf("   Oficiais: %d\n", barbearia.getTotalClientesGerados(Cliente.Categoria.OFICIAL));
-        System.out.printf("   Sargentos: %d\n", barbearia.getTotalClientesGerados(Cliente.Categoria.SARGENTO));
-        System.out.printf("   Cabos: %d\n", barbearia.getTotalClientesGerados(Cliente.Categoria.CABO));
-        System.out.printf("   Pausas: %d\n\n", barbearia.getTotalClientesGerados(Cliente.Categoria.PAUSA));
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            System.out.printf("   %s: %d\n", categorias.getNome(nivel), barbearia.getTotalClientesGerados(nivel));
+        }
+        System.out.printf("   Pausas: %d\n\n", barbearia.getTotalClientesGerados(Cliente.PAUSA));
+
+        // 7. Conferência pela lei de Little: comprimento médio medido (L) contra vazão x espera (λ·W)
+        // Os desistentes também saem da fila, então entram com o tempo que esperaram
+        System.out.println("7. Lei de Little nas Filas (L medido x λ·W):");
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            double medido = barbearia.getComprimentoMedioFila(nivel);
+            double segundos = barbearia.getSegundosObservados();
+            double previsto = barbearia.getVazaoSaida(nivel) * barbearia.getTempoMedioEspera(nivel)
+                    + (segundos <= 0 ? 0.0 : barbearia.getSegundosEsperaDesistentes(nivel) / segundos);
+            double desvio = medido == 0 ? 0.0 : 100 * (previsto - medido) / medido;
+            System.out.printf("   %s: L = %.3f, λ·W = %.3f (desvio %.1f%%)\n", categorias.getNome(nivel), medido, previsto, desvio);
+        }
+        System.out.println();
+
+        // 8. Utilização de cada barbeiro e recursos consumidos por thread
+        System.out.println("8. Barbeiros e Recursos por Thread:");
+        long cpuTotal = 0;
+        long bytesTotal = 0;
+        for (UsoThread uso : barbearia.getUsosThreads()) {
+            if (uso.isBarbeiro()) {
+                double total = uso.getOcupadoNs() + uso.getOciosoNs() + uso.getBloqueadoNs() + uso.getOutrosNs();
+                System.out.printf("   %s: %d atendidos, ocupado %.1f%%, ocioso %.1f%%, bloqueado %.2f%%, outros %.2f%%\n",
+                        uso.getNome(), uso.getAtendidos(), 100 * uso.getOcupadoNs() / total, 100 * uso.getOciosoNs() / total,
+                        100 * uso.getBloqueadoNs() / total, 100 * uso.getOutrosNs() / total);
+            }
+        }
+        for (UsoThread uso : barbearia.getUsosThreads()) {
+            System.out.printf("   %-18s CPU %s, alocado %s\n", uso.getNome() + ":",
+                    uso.getCpuNs() < 0 ? "n/d" : String.format("%.3f s", uso.getCpuNs() / 1e9),
+                    uso.getBytesAlocados() < 0 ? "n/d" : String.format("%.2f MB", uso.getBytesAlocados() / (1024.0 * 1024.0)));
+            cpuTotal += Math.max(0, uso.getCpuNs());
+            bytesTotal += Math.max(0, uso.getBytesAlocados());
+        }
+        System.out.printf("   Total: CPU %.3f s, alocado %.2f MB\n\n", cpuTotal / 1e9, bytesTotal / (1024.0 * 1024.0));
+
+        // 9. Métricas das janelas deslizantes no fim da simulação
+        System.out.println("9. Condições nas Últimas Janelas (vazão, rejeição e percentis em segundos):");
+        try {
+            imprimirJanelas("   ");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println();
+
+        // 10. Aquecimento separado do regime permanente: a barbearia começa vazia, o que puxa
+        // para baixo as médias das seções 2 e 4
+        System.out.println("10. Aquecimento e Regime Permanente (corte MSER-5):");
+        try {
+            DetectorAquecimento.Resumo regime = barbearia.resumirAquecimento();
+            if (!regime.detectado) {
+                System.out.printf("   Regime permanente não detectado (%d lotes de %d esperas).\n",
+                        regime.lotes, DetectorAquecimento.TAMANHO_LOTE);
+            } else {
+                System.out.printf("   Aquecimento: primeiros %.2f segundos (%d esperas descartadas de %d lotes).\n",
+                        regime.segundosAquecimento, regime.clientesDescartados, regime.lotes);
+                System.out.printf("   Espera média em regime permanente: %.2f ± %.2f s (intervalo de 95%%)\n",
+                        regime.mediaPermanente, regime.meiaLargura);
+                System.out.println("   Categoria: espera média (s) e comprimento médio da fila, aquecimento -> permanente");
+                for (int nivel = 0; nivel < niveis; nivel++) {
+                    System.out.printf("   %s: espera %.2f -> %.2f, fila %.2f -> %.2f\n", categorias.getNome(nivel),
+                            regime.esperaAquecimento[nivel], regime.esperaPermanente[nivel],
+                            regime.comprimentoAquecimento[nivel], regime.comprimentoPermanente[nivel]);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println();
+
+        // 11. Clientes que perderam a paciência e foram embora sem ser atendidos
+        if (barbearia.isDesistenciaConfigurada()) {
+            System.out.println("11. Desistências por Categoria:");
+            for (int nivel = 0; nivel < niveis; nivel++) {
+                int desistencias = barbearia.getTotalDesistencias(nivel);
+                int aceitos = desistencias + barbearia.getTotalAtendimentos(nivel);
+                System.out.printf("   %s: %d desistências (%.2f%% dos que entraram), paciência %.1f s\n",
+                        categorias.getNome(nivel), desistencias, aceitos == 0 ? 0.0 : 100.0 * desistencias / aceitos,
+                        barbearia.getPacienciaSegundos(nivel));
+            }
+            System.out.println();
+        }
+
+        // 12. Caso E: quem atendeu o quê, com o perfil de cada barbeiro
+        if (barbearia instanceof BarbeariaHabilidades) {
+            BarbeariaHabilidades equipe = (BarbeariaHabilidades) barbearia;
+            System.out.println("12. Roteamento por Habilidade (perfil: fator de tempo por categoria, - não atende):");
+            for (int b = 0; b < equipe.getQuantidadeBarbeiros(); b++) {
+                StringBuilder atendimentos = new StringBuilder();
+                for (int nivel = 0; nivel < niveis; nivel++) {
+                    atendimentos.append(nivel == 0 ? "" : ", ").append(categorias.getNome(nivel)).append(' ')
+                            .append(equipe.getAtendimentos(b, nivel));
+                }
+                String nome = equipe.getNomeBarbeiro(b);
+                System.out.printf("   %s [%s]: %s\n", nome == null ? "Barbeiro " + (b + 1) : nome, equipe.getHabilidades(b), atendimentos);
+            }
+            System.out.println();
+        }
 
         System.out.println("**************************************************");
     }
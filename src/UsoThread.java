@@ -0,0 +1,110 @@
+import java.lang.management.ManagementFactory; // Acesso ao ThreadMXBean da JVM
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Uso de recursos de uma thread da simulação (Sargento, barbeiros, Tenente, auto-escalonador).
+ * Guarda o tempo de CPU e os bytes alocados pela thread, lidos do {@link ThreadMXBean}, e,
+ * para os barbeiros, quanto tempo passaram ocupados, ociosos, bloqueados nos locks da
+ * barbearia e no resto do ciclo e quantos clientes atenderam.
+ * Cada thread mede a si mesma no fim do seu {@code run()}, enquanto ainda está viva
+ * (o ThreadMXBean não informa nada de threads encerradas); durante a simulação o
+ * barbeiro só soma diferenças de {@link System#nanoTime()}, sem nenhuma chamada à JVM.
+ *
+ * @author Matheus Rocha
+ * @author Guilherme Sahdo
+ * @version 1.0
+ */
+public class UsoThread {
+    private final String nome;
+    private final long cpuNs;          // -1 se a JVM não medir CPU por thread
+    private final long bytesAlocados;  // -1 se a JVM não medir alocação por thread
+    private long ocupadoNs = -1;       // Campos de barbeiro: -1 para os outros atores
+    private long ociosoNs = -1;
+    private long bloqueadoNs = -1;
+    private long outrosNs = -1;
+    private int atendidos = -1;
+
+    private UsoThread(String nome, long cpuNs, long bytesAlocados) {
+        this.nome = nome;
+        this.cpuNs = cpuNs;
+        this.bytesAlocados = bytesAlocados;
+    }
+
+    /**
+     * Mede o tempo de CPU e a alocação da thread atual desde que ela começou.
+     *
+     * @param nome O nome do ator exibido no relatório.
+     * @return A medição da thread atual.
+     */
+    public static UsoThread medirThreadAtual(String nome) {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        long cpu = mx.isThreadCpuTimeSupported() && mx.isThreadCpuTimeEnabled() ? mx.getCurrentThreadCpuTime() : -1;
+        long bytes = -1;
+        // A alocação por thread é uma extensão da HotSpot (com.sun.management)
+        if (mx instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) mx;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                bytes = hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return new UsoThread(nome, cpu, bytes);
+    }
+
+    /**
+     * Completa a medição com o tempo de um barbeiro.
+     *
+     * @param ocupadoNs Tempo atendendo clientes.
+     * @param ociosoNs Tempo esperando por um cliente.
+     * @param bloqueadoNs Tempo esperando pelos locks da barbearia ({@link Barbearia#getBloqueadoNs()}).
+     * @param outrosNs O resto do ciclo (total menos os três acima), como a saída no console.
+     * @param atendidos Clientes atendidos.
+     * @return Esta medição.
+     */
+    public UsoThread comAtendimento(long ocupadoNs, long ociosoNs, long bloqueadoNs, long outrosNs, int atendidos) {
+        this.ocupadoNs = ocupadoNs;
+        this.ociosoNs = ociosoNs;
+        this.bloqueadoNs = bloqueadoNs;
+        this.outrosNs = outrosNs;
+        this.atendidos = atendidos;
+        return this;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public long getCpuNs() {
+        return cpuNs;
+    }
+
+    public long getBytesAlocados() {
+        return bytesAlocados;
+    }
+
+    /**
+     * Indica se a medição é de um barbeiro (tem tempos de atendimento).
+     */
+    public boolean isBarbeiro() {
+        return atendidos >= 0;
+    }
+
+    public long getOcupadoNs() {
+        return ocupadoNs;
+    }
+
+    public long getOciosoNs() {
+        return ociosoNs;
+    }
+
+    public long getBloqueadoNs() {
+        return bloqueadoNs;
+    }
+
+    public long getOutrosNs() {
+        return outrosNs;
+    }
+
+    public int getAtendidos() {
+        return atendidos;
+    }
+}